@@ -20,23 +20,47 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.reactivestreams.Publisher;
 
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
-import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.CodecNotFoundException;
 import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.exceptions.PagingStateException;
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.orangerhymelabs.helenus.exception.DuplicateItemException;
+import com.orangerhymelabs.helenus.exception.InvalidCursorException;
 import com.orangerhymelabs.helenus.exception.InvalidIdentifierException;
 import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.Page;
+import com.orangerhymelabs.helenus.persistence.ReadResult;
 import com.orangerhymelabs.helenus.persistence.StatementFactory;
 import com.orangerhymelabs.helenus.persistence.StatementFactoryHandler;
 
@@ -47,9 +71,17 @@ import com.orangerhymelabs.helenus.persistence.StatementFactoryHandler;
  */
 public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 {
+	// Completes multi-key reads at their deadline. Only ever runs short, non-blocking tasks.
+	private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(
+		new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-read-deadline-%d").build());
+
 	private Session session;
 	private String keyspace;
 	private F statementFactory;
+	private RequestLimiter limiter;
+	private RepositoryMetrics metrics;
+	private ConsistencyLevel readConsistency;
+	private ConsistencyLevel writeConsistency;
 
 	public AbstractCassandraRepository(Session session, String keyspace, Class<F> factoryClass)
 	{
@@ -61,6 +93,9 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 		this.session = session;
 		this.keyspace = keyspace;
 		this.statementFactory = newStatementFactory(factoryClass, session, keyspace, table);
+
+		// Start preparing without waiting, so statements are usually ready by first use.
+		this.statementFactory.prepareAll();
 	}
 
 	public AbstractCassandraRepository(Session session, String keyspace, F factory)
@@ -78,7 +113,7 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 	public ListenableFuture<T> create(T entity)
 	{
 		ListenableFuture<ResultSet> future = submitCreate(entity);
-		return Futures.transformAsync(future, new AsyncFunction<ResultSet, T>()
+		return metered(RepositoryMetrics.CREATE, Futures.transformAsync(future, new AsyncFunction<ResultSet, T>()
 		{
 			@Override
 			public ListenableFuture<T> apply(ResultSet result)
@@ -91,26 +126,30 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 
 				return Futures.immediateFailedFuture(new DuplicateItemException(entity.toString()));
 			}
-		});
+		}));
 	}
 
+	/**
+	 * Check whether an entity exists. The exists() statement selects only key columns, with limit 1, so this
+	 * never reads (or aggregates over) the rest of the row.
+	 */
 	public ListenableFuture<Boolean> exists(Identifier id)
 	{
 		ListenableFuture<ResultSet> future = submitExists(id);
-		return Futures.transform(future, new Function<ResultSet, Boolean>()
+		return metered(RepositoryMetrics.EXISTS, Futures.transform(future, new Function<ResultSet, Boolean>()
 		{
 			@Override
 			public Boolean apply(ResultSet result)
 			{
-				return result.one().getLong(0) > 0;
+				return !result.isExhausted();
 			}
-		});
+		}));
 	}
 
 	public ListenableFuture<T> update(T entity)
 	{
 		ListenableFuture<ResultSet> future = submitUpdate(entity);
-		return Futures.transformAsync(future, new AsyncFunction<ResultSet, T>()
+		return metered(RepositoryMetrics.UPDATE, Futures.transformAsync(future, new AsyncFunction<ResultSet, T>()
 		{
 			@Override
 			public ListenableFuture<T> apply(ResultSet result)
@@ -122,13 +161,13 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 
 				return Futures.immediateFailedFuture(new ItemNotFoundException(entity.toString()));
 			}
-		});		
+		}));		
 	}
 
 	public ListenableFuture<Boolean> delete(Identifier id)
 	{
 		ListenableFuture<ResultSet> future = submitDelete(id);
-		return Futures.transformAsync(future, new AsyncFunction<ResultSet, Boolean>()
+		return metered(RepositoryMetrics.DELETE, Futures.transformAsync(future, new AsyncFunction<ResultSet, Boolean>()
 		{
 			@Override
 			public ListenableFuture<Boolean> apply(ResultSet result)
@@ -140,13 +179,14 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 
 				return Futures.immediateFuture(true);
 			}
-		});
+		}));
 	}
 
 	public ListenableFuture<T> read(Identifier id)
 	{
+		OperationTrace trace = OperationTrace.current();
 		ListenableFuture<ResultSet> rs = submitRead(id);
-		return Futures.transformAsync(rs, new AsyncFunction<ResultSet, T>()
+		return metered(RepositoryMetrics.READ, Futures.transformAsync(rs, new AsyncFunction<ResultSet, T>()
 		{
 			@Override
 			public ListenableFuture<T> apply(ResultSet result)
@@ -156,9 +196,16 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 					return Futures.immediateFailedFuture(new ItemNotFoundException(id.toString()));
 				}
 
-				return Futures.immediateFuture(marshalRow(result.one()));
+				T entity = marshalRow(result.one());
+
+				if (trace != null)
+				{
+					trace.stage(OperationTrace.DECODE);
+				}
+
+				return Futures.immediateFuture(entity);
 			}
-		});
+		}));
 	}
 
 	public ListenableFuture<List<T>> readAll(Object... parms)
@@ -167,15 +214,146 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 	}
 
 	public ListenableFuture<List<T>> readAll(PreparedStatement statement, Object... parms)
+	{
+		return readAll(Futures.immediateFuture(statement), parms);
+	}
+
+	public ListenableFuture<List<T>> readAll(ListenableFuture<PreparedStatement> statement, Object... parms)
 	{
 		ListenableFuture<ResultSet> future = submitStatement(statement, parms);
-		return Futures.transformAsync(future, new AsyncFunction<ResultSet, List<T>>()
+		return metered(RepositoryMetrics.READ_ALL, Futures.transformAsync(future, new AsyncFunction<ResultSet, List<T>>()
 		{
 			@Override
 			public ListenableFuture<List<T>> apply(ResultSet input)
 			{
 				return Futures.immediateFuture(marshalAll(input));
 			}
+		}));
+	}
+
+	/**
+	 * Read a single page of the readAll() results.
+	 * 
+	 * @param fetchSize the maximum number of items in the returned page.
+	 * @param cursor the cursor from a previous page, or null to read the first page.
+	 * @param parms the readAll() statement parameters.
+	 * @see #readPage(PreparedStatement, int, String, Object...)
+	 */
+	public ListenableFuture<Page<T>> readPage(int fetchSize, String cursor, Object... parms)
+	{
+		return readPage(statementFactory.readAll(), fetchSize, cursor, parms);
+	}
+
+	/**
+	 * Read a single page of results for the given statement. Only the rows in the requested page are
+	 * marshaled, so walking a large result set page-by-page has a fixed memory footprint regardless of
+	 * its total size.
+	 * 
+	 * The cursor is an opaque token built on the driver's PagingState. It is only valid for the same
+	 * statement and parameters that produced it.
+	 * 
+	 * @param statement the statement to execute.
+	 * @param fetchSize the maximum number of items in the returned page.
+	 * @param cursor the cursor from a previous page, or null to read the first page.
+	 * @param parms the statement parameters.
+	 * @return a Page containing at most fetchSize items and the cursor for the next page, if any.
+	 */
+	public ListenableFuture<Page<T>> readPage(PreparedStatement statement, int fetchSize, String cursor, Object... parms)
+	{
+		return readPage(Futures.immediateFuture(statement), fetchSize, cursor, parms);
+	}
+
+	/**
+	 * @see #readPage(PreparedStatement, int, String, Object...)
+	 */
+	public ListenableFuture<Page<T>> readPage(ListenableFuture<PreparedStatement> statement, int fetchSize, String cursor, Object... parms)
+	{
+		return readPage(statement, new Function<Row, T>()
+		{
+			@Override
+			public T apply(Row row)
+			{
+				return marshalRow(row);
+			}
+		}, fetchSize, cursor, parms);
+	}
+
+	/**
+	 * Read a single page of results for the given statement, marshaling each row with the given function
+	 * instead of marshalRow(), such as to read a different projection of the rows.
+	 * 
+	 * @see #readPage(PreparedStatement, int, String, Object...)
+	 */
+	protected <R> ListenableFuture<Page<R>> readPage(ListenableFuture<PreparedStatement> statement, Function<Row, R> marshaller, int fetchSize, String cursor, Object... parms)
+	{
+		ListenableFuture<ResultSet> future;
+
+		try
+		{
+			future = submitPage(statement, fetchSize, cursor, parms);
+		}
+		catch (InvalidCursorException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		return metered(RepositoryMetrics.READ_PAGE, Futures.transformAsync(future, new AsyncFunction<ResultSet, Page<R>>()
+		{
+			@Override
+			public ListenableFuture<Page<R>> apply(ResultSet input)
+			{
+				return Futures.immediateFuture(marshalPage(input, marshaller));
+			}
+		}));
+	}
+
+	/**
+	 * Stream the readAll() results.
+	 * 
+	 * @param fetchSize the number of rows fetched from Cassandra per page.
+	 * @param parms the readAll() statement parameters.
+	 * @see #publish(PreparedStatement, int, Object...)
+	 */
+	public Publisher<T> publishAll(int fetchSize, Object... parms)
+	{
+		return publish(statementFactory.readAll(), fetchSize, parms);
+	}
+
+	/**
+	 * Stream the results of the given statement as a Reactive Streams Publisher. Nothing is executed until
+	 * a subscriber requests items, and subsequent pages are fetched only as downstream demand requires, so
+	 * at most one page of rows is held in memory at a time.
+	 * 
+	 * @param statement the statement to execute.
+	 * @param fetchSize the number of rows fetched from Cassandra per page.
+	 * @param parms the statement parameters.
+	 * @return a cold Publisher. Each subscription executes the statement anew.
+	 */
+	public Publisher<T> publish(PreparedStatement statement, int fetchSize, Object... parms)
+	{
+		return publish(Futures.immediateFuture(statement), fetchSize, parms);
+	}
+
+	/**
+	 * @see #publish(PreparedStatement, int, Object...)
+	 */
+	public Publisher<T> publish(ListenableFuture<PreparedStatement> statement, int fetchSize, Object... parms)
+	{
+		return new ResultSetPublisher<T>(new Supplier<ListenableFuture<ResultSet>>()
+		{
+			@Override
+			public ListenableFuture<ResultSet> get()
+			{
+				return submitPage(statement, fetchSize, null, parms);
+			}
+		},
+		new Function<Row, T>()
+		{
+			@Override
+			public T apply(Row row)
+			{
+				return marshalRow(row);
+			}
 		});
 	}
 
@@ -187,30 +365,97 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 	 * directly and collates the results client-side.
 	 * 
 	 * @param ids the partition keys (identifiers) to select.
+	 * @return an entity for each identifier, in the order given, or null where none exists. Fails if any read fails.
+	 * @throws InvalidIdentifierException if any identifier is invalid.
 	 */
 	public ListenableFuture<List<T>> readIn(Identifier... ids)
 	{
-		List<ListenableFuture<ResultSet>> futures = submitReadIn(ids);
-		List<ListenableFuture<T>> results = new ArrayList<>(ids.length);
+		if (ids == null) return Futures.immediateFuture(Collections.emptyList());
+
+		for (Identifier id : ids)
+		{
+			validateIdentity(id);
+		}
+
+		return metered(RepositoryMetrics.READ_IN, Futures.allAsList(submitEach(ids)));
+	}
+
+	/**
+	 * Read all given identifiers, reporting the outcome of each one separately. The returned future
+	 * does not fail; a failed read affects only the identifiers it was reading.
+	 * 
+	 * @param ids the identifiers to select.
+	 * @return a ReadResult for each identifier, in the order given.
+	 */
+	public ListenableFuture<List<ReadResult<T>>> readEach(Identifier... ids)
+	{
+		return readEach(0L, TimeUnit.MILLISECONDS, ids);
+	}
+
+	/**
+	 * Read all given identifiers, reporting the outcome of each one separately, and completing no later than
+	 * the given timeout. Identifiers that have not been read by then are reported as failures with a
+	 * TimeoutException, and their reads are cancelled.
+	 * 
+	 * @param timeout the maximum time to wait for all reads. Zero or less means no limit.
+	 * @param unit the unit of the timeout.
+	 * @param ids the identifiers to select.
+	 * @return a ReadResult for each identifier, in the order given.
+	 */
+	public ListenableFuture<List<ReadResult<T>>> readEach(long timeout, TimeUnit unit, Identifier... ids)
+	{
+		if (ids == null || ids.length == 0) return Futures.immediateFuture(Collections.emptyList());
+
+		List<ListenableFuture<T>> futures = submitEach(ids);
+		SettableFuture<List<ReadResult<T>>> results = SettableFuture.create();
+		AtomicBoolean isCollected = new AtomicBoolean(false);
+		Runnable collector = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				// Cancelling the late reads below runs this again, through successfulAsList.
+				if (!isCollected.compareAndSet(false, true)) return;
 
-		for (ListenableFuture<ResultSet> future : futures)
+				List<ReadResult<T>> collected = collect(ids, futures);
+
+				// Stop waiting on reads that missed the deadline, before anyone sees the results.
+				for (ListenableFuture<T> future : futures)
+				{
+					future.cancel(false);
+				}
+
+				results.set(collected);
+			}
+		};
+
+		Futures.successfulAsList(futures).addListener(collector, MoreExecutors.directExecutor());
+
+		if (timeout > 0L && !results.isDone())
 		{
-			results.add(Futures.transformAsync(future, new AsyncFunction<ResultSet, T>()
+			ScheduledFuture<?> deadline = DEADLINES.schedule(collector, timeout, unit);
+			results.addListener(new Runnable()
 			{
 				@Override
-				public ListenableFuture<T> apply(ResultSet input)
+				public void run()
 				{
-					if (!input.isExhausted())
-					{
-						return Futures.immediateFuture(marshalRow(input.one()));
-					}
-
-					return Futures.immediateFuture(null);
+					deadline.cancel(false);
 				}
-			}));
+			}, MoreExecutors.directExecutor());
 		}
 
-		return Futures.allAsList(results);
+		return metered(RepositoryMetrics.READ_EACH, results);
+	}
+
+	/**
+	 * Prepare every statement this repository uses, so the first requests don't wait on a round trip
+	 * to prepare. Prepared statements are cached per session, so this only needs to succeed once.
+	 * 
+	 * @return the future prepared statements. Fails if any statement fails to prepare.
+	 */
+	public ListenableFuture<List<PreparedStatement>> prepareAll()
+	{
+		return Futures.allAsList(statementFactory.prepareAll());
 	}
 
 	public Session session()
@@ -218,6 +463,74 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 		return session;
 	}
 
+	/**
+	 * Sets the limiter that admits every statement this repository executes. When null (the default),
+	 * statements are submitted to the session without limit.
+	 * 
+	 * @param limiter a RequestLimiter, usually shared by all repositories on the same session.
+	 */
+	public void limiter(RequestLimiter limiter)
+	{
+		this.limiter = limiter;
+	}
+
+	public RequestLimiter limiter()
+	{
+		return limiter;
+	}
+
+	/**
+	 * Sets where this repository records the latency and errors of its operations. When null (the default),
+	 * nothing is recorded.
+	 */
+	public void metrics(RepositoryMetrics metrics)
+	{
+		this.metrics = metrics;
+	}
+
+	public RepositoryMetrics metrics()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the consistency level for every read statement executed by this repository. When null (the default),
+	 * the driver's default consistency level applies.
+	 */
+	public void readConsistency(ConsistencyLevel readConsistency)
+	{
+		this.readConsistency = readConsistency;
+	}
+
+	public ConsistencyLevel readConsistency()
+	{
+		return readConsistency;
+	}
+
+	/**
+	 * Sets the consistency level for every write statement executed by this repository. When null (the default),
+	 * the driver's default consistency level applies.
+	 */
+	public void writeConsistency(ConsistencyLevel writeConsistency)
+	{
+		this.writeConsistency = writeConsistency;
+	}
+
+	public ConsistencyLevel writeConsistency()
+	{
+		return writeConsistency;
+	}
+
+	/**
+	 * Records the operation's latency and errors, if this repository has metrics.
+	 * 
+	 * @return a future that completes with the given one.
+	 */
+	protected <V> ListenableFuture<V> metered(String operation, ListenableFuture<V> future)
+	{
+		return (metrics != null ? metrics.time(operation, future) : future);
+	}
+
 	protected String keyspace()
 	{
 		return keyspace;
@@ -258,55 +571,282 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 		return results;
 	}
 
+	/**
+	 * Marshals only the rows already fetched for the current page. Iterating past them would cause the
+	 * driver to fetch the next page synchronously.
+	 * 
+	 * @param rs a ResultSet executed with a fetch size.
+	 * @param marshaller marshals each row.
+	 * @return a Page of marshaled rows with the cursor for the next page.
+	 */
+	protected <R> Page<R> marshalPage(ResultSet rs, Function<Row, R> marshaller)
+	{
+		int available = rs.getAvailableWithoutFetching();
+		List<R> results = new ArrayList<R>(available);
+		Iterator<Row> i = rs.iterator();
+
+		while (available-- > 0)
+		{
+			results.add(marshaller.apply(i.next()));
+		}
+
+		PagingState next = rs.getExecutionInfo().getPagingState();
+		return new Page<R>(results, (next != null ? next.toString() : null));
+	}
+
+	/**
+	 * All statements executed by this repository go through here, so they are subject to the RequestLimiter, if any.
+	 * 
+	 * @param statement the statement to execute.
+	 * @return the future ResultSet.
+	 */
+	protected ListenableFuture<ResultSet> execute(Statement statement)
+	{
+		if (limiter != null)
+		{
+			return limiter.execute(session, statement);
+		}
+
+		return session.executeAsync(statement);
+	}
+
+	/**
+	 * Execute a statement that reads, at this repository's read consistency level.
+	 */
+	protected ListenableFuture<ResultSet> executeRead(Statement statement)
+	{
+		if (readConsistency != null)
+		{
+			statement.setConsistencyLevel(readConsistency);
+		}
+
+		return execute(statement);
+	}
+
+	/**
+	 * Execute a statement that writes, at this repository's write consistency level.
+	 */
+	protected ListenableFuture<ResultSet> executeWrite(Statement statement)
+	{
+		if (writeConsistency != null)
+		{
+			statement.setConsistencyLevel(writeConsistency);
+		}
+
+		return execute(statement);
+	}
+
+	/**
+	 * Bind and execute a reading statement once it is prepared. Never blocks waiting for the statement
+	 * to prepare; a failure to prepare or bind fails the returned future.
+	 * 
+	 * @param statement the future prepared statement.
+	 * @param binder creates the executable statement from the prepared one.
+	 */
+	protected ListenableFuture<ResultSet> executeRead(ListenableFuture<PreparedStatement> statement, Function<PreparedStatement, ? extends Statement> binder)
+	{
+		OperationTrace trace = OperationTrace.current();
+
+		if (trace != null)
+		{
+			trace.stage(OperationTrace.VALIDATE);
+		}
+
+		return Futures.transformAsync(statement, new AsyncFunction<PreparedStatement, ResultSet>()
+		{
+			@Override
+			public ListenableFuture<ResultSet> apply(PreparedStatement input)
+			{
+				if (trace == null) return executeRead(binder.apply(input));
+
+				trace.stage(OperationTrace.PREPARE);
+				return traced(trace, executeRead(tracing(trace, binder.apply(input))));
+			}
+		});
+	}
+
+	/**
+	 * Bind and execute a writing statement once it is prepared.
+	 * 
+	 * @see #executeRead(ListenableFuture, Function)
+	 */
+	protected ListenableFuture<ResultSet> executeWrite(ListenableFuture<PreparedStatement> statement, Function<PreparedStatement, ? extends Statement> binder)
+	{
+		OperationTrace trace = OperationTrace.current();
+
+		if (trace != null)
+		{
+			trace.stage(OperationTrace.VALIDATE);
+		}
+
+		return Futures.transformAsync(statement, new AsyncFunction<PreparedStatement, ResultSet>()
+		{
+			@Override
+			public ListenableFuture<ResultSet> apply(PreparedStatement input)
+			{
+				if (trace == null) return executeWrite(binder.apply(input));
+
+				trace.stage(OperationTrace.PREPARE);
+				return traced(trace, executeWrite(tracing(trace, binder.apply(input))));
+			}
+		});
+	}
+
+	private Statement tracing(OperationTrace trace, Statement statement)
+	{
+		if (trace.isQueryTracing())
+		{
+			statement.enableTracing();
+		}
+
+		return statement;
+	}
+
+	/**
+	 * Ends the trace's execute stage when the statement completes, noting its coordinator and QueryTrace.
+	 */
+	private ListenableFuture<ResultSet> traced(OperationTrace trace, ListenableFuture<ResultSet> future)
+	{
+		Futures.addCallback(future, new FutureCallback<ResultSet>()
+		{
+			@Override
+			public void onSuccess(ResultSet result)
+			{
+				trace.stage(OperationTrace.EXECUTE);
+				ExecutionInfo info = result.getExecutionInfo();
+				trace.executedOn(info.getQueriedHost(), (trace.isQueryTracing() ? info.getQueryTrace() : null));
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				trace.stage(OperationTrace.EXECUTE);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Called on the calling thread before an identifier is bound, since binding waits for the statement
+	 * to be prepared. Subclasses that know the key types should throw InvalidIdentifierException here, so
+	 * invalid identifiers are still reported synchronously.
+	 * 
+	 * @param id the identifier about to be bound.
+	 */
+	protected void validateIdentity(Identifier id)
+	{
+		// nothing to check by default.
+	}
+
 	protected abstract void bindCreate(BoundStatement bs, T entity);
 	protected abstract void bindUpdate(BoundStatement bs, T entity);
 	protected abstract T marshalRow(Row row);
 
-	protected ResultSetFuture submitCreate(T entity)
+	protected ListenableFuture<ResultSet> submitCreate(T entity)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory.create());
-		bindCreate(bs, entity);
-		return session.executeAsync(bs);
+		return executeWrite(statementFactory.create(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindCreate(bs, entity);
+				return bs;
+			}
+		});
 	}
 
-	protected ResultSetFuture submitDelete(Identifier id)
+	protected ListenableFuture<ResultSet> submitDelete(Identifier id)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory.delete());
-		bindIdentity(bs, id);
-		return session.executeAsync(bs);
+		validateIdentity(id);
+		return executeWrite(statementFactory.delete(), new IdentityBinder(id));
 	}
 
 	private ListenableFuture<ResultSet> submitExists(Identifier id)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory().exists());
-		bindIdentity(bs, id);
-		return session().executeAsync(bs);
+		validateIdentity(id);
+		return executeRead(statementFactory.exists(), new IdentityBinder(id));
+	}
+
+	private ListenableFuture<ResultSet> submitRead(Identifier id)
+	{
+		validateIdentity(id);
+		return executeRead(statementFactory.read(), new IdentityBinder(id));
 	}
 
-	private ResultSetFuture submitRead(Identifier id)
+	protected ListenableFuture<ResultSet> submitStatement(ListenableFuture<PreparedStatement> statement, Object... parms)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory.read());
-		bindIdentity(bs, id);
-		return session.executeAsync(bs);
+		return executeRead(statement, new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+
+				if (parms != null)
+				{
+					bs.bind(parms);
+				}
+
+				return bs;
+			}
+		});
 	}
 
-	protected ResultSetFuture submitStatement(PreparedStatement statement, Object... parms)
+	protected ListenableFuture<ResultSet> submitPage(ListenableFuture<PreparedStatement> statement, int fetchSize, String cursor, Object... parms)
 	{
-		BoundStatement bs = new BoundStatement(statement);
+		PagingState pagingState = null;
 
-		if (parms != null)
+		if (cursor != null)
 		{
-			bs.bind(parms);
+			try
+			{
+				pagingState = PagingState.fromString(cursor);
+			}
+			catch (PagingStateException e)
+			{
+				throw new InvalidCursorException("Invalid or expired cursor", e);
+			}
 		}
 
-		return session.executeAsync(bs);
+		PagingState start = pagingState;
+		return executeRead(statement, new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+
+				if (parms != null)
+				{
+					bs.bind(parms);
+				}
+
+				bs.setFetchSize(fetchSize);
+
+				if (start != null)
+				{
+					bs.setPagingState(start);
+				}
+
+				return bs;
+			}
+		});
 	}
 
-	protected ResultSetFuture submitUpdate(T entity)
+	protected ListenableFuture<ResultSet> submitUpdate(T entity)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory.update());
-		bindUpdate(bs, entity);
-		return session.executeAsync(bs);
+		return executeWrite(statementFactory.update(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindUpdate(bs, entity);
+				return bs;
+			}
+		});
 	}
 
 	/**
@@ -314,28 +854,126 @@ public abstract class AbstractCassandraRepository<T, F extends StatementFactory>
 	 * coordinator node. Sends an individual query for each partition key, so reaches the appropriate replica
 	 * directly and collates the results client-side.
 	 * 
-	 * @param ids the partition keys (identifiers) to select.
-	 * @return a List of ListenableFuture instances for each underlying ResultSet--one for each ID.
+	 * @param ids the identifiers to select.
+	 * @return a future for each identifier, in the order given, of its entity or null if it doesn't exist.
+	 * An invalid identifier gets a failed future.
 	 */
-	private  List<ListenableFuture<ResultSet>> submitReadIn(Identifier... ids)
+	protected List<ListenableFuture<T>> submitEach(Identifier... ids)
 	{
-		if (ids == null) return Collections.emptyList();
-
-		List<ResultSetFuture> futures = new ArrayList<ResultSetFuture>(ids.length);
+		List<ListenableFuture<T>> futures = new ArrayList<ListenableFuture<T>>(ids.length);
+		ListenableFuture<PreparedStatement> statement = statementFactory.read();
 
 		for (Identifier id : ids)
 		{
-			BoundStatement bs = new BoundStatement(statementFactory.read());
-			bindIdentity(bs, id);
-			futures.add(session.executeAsync(bs));
+			try
+			{
+				validateIdentity(id);
+			}
+			catch (RuntimeException e)
+			{
+				futures.add(Futures.immediateFailedFuture(e));
+				continue;
+			}
+
+			futures.add(Futures.transform(executeRead(statement, new IdentityBinder(id)), new Function<ResultSet, T>()
+			{
+				@Override
+				public T apply(ResultSet input)
+				{
+					return (input.isExhausted() ? null : marshalRow(input.one()));
+				}
+			}));
 		}
 
-		return Futures.inCompletionOrder(futures);
+		return futures;
 	}
 
+	/**
+	 * Reports the outcome of each read. Reads that haven't completed are reported as timed out.
+	 */
+	private List<ReadResult<T>> collect(Identifier[] ids, List<ListenableFuture<T>> futures)
+	{
+		List<ReadResult<T>> results = new ArrayList<>(ids.length);
+
+		for (int i = 0; i < ids.length; i++)
+		{
+			ListenableFuture<T> future = futures.get(i);
+
+			if (!future.isDone())
+			{
+				results.add(ReadResult.<T>failure(ids[i], new TimeoutException("Read did not complete in time: " + ids[i])));
+				continue;
+			}
+
+			try
+			{
+				T entity = Uninterruptibles.getUninterruptibly(future);
+				results.add(entity != null ? ReadResult.found(ids[i], entity) : ReadResult.<T>notFound(ids[i]));
+			}
+			catch (ExecutionException e)
+			{
+				results.add(ReadResult.<T>failure(ids[i], e.getCause()));
+			}
+			catch (CancellationException e)
+			{
+				results.add(ReadResult.<T>failure(ids[i], e));
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Binds an Identifier to a prepared statement.
+	 */
+	private class IdentityBinder
+	implements Function<PreparedStatement, Statement>
+	{
+		private Identifier id;
+
+		public IdentityBinder(Identifier id)
+		{
+			super();
+			this.id = id;
+		}
+
+		@Override
+		public Statement apply(PreparedStatement ps)
+		{
+			BoundStatement bs = new BoundStatement(ps);
+			bindIdentity(bs, id);
+			return bs;
+		}
+	}
+
+	/**
+	 * Uses the StatementFactory implementation generated at compile time for the factory interface, if there is one.
+	 * Otherwise, falls back to a dynamic Proxy that implements it from its @Query annotations.
+	 */
 	@SuppressWarnings("unchecked")
 	private F newStatementFactory(Class<F> factoryClass, Session session, String keyspace, String table)
 	{
-		return (F) Proxy.newProxyInstance(factoryClass.getClassLoader(), (Class<F>[]) new Class[]{factoryClass}, new StatementFactoryHandler(session, keyspace, table));
+		try
+		{
+			Class<?> generated = Class.forName(generatedName(factoryClass), true, factoryClass.getClassLoader());
+			return factoryClass.cast(generated.getConstructor(Session.class, String.class, String.class).newInstance(session, keyspace, table));
+		}
+		catch (ClassNotFoundException e)
+		{
+			return (F) Proxy.newProxyInstance(factoryClass.getClassLoader(), (Class<F>[]) new Class[]{factoryClass}, new StatementFactoryHandler(session, keyspace, table));
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new StorageException("Unable to create statement factory for: " + factoryClass.getName(), e);
+		}
+	}
+
+	/**
+	 * The name of the class generated for a StatementFactory interface (e.g. TableRepository_TableStatements
+	 * for TableRepository.TableStatements).
+	 */
+	private static String generatedName(Class<?> factoryClass)
+	{
+		return factoryClass.getName().replace('$', '_');
 	}
 }
@@ -17,9 +17,11 @@ package com.orangerhymelabs.helenus.cassandra;
 
 import java.util.Properties;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Cluster.Builder;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.SchemaChangeListener;
 import com.datastax.driver.core.Session;
 import com.orangerhymelabs.helenus.exception.ConfigurationException;
 
@@ -36,6 +38,9 @@ public class CassandraConfig
 	private static final String DATA_CENTER = "cassandra.dataCenter";
 	private static final String READ_CONSISTENCY_LEVEL = "cassandra.readConsistencyLevel";
 	private static final String WRITE_CONSISTENCY_LEVEL = "cassandra.writeConsistencyLevel";
+	private static final String MAX_REQUESTS_IN_FLIGHT = "cassandra.maxRequestsInFlight";
+	private static final String MAX_QUEUED_REQUESTS = "cassandra.maxQueuedRequests";
+	private static final String MAX_QUEUE_WAIT_MILLIS = "cassandra.maxQueueWaitMillis";
 
 	private String[] contactPoints;
 	private String keyspace;
@@ -43,7 +48,13 @@ public class CassandraConfig
 	private String dataCenter;
 	private ConsistencyLevel readConsistencyLevel;
 	private ConsistencyLevel writeConsistencyLevel;
+	private int maxRequestsInFlight;
+	private int maxQueuedRequests;
+	private long maxQueueWaitMillis;
+	private RequestLimiter requestLimiter;
+	private MetricRegistry metricRegistry;
 
+	private Cluster cluster;
 	private Session session;
 	private Session keyspaceSession;
 
@@ -53,6 +64,9 @@ public class CassandraConfig
 		dataCenter = p.getProperty(DATA_CENTER);
 		readConsistencyLevel = ConsistencyLevel.valueOf(p.getProperty(READ_CONSISTENCY_LEVEL, "LOCAL_QUORUM"));
 		writeConsistencyLevel = ConsistencyLevel.valueOf(p.getProperty(WRITE_CONSISTENCY_LEVEL, "LOCAL_QUORUM"));
+		maxRequestsInFlight = Integer.parseInt(p.getProperty(MAX_REQUESTS_IN_FLIGHT, "0"));
+		maxQueuedRequests = Integer.parseInt(p.getProperty(MAX_QUEUED_REQUESTS, "0"));
+		maxQueueWaitMillis = Long.parseLong(p.getProperty(MAX_QUEUE_WAIT_MILLIS, "0"));
 		keyspace = p.getProperty(KEYSPACE_PROPERTY);
 
 		if (keyspace == null || keyspace.trim().isEmpty())
@@ -113,6 +127,60 @@ public class CassandraConfig
 		return writeConsistencyLevel;
 	}
 
+	public int getMaxRequestsInFlight()
+	{
+		return maxRequestsInFlight;
+	}
+
+	public int getMaxQueuedRequests()
+	{
+		return maxQueuedRequests;
+	}
+
+	public long getMaxQueueWaitMillis()
+	{
+		return maxQueueWaitMillis;
+	}
+
+	/**
+	 * The shared RequestLimiter for repositories, as configured by the cassandra.maxRequestsInFlight,
+	 * cassandra.maxQueuedRequests and cassandra.maxQueueWaitMillis properties. The Database, Table and View
+	 * repositories and DocumentRepositoryFactoryImpl all pick it up when constructed with this configuration.
+	 * 
+	 * @return a RequestLimiter, or null if cassandra.maxRequestsInFlight is not set (unlimited).
+	 */
+	public RequestLimiter getRequestLimiter()
+	{
+		if (requestLimiter == null && maxRequestsInFlight > 0)
+		{
+			requestLimiter = new RequestLimiter(maxRequestsInFlight, maxQueuedRequests, maxQueueWaitMillis);
+		}
+
+		return requestLimiter;
+	}
+
+	/**
+	 * The registry that repositories record operation metrics in, or null (the default) to record none.
+	 */
+	public MetricRegistry getMetricRegistry()
+	{
+		return metricRegistry;
+	}
+
+	/**
+	 * Sets the registry that repositories record operation metrics in. Also registers the metrics of the
+	 * shared RequestLimiter, if there is one.
+	 */
+	public void setMetricRegistry(MetricRegistry metricRegistry)
+	{
+		this.metricRegistry = metricRegistry;
+
+		if (metricRegistry != null && getRequestLimiter() != null)
+		{
+			RepositoryMetrics.register(metricRegistry, getRequestLimiter());
+		}
+	}
+
 	public Session getKeyspaceSession()
 	{
 		if (keyspaceSession == null)
@@ -133,7 +201,26 @@ public class CassandraConfig
 		return session;
 	}
 
+	/**
+	 * Registers a listener for schema changes made by any client of the cluster, such as a
+	 * SchemaChangeInvalidator to keep this node's caches coherent with tables and views changed by other nodes.
+	 */
+	public void register(SchemaChangeListener listener)
+	{
+		getCluster().register(listener);
+	}
+
 	protected Cluster getCluster()
+	{
+		if (cluster == null)
+		{
+			cluster = buildCluster();
+		}
+
+		return cluster;
+	}
+
+	private Cluster buildCluster()
 	{
 		Builder cb = Cluster.builder();
 		cb.addContactPoints(contactPoints);
@@ -75,6 +75,76 @@ public enum DataTypes
 		}
     }
 
+	/**
+	 * @return true if the value can be bound to a column of this type.
+	 */
+	public boolean isInstance(Object value)
+	{
+		switch(this)
+		{
+			case BIGINT: return (value instanceof Long);
+			case DECIMAL: return (value instanceof BigDecimal);
+			case DOUBLE: return (value instanceof Double);
+			case FLOAT: return (value instanceof Float);
+			case INTEGER: return (value instanceof Integer);
+			case TEXT: return (value instanceof String);
+			case TIMESTAMP: return (value instanceof Date);
+			case TIMEUUID:
+			case UUID: return (value instanceof UUID);
+			default: return false;
+		}
+	}
+
+	/**
+	 * Converts a value, as parsed from JSON, to this type: a number or numeric string to another number type, a
+	 * string to a UUID, and epoch milliseconds to a timestamp. Integer conversions are exact; a bigint is only
+	 * narrowed to an int if it fits. Conversions to double and float round to the nearest representable value,
+	 * as parsing the JSON number as a double or float would.
+	 * 
+	 * @return the converted value, or the value itself if it's already of this type or can't be converted.
+	 */
+	public Object coerce(Object value)
+	{
+		if (value == null || isInstance(value)) return value;
+
+		try
+		{
+			switch(this)
+			{
+				case BIGINT:
+					if (value instanceof Integer) return ((Integer) value).longValue();
+				break;
+				case INTEGER:
+					if (value instanceof Long && ((Long) value).intValue() == ((Long) value).longValue()) return ((Long) value).intValue();
+				break;
+				case DOUBLE:
+				case FLOAT:
+				case DECIMAL:
+					BigDecimal decimal = (value instanceof Number ? new BigDecimal(value.toString()) : (value instanceof String ? new BigDecimal((String) value) : null));
+
+					if (decimal == null) break;
+					if (this == DECIMAL) return decimal;
+					if (this == DOUBLE) return decimal.doubleValue();
+					return decimal.floatValue();
+				case TIMESTAMP:
+					if (value instanceof Long || value instanceof Integer) return new Date(((Number) value).longValue());
+				break;
+				case TIMEUUID:
+				case UUID:
+					if (value instanceof String) return java.util.UUID.fromString((String) value);
+				break;
+				default:
+				break;
+			}
+		}
+		catch (IllegalArgumentException e)
+		{
+			// can't be converted.
+		}
+
+		return value;
+	}
+
 	public ByteBuffer toByteBuffer(Object value)
     {
 		ByteBuffer bb;
@@ -0,0 +1,45 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra;
+
+/**
+ * Notified when a table or view is created, updated, deleted or invalidated, so anything derived from it (e.g.
+ * a cached document repository) can be discarded.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public interface MetadataChangeListener
+{
+	/**
+	 * Called when a change starts and again when it completes, the latter on the thread that completed it,
+	 * or when the table is invalidated. It should not block.
+	 * 
+	 * @param database the table's database name.
+	 * @param table the table name.
+	 */
+	void onTableChange(String database, String table);
+
+	/**
+	 * Called when a change starts and again when it completes, the latter on the thread that completed it,
+	 * or when the view is invalidated. It should not block.
+	 * 
+	 * @param database the view's database name.
+	 * @param table the view's table name.
+	 * @param view the view name.
+	 */
+	void onViewChange(String database, String table, String view);
+}
@@ -0,0 +1,242 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.QueryTrace;
+
+/**
+ * The timing of a single sampled operation, broken down into the stages it went through, in order:
+ *
+ * acquireRepository - looking up the table and its repository.
+ * validate - validating the identifier and binding, up to submitting the statement.
+ * prepare - waiting for the statement to be prepared.
+ * execute - the network round trip, coordinator and replicas, including any RequestLimiter queueing.
+ * decode - decoding the row(s) into entities.
+ *
+ * Each stage's time is measured from the end of the previous one. Stages an operation doesn't go through
+ * are absent. If the Tracer enables query tracing, the driver's QueryTrace for the statement is also
+ * available. Its events are fetched from Cassandra lazily, the first time they're asked for.
+ *
+ * Repositories find the trace for the operation they're executing with current(), so it must be made current
+ * with within() around the (synchronous) repository call that submits the statement.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class OperationTrace
+{
+	public static final String ACQUIRE_REPOSITORY = "acquireRepository";
+	public static final String VALIDATE = "validate";
+	public static final String PREPARE = "prepare";
+	public static final String EXECUTE = "execute";
+	public static final String DECODE = "decode";
+
+	private static final ThreadLocal<OperationTrace> CURRENT = new ThreadLocal<>();
+
+	private String operation;
+	private String database;
+	private String table;
+	private Object identifier;
+	private boolean isQueryTracing;
+	private long startedAt;
+	private long startNanos;
+	private long lastNanos;
+	private long durationNanos = -1L;
+	private Map<String, Long> stages = new LinkedHashMap<>();
+	private Host coordinator;
+	private QueryTrace queryTrace;
+	private Throwable error;
+
+	public OperationTrace(String operation, String database, String table, Object identifier, boolean isQueryTracing)
+	{
+		super();
+		this.operation = operation;
+		this.database = database;
+		this.table = table;
+		this.identifier = identifier;
+		this.isQueryTracing = isQueryTracing;
+		this.startedAt = System.currentTimeMillis();
+		this.startNanos = System.nanoTime();
+		this.lastNanos = startNanos;
+	}
+
+	/**
+	 * @return the trace for the operation being submitted on this thread, or null if it isn't sampled.
+	 */
+	public static OperationTrace current()
+	{
+		return CURRENT.get();
+	}
+
+	/**
+	 * Make this trace current while calling the given work, so the repository operations it submits
+	 * record their stages in it.
+	 */
+	public <V> V within(Callable<V> work)
+	throws Exception
+	{
+		OperationTrace previous = CURRENT.get();
+		CURRENT.set(this);
+
+		try
+		{
+			return work.call();
+		}
+		finally
+		{
+			if (previous != null) CURRENT.set(previous);
+			else CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Ends the named stage, recording the time since the previous stage ended.
+	 */
+	public synchronized void stage(String name)
+	{
+		long now = System.nanoTime();
+		Long previous = stages.get(name);
+		stages.put(name, (previous != null ? previous : 0L) + (now - lastNanos));
+		lastNanos = now;
+	}
+
+	/**
+	 * Ends the operation.
+	 *
+	 * @param error the cause of failure, or null if it succeeded.
+	 */
+	public synchronized void finish(Throwable error)
+	{
+		this.durationNanos = System.nanoTime() - startNanos;
+		this.error = error;
+	}
+
+	public synchronized void executedOn(Host coordinator, QueryTrace queryTrace)
+	{
+		this.coordinator = coordinator;
+		this.queryTrace = queryTrace;
+	}
+
+	/**
+	 * @return whether statements executed for this operation should have Cassandra query tracing enabled.
+	 */
+	public boolean isQueryTracing()
+	{
+		return isQueryTracing;
+	}
+
+	public String operation()
+	{
+		return operation;
+	}
+
+	public String database()
+	{
+		return database;
+	}
+
+	public String table()
+	{
+		return table;
+	}
+
+	public Object identifier()
+	{
+		return identifier;
+	}
+
+	/**
+	 * @return when the operation started, in milliseconds since the epoch.
+	 */
+	public long startedAt()
+	{
+		return startedAt;
+	}
+
+	/**
+	 * @return the total time taken, in the given unit, or -1 if the operation hasn't finished.
+	 */
+	public synchronized long duration(TimeUnit unit)
+	{
+		return (durationNanos < 0L ? -1L : unit.convert(durationNanos, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * @return the time taken by each stage, in nanoseconds, in the order they ended.
+	 */
+	public synchronized Map<String, Long> stages()
+	{
+		return Collections.unmodifiableMap(new LinkedHashMap<>(stages));
+	}
+
+	public synchronized boolean isFinished()
+	{
+		return (durationNanos >= 0L);
+	}
+
+	public synchronized Throwable error()
+	{
+		return error;
+	}
+
+	/**
+	 * @return the host that coordinated the (last) statement, or null if none executed.
+	 */
+	public synchronized Host coordinator()
+	{
+		return coordinator;
+	}
+
+	/**
+	 * @return the driver's trace of the (last) statement, or null if query tracing is off or none executed.
+	 */
+	public synchronized QueryTrace queryTrace()
+	{
+		return queryTrace;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		List<String> timings = new ArrayList<>(stages.size());
+
+		for (Map.Entry<String, Long> stage : stages.entrySet())
+		{
+			timings.add(stage.getKey() + "=" + TimeUnit.NANOSECONDS.toMicros(stage.getValue()) + "us");
+		}
+
+		StringBuilder s = new StringBuilder("OperationTrace{")
+			.append(operation).append(' ').append(database).append('.').append(table)
+			.append(' ').append(identifier)
+			.append(", total=").append(durationNanos < 0L ? "unfinished" : TimeUnit.NANOSECONDS.toMicros(durationNanos) + "us")
+			.append(", stages=").append(timings);
+
+		if (coordinator != null) s.append(", coordinator=").append(coordinator);
+		if (queryTrace != null) s.append(", queryTrace=").append(queryTrace.getTraceId());
+		if (error != null) s.append(", error=").append(error);
+
+		return s.append('}').toString();
+	}
+}
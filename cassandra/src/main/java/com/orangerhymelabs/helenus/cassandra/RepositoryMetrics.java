@@ -0,0 +1,205 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Functions;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Records the latency, errors and payload sizes of a repository's operations in a shared MetricRegistry.
+ * Dropwizard metrics have no tags, so the database, table and operation are part of each metric name:
+ *
+ * helenus.&lt;database&gt;.&lt;table&gt;.&lt;operation&gt;.latency (Timer)
+ * helenus.&lt;database&gt;.&lt;table&gt;.&lt;operation&gt;.errors (Meter)
+ * helenus.&lt;database&gt;.&lt;table&gt;.&lt;operation&gt;.payload (Histogram, BSON bytes)
+ *
+ * For a view, the view name follows the table name.
+ *
+ * Payload sizes are recorded under the "write" and "read" operations, since a document is encoded the same
+ * way whichever operation writes it.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class RepositoryMetrics
+{
+	public static final String PREFIX = "helenus";
+
+	public static final String CREATE = "create";
+	public static final String READ = "read";
+	public static final String UPDATE = "update";
+	public static final String UPSERT = "upsert";
+	public static final String DELETE = "delete";
+	public static final String EXISTS = "exists";
+	public static final String READ_ALL = "readAll";
+	public static final String READ_PAGE = "readPage";
+	public static final String READ_IN = "readIn";
+	public static final String READ_EACH = "readEach";
+	public static final String CREATE_ALL = "createAll";
+	public static final String UPSERT_ALL = "upsertAll";
+	public static final String UPSERT_WITH = "upsertWith";
+	public static final String UPDATE_WITH = "updateWith";
+	public static final String DELETE_WITH = "deleteWith";
+	public static final String UPDATE_IF_VIEW_KEYS = "updateIfViewKeys";
+	public static final String DELETE_IF_VIEW_KEYS = "deleteIfViewKeys";
+	public static final String WRITE_VIEW_ROWS = "writeViewRows";
+	public static final String PUT_VIEW_ROW = "putViewRow";
+	public static final String WRITE = "write";
+
+	private MetricRegistry registry;
+	private String name;
+	private ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+	/**
+	 * @param registry the shared registry.
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @param view the view name, for a view's repository. Otherwise, omitted.
+	 */
+	public RepositoryMetrics(MetricRegistry registry, String database, String table, String... view)
+	{
+		super();
+		this.registry = registry;
+		this.name = MetricRegistry.name(MetricRegistry.name(PREFIX, database, table), view);
+	}
+
+	/**
+	 * Times the future from now until it completes, marking the operation's error meter if it fails.
+	 *
+	 * @param operation the operation name.
+	 * @param future the operation's result.
+	 * @return a future that completes with the given one, once its metrics are recorded.
+	 */
+	public <V> ListenableFuture<V> time(String operation, ListenableFuture<V> future)
+	{
+		Operation metrics = operation(operation);
+		Timer.Context context = metrics.latency.time();
+		Futures.addCallback(future, new FutureCallback<V>()
+		{
+			@Override
+			public void onSuccess(V result)
+			{
+				context.stop();
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				context.stop();
+				metrics.errors.mark();
+			}
+		});
+
+		// Listeners run in the order they're added, so the metrics are recorded before this completes.
+		return Futures.transform(future, Functions.<V>identity());
+	}
+
+	/**
+	 * Records the size of a BSON payload.
+	 *
+	 * @param operation the operation name, usually WRITE or READ.
+	 * @param bytes the size of the encoded document.
+	 */
+	public void payload(String operation, int bytes)
+	{
+		operation(operation).payload.update(bytes);
+	}
+
+	public String name()
+	{
+		return name;
+	}
+
+	/**
+	 * Registers gauges for a RequestLimiter's current state and counts, and a Timer of its queue waits
+	 * (helenus.limiter.wait), under helenus.limiter.
+	 *
+	 * @param registry the shared registry.
+	 * @param limiter the limiter shared by the repositories.
+	 */
+	public static void register(MetricRegistry registry, RequestLimiter limiter)
+	{
+		registry.register(MetricRegistry.name(PREFIX, "limiter", "inFlight"), new Gauge<Integer>()
+		{
+			@Override
+			public Integer getValue()
+			{
+				return limiter.inFlight();
+			}
+		});
+		registry.register(MetricRegistry.name(PREFIX, "limiter", "queueDepth"), new Gauge<Integer>()
+		{
+			@Override
+			public Integer getValue()
+			{
+				return limiter.queueDepth();
+			}
+		});
+		registry.register(MetricRegistry.name(PREFIX, "limiter", "rejected"), new Gauge<Long>()
+		{
+			@Override
+			public Long getValue()
+			{
+				return limiter.rejectedCount();
+			}
+		});
+		registry.register(MetricRegistry.name(PREFIX, "limiter", "timedOut"), new Gauge<Long>()
+		{
+			@Override
+			public Long getValue()
+			{
+				return limiter.timedOutCount();
+			}
+		});
+		registry.register(MetricRegistry.name(PREFIX, "limiter", "wait"), limiter.waits());
+	}
+
+	private Operation operation(String operation)
+	{
+		Operation metrics = operations.get(operation);
+
+		if (metrics != null) return metrics;
+
+		metrics = new Operation(registry, MetricRegistry.name(name, operation));
+		Operation existing = operations.putIfAbsent(operation, metrics);
+		return (existing != null ? existing : metrics);
+	}
+
+	private static class Operation
+	{
+		private Timer latency;
+		private Meter errors;
+		private Histogram payload;
+
+		public Operation(MetricRegistry registry, String name)
+		{
+			super();
+			this.latency = registry.timer(MetricRegistry.name(name, "latency"));
+			this.errors = registry.meter(MetricRegistry.name(name, "errors"));
+			this.payload = registry.histogram(MetricRegistry.name(name, "payload"));
+		}
+	}
+}
@@ -0,0 +1,413 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orangerhymelabs.helenus.exception.RequestRejectedException;
+
+/**
+ * Bounds the number of statements in flight against Cassandra. Admission never blocks the calling thread:
+ * a statement either acquires a permit and executes immediately, waits in a bounded FIFO queue until a
+ * permit is released, or is rejected with a RequestRejectedException.
+ *
+ * Queued statements that exceed the maximum wait are failed instead of executed, so callers see a fast,
+ * bounded failure instead of unbounded latency when Cassandra is overloaded. Each queued statement has a
+ * deadline timer, so it fails on time even if Cassandra stalls and no permit is ever released.
+ *
+ * A single limiter is intended to be shared by every repository using the same Session.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class RequestLimiter
+{
+	// Fails queued statements at their deadlines. Only ever runs short, non-blocking tasks.
+	private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1,
+		new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-limiter-%d").build());
+
+	static
+	{
+		DEADLINES.setRemoveOnCancelPolicy(true);
+	}
+
+	private int maxInFlight;
+	private int maxQueued;
+	private long maxWaitNanos;
+
+	private AtomicInteger inFlight = new AtomicInteger();
+	private AtomicInteger queued = new AtomicInteger();
+	private Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+	private LongAdder rejectedCount = new LongAdder();
+	private LongAdder timedOutCount = new LongAdder();
+	private LongAdder dequeuedCount = new LongAdder();
+	private LongAdder totalWaitNanos = new LongAdder();
+	private AtomicLong maxWaitNanosSeen = new AtomicLong();
+	private Timer waits = new Timer();
+
+	/**
+	 * @param maxInFlight the maximum number of statements executing concurrently.
+	 * @param maxQueued the maximum number of statements waiting for a permit. Zero means fail fast.
+	 * @param maxWaitMillis the maximum time a statement may wait in the queue. Zero or less means no limit.
+	 */
+	public RequestLimiter(int maxInFlight, int maxQueued, long maxWaitMillis)
+	{
+		super();
+
+		if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+
+		this.maxInFlight = maxInFlight;
+		this.maxQueued = Math.max(0, maxQueued);
+		this.maxWaitNanos = (maxWaitMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(maxWaitMillis) : 0L);
+	}
+
+	/**
+	 * Execute the statement when a permit is available.
+	 *
+	 * @param session the session to execute on.
+	 * @param statement the statement to execute.
+	 * @return the future ResultSet, which fails with RequestRejectedException if the statement was not admitted.
+	 */
+	public ListenableFuture<ResultSet> execute(Session session, Statement statement)
+	{
+		if (tryAcquire())
+		{
+			waits.update(0L, TimeUnit.NANOSECONDS);
+			return run(session, statement);
+		}
+
+		expireHead();
+
+		if (!tryReserveQueueSlot())
+		{
+			rejectedCount.increment();
+			return Futures.immediateFailedFuture(new RequestRejectedException(
+				String.format("Request limit reached (in-flight: %d, queued: %d)", inFlight.get(), queued.get())));
+		}
+
+		Pending pending = new Pending(session, statement);
+		queue.offer(pending);
+		scheduleDeadline(pending);
+
+		// A permit may have been released between tryAcquire() and offer().
+		drain();
+		return pending.future;
+	}
+
+	public int maxInFlight()
+	{
+		return maxInFlight;
+	}
+
+	public int maxQueued()
+	{
+		return maxQueued;
+	}
+
+	/**
+	 * @return the number of statements currently executing.
+	 */
+	public int inFlight()
+	{
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the number of statements currently waiting for a permit.
+	 */
+	public int queueDepth()
+	{
+		return queued.get();
+	}
+
+	/**
+	 * @return the number of statements rejected because the queue was full.
+	 */
+	public long rejectedCount()
+	{
+		return rejectedCount.sum();
+	}
+
+	/**
+	 * @return the number of statements failed because they waited longer than the maximum wait.
+	 */
+	public long timedOutCount()
+	{
+		return timedOutCount.sum();
+	}
+
+	/**
+	 * @return the number of statements that waited in the queue before executing.
+	 */
+	public long dequeuedCount()
+	{
+		return dequeuedCount.sum();
+	}
+
+	/**
+	 * @return the mean queue wait, in milliseconds, of statements that waited before executing.
+	 */
+	public double meanWaitMillis()
+	{
+		long count = dequeuedCount.sum();
+		return (count > 0 ? (totalWaitNanos.sum() / (double) count) / 1000000.0 : 0.0);
+	}
+
+	/**
+	 * @return the longest queue wait, in milliseconds, of any statement that executed.
+	 */
+	public double maxWaitMillis()
+	{
+		return maxWaitNanosSeen.get() / 1000000.0;
+	}
+
+	/**
+	 * @return the queue wait of each statement admitted to execute, zero for those that didn't wait, recent
+	 * waits weighted most.
+	 */
+	public Timer waits()
+	{
+		return waits;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("RequestLimiter{inFlight: %d/%d, queued: %d/%d, rejected: %d, timedOut: %d, meanWaitMillis: %.3f, maxWaitMillis: %.3f}",
+			inFlight(), maxInFlight, queueDepth(), maxQueued, rejectedCount(), timedOutCount(), meanWaitMillis(), maxWaitMillis());
+	}
+
+	private boolean tryAcquire()
+	{
+		int current;
+
+		do
+		{
+			current = inFlight.get();
+
+			if (current >= maxInFlight) return false;
+		}
+		while (!inFlight.compareAndSet(current, current + 1));
+
+		return true;
+	}
+
+	private void release()
+	{
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private boolean tryReserveQueueSlot()
+	{
+		int current;
+
+		do
+		{
+			current = queued.get();
+
+			if (current >= maxQueued) return false;
+		}
+		while (!queued.compareAndSet(current, current + 1));
+
+		return true;
+	}
+
+	private ListenableFuture<ResultSet> run(Session session, Statement statement)
+	{
+		ListenableFuture<ResultSet> future;
+
+		try
+		{
+			future = session.executeAsync(statement);
+		}
+		catch (RuntimeException e)
+		{
+			release();
+			return Futures.immediateFailedFuture(e);
+		}
+
+		future.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				release();
+			}
+		}, MoreExecutors.directExecutor());
+
+		return future;
+	}
+
+	/**
+	 * Hands released permits to queued statements, oldest first.
+	 */
+	private void drain()
+	{
+		while (!queue.isEmpty() && tryAcquire())
+		{
+			Pending pending = queue.poll();
+
+			if (pending == null || !pending.claim())
+			{
+				// Another thread took it, or it expired while queued.
+				inFlight.decrementAndGet();
+				continue;
+			}
+
+			queued.decrementAndGet();
+			pending.cancelDeadline();
+			long waited = System.nanoTime() - pending.enqueuedAt;
+
+			if (pending.future.isCancelled())
+			{
+				inFlight.decrementAndGet();
+			}
+			else if (isExpired(waited))
+			{
+				inFlight.decrementAndGet();
+				timeOut(pending, waited);
+			}
+			else
+			{
+				dequeuedCount.increment();
+				totalWaitNanos.add(waited);
+				maxWaitNanosSeen.accumulateAndGet(waited, Math::max);
+				waits.update(waited, TimeUnit.NANOSECONDS);
+				pending.future.setFuture(run(pending.session, pending.statement));
+			}
+		}
+	}
+
+	/**
+	 * Fails queued statements that have already exceeded the maximum wait, freeing their queue slots
+	 * even while no permits are being released.
+	 */
+	private void expireHead()
+	{
+		if (maxWaitNanos == 0L) return;
+
+		long now = System.nanoTime();
+		Iterator<Pending> i = queue.iterator();
+
+		while (i.hasNext())
+		{
+			Pending pending = i.next();
+			long waited = now - pending.enqueuedAt;
+
+			if (!isExpired(waited)) break;
+
+			if (pending.claim())
+			{
+				queued.decrementAndGet();
+				pending.cancelDeadline();
+
+				if (!pending.future.isCancelled())
+				{
+					timeOut(pending, waited);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fails the statement if it's still queued at the maximum wait.
+	 */
+	private void scheduleDeadline(Pending pending)
+	{
+		if (maxWaitNanos == 0L) return;
+
+		pending.deadline = DEADLINES.schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (!pending.claim()) return;
+
+				queued.decrementAndGet();
+				queue.remove(pending);
+
+				if (!pending.future.isCancelled())
+				{
+					timeOut(pending, System.nanoTime() - pending.enqueuedAt);
+				}
+			}
+		}, maxWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private boolean isExpired(long waitedNanos)
+	{
+		return (maxWaitNanos > 0L && waitedNanos > maxWaitNanos);
+	}
+
+	private void timeOut(Pending pending, long waitedNanos)
+	{
+		timedOutCount.increment();
+		pending.future.setException(new RequestRejectedException(
+			String.format("Request waited %d ms for a permit", TimeUnit.NANOSECONDS.toMillis(waitedNanos))));
+	}
+
+	private static class Pending
+	{
+		private Session session;
+		private Statement statement;
+		private long enqueuedAt = System.nanoTime();
+		private SettableFuture<ResultSet> future = SettableFuture.create();
+		private AtomicBoolean claimed = new AtomicBoolean();
+		private volatile ScheduledFuture<?> deadline;
+
+		public Pending(Session session, Statement statement)
+		{
+			super();
+			this.session = session;
+			this.statement = statement;
+		}
+
+		/**
+		 * @return true if the caller now owns dequeuing this request.
+		 */
+		public boolean claim()
+		{
+			return claimed.compareAndSet(false, true);
+		}
+
+		public void cancelDeadline()
+		{
+			ScheduledFuture<?> d = deadline;
+
+			if (d != null) d.cancel(false);
+		}
+	}
+}
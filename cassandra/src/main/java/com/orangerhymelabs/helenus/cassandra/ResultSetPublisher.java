@@ -0,0 +1,317 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A cold Reactive Streams Publisher over a Cassandra ResultSet. The query is not executed until the
+ * subscriber signals demand, and the next driver page is only fetched (via ResultSet.fetchMoreResults())
+ * once the rows already fetched are delivered and there is still outstanding demand. At most one page
+ * of rows is held in memory per subscription, regardless of the size of the result set.
+ *
+ * Each subscription executes the query anew. Signals are delivered on the driver's I/O threads, so
+ * subscribers should hand off any blocking work.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ * @param <T> the type of the published items.
+ */
+public class ResultSetPublisher<T>
+implements Publisher<T>
+{
+	private static final Subscription EMPTY_SUBSCRIPTION = new Subscription()
+	{
+		@Override
+		public void request(long n)
+		{
+			// nothing to deliver.
+		}
+
+		@Override
+		public void cancel()
+		{
+			// nothing to cancel.
+		}
+	};
+
+	private Supplier<ListenableFuture<ResultSet>> query;
+	private Function<Row, T> marshaller;
+
+	/**
+	 * @param query executes the query when invoked. Called once per subscription.
+	 * @param marshaller converts each row into a published item.
+	 */
+	public ResultSetPublisher(Supplier<ListenableFuture<ResultSet>> query, Function<Row, T> marshaller)
+	{
+		super();
+		this.query = query;
+		this.marshaller = marshaller;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber)
+	{
+		if (subscriber == null) throw new NullPointerException("subscriber");
+
+		RowSubscription s = new RowSubscription(subscriber);
+		subscriber.onSubscribe(s);
+	}
+
+	/**
+	 * Creates a Publisher that subscribes to the eventual result of the given future. If the future fails,
+	 * subscribers receive the failure via onError().
+	 *
+	 * @param future a future Publisher, such as one that depends on an asynchronous repository lookup.
+	 * @return a Publisher that delegates to the future Publisher once it is available.
+	 */
+	public static <T> Publisher<T> deferred(ListenableFuture<? extends Publisher<T>> future)
+	{
+		return new Publisher<T>()
+		{
+			@Override
+			public void subscribe(Subscriber<? super T> subscriber)
+			{
+				if (subscriber == null) throw new NullPointerException("subscriber");
+
+				Futures.addCallback(future, new FutureCallback<Publisher<T>>()
+				{
+					@Override
+					public void onSuccess(Publisher<T> result)
+					{
+						result.subscribe(subscriber);
+					}
+
+					@Override
+					public void onFailure(Throwable t)
+					{
+						subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+						subscriber.onError(t);
+					}
+				});
+			}
+		};
+	}
+
+	private class RowSubscription
+	implements Subscription
+	{
+		private Subscriber<? super T> subscriber;
+		private AtomicLong requested = new AtomicLong();
+		private AtomicInteger wip = new AtomicInteger();
+		private AtomicBoolean started = new AtomicBoolean();
+		private AtomicBoolean terminated = new AtomicBoolean();
+		private volatile boolean cancelled = false;
+		private volatile boolean fetching = true;
+		private volatile ResultSet rs;
+
+		public RowSubscription(Subscriber<? super T> subscriber)
+		{
+			super();
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n)
+		{
+			if (n <= 0)
+			{
+				cancel();
+				error(new IllegalArgumentException("Reactive Streams rule 3.9: request must be positive: " + n));
+				return;
+			}
+
+			addRequested(n);
+
+			if (started.compareAndSet(false, true))
+			{
+				execute();
+			}
+			else
+			{
+				drain();
+			}
+		}
+
+		@Override
+		public void cancel()
+		{
+			cancelled = true;
+		}
+
+		private void execute()
+		{
+			ListenableFuture<ResultSet> future;
+
+			try
+			{
+				future = query.get();
+			}
+			catch (Throwable t)
+			{
+				error(t);
+				return;
+			}
+
+			listen(future);
+		}
+
+		private void fetchMore()
+		{
+			fetching = true;
+			listen(rs.fetchMoreResults());
+		}
+
+		private void listen(ListenableFuture<ResultSet> future)
+		{
+			Futures.addCallback(future, new FutureCallback<ResultSet>()
+			{
+				@Override
+				public void onSuccess(ResultSet result)
+				{
+					rs = result;
+					fetching = false;
+					drain();
+				}
+
+				@Override
+				public void onFailure(Throwable t)
+				{
+					error(t);
+				}
+			});
+		}
+
+		/**
+		 * Delivers available rows while there is demand. Only one thread drains at a time; signals that
+		 * arrive while draining cause another pass instead of a concurrent one.
+		 */
+		private void drain()
+		{
+			if (wip.getAndIncrement() != 0) return;
+
+			int missed = 1;
+
+			do
+			{
+				if (cancelled || terminated.get()) return;
+
+				if (!fetching)
+				{
+					if (!emit()) return;
+				}
+
+				missed = wip.addAndGet(-missed);
+			}
+			while (missed != 0);
+		}
+
+		/**
+		 * @return false if the subscription reached a terminal state.
+		 */
+		private boolean emit()
+		{
+			long demand = requested.get();
+			long emitted = 0;
+
+			try
+			{
+				while (emitted != demand && rs.getAvailableWithoutFetching() > 0)
+				{
+					if (cancelled) return false;
+
+					subscriber.onNext(marshaller.apply(rs.one()));
+					emitted++;
+				}
+			}
+			catch (Throwable t)
+			{
+				cancel();
+				error(t);
+				return false;
+			}
+
+			if (emitted > 0 && demand != Long.MAX_VALUE)
+			{
+				requested.addAndGet(-emitted);
+			}
+
+			if (rs.getAvailableWithoutFetching() == 0)
+			{
+				if (rs.isFullyFetched())
+				{
+					complete();
+					return false;
+				}
+
+				if (requested.get() > 0 && !cancelled)
+				{
+					fetchMore();
+				}
+			}
+
+			return true;
+		}
+
+		private void addRequested(long n)
+		{
+			long current;
+			long next;
+
+			do
+			{
+				current = requested.get();
+
+				if (current == Long.MAX_VALUE) return;
+
+				next = current + n;
+
+				if (next < 0) next = Long.MAX_VALUE;
+			}
+			while (!requested.compareAndSet(current, next));
+		}
+
+		private void complete()
+		{
+			if (terminated.compareAndSet(false, true))
+			{
+				subscriber.onComplete();
+			}
+		}
+
+		private void error(Throwable t)
+		{
+			if (terminated.compareAndSet(false, true))
+			{
+				subscriber.onError(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,188 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.SchemaChangeListenerBase;
+import com.datastax.driver.core.TableMetadata;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.orangerhymelabs.helenus.cassandra.document.DocumentService;
+import com.orangerhymelabs.helenus.cassandra.table.TableService;
+import com.orangerhymelabs.helenus.cassandra.view.ViewService;
+import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
+import com.orangerhymelabs.helenus.persistence.PreparedStatementCache;
+
+/**
+ * Keeps this node's table, view and document repository caches, and its prepared statements, coherent with
+ * schema changes made by any node (e.g. another REST node creating or dropping a table), by listening to the
+ * Cluster's schema change events. Register it with CassandraConfig.register() or Cluster.register().
+ * 
+ * A document table is named for its database, table and, for a view, view name, joined by underscores. Since
+ * the names may contain underscores themselves, every way of splitting the name is invalidated. The cached
+ * statements of an added or changed table are then prepared again in the background.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class SchemaChangeInvalidator
+extends SchemaChangeListenerBase
+{
+	private static final Logger LOG = LoggerFactory.getLogger(SchemaChangeInvalidator.class);
+	private static final String SEPARATOR = "_";
+
+	private String keyspace;
+	private TableService tables;
+	private ViewService views;
+	private DocumentService documents;
+	private Cluster cluster;
+
+	/**
+	 * @param keyspace the HelenusDB keyspace. Changes in other keyspaces are ignored.
+	 * @param tables the TableService whose cached tables are invalidated.
+	 * @param views the ViewService whose cached views are invalidated.
+	 * @param documents the DocumentService whose statements are prepared again after a change. May be null.
+	 * Its cached repositories are invalidated via the TableService and ViewService.
+	 */
+	public SchemaChangeInvalidator(String keyspace, TableService tables, ViewService views, DocumentService documents)
+	{
+		super();
+		this.keyspace = keyspace;
+		this.tables = tables;
+		this.views = views;
+		this.documents = documents;
+	}
+
+	@Override
+	public void onRegister(Cluster cluster)
+	{
+		this.cluster = cluster;
+	}
+
+	@Override
+	public void onUnregister(Cluster cluster)
+	{
+		this.cluster = null;
+	}
+
+	@Override
+	public void onTableAdded(TableMetadata table)
+	{
+		changed(table, true);
+	}
+
+	@Override
+	public void onTableChanged(TableMetadata current, TableMetadata previous)
+	{
+		changed(current, true);
+	}
+
+	@Override
+	public void onTableRemoved(TableMetadata table)
+	{
+		changed(table, false);
+	}
+
+	private void changed(TableMetadata table, boolean isPrepared)
+	{
+		if (!keyspace.equalsIgnoreCase(table.getKeyspace().getName())) return;
+
+		String name = table.getName();
+		LOG.debug("Invalidating caches for changed table: {}.{}", keyspace, name);
+		invalidateStatements(name);
+		Set<Identifier> changedTables = new LinkedHashSet<>();
+
+		for (int i = name.indexOf(SEPARATOR); i > 0; i = name.indexOf(SEPARATOR, i + 1))
+		{
+			String database = name.substring(0, i);
+			String rest = name.substring(i + 1);
+
+			if (rest.isEmpty()) continue;
+
+			tables.invalidate(database, rest);
+			changedTables.add(new ImmutableIdentifier(database, rest));
+
+			for (int j = rest.indexOf(SEPARATOR); j > 0; j = rest.indexOf(SEPARATOR, j + 1))
+			{
+				String tableName = rest.substring(0, j);
+				String viewName = rest.substring(j + 1);
+
+				if (viewName.isEmpty()) continue;
+
+				views.invalidate(database, tableName, viewName);
+				changedTables.add(new ImmutableIdentifier(database, tableName));
+			}
+		}
+
+		if (isPrepared && documents != null)
+		{
+			for (Identifier changed : changedTables)
+			{
+				prepare((String) changed.component(0), (String) changed.component(1));
+			}
+		}
+	}
+
+	private void invalidateStatements(String name)
+	{
+		Cluster c = cluster;
+
+		if (c == null) return;
+
+		// Matches the table's name, but not a longer name that starts with it (e.g. one of its views).
+		Pattern tableName = Pattern.compile(Pattern.quote(keyspace + "." + name) + "(?![a-zA-Z_0-9])");
+		PreparedStatementCache.invalidateIf(c, new Predicate<String>()
+		{
+			@Override
+			public boolean test(String cql)
+			{
+				return tableName.matcher(cql).find();
+			}
+		});
+	}
+
+	private void prepare(String database, String table)
+	{
+		Futures.addCallback(documents.prepareAll(database, table), new FutureCallback<Integer>()
+		{
+			@Override
+			public void onSuccess(Integer result)
+			{
+				LOG.debug("Prepared {} statements for changed table: {}.{}", result, database, table);
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				// Most splits of the name aren't tables, and a new table may not be recorded yet.
+				if (!(t instanceof ItemNotFoundException))
+				{
+					LOG.warn("Failed to prepare statements for changed table: " + database + "." + table, t);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,54 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The executor the table and view services create document schemas on. Creating a schema waits on the schema
+ * change, which mustn't happen on a driver I/O thread. Schema changes are rare and Cassandra applies them one at
+ * a time, so a few threads are plenty; more schema changes queue for them.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public final class SchemaChanges
+{
+	public static final int THREADS = 4;
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+		new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-schema-%d").build());
+
+	static
+	{
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private SchemaChanges()
+	{
+		// prevents instantiation.
+	}
+
+	public static Executor executor()
+	{
+		return EXECUTOR;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples operations for tracing and keeps the most recent finished traces in a bounded ring buffer, for an
+ * admin endpoint to read. Finished traces are also logged at DEBUG.
+ *
+ * Sampling is per operation, so only a fraction of requests pay for tracing. Cassandra query tracing
+ * is expensive (it writes trace events on the replicas), so it is only enabled for sampled operations,
+ * and only if asked for.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class Tracer
+{
+	private static final Logger LOG = LoggerFactory.getLogger(Tracer.class);
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	private double sampleRate;
+	private boolean isQueryTracing;
+	private AtomicReferenceArray<OperationTrace> traces;
+	private AtomicLong recorded = new AtomicLong();
+
+	/**
+	 * @param sampleRate the fraction of operations to trace, from 0.0 (none) to 1.0 (all).
+	 */
+	public Tracer(double sampleRate)
+	{
+		this(sampleRate, DEFAULT_CAPACITY, false);
+	}
+
+	/**
+	 * @param sampleRate the fraction of operations to trace, from 0.0 (none) to 1.0 (all).
+	 * @param capacity the number of recent traces to keep.
+	 * @param isQueryTracing whether to enable Cassandra query tracing for sampled statements.
+	 */
+	public Tracer(double sampleRate, int capacity, boolean isQueryTracing)
+	{
+		super();
+
+		if (sampleRate < 0.0 || sampleRate > 1.0) throw new IllegalArgumentException("sampleRate must be between 0.0 and 1.0");
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+
+		this.sampleRate = sampleRate;
+		this.traces = new AtomicReferenceArray<>(capacity);
+		this.isQueryTracing = isQueryTracing;
+	}
+
+	/**
+	 * Start tracing an operation, if it's sampled.
+	 *
+	 * @return a new OperationTrace, or null if this operation isn't sampled.
+	 */
+	public OperationTrace start(String operation, String database, String table, Object identifier)
+	{
+		if (sampleRate <= 0.0 || (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) return null;
+
+		return new OperationTrace(operation, database, table, identifier, isQueryTracing);
+	}
+
+	/**
+	 * Finish the trace and keep it, replacing the oldest kept trace if the buffer is full.
+	 *
+	 * @param trace a trace started by this Tracer.
+	 * @param error the cause of the operation's failure, or null if it succeeded.
+	 */
+	public void finish(OperationTrace trace, Throwable error)
+	{
+		trace.finish(error);
+		long index = recorded.getAndIncrement();
+		traces.set((int) (index % traces.length()), trace);
+
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(trace.toString());
+		}
+	}
+
+	/**
+	 * @return the kept traces, oldest first.
+	 */
+	public List<OperationTrace> recent()
+	{
+		long end = recorded.get();
+		long start = Math.max(0L, end - traces.length());
+		List<OperationTrace> recent = new ArrayList<>((int) (end - start));
+
+		for (long i = start; i < end; i++)
+		{
+			OperationTrace trace = traces.get((int) (i % traces.length()));
+
+			// Skip slots still being written or already overwritten by a newer trace.
+			if (trace != null && !recent.contains(trace)) recent.add(trace);
+		}
+
+		return recent;
+	}
+
+	/**
+	 * @return the number of traces finished since this Tracer was created.
+	 */
+	public long recordedCount()
+	{
+		return recorded.get();
+	}
+
+	public double sampleRate()
+	{
+		return sampleRate;
+	}
+
+	public boolean isQueryTracing()
+	{
+		return isQueryTracing;
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i < traces.length(); i++)
+		{
+			traces.set(i, null);
+		}
+	}
+}
@@ -26,7 +26,9 @@ import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.cassandra.AbstractCassandraRepository;
+import com.orangerhymelabs.helenus.cassandra.CassandraConfig;
 import com.orangerhymelabs.helenus.cassandra.SchemaProvider;
 import com.orangerhymelabs.helenus.cassandra.database.DatabaseRepository.DatabaseStatements;
 import com.orangerhymelabs.helenus.persistence.Query;
@@ -107,26 +109,26 @@ extends AbstractCassandraRepository<Database, DatabaseStatements>
 	{
 		@Override
 		@Query("insert into %s." + Tables.BY_ID + "(" + Columns.NAME + ", " + Columns.DESCRIPTION + ", " + Columns.CREATED_AT + ", " + Columns.UPDATED_AT + ") values (?, ?, ?, ?) if not exists")
-		PreparedStatement create();
+		ListenableFuture<PreparedStatement> create();
 
 		@Override
 		@Query("update %s." + Tables.BY_ID + " set " + Columns.DESCRIPTION + " = ?, " + Columns.UPDATED_AT + " = ?" + IDENTITY_CQL + " if exists")
-		PreparedStatement update();
+		ListenableFuture<PreparedStatement> update();
 
 		@Override
 		@Query("delete from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement delete();
+		ListenableFuture<PreparedStatement> delete();
 
-		@Query("select count(*) from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
-		PreparedStatement exists();
+		@Query("select " + Columns.NAME + " from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
+		ListenableFuture<PreparedStatement> exists();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement read();
+		ListenableFuture<PreparedStatement> read();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID)
-		PreparedStatement readAll();
+		ListenableFuture<PreparedStatement> readAll();
 	}
 
 	public DatabaseRepository(Session session, String keyspace)
@@ -134,6 +136,16 @@ extends AbstractCassandraRepository<Database, DatabaseStatements>
 		super(session, keyspace, DatabaseStatements.class);
 	}
 
+	/**
+	 * Creates a repository on the given session using the keyspace and shared request limiter from the
+	 * configuration, so metadata reads and writes queue behind the same limit as document operations.
+	 */
+	public DatabaseRepository(Session session, CassandraConfig config)
+	{
+		this(session, config.getKeyspace());
+		limiter(config.getRequestLimiter());
+	}
+
 	@Override
 	protected void bindCreate(BoundStatement bs, Database entity)
 	{
@@ -16,11 +16,17 @@
 package com.orangerhymelabs.helenus.cassandra.database;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.orangerhymelabs.helenus.persistence.FutureCache;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
+import com.orangerhymelabs.helenus.persistence.Page;
 import com.strategicgains.syntaxe.ValidationEngine;
 import com.strategicgains.syntaxe.ValidationException;
 
@@ -31,11 +37,29 @@ import com.strategicgains.syntaxe.ValidationException;
 public class DatabaseService
 {
 	private DatabaseRepository databases;
+	private FutureCache<Identifier, Database> cache;
+	private FutureCache<Identifier, Boolean> existence;
 	
 	public DatabaseService(DatabaseRepository databaseRepository)
+	{
+		this(databaseRepository, FutureCache.DEFAULT_MAXIMUM_SIZE, FutureCache.DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Reads and existence checks are cached, with the given bounds. Creates, updates and deletes through
+	 * this service invalidate the database's entries.
+	 * 
+	 * @param databaseRepository
+	 * @param cacheSize the maximum number of databases cached.
+	 * @param ttl how long a database is cached.
+	 * @param unit the unit of the ttl.
+	 */
+	public DatabaseService(DatabaseRepository databaseRepository, long cacheSize, long ttl, TimeUnit unit)
 	{
 		super();
 		this.databases = databaseRepository;
+		this.cache = new FutureCache<>(cacheSize, ttl, unit);
+		this.existence = new FutureCache<>(cacheSize, ttl, unit);
 	}
 
 	public void exists(String name, FutureCallback<Boolean> callback)
@@ -45,7 +69,15 @@ public class DatabaseService
 
 	public ListenableFuture<Boolean> exists(String name)
 	{
-		return databases.exists(new Identifier(name));
+		Identifier id = new ImmutableIdentifier(name);
+		return existence.get(id, new Supplier<ListenableFuture<Boolean>>()
+		{
+			@Override
+			public ListenableFuture<Boolean> get()
+			{
+				return databases.exists(id);
+			}
+		});
 	}
 
 	public void create(Database database, FutureCallback<Database> callback)
@@ -58,7 +90,7 @@ public class DatabaseService
 		try
 		{
 			ValidationEngine.validateAndThrow(database);
-			return databases.create(database);
+			return invalidating(database.name(), databases.create(database));
 		}
 		catch(ValidationException e)
 		{
@@ -73,7 +105,15 @@ public class DatabaseService
 
 	private ListenableFuture<Database> read(String name)
 	{
-		return databases.read(new Identifier(name));
+		Identifier id = new ImmutableIdentifier(name);
+		return cache.get(id, new Supplier<ListenableFuture<Database>>()
+		{
+			@Override
+			public ListenableFuture<Database> get()
+			{
+				return databases.read(id);
+			}
+		});
 	}
 
 	public void readAll(FutureCallback<List<Database>> callback, Object... parms)
@@ -81,11 +121,21 @@ public class DatabaseService
 		Futures.addCallback(readAll(parms), callback);
 	}
 
-	private ListenableFuture<List<Database>> readAll(Object[] parms)
+	public ListenableFuture<List<Database>> readAll(Object... parms)
 	{
 		return databases.readAll(parms);
 	}
 
+	public void readPage(int fetchSize, String cursor, FutureCallback<Page<Database>> callback)
+	{
+		Futures.addCallback(readPage(fetchSize, cursor), callback);
+	}
+
+	public ListenableFuture<Page<Database>> readPage(int fetchSize, String cursor)
+	{
+		return databases.readPage(fetchSize, cursor);
+	}
+
 	public void update(Database database, FutureCallback<Database> callback)
     {
 		Futures.addCallback(update(database), callback);
@@ -96,7 +146,7 @@ public class DatabaseService
 		try
 		{
 			ValidationEngine.validateAndThrow(database);
-			return databases.update(database);
+			return invalidating(database.name(), databases.update(database));
 		}
 		catch(ValidationException e)
 		{
@@ -111,6 +161,27 @@ public class DatabaseService
 
 	private ListenableFuture<Boolean> delete(String name)
 	{
-		return databases.delete(new Identifier(name));
+		return invalidating(name, databases.delete(new Identifier(name)));
+	}
+
+	/**
+	 * @return the combined statistics of the database and existence caches.
+	 */
+	public CacheStats cacheStats()
+	{
+		return cache.stats().plus(existence.stats());
+	}
+
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+		existence.invalidateAll();
+	}
+
+	private <T> ListenableFuture<T> invalidating(String name, ListenableFuture<T> write)
+	{
+		Identifier id = new ImmutableIdentifier(name);
+		existence.invalidating(id, write);
+		return cache.invalidating(id, write);
 	}
 }
@@ -15,23 +15,42 @@
  */
 package com.orangerhymelabs.helenus.cassandra.document;
 
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.bson.BSON;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
 import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ProtocolVersion;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TupleType;
 import com.datastax.driver.core.exceptions.CodecNotFoundException;
 import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.google.common.base.Function;
@@ -39,15 +58,23 @@ import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.cassandra.AbstractCassandraRepository;
+import com.orangerhymelabs.helenus.cassandra.RepositoryMetrics;
 import com.orangerhymelabs.helenus.cassandra.document.AbstractDocumentRepository.DocumentStatements;
+import com.orangerhymelabs.helenus.cassandra.migration.ColumnMigration;
+import com.orangerhymelabs.helenus.cassandra.table.WriteMode;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyComponent;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinition;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
+import com.orangerhymelabs.helenus.exception.DuplicateItemException;
 import com.orangerhymelabs.helenus.exception.InvalidIdentifierException;
 import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
+import com.orangerhymelabs.helenus.persistence.Page;
+import com.orangerhymelabs.helenus.persistence.PreparedStatementCache;
 import com.orangerhymelabs.helenus.persistence.StatementFactory;
+import com.orangerhymelabs.helenus.persistence.WriteResult;
 
 /**
  * Document repositories are unique per document/table and therefore must be cached by table.
@@ -65,6 +92,7 @@ extends AbstractCassandraRepository<Document, DocumentStatements>
 		static final String OBJECT = "object";
 		static final String CREATED_AT = "created_at";
 		static final String UPDATED_AT = "updated_at";
+		static final String VIEW_KEYS = "view_keys";
 	}
 
 	public static class Schema
@@ -78,10 +106,14 @@ extends AbstractCassandraRepository<Document, DocumentStatements>
 		    // TODO: Add Lucene index capability to Document.
 			Columns.CREATED_AT + " timestamp," +
 		    Columns.UPDATED_AT + " timestamp," +
+		    Columns.VIEW_KEYS + " map<text, blob>," +	// view name -> encoded view key
 			"%s" +									// primary key
 		")" +
 		" %s";										// clustering order (optional)
 
+		// Columns added since document tables were first released, for tables created before them.
+		private static final Map<String, String> ADDED_COLUMNS = Collections.singletonMap(Columns.VIEW_KEYS, "map<text, blob>");
+
 		public boolean drop(Session session, String keyspace, String table)
         {
 			ResultSetFuture rs = session.executeAsync(String.format(DROP_TABLE, keyspace, table));
@@ -102,7 +134,7 @@ extends AbstractCassandraRepository<Document, DocumentStatements>
 			ResultSetFuture rs = session.executeAsync(String.format(CREATE_TABLE, keyspace, table, key.asColumns(), key.asPrimaryKey(), key.asClusteringKey()));
 			try
 			{
-				return rs.get().wasApplied();
+				return rs.get().wasApplied() && migrate(session, keyspace, table);
 			}
 			catch (InterruptedException | ExecutionException e)
 			{
@@ -111,241 +143,481 @@ extends AbstractCassandraRepository<Document, DocumentStatements>
 			
 			return false;
         }
+
+        /**
+         * Adds any columns an existing document table is missing, such as the view_keys of tables created
+         * before views were maintained. Idempotent.
+         */
+        public boolean migrate(Session session, String keyspace, String table)
+        {
+        	return ColumnMigration.addMissing(session, keyspace, table, ADDED_COLUMNS);
+        }
+
+        /**
+         * Migrates the document tables that are missing any columns, reading which of the keyspace's tables
+         * have each column once rather than reading every table's columns.
+         *
+         * @return true if every outdated table was migrated.
+         */
+        public boolean migrateAll(Session session, String keyspace, Collection<String> tables)
+        {
+        	Set<String> outdated = new LinkedHashSet<String>();
+
+        	for (String column : ADDED_COLUMNS.keySet())
+        	{
+        		Set<String> current = ColumnMigration.tablesWith(session, keyspace, column);
+
+        		for (String table : tables)
+        		{
+        			if (!current.contains(table)) outdated.add(table);
+        		}
+        	}
+
+        	boolean migrated = true;
+
+        	for (String table : outdated)
+        	{
+        		migrated &= migrate(session, keyspace, table);
+        	}
+
+        	return migrated;
+        }
 	}
 
 	public static class DocumentStatements
 	implements StatementFactory
 	{
-		private static final String CREATE = "create";
-		private static final String DELETE = "delete";
-		private static final String EXISTS = "exists";
-		private static final String READ = "read";
-		private static final String READ_ALL = "readAll";
-		private static final String UPDATE = "update";
-		private static final String UPSERT = "upsert";
-
-		private KeyDefinition keys;
-		private Session session;
-		private String keyspace;
-		private String tableName;
-		private Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+		private PreparedStatementCache cache;
+		private String create;
+		private String delete;
+		private String exists;
+		private String read;
+		private String readAll;
+		private String readIn;
+		private String update;
+		private String unconditionalUpdate;
+		private String upsert;
+		private String upsertWithTtl;
+		private String createWithViewKeys;
+		private String upsertWithViewKeys;
+		private String updateWithViewKeys;
+		private String updateIfViewKeys;
+		private String deleteIfViewKeys;
+		private String readViewKeys;
+		private String putViewKey;
+		private String readTokenRange;
+		private String sizeEstimates;
+		private boolean isConditional = true;
 
 		public DocumentStatements(Session session, String keyspace, String tableName, KeyDefinition keys)
-		throws KeyDefinitionException
 		{
 			super();
-			this.session = session;
-			this.keyspace = keyspace;
-			this.tableName = tableName;
-			this.keys = keys;
+			this.cache = PreparedStatementCache.forSession(session);
+			this.create = String.format("insert into %s.%s (%s, %s, %s, %s) values (%s) if not exists",
+				keyspace,
+				tableName,
+				keys.asSelectProperties(),
+				Columns.OBJECT,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				keys.asQuestionMarks(3));
+			this.delete = String.format("delete from %s.%s where %s",
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.exists = String.format("select %s from %s.%s where %s limit 1",
+				keys.asSelectProperties(),
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.update = String.format("update %s.%s set %s = ?, %s = ? where %s if exists",
+				keyspace,
+				tableName,
+				Columns.OBJECT,
+				Columns.UPDATED_AT,
+				keys.asIdentityClause());
+			this.unconditionalUpdate = String.format("update %s.%s set %s = ?, %s = ? where %s",
+				keyspace,
+				tableName,
+				Columns.OBJECT,
+				Columns.UPDATED_AT,
+				keys.asIdentityClause());
+			this.upsert = String.format("insert into %s.%s (%s, %s, %s, %s) values (%s)",
+				keyspace,
+				tableName,
+				keys.asSelectProperties(),
+				Columns.OBJECT,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				keys.asQuestionMarks(3));
+			this.upsertWithTtl = upsert + " using ttl ?";
+			this.upsertWithViewKeys = String.format("insert into %s.%s (%s, %s, %s, %s, %s) values (%s)",
+				keyspace,
+				tableName,
+				keys.asSelectProperties(),
+				Columns.OBJECT,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				Columns.VIEW_KEYS,
+				keys.asQuestionMarks(4));
+			this.createWithViewKeys = upsertWithViewKeys + " if not exists";
+			this.updateWithViewKeys = String.format("update %s.%s set %s = ?, %s = ?, %s = ? where %s",
+				keyspace,
+				tableName,
+				Columns.OBJECT,
+				Columns.UPDATED_AT,
+				Columns.VIEW_KEYS,
+				keys.asIdentityClause());
+			this.updateIfViewKeys = String.format("%s if %s = ?", updateWithViewKeys, Columns.VIEW_KEYS);
+			this.deleteIfViewKeys = String.format("%s if %s = ?", delete, Columns.VIEW_KEYS);
+			this.readViewKeys = String.format("select %s from %s.%s where %s limit 1",
+				Columns.VIEW_KEYS,
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.putViewKey = String.format("update %s.%s set %s[?] = ? where %s",
+				keyspace,
+				tableName,
+				Columns.VIEW_KEYS,
+				keys.asIdentityClause());
+			// Select the document columns only, not the view keys. Cassandra doesn't allow clustering key IN
+			// restrictions when a collection is selected.
+			String columns = String.join(", ", keys.asSelectProperties(), Columns.OBJECT, Columns.CREATED_AT, Columns.UPDATED_AT);
+			this.read = String.format("select %s from %s.%s where %s limit 1",
+				columns,
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.readAll = String.format("select %s from %s.%s where %s",
+				columns,
+				keyspace,
+				tableName,
+				keys.asPartitionIdentityClause());
+			this.readIn = (keys.hasClusteringKey() ? String.format("select %s from %s.%s where %s",
+				columns,
+				keyspace,
+				tableName,
+				keys.asClusteringInClause()) : null);
+			this.readTokenRange = String.format("select %s from %s.%s where token(%s) > ? and token(%s) <= ?",
+				columns,
+				keyspace,
+				tableName,
+				keys.asPartitionProperties(),
+				keys.asPartitionProperties());
+			this.sizeEstimates = "select range_start, range_end, partitions_count from system.size_estimates where keyspace_name = ? and table_name = ?";
+		}
+
+		/**
+		 * Whether create() and update() are lightweight transactions (if not exists/if exists). When false,
+		 * create() is the same as upsert() and update() is a plain update.
+		 */
+		public void conditional(boolean isConditional)
+		{
+			this.isConditional = isConditional;
+		}
+
+		public boolean isConditional()
+		{
+			return isConditional;
 		}
 
 		@Override
-		public PreparedStatement create()
+		public ListenableFuture<PreparedStatement> create()
 		{
-			PreparedStatement ps = statements.get(CREATE);
+			return cache.prepare(isConditional ? create : upsert);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("insert into %s.%s (%s, %s, %s, %s) values (%s) if not exists",
-						keyspace,
-						tableName,
-						keys.asSelectProperties(),
-						Columns.OBJECT,
-						Columns.CREATED_AT,
-						Columns.UPDATED_AT,
-						keys.asQuestionMarks(3))).get();
-					statements.put(CREATE, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing create() statement", e);
-				}
-			}
+		@Override
+		public ListenableFuture<PreparedStatement> delete()
+		{
+			return cache.prepare(delete);
+		}
 
-			return ps;
+		@Override
+		public ListenableFuture<PreparedStatement> exists()
+		{
+			return cache.prepare(exists);
 		}
 
 		@Override
-		public PreparedStatement delete()
+		public ListenableFuture<PreparedStatement> update()
 		{
-			PreparedStatement ps = statements.get(DELETE);
+			return cache.prepare(isConditional ? update : unconditionalUpdate);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("delete from %s.%s where %s",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(DELETE, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing delete() statement", e);
-				}
-			}
+		public ListenableFuture<PreparedStatement> upsert()
+		{
+			return cache.prepare(upsert);
+		}
 
-			return ps;
+		/**
+		 * An upsert whose last bound value is the row's TTL, in seconds (0 for none). Not included in
+		 * prepareAll(), as it's only used for atomic view writes.
+		 */
+		public ListenableFuture<PreparedStatement> upsertWithTtl()
+		{
+			return cache.prepare(upsertWithTtl);
 		}
 
-		public PreparedStatement exists()
+		/**
+		 * The statements below also write the keys of the document's view rows and are only used for tables
+		 * with views, so they are not included in prepareAll() either. Their last bound value is the view keys.
+		 */
+		public ListenableFuture<PreparedStatement> createWithViewKeys()
 		{
-			PreparedStatement ps = statements.get(EXISTS);
+			return cache.prepare(isConditional ? createWithViewKeys : upsertWithViewKeys);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select count(*) from %s.%s  where %s limit 1",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(EXISTS, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing exists() statement", e);
-				}
-			}
+		public ListenableFuture<PreparedStatement> upsertWithViewKeys()
+		{
+			return cache.prepare(upsertWithViewKeys);
+		}
 
-			return ps;
+		/**
+		 * An unconditional update, since it's written in a multi-partition batch. Its view keys are the third
+		 * bound value, before the identifier.
+		 */
+		public ListenableFuture<PreparedStatement> updateWithViewKeys()
+		{
+			return cache.prepare(updateWithViewKeys);
 		}
 
-		@Override
-		public PreparedStatement update()
+		/**
+		 * A conditional update that's only applied if the document's view keys are still the last bound value.
+		 */
+		public ListenableFuture<PreparedStatement> updateIfViewKeys()
 		{
-			PreparedStatement ps = statements.get(UPDATE);
+			return cache.prepare(updateIfViewKeys);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("update %s.%s set %s = ?, %s = ? where %s if exists",
-						keyspace,
-						tableName,
-						Columns.OBJECT,
-						Columns.UPDATED_AT,
-						keys.asIdentityClause())).get();
-					statements.put(UPDATE, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing update() statement", e);
-				}
-			}
+		/**
+		 * A conditional delete that's only applied if the document's view keys are still the last bound value.
+		 */
+		public ListenableFuture<PreparedStatement> deleteIfViewKeys()
+		{
+			return cache.prepare(deleteIfViewKeys);
+		}
 
-			return ps;
+		public ListenableFuture<PreparedStatement> readViewKeys()
+		{
+			return cache.prepare(readViewKeys);
 		}
 
-		public PreparedStatement upsert()
+		/**
+		 * Notes the key of one of the document's view rows, without reading or rewriting the others. Binds the
+		 * view name and key, then the identifier.
+		 */
+		public ListenableFuture<PreparedStatement> putViewKey()
 		{
-			PreparedStatement ps = statements.get(UPSERT);
+			return cache.prepare(putViewKey);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("insert into %s.%s (%s, %s, %s, %s) values (%s)",
-						keyspace,
-						tableName,
-						keys.asSelectProperties(),
-						Columns.OBJECT,
-						Columns.CREATED_AT,
-						Columns.UPDATED_AT,
-						keys.asQuestionMarks(3))).get();
-					statements.put(UPSERT, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing upsert() statement", e);
-				}
-			}
+		/**
+		 * Selects the documents whose partition token is after the first bound value, up to and including
+		 * the second, in token order.
+		 */
+		public ListenableFuture<PreparedStatement> readTokenRange()
+		{
+			return cache.prepare(readTokenRange);
+		}
 
-			return ps;
+		/**
+		 * Selects the coordinator's estimates of the number of partitions in each of its token ranges, given the
+		 * keyspace and table names.
+		 */
+		public ListenableFuture<PreparedStatement> sizeEstimates()
+		{
+			return cache.prepare(sizeEstimates);
 		}
 
 		@Override
-		public PreparedStatement read()
+		public ListenableFuture<PreparedStatement> read()
 		{
-			PreparedStatement ps = statements.get(READ);
+			return cache.prepare(read);
+		}
 
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select * from %s.%s where %s limit 1",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(READ, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing read() statement", e);
-				}
-			}
+		@Override
+		public ListenableFuture<PreparedStatement> readAll()
+		{
+			return cache.prepare(readAll);
+		}
 
-			return ps;
+		/**
+		 * Selects several rows of one partition by their clustering keys. Null if the table has no clustering key.
+		 */
+		public ListenableFuture<PreparedStatement> readIn()
+		{
+			return (readIn != null ? cache.prepare(readIn) : null);
 		}
 
 		@Override
-		public PreparedStatement readAll()
+		public List<ListenableFuture<PreparedStatement>> prepareAll()
 		{
-			PreparedStatement ps = statements.get(READ_ALL);
+			List<ListenableFuture<PreparedStatement>> statements = new ArrayList<>(Arrays.asList(create(), delete(), exists(), update(), upsert(), read(), readAll()));
 
-			if (ps == null)
+			if (readIn != null)
 			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select * from %s.%s where %s",
-						keyspace,
-						tableName,
-						keys.asPartitionIdentityClause())).get();
-					statements.put(READ_ALL, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing readAll() statement", e);
-				}
+				statements.add(readIn());
 			}
 
-			return ps;
+			return statements;
 		}
 	}
 
+	// Keep each batch's mutation small, so one batch doesn't hold a coordinator for long or cost much to retry.
+	public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+	// Stay well under Cassandra's default batch_size_fail_threshold_in_kb (50).
+	public static final int DEFAULT_MAX_BATCH_BYTES = 32 * 1024;
+
+	// Keep clustering key IN lists short, so a single query doesn't hold a coordinator for long.
+	public static final int DEFAULT_MAX_READ_IN_SIZE = 100;
+
+	// The number of Murmur3Partitioner tokens.
+	private static final BigInteger TOKEN_RING = BigInteger.ONE.shiftLeft(64);
+
 	private String tableName;
 	private KeyDefinition keyDefinition;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+	private int maxReadInSize = DEFAULT_MAX_READ_IN_SIZE;
 
 	public AbstractDocumentRepository(Session session, String keyspace, String tableName, String keys)
 	throws KeyDefinitionException
+	{
+		this(session, keyspace, tableName, new KeyDefinitionParser().parse(keys));
+	}
+
+	public AbstractDocumentRepository(Session session, String keyspace, String tableName, KeyDefinition keys)
 	{
 		super(session, keyspace);
-		this.keyDefinition = new KeyDefinitionParser().parse(keys);
+		this.keyDefinition = keys;
 		this.tableName = tableName;
 		statementFactory(new DocumentStatements(session, keyspace, tableName, keyDefinition));
 	}
 
+	/**
+	 * @return the name of the document table, in the keyspace.
+	 */
+	public String tableName()
+	{
+		return tableName;
+	}
+
 	public ListenableFuture<Boolean> exists(Identifier id)
 	{
 		ListenableFuture<ResultSet> future = submitExists(id);
-		return Futures.transform(future, new Function<ResultSet, Boolean>()
+		return metered(RepositoryMetrics.EXISTS, Futures.transform(future, new Function<ResultSet, Boolean>()
 		{
 			@Override
 			public Boolean apply(ResultSet result)
 			{
-				return result.one().getLong(0) > 0;
+				return !result.isExhausted();
 			}
-		});
+		}));
+	}
+
+	/**
+	 * Reads identifiers with one query per partition instead of one per identifier. Identifiers in the same
+	 * partition are read together, by an IN on the clustering key, and the rows are then matched back to the
+	 * requested identifiers. Each partition is still queried separately, so the driver's token-awareness
+	 * sends each query directly to a replica.
+	 */
+	@Override
+	protected List<ListenableFuture<Document>> submitEach(Identifier... ids)
+	{
+		List<ListenableFuture<Document>> futures = new ArrayList<>(Collections.nCopies(ids.length, (ListenableFuture<Document>) null));
+		// The distinct identifiers of each partition, each with the positions it was requested at.
+		Map<Identifier, Map<Identifier, List<Integer>>> partitions = new LinkedHashMap<>();
+
+		for (int i = 0; i < ids.length; i++)
+		{
+			try
+			{
+				validateIdentity(ids[i]);
+			}
+			catch (RuntimeException e)
+			{
+				futures.set(i, Futures.<Document>immediateFailedFuture(e));
+				continue;
+			}
+
+			Identifier partition = new ImmutableIdentifier(ids[i].components().subList(0, keyDefinition.partitionSize()).toArray());
+			Map<Identifier, List<Integer>> members = partitions.get(partition);
+
+			if (members == null)
+			{
+				members = new LinkedHashMap<>();
+				partitions.put(partition, members);
+			}
+
+			Identifier id = ImmutableIdentifier.of(ids[i]);
+			List<Integer> positions = members.get(id);
+
+			if (positions == null)
+			{
+				positions = new ArrayList<>(1);
+				members.put(id, positions);
+			}
+
+			positions.add(i);
+		}
+
+		for (Map<Identifier, List<Integer>> members : partitions.values())
+		{
+			List<Identifier> memberIds = new ArrayList<>(members.keySet());
+
+			// A partition with a single distinct identifier, as always without a clustering key, is read by its
+			// full primary key rather than by readIn().
+			for (int i = 0; i < memberIds.size(); i += maxReadInSize)
+			{
+				List<Identifier> chunkIds = memberIds.subList(i, Math.min(memberIds.size(), i + maxReadInSize));
+				List<Integer> chunk = new ArrayList<>(chunkIds.size());
+
+				for (Identifier chunkId : chunkIds)
+				{
+					chunk.addAll(members.get(chunkId));
+				}
+
+				ListenableFuture<Map<Identifier, Document>> rows = Futures.transform(submitReadIn(chunkIds), new Function<ResultSet, Map<Identifier, Document>>()
+				{
+					@Override
+					public Map<Identifier, Document> apply(ResultSet input)
+					{
+						Map<Identifier, Document> found = new HashMap<>();
+
+						for (Row row : input)
+						{
+							Document document = marshalRow(row);
+							found.put(document.identifier(), document);
+						}
+
+						return found;
+					}
+				});
+
+				for (Integer index : chunk)
+				{
+					Identifier id = ids[index];
+					futures.set(index, Futures.transform(rows, new Function<Map<Identifier, Document>, Document>()
+					{
+						@Override
+						public Document apply(Map<Identifier, Document> input)
+						{
+							return input.get(id);
+						}
+					}));
+				}
+			}
+		}
+
+		return futures;
 	}
 
 	public ListenableFuture<Document> upsert(Document entity)
 	{
 		ListenableFuture<ResultSet> future = submitUpsert(entity);
-		return Futures.transformAsync(future, new AsyncFunction<ResultSet, Document>()
+		return metered(RepositoryMetrics.UPSERT, Futures.transformAsync(future, new AsyncFunction<ResultSet, Document>()
 		{
 			@Override
 			public ListenableFuture<Document> apply(ResultSet result)
@@ -359,130 +631,1451 @@ extends AbstractCassandraRepository<Document, DocumentStatements>
 				//TODO: This doesn't provide any informational value... what should it be?
 				return Futures.immediateFailedFuture(new StorageException(String.format("Table %s failed to store document: %s", tableName, entity.toString())));
 			}
-		});
+		}));
 	}
 
-	@Override
-	protected ResultSetFuture submitCreate(Document document)
+	/**
+	 * Sets whether creates and updates use lightweight transactions. Under WriteMode.UNCONDITIONAL, creating
+	 * a document that exists overwrites it instead of failing with DuplicateItemException, and updating one
+	 * that doesn't exist creates it instead of failing with ItemNotFoundException.
+	 * 
+	 * @param writeMode the write mode, or null for the default (CONDITIONAL).
+	 */
+	public void writeMode(WriteMode writeMode)
 	{
-		BoundStatement create = new BoundStatement(statementFactory().create());
-		bindCreate(create, document);
-		return session().executeAsync(create);
+		statementFactory().conditional(writeMode != WriteMode.UNCONDITIONAL);
 	}
 
-	@Override
-	protected ResultSetFuture submitDelete(Identifier id)
+	public WriteMode writeMode()
 	{
-		BoundStatement delete = new BoundStatement(statementFactory().delete());
-		bindIdentity(delete, id);
-		return session().executeAsync(delete);
+		return (statementFactory().isConditional() ? WriteMode.CONDITIONAL : WriteMode.UNCONDITIONAL);
 	}
 
-	protected ListenableFuture<ResultSet> submitExists(Identifier id)
+	/**
+	 * Create many documents with as few round trips as possible. Documents are grouped by partition into
+	 * conditional (if not exists) batches of bounded size. When a batch is not applied because one of its
+	 * documents already exists, its documents are retried individually so that each one gets an accurate result.
+	 * Under WriteMode.UNCONDITIONAL, documents are batched by replica, as in upsertAll(), and never reported
+	 * as duplicates.
+	 * 
+	 * The returned future does not fail; each document gets its own WriteResult, in the order given.
+	 * 
+	 * @param documents the documents to create.
+	 * @return a WriteResult for each document.
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> createAll(List<Document> documents)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory().exists());
-		bindIdentity(bs, id);
-		return session().executeAsync(bs);
+		return metered(RepositoryMetrics.CREATE_ALL, writeAll(documents, null, statementFactory().create(), statementFactory().isConditional()));
 	}
 
-	@Override
-	protected ResultSetFuture submitUpdate(Document document)
+	/**
+	 * Upsert many documents with as few round trips as possible. Documents are grouped by the set of replicas
+	 * owning their partition into unlogged batches of bounded size, so each batch is sent to a replica that can
+	 * apply all of it locally instead of fanning out from a coordinator.
+	 * 
+	 * The returned future does not fail; each document gets its own WriteResult, in the order given.
+	 * 
+	 * @param documents the documents to upsert.
+	 * @return a WriteResult for each document.
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> upsertAll(List<Document> documents)
 	{
-		BoundStatement update = new BoundStatement(statementFactory().update());
-		bindUpdate(update, document);
-		return session().executeAsync(update);
+		return metered(RepositoryMetrics.UPSERT_ALL, writeAll(documents, null, statementFactory().upsert(), false));
 	}
 
-	protected ResultSetFuture submitUpsert(Document document)
+	/**
+	 * Create many documents, as for createAll(), noting the keys of each document's view rows, as for createWith().
+	 * 
+	 * @param documents the documents to create.
+	 * @param viewKeys the encoded keys of each document's view rows, by view name, in the same order as the documents.
+	 * @return a WriteResult for each document.
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> createAllWith(List<Document> documents, List<Map<String, ByteBuffer>> viewKeys)
 	{
-		BoundStatement upsert = new BoundStatement(statementFactory().upsert());
-		bindCreate(upsert, document);
-		return session().executeAsync(upsert);
+		return metered(RepositoryMetrics.CREATE_ALL, writeAll(documents, viewKeys, statementFactory().createWithViewKeys(), statementFactory().isConditional()));
 	}
 
-	@Override
-	protected void bindCreate(BoundStatement bs, Document document)
+	/**
+	 * Upsert many documents, as for upsertAll(), noting the keys of each document's view rows.
+	 * 
+	 * @param documents the documents to upsert.
+	 * @param viewKeys the encoded keys of each document's view rows, by view name, in the same order as the documents.
+	 * @return a WriteResult for each document.
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> upsertAllWith(List<Document> documents, List<Map<String, ByteBuffer>> viewKeys)
 	{
-		Date now = new Date();
-		document.createdAt(now);
-		document.updatedAt(now);
-		Identifier id = document.identifier();
-		Object[] values = new Object[id.size() + 3]; // Identifier + object + createdAt + updatedAt.
+		return metered(RepositoryMetrics.UPSERT_ALL, writeAll(documents, viewKeys, statementFactory().upsertWithViewKeys(), false));
+	}
+
+	/**
+	 * Create a document, noting the keys of its view rows. Conditional, as for create(), unless the write
+	 * mode is UNCONDITIONAL.
+	 * 
+	 * @param document the document to create.
+	 * @param viewKeys the encoded key of each of the document's view rows, by view name.
+	 * @return the document, or a DuplicateItemException if it already exists.
+	 */
+	public ListenableFuture<Document> createWith(Document document, Map<String, ByteBuffer> viewKeys)
+	{
+		ListenableFuture<ResultSet> future;
 
 		try
 		{
-			fill(values, 0, id.components().toArray());
-			fill(values, id.size(),
-					(document.hasObject() ? ByteBuffer.wrap(BSON.encode(document.object())) : null),
-				    document.createdAt(),
-				    document.updatedAt());
-			bs.bind(values);
+			validateIdentity(document.identifier());
+			future = executeWrite(statementFactory().createWithViewKeys(), new Function<PreparedStatement, Statement>()
+			{
+				@Override
+				public Statement apply(PreparedStatement ps)
+				{
+					BoundStatement create = new BoundStatement(ps);
+					bindCreate(create, document);
+					create.setMap(keyDefinition.size() + 3, viewKeys);
+					return create;
+				}
+			});
 		}
-		catch (InvalidTypeException | CodecNotFoundException e)
+		catch (RuntimeException e)
 		{
-			throw new InvalidIdentifierException(e);
+			future = Futures.immediateFailedFuture(e);
 		}
-	}
-
-	@Override
-	protected void bindUpdate(BoundStatement bs, Document document)
-	{
-		document.updatedAt(new Date());
-		Identifier id = document.identifier();
-		Object[] values = new Object[id.size() + 2];
 
-		try
+		return metered(RepositoryMetrics.CREATE, Futures.transformAsync(future, new AsyncFunction<ResultSet, Document>()
 		{
-			if (document.hasObject())
+			@Override
+			public ListenableFuture<Document> apply(ResultSet result)
 			{
-				fill(values, 0, ByteBuffer.wrap(BSON.encode(document.object())),
-					document.updatedAt());
-				fill(values, 2, id.components().toArray());
+				if (result.wasApplied())
+				{
+					return Futures.immediateFuture(document);
+				}
+
+				return Futures.immediateFailedFuture(new DuplicateItemException(document.toString()));
 			}
-			else
+		}));
+	}
+
+	/**
+	 * Upserts the document, noting the keys of its view rows, together with the given statements (e.g. from
+	 * view repositories' bindUpsert() and bindDelete()) in a single logged batch, so that either all of them
+	 * are eventually applied or none are. The whole batch takes one round trip to a coordinator, at this
+	 * repository's write consistency level.
+	 * 
+	 * Being a multi-partition batch, it can't be conditional, so the document is upserted even under
+	 * WriteMode.CONDITIONAL.
+	 * 
+	 * @param document the document to upsert.
+	 * @param viewKeys the encoded key of each of the document's view rows, by view name.
+	 * @param statements other statements to apply atomically with it.
+	 * @return the document.
+	 */
+	public ListenableFuture<Document> upsertWith(Document document, Map<String, ByteBuffer> viewKeys, List<? extends Statement> statements)
+	{
+		return metered(RepositoryMetrics.UPSERT_WITH, writeLogged(document.identifier(), statementFactory().upsertWithViewKeys(), new Function<PreparedStatement, BoundStatement>()
+		{
+			@Override
+			public BoundStatement apply(PreparedStatement ps)
 			{
-				fill(values, 0, null, document.updatedAt());
-				fill(values, 2, id.components().toArray());
+				BoundStatement upsert = new BoundStatement(ps);
+				bindCreate(upsert, document);
+				upsert.setMap(keyDefinition.size() + 3, viewKeys);
+				return upsert;
 			}
+		}, statements, document));
+	}
 
-			bs.bind(values);
-		}
-		catch (InvalidTypeException | CodecNotFoundException e)
+	/**
+	 * Updates the document, noting the keys of its view rows, together with the given statements in a single
+	 * logged batch. The update is unconditional, so callers needing 'if exists' must check for the document
+	 * first, such as by readViewKeys().
+	 * 
+	 * @see #upsertWith(Document, Map, List)
+	 */
+	public ListenableFuture<Document> updateWith(Document document, Map<String, ByteBuffer> viewKeys, List<? extends Statement> statements)
+	{
+		return metered(RepositoryMetrics.UPDATE_WITH, writeLogged(document.identifier(), statementFactory().updateWithViewKeys(), new Function<PreparedStatement, BoundStatement>()
 		{
-			throw new InvalidIdentifierException(e);
-		}
+			@Override
+			public BoundStatement apply(PreparedStatement ps)
+			{
+				BoundStatement update = new BoundStatement(ps);
+				Identifier id = document.identifier();
+				Object[] values = new Object[id.size() + 3];
+				document.updatedAt(new Date());
+
+				try
+				{
+					fill(values, 0, encode(document), document.updatedAt(), viewKeys);
+					fill(values, 3, id.components().toArray());
+					update.bind(values);
+					setRoutingKey(update, document);
+				}
+				catch (InvalidTypeException | CodecNotFoundException e)
+				{
+					throw new InvalidIdentifierException(e);
+				}
+
+				return update;
+			}
+		}, statements, document));
 	}
 
-	private void fill(Object[] array, int offset, Object... values)
+	/**
+	 * Deletes the document together with the given statements (e.g. deletes of its view rows) in a single
+	 * logged batch.
+	 * 
+	 * @see #upsertWith(Document, Map, List)
+	 */
+	public ListenableFuture<Boolean> deleteWith(Identifier id, List<? extends Statement> statements)
 	{
-		for (int i = offset; i < values.length + offset; i++)
+		return metered(RepositoryMetrics.DELETE_WITH, writeLogged(id, statementFactory().delete(), new Function<PreparedStatement, BoundStatement>()
 		{
-			array[i] = values[i - offset];
-		}
+			@Override
+			public BoundStatement apply(PreparedStatement ps)
+			{
+				BoundStatement delete = new BoundStatement(ps);
+				bindIdentity(delete, id);
+				return delete;
+			}
+		}, statements, Boolean.TRUE));
 	}
 
-	@Override
-	protected Document marshalRow(Row row)
+	/**
+	 * Updates the document and notes the keys of its view rows, but only if the view keys noted with it are
+	 * still the expected ones, as read by readViewKeys(). Being a lightweight transaction, concurrent writers of
+	 * the same document take turns, so each one's view rows can be maintained from the keys it replaced. If the
+	 * document didn't exist when read (expected is null), it's created only if it still doesn't.
+	 * 
+	 * @param document the document to write.
+	 * @param expected the view keys read with readViewKeys().
+	 * @param viewKeys the encoded key of each of the document's view rows, by view name.
+	 * @return true if written, false if the document or its view keys have changed since they were read.
+	 */
+	public ListenableFuture<Boolean> updateIfViewKeys(Document document, Map<String, ByteBuffer> expected, Map<String, ByteBuffer> viewKeys)
 	{
-		if (row == null)
+		if (expected == null)
 		{
-			return null;
+			ListenableFuture<Document> created = Futures.catching(createWith(document, viewKeys), DuplicateItemException.class, new Function<DuplicateItemException, Document>()
+			{
+				@Override
+				public Document apply(DuplicateItemException e)
+				{
+					return null;
+				}
+			});
+
+			return Futures.transform(created, new Function<Document, Boolean>()
+			{
+				@Override
+				public Boolean apply(Document input)
+				{
+					return (input != null);
+				}
+			});
 		}
 
-		Document d = new Document();
-		d.identifier(marshalId(keyDefinition, row));
-		ByteBuffer b = row.getBytes(Columns.OBJECT);
+		Identifier id = document.identifier();
 
-		if (b != null && b.hasArray())
+		try
 		{
-			byte[] result = new byte[b.remaining()];
-			b.get(result);
-			d.object(BSON.decode(result));
+			validateIdentity(id);
+		}
+		catch (RuntimeException e)
+		{
+			return Futures.immediateFailedFuture(e);
 		}
 
-		d.createdAt(row.getTimestamp(Columns.CREATED_AT));
-		d.updatedAt(row.getTimestamp(Columns.UPDATED_AT));
-		return d;
+		ListenableFuture<ResultSet> future = executeWrite(statementFactory().updateIfViewKeys(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement update = new BoundStatement(ps);
+				Object[] values = new Object[id.size() + 4];
+				document.updatedAt(new Date());
+
+				try
+				{
+					fill(values, 0, encode(document), document.updatedAt(), viewKeys);
+					fill(values, 3, id.components().toArray());
+					values[id.size() + 3] = expected;
+					update.bind(values);
+					setRoutingKey(update, document);
+				}
+				catch (InvalidTypeException | CodecNotFoundException e)
+				{
+					throw new InvalidIdentifierException(e);
+				}
+
+				return update;
+			}
+		});
+
+		return metered(RepositoryMetrics.UPDATE_IF_VIEW_KEYS, Futures.transform(future, new Function<ResultSet, Boolean>()
+		{
+			@Override
+			public Boolean apply(ResultSet input)
+			{
+				return input.wasApplied();
+			}
+		}));
+	}
+
+	/**
+	 * Deletes the document, but only if the view keys noted with it are still the expected ones.
+	 * 
+	 * @param id the document's identifier.
+	 * @param expected the view keys read with readViewKeys().
+	 * @return true if deleted, false if the document or its view keys have changed since they were read.
+	 * @see #updateIfViewKeys(Document, Map, Map)
+	 */
+	public ListenableFuture<Boolean> deleteIfViewKeys(Identifier id, Map<String, ByteBuffer> expected)
+	{
+		try
+		{
+			validateIdentity(id);
+		}
+		catch (RuntimeException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		ListenableFuture<ResultSet> future = executeWrite(statementFactory().deleteIfViewKeys(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement delete = new BoundStatement(ps);
+				Object[] values = new Object[id.size() + 1];
+
+				try
+				{
+					fill(values, 0, id.components().toArray());
+					values[id.size()] = expected;
+					delete.bind(values);
+				}
+				catch (InvalidTypeException | CodecNotFoundException e)
+				{
+					throw new InvalidIdentifierException(e);
+				}
+
+				ByteBuffer routingKey = routingKey(id);
+
+				if (routingKey != null)
+				{
+					delete.setRoutingKey(routingKey);
+				}
+
+				return delete;
+			}
+		});
+
+		return metered(RepositoryMetrics.DELETE_IF_VIEW_KEYS, Futures.transform(future, new Function<ResultSet, Boolean>()
+		{
+			@Override
+			public Boolean apply(ResultSet input)
+			{
+				return input.wasApplied();
+			}
+		}));
+	}
+
+	/**
+	 * Writes view rows (e.g. from view repositories' bindUpsert() and bindDelete()) in a single logged batch,
+	 * at the given time instead of now. Following updateIfViewKeys() or deleteIfViewKeys() with the document's
+	 * write time means that, of two writers' view rows, the later writer's win regardless of which batch
+	 * arrives first.
+	 * 
+	 * @param statements the view row writes.
+	 * @param at the write time of the document they belong to.
+	 */
+	public ListenableFuture<Void> writeViewRows(List<? extends Statement> statements, Date at)
+	{
+		if (statements.isEmpty()) return Futures.immediateFuture(null);
+
+		BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+		batch.addAll(statements);
+		// The end of that millisecond, so they supersede view rows written at microsecond precision earlier in it.
+		batch.setDefaultTimestamp(TimeUnit.MILLISECONDS.toMicros(at.getTime()) + 999L);
+		return metered(RepositoryMetrics.WRITE_VIEW_ROWS, Futures.transform(executeWrite(batch), new Function<ResultSet, Void>()
+		{
+			@Override
+			public Void apply(ResultSet input)
+			{
+				return null;
+			}
+		}));
+	}
+
+	private <V> ListenableFuture<V> writeLogged(Identifier id, ListenableFuture<PreparedStatement> statement, Function<PreparedStatement, BoundStatement> binder, List<? extends Statement> statements, V result)
+	{
+		try
+		{
+			validateIdentity(id);
+		}
+		catch (RuntimeException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		ListenableFuture<ResultSet> future = executeWrite(statement, new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+				batch.add(binder.apply(ps));
+				batch.addAll(statements);
+				return batch;
+			}
+		});
+
+		return Futures.transform(future, new Function<ResultSet, V>()
+		{
+			@Override
+			public V apply(ResultSet input)
+			{
+				return result;
+			}
+		});
+	}
+
+	/**
+	 * Reads only the encoded keys of a document's view rows, as noted by createWith(), upsertWith() or updateWith().
+	 * 
+	 * @param id the document's identifier.
+	 * @return the view keys, by view name (empty if none were noted), or null if the document doesn't exist.
+	 */
+	public ListenableFuture<Map<String, ByteBuffer>> readViewKeys(Identifier id)
+	{
+		ListenableFuture<ResultSet> future;
+
+		try
+		{
+			validateIdentity(id);
+			future = executeRead(statementFactory().readViewKeys(), new Function<PreparedStatement, Statement>()
+			{
+				@Override
+				public Statement apply(PreparedStatement ps)
+				{
+					BoundStatement bs = new BoundStatement(ps);
+					bindIdentity(bs, id);
+					return bs;
+				}
+			});
+		}
+		catch (RuntimeException e)
+		{
+			future = Futures.immediateFailedFuture(e);
+		}
+
+		return Futures.transform(future, new Function<ResultSet, Map<String, ByteBuffer>>()
+		{
+			@Override
+			public Map<String, ByteBuffer> apply(ResultSet input)
+			{
+				Row row = input.one();
+				return (row != null ? row.getMap(Columns.VIEW_KEYS, String.class, ByteBuffer.class) : null);
+			}
+		});
+	}
+
+	/**
+	 * Writes one view row of an existing document and notes its key with the document, leaving the keys of
+	 * its other views as they are, in one logged batch. Both rows are written at the document's last update
+	 * time instead of now, so a document written again since it was read (whose view rows are maintained by
+	 * DocumentService) is never overwritten with the older copy.
+	 * 
+	 * @param document the document, as read from this repository.
+	 * @param view the view name.
+	 * @param key the view row's key, from the view repository's encodeKey().
+	 * @param viewRow the bound upsert of the view row, such as from the view repository's bindUpsert().
+	 * @return true when written.
+	 */
+	public ListenableFuture<Boolean> putViewRow(Document document, String view, ByteBuffer key, Statement viewRow)
+	{
+		Identifier id = document.identifier();
+
+		try
+		{
+			validateIdentity(id);
+		}
+		catch (RuntimeException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		ListenableFuture<ResultSet> future = executeWrite(statementFactory().putViewKey(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement put = new BoundStatement(ps);
+				Object[] values = new Object[id.size() + 2];
+
+				try
+				{
+					fill(values, 0, view, key);
+					fill(values, 2, id.components().toArray());
+					put.bind(values);
+				}
+				catch (InvalidTypeException | CodecNotFoundException e)
+				{
+					throw new InvalidIdentifierException(e);
+				}
+
+				ByteBuffer routingKey = routingKey(id);
+
+				if (routingKey != null)
+				{
+					put.setRoutingKey(routingKey);
+				}
+
+				BatchStatement batch = new BatchStatement(BatchStatement.Type.LOGGED);
+				batch.add(put);
+				batch.add(viewRow);
+
+				if (document.updatedAt() != null)
+				{
+					batch.setDefaultTimestamp(TimeUnit.MILLISECONDS.toMicros(document.updatedAt().getTime()));
+				}
+
+				return batch;
+			}
+		});
+
+		return metered(RepositoryMetrics.PUT_VIEW_ROW, Futures.transform(future, new Function<ResultSet, Boolean>()
+		{
+			@Override
+			public Boolean apply(ResultSet input)
+			{
+				return Boolean.TRUE;
+			}
+		}));
+	}
+
+	/**
+	 * Read a single page of the documents whose partition token is after the start token, up to and including
+	 * the end token, in token order. Walking the whole token range this way, in several ranges at once, scans
+	 * the table without any single query spanning it.
+	 * 
+	 * The tokens are Murmur3Partitioner tokens, the Cassandra default.
+	 * 
+	 * @param start the token before the range (exclusive).
+	 * @param end the last token in the range (inclusive).
+	 * @param fetchSize the maximum number of documents in the page.
+	 * @param cursor the cursor from the previous page of this range, or null for the first page.
+	 * @return a Page of documents and the cursor for the next page, if any.
+	 */
+	public ListenableFuture<Page<Document>> readTokenRange(long start, long end, int fetchSize, String cursor)
+	{
+		return readPage(statementFactory().readTokenRange(), fetchSize, cursor, start, end);
+	}
+
+	/**
+	 * Read a single page of a token range, as readTokenRange() does, without decoding the documents' objects.
+	 * 
+	 * @see #readTokenRange(long, long, int, String)
+	 */
+	public ListenableFuture<Page<RawDocument>> readRawTokenRange(long start, long end, int fetchSize, String cursor)
+	{
+		return readPage(statementFactory().readTokenRange(), rawMarshaller(), fetchSize, cursor, start, end);
+	}
+
+	/**
+	 * Read a single page of the documents in one partition, in clustering order, without decoding their objects.
+	 * 
+	 * @param partition the partition key components.
+	 * @param fetchSize the maximum number of documents in the page.
+	 * @param cursor the cursor from the previous page of this partition, or null for the first page.
+	 * @return a Page of documents and the cursor for the next page, if any.
+	 */
+	public ListenableFuture<Page<RawDocument>> readRawPartition(Identifier partition, int fetchSize, String cursor)
+	{
+		if (partition == null || partition.size() != keyDefinition.partitionSize())
+		{
+			return Futures.immediateFailedFuture(new InvalidIdentifierException(String.format("Partition key has %d components. Expected %d",
+				(partition != null ? partition.size() : 0), keyDefinition.partitionSize())));
+		}
+
+		return readPage(statementFactory().readAll(), rawMarshaller(), fetchSize, cursor, partition.components().toArray());
+	}
+
+	/**
+	 * @return the table's key definition.
+	 */
+	public KeyDefinition keyDefinition()
+	{
+		return keyDefinition;
+	}
+
+	/**
+	 * Estimates the number of partitions in the table from the coordinator's system.size_estimates, which
+	 * cover the token ranges it replicates, scaled up to the whole token ring. Cassandra refreshes the estimates
+	 * periodically (every five minutes by default), so a new table has none.
+	 * 
+	 * @return the estimated number of partitions, or zero if there are no estimates.
+	 */
+	public ListenableFuture<Long> estimatePartitions()
+	{
+		ListenableFuture<ResultSet> rs = executeRead(statementFactory().sizeEstimates(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				return new BoundStatement(ps).bind(keyspace(), tableName);
+			}
+		});
+
+		return Futures.transform(rs, new Function<ResultSet, Long>()
+		{
+			@Override
+			public Long apply(ResultSet input)
+			{
+				BigInteger covered = BigInteger.ZERO;
+				long partitions = 0L;
+
+				for (Row row : input)
+				{
+					BigInteger start = new BigInteger(row.getString(0));
+					BigInteger end = new BigInteger(row.getString(1));
+					BigInteger width = end.subtract(start);
+
+					// The range that wraps around the end of the ring.
+					covered = covered.add(width.signum() > 0 ? width : width.add(TOKEN_RING));
+					partitions += row.getLong(2);
+				}
+
+				if (covered.signum() == 0) return 0L;
+
+				return BigInteger.valueOf(partitions).multiply(TOKEN_RING).divide(covered).longValue();
+			}
+		});
+	}
+
+	/**
+	 * Serializes every component of an identifier of this repository, so that its row can later be deleted
+	 * by bindDelete(ByteBuffer) without knowing the components' types.
+	 * 
+	 * @param id an identifier.
+	 * @return the encoded key.
+	 * @throws InvalidIdentifierException if the identifier doesn't match the key definition.
+	 */
+	public ByteBuffer encodeKey(Identifier id)
+	{
+		validateIdentity(id);
+		Configuration configuration = session().getCluster().getConfiguration();
+		ProtocolVersion version = configuration.getProtocolOptions().getProtocolVersion();
+		CodecRegistry codecs = configuration.getCodecRegistry();
+		ByteBuffer[] components = new ByteBuffer[id.size()];
+
+		try
+		{
+			for (int i = 0; i < components.length; i++)
+			{
+				components[i] = serialize(codecs, version, id.component(i));
+			}
+		}
+		catch (InvalidTypeException | CodecNotFoundException e)
+		{
+			throw new InvalidIdentifierException(e);
+		}
+
+		return composite(components);
+	}
+
+	/**
+	 * Binds a delete of the row with the given encoded key, without executing it. For use in a batch.
+	 * 
+	 * @param key a key from encodeKey().
+	 * @return the future bound statement.
+	 * @throws InvalidIdentifierException if the key doesn't match the key definition.
+	 */
+	public ListenableFuture<BoundStatement> bindDelete(ByteBuffer key)
+	{
+		List<ByteBuffer> components = decompose(key);
+
+		if (components.size() != keyDefinition.size())
+		{
+			throw new InvalidIdentifierException(String.format("Key has %d components. Expected %d", components.size(), keyDefinition.size()));
+		}
+
+		int partitionSize = keyDefinition.partitionSize();
+		ByteBuffer routingKey = (partitionSize == 1 ? components.get(0) : composite(components.subList(0, partitionSize).toArray(new ByteBuffer[partitionSize])));
+		return Futures.transform(statementFactory().delete(), new Function<PreparedStatement, BoundStatement>()
+		{
+			@Override
+			public BoundStatement apply(PreparedStatement ps)
+			{
+				BoundStatement delete = new BoundStatement(ps);
+
+				for (int i = 0; i < components.size(); i++)
+				{
+					delete.setBytesUnsafe(i, components.get(i));
+				}
+
+				delete.setRoutingKey(routingKey);
+				return delete;
+			}
+		});
+	}
+
+	/**
+	 * Binds an upsert of the document, with a TTL, without executing it. For use in a batch, such as by upsertWith().
+	 * 
+	 * @param document the document to upsert.
+	 * @param ttl how long the row lives, in seconds, or 0 for forever.
+	 * @return the future bound statement. Fails if the statement can't be prepared or bound.
+	 * @throws InvalidIdentifierException if the document's identifier doesn't match the key definition.
+	 */
+	public ListenableFuture<BoundStatement> bindUpsert(Document document, long ttl)
+	{
+		validateIdentity(document.identifier());
+		return Futures.transform(statementFactory().upsertWithTtl(), new Function<PreparedStatement, BoundStatement>()
+		{
+			@Override
+			public BoundStatement apply(PreparedStatement ps)
+			{
+				BoundStatement upsert = new BoundStatement(ps);
+				bindCreate(upsert, document);
+				upsert.setInt(keyDefinition.size() + 3, (int) Math.min(ttl, Integer.MAX_VALUE));
+				return upsert;
+			}
+		});
+	}
+
+	/**
+	 * The maximum number of statements in a single bulk write batch.
+	 */
+	public void maxBatchSize(int maxBatchSize)
+	{
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	/**
+	 * The maximum number of clustering keys in a single readIn() query. Larger groups from the same
+	 * partition are split across several queries.
+	 */
+	public void maxReadInSize(int maxReadInSize)
+	{
+		this.maxReadInSize = Math.max(1, maxReadInSize);
+	}
+
+	/**
+	 * The maximum estimated size, in bytes, of the documents in a single bulk write batch. A document larger
+	 * than this is written in a batch of its own.
+	 */
+	public void maxBatchBytes(int maxBatchBytes)
+	{
+		this.maxBatchBytes = maxBatchBytes;
+	}
+
+	private ListenableFuture<List<WriteResult<Document>>> writeAll(List<Document> documents, List<Map<String, ByteBuffer>> viewKeys, ListenableFuture<PreparedStatement> statement, boolean isConditional)
+	{
+		return Futures.transformAsync(statement, new AsyncFunction<PreparedStatement, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(PreparedStatement input)
+			{
+				return writeAll(documents, viewKeys, input, isConditional);
+			}
+		});
+	}
+
+	private ListenableFuture<List<WriteResult<Document>>> writeAll(List<Document> documents, List<Map<String, ByteBuffer>> viewKeys, PreparedStatement statement, boolean isConditional)
+	{
+		@SuppressWarnings("unchecked")
+		WriteResult<Document>[] results = new WriteResult[documents.size()];
+		List<Batch> batches = group(documents, viewKeys, statement, isConditional, results);
+		List<ListenableFuture<Void>> futures = new ArrayList<>(batches.size());
+
+		for (Batch batch : batches)
+		{
+			futures.add(isConditional ? submitConditional(batch, results) : submitUnconditional(batch, results));
+		}
+
+		return Futures.transform(Futures.allAsList(futures), new Function<List<Void>, List<WriteResult<Document>>>()
+		{
+			@Override
+			public List<WriteResult<Document>> apply(List<Void> input)
+			{
+				return Arrays.asList(results);
+			}
+		});
+	}
+
+	/**
+	 * Binds each document and groups the bound statements into batches. Conditional statements are grouped
+	 * by partition key, since a conditional batch may only span a single partition. Others are grouped by
+	 * the replicas of their partition, falling back to the partition key if the replicas are unknown.
+	 * View keys, if given, are bound after the document's columns.
+	 */
+	private List<Batch> group(List<Document> documents, List<Map<String, ByteBuffer>> viewKeys, PreparedStatement statement, boolean byPartition, WriteResult<Document>[] results)
+	{
+		Cluster cluster = session().getCluster();
+		Map<Object, Batch> open = new HashMap<>();
+		List<Batch> batches = new ArrayList<>();
+		int objectIndex = keyDefinition.size();
+
+		for (int i = 0; i < documents.size(); i++)
+		{
+			Document document = documents.get(i);
+			BoundStatement bs = new BoundStatement(statement);
+
+			try
+			{
+				bindCreate(bs, document);
+
+				if (viewKeys != null)
+				{
+					bs.setMap(objectIndex + 3, viewKeys.get(i));
+				}
+			}
+			catch (RuntimeException e)
+			{
+				results[i] = WriteResult.failure(document, e);
+				continue;
+			}
+
+			ByteBuffer object = bs.getBytesUnsafe(objectIndex);
+			int bytes = (object != null ? object.remaining() : 0);
+			Object key = groupingKey(cluster, bs, byPartition);
+			Batch batch = open.get(key);
+
+			if (batch == null || !batch.accepts(bytes))
+			{
+				batch = new Batch();
+				open.put(key, batch);
+				batches.add(batch);
+			}
+
+			batch.add(i, document, bs, bytes);
+		}
+
+		return batches;
+	}
+
+	private Object groupingKey(Cluster cluster, BoundStatement bs, boolean byPartition)
+	{
+		ByteBuffer routingKey = bs.getRoutingKey(
+			cluster.getConfiguration().getProtocolOptions().getProtocolVersion(),
+			cluster.getConfiguration().getCodecRegistry());
+
+		if (routingKey == null) return bs;
+		if (byPartition) return routingKey;
+
+		Set<Host> replicas = cluster.getMetadata().getReplicas(Metadata.quote(keyspace()), routingKey);
+		return (replicas.isEmpty() ? routingKey : replicas);
+	}
+
+	private ListenableFuture<Void> submitUnconditional(Batch batch, WriteResult<Document>[] results)
+	{
+		ListenableFuture<Void> future = Futures.transform(executeWrite(batch.toStatement()), new Function<ResultSet, Void>()
+		{
+			@Override
+			public Void apply(ResultSet input)
+			{
+				batch.succeed(results);
+				return null;
+			}
+		});
+
+		return batch.recordFailure(future, results);
+	}
+
+	private ListenableFuture<Void> submitConditional(Batch batch, WriteResult<Document>[] results)
+	{
+		ListenableFuture<Void> future = Futures.transformAsync(executeWrite(batch.toStatement()), new AsyncFunction<ResultSet, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(ResultSet input)
+			{
+				if (input.wasApplied())
+				{
+					batch.succeed(results);
+					return Futures.immediateFuture(null);
+				}
+
+				if (batch.size() == 1)
+				{
+					batch.fail(results, 0, new DuplicateItemException(batch.documents.get(0).toString()));
+					return Futures.immediateFuture(null);
+				}
+
+				return submitIndividually(batch, results);
+			}
+		});
+
+		return batch.recordFailure(future, results);
+	}
+
+	private ListenableFuture<Void> submitIndividually(Batch batch, WriteResult<Document>[] results)
+	{
+		List<ListenableFuture<Void>> futures = new ArrayList<>(batch.size());
+
+		for (int i = 0; i < batch.size(); i++)
+		{
+			int member = i;
+			ListenableFuture<Void> future = Futures.transform(executeWrite(batch.statements.get(member)), new Function<ResultSet, Void>()
+			{
+				@Override
+				public Void apply(ResultSet input)
+				{
+					if (input.wasApplied())
+					{
+						batch.succeed(results, member);
+					}
+					else
+					{
+						batch.fail(results, member, new DuplicateItemException(batch.documents.get(member).toString()));
+					}
+
+					return null;
+				}
+			});
+
+			futures.add(batch.recordFailure(future, results, member));
+		}
+
+		return Futures.transform(Futures.allAsList(futures), new Function<List<Void>, Void>()
+		{
+			@Override
+			public Void apply(List<Void> input)
+			{
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * A bounded group of bound statements that are written together, along with the positions of
+	 * their documents in the caller's list.
+	 */
+	private class Batch
+	{
+		private List<Integer> indexes = new ArrayList<>();
+		private List<Document> documents = new ArrayList<>();
+		private List<BoundStatement> statements = new ArrayList<>();
+		private int bytes = 0;
+
+		boolean accepts(int size)
+		{
+			return (statements.size() < maxBatchSize && (statements.isEmpty() || bytes + size <= maxBatchBytes));
+		}
+
+		void add(int index, Document document, BoundStatement statement, int size)
+		{
+			indexes.add(index);
+			documents.add(document);
+			statements.add(statement);
+			bytes += size;
+		}
+
+		int size()
+		{
+			return statements.size();
+		}
+
+		Statement toStatement()
+		{
+			if (statements.size() == 1) return statements.get(0);
+
+			BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+			batch.addAll(statements);
+			return batch;
+		}
+
+		void succeed(WriteResult<Document>[] results)
+		{
+			for (int i = 0; i < size(); i++)
+			{
+				succeed(results, i);
+			}
+		}
+
+		void succeed(WriteResult<Document>[] results, int member)
+		{
+			results[indexes.get(member)] = WriteResult.success(documents.get(member));
+		}
+
+		void fail(WriteResult<Document>[] results, int member, Throwable t)
+		{
+			results[indexes.get(member)] = WriteResult.failure(documents.get(member), t);
+		}
+
+		void fail(WriteResult<Document>[] results, Throwable t)
+		{
+			for (int i = 0; i < size(); i++)
+			{
+				fail(results, i, t);
+			}
+		}
+
+		/**
+		 * Records a failure of the given future against every member of this batch, so the returned future never fails.
+		 */
+		ListenableFuture<Void> recordFailure(ListenableFuture<Void> future, WriteResult<Document>[] results)
+		{
+			return recordFailure(future, results, -1);
+		}
+
+		/**
+		 * Records a failure of the given future against a single member of this batch (or all of them if member
+		 * is negative), so the returned future never fails.
+		 */
+		ListenableFuture<Void> recordFailure(ListenableFuture<Void> future, WriteResult<Document>[] results, int member)
+		{
+			return Futures.catching(future, Throwable.class, new Function<Throwable, Void>()
+			{
+				@Override
+				public Void apply(Throwable t)
+				{
+					if (member < 0)
+					{
+						fail(results, t);
+					}
+					else
+					{
+						fail(results, member, t);
+					}
+
+					return null;
+				}
+			});
+		}
+	}
+
+	@Override
+	protected ListenableFuture<ResultSet> submitCreate(Document document)
+	{
+		validateIdentity(document.identifier());
+		return executeWrite(statementFactory().create(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement create = new BoundStatement(ps);
+				bindCreate(create, document);
+				return create;
+			}
+		});
+	}
+
+	@Override
+	protected ListenableFuture<ResultSet> submitDelete(Identifier id)
+	{
+		validateIdentity(id);
+		return executeWrite(statementFactory().delete(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement delete = new BoundStatement(ps);
+				bindIdentity(delete, id);
+				return delete;
+			}
+		});
+	}
+
+	protected ListenableFuture<ResultSet> submitExists(Identifier id)
+	{
+		validateIdentity(id);
+		return executeRead(statementFactory().exists(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindIdentity(bs, id);
+				return bs;
+			}
+		});
+	}
+
+	/**
+	 * Reads identifiers from a single partition. A lone identifier is read by its full primary key.
+	 */
+	private ListenableFuture<ResultSet> submitReadIn(List<Identifier> ids)
+	{
+		if (ids.size() == 1)
+		{
+			Identifier id = ids.get(0);
+			return executeRead(statementFactory().read(), new Function<PreparedStatement, Statement>()
+			{
+				@Override
+				public Statement apply(PreparedStatement ps)
+				{
+					BoundStatement bs = new BoundStatement(ps);
+					bindIdentity(bs, id);
+					return bs;
+				}
+			});
+		}
+
+		return executeRead(statementFactory().readIn(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindClusteringIn(bs, ids);
+				return bs;
+			}
+		});
+	}
+
+	@Override
+	protected ListenableFuture<ResultSet> submitUpdate(Document document)
+	{
+		validateIdentity(document.identifier());
+		return executeWrite(statementFactory().update(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement update = new BoundStatement(ps);
+				bindUpdate(update, document);
+				return update;
+			}
+		});
+	}
+
+	protected ListenableFuture<ResultSet> submitUpsert(Document document)
+	{
+		validateIdentity(document.identifier());
+		return executeWrite(statementFactory().upsert(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement upsert = new BoundStatement(ps);
+				bindCreate(upsert, document);
+				return upsert;
+			}
+		});
+	}
+
+	/**
+	 * Checks the identifier against the key definition, so that an invalid identifier is reported on the
+	 * calling thread instead of when the statement is bound.
+	 */
+	@Override
+	protected void validateIdentity(Identifier id)
+	{
+		if (id == null) throw new InvalidIdentifierException("Identifier is required");
+
+		List<KeyComponent> components = keyDefinition.components();
+
+		if (id.size() != components.size())
+		{
+			throw new InvalidIdentifierException(String.format("Identifier has %d components. Expected %d: %s", id.size(), components.size(), id.toString()));
+		}
+
+		List<Object> values = id.components();
+
+		for (int i = 0; i < components.size(); i++)
+		{
+			KeyComponent component = components.get(i);
+			Object value = values.get(i);
+
+			if (value != null && !component.type().isInstance(value))
+			{
+				throw new InvalidIdentifierException(String.format("Invalid %s value for %s: %s", component.type().cassandraType(), component.property(), value));
+			}
+		}
+	}
+
+	@Override
+	protected void bindCreate(BoundStatement bs, Document document)
+	{
+		Date now = new Date();
+		document.createdAt(now);
+		document.updatedAt(now);
+		Identifier id = document.identifier();
+		Object[] values = new Object[id.size() + 3]; // Identifier + object + createdAt + updatedAt.
+
+		try
+		{
+			fill(values, 0, id.components().toArray());
+			fill(values, id.size(),
+					encode(document),
+				    document.createdAt(),
+				    document.updatedAt());
+			bs.bind(values);
+			setRoutingKey(bs, document);
+		}
+		catch (InvalidTypeException | CodecNotFoundException e)
+		{
+			throw new InvalidIdentifierException(e);
+		}
+	}
+
+	@Override
+	protected void bindUpdate(BoundStatement bs, Document document)
+	{
+		document.updatedAt(new Date());
+		Identifier id = document.identifier();
+		Object[] values = new Object[id.size() + 2];
+
+		try
+		{
+			fill(values, 0, encode(document), document.updatedAt());
+			fill(values, 2, id.components().toArray());
+
+			bs.bind(values);
+			setRoutingKey(bs, document);
+		}
+		catch (InvalidTypeException | CodecNotFoundException e)
+		{
+			throw new InvalidIdentifierException(e);
+		}
+	}
+
+	/**
+	 * @return the document's BSON object, encoded, or null if it has none.
+	 */
+	private ByteBuffer encode(Document document)
+	{
+		if (!document.hasObject()) return null;
+
+		byte[] bytes = BSON.encode(document.object());
+
+		if (metrics() != null)
+		{
+			metrics().payload(RepositoryMetrics.WRITE, bytes.length);
+		}
+
+		return ByteBuffer.wrap(bytes);
+	}
+
+	@Override
+	protected void bindIdentity(BoundStatement bs, Identifier id)
+	{
+		super.bindIdentity(bs, id);
+		ByteBuffer routingKey = routingKey(id);
+
+		if (routingKey != null)
+		{
+			bs.setRoutingKey(routingKey);
+		}
+	}
+
+	/**
+	 * Binds the partition key shared by the identifiers, then the list of their clustering keys.
+	 * Compound clustering keys are bound as tuples.
+	 */
+	private void bindClusteringIn(BoundStatement bs, List<Identifier> ids)
+	{
+		int partitionSize = keyDefinition.partitionSize();
+		Identifier first = ids.get(0);
+		List<Object> clustering = new ArrayList<>(ids.size());
+		TupleType tuple = null;
+
+		if (keyDefinition.size() - partitionSize > 1)
+		{
+			tuple = (TupleType) bs.preparedStatement().getVariables().getType(partitionSize).getTypeArguments().get(0);
+		}
+
+		for (Identifier id : ids)
+		{
+			List<Object> values = id.components().subList(partitionSize, id.size());
+			clustering.add(tuple != null ? tuple.newValue(values.toArray()) : values.get(0));
+		}
+
+		try
+		{
+			Object[] values = new Object[partitionSize + 1];
+			fill(values, 0, first.components().subList(0, partitionSize).toArray());
+			values[partitionSize] = clustering;
+			bs.bind(values);
+		}
+		catch (InvalidTypeException | CodecNotFoundException e)
+		{
+			throw new InvalidIdentifierException(e);
+		}
+
+		ByteBuffer routingKey = routingKey(first);
+
+		if (routingKey != null)
+		{
+			bs.setRoutingKey(routingKey);
+		}
+	}
+
+	/**
+	 * Sets the routing key on a statement bound from the document, computing it at most once per identifier
+	 * and keeping it with the document for subsequent writes.
+	 */
+	private void setRoutingKey(BoundStatement bs, Document document)
+	{
+		ImmutableIdentifier routed = document.routedIdentifier();
+
+		if (routed != null)
+		{
+			bs.setRoutingKey(routed.routingKey());
+			return;
+		}
+
+		ByteBuffer routingKey = routingKey(document.identifier());
+
+		if (routingKey == null) return;
+
+		document.routedIdentifier(ImmutableIdentifier.of(document.identifier()).withRoutingKey(routingKey));
+		bs.setRoutingKey(routingKey);
+	}
+
+	/**
+	 * Serializes the partition key components of the identifier, in the format the driver uses for
+	 * token-aware routing, so the driver doesn't have to re-serialize them from the bound values.
+	 * 
+	 * @param id an identifier.
+	 * @return the routing key or null, if the identifier doesn't contain the full partition key.
+	 */
+	protected ByteBuffer routingKey(Identifier id)
+	{
+		if (id instanceof ImmutableIdentifier && ((ImmutableIdentifier) id).hasRoutingKey())
+		{
+			return ((ImmutableIdentifier) id).routingKey();
+		}
+
+		int partitionSize = keyDefinition.partitionSize();
+
+		if (id == null || partitionSize == 0 || id.size() < partitionSize) return null;
+
+		Configuration configuration = session().getCluster().getConfiguration();
+		ProtocolVersion version = configuration.getProtocolOptions().getProtocolVersion();
+		CodecRegistry codecs = configuration.getCodecRegistry();
+
+		try
+		{
+			if (partitionSize == 1)
+			{
+				return serialize(codecs, version, id.component(0));
+			}
+
+			ByteBuffer[] components = new ByteBuffer[partitionSize];
+
+			for (int i = 0; i < partitionSize; i++)
+			{
+				components[i] = serialize(codecs, version, id.component(i));
+			}
+
+			return composite(components);
+		}
+		catch (InvalidTypeException | CodecNotFoundException e)
+		{
+			throw new InvalidIdentifierException(e);
+		}
+	}
+
+	private ByteBuffer serialize(CodecRegistry codecs, ProtocolVersion version, Object value)
+	{
+		return codecs.codecFor(value).serialize(value, version);
+	}
+
+	/**
+	 * Composite: a short length, the bytes, and an end-of-component byte for each component.
+	 */
+	private ByteBuffer composite(ByteBuffer[] components)
+	{
+		int length = 0;
+
+		for (ByteBuffer component : components)
+		{
+			length += component.remaining() + 3;
+		}
+
+		ByteBuffer composite = ByteBuffer.allocate(length);
+
+		for (ByteBuffer component : components)
+		{
+			composite.putShort((short) component.remaining());
+			composite.put(component.duplicate());
+			composite.put((byte) 0);
+		}
+
+		composite.flip();
+		return composite;
+	}
+
+	private List<ByteBuffer> decompose(ByteBuffer composite)
+	{
+		ByteBuffer bytes = composite.duplicate();
+		List<ByteBuffer> components = new ArrayList<>();
+
+		try
+		{
+			while (bytes.hasRemaining())
+			{
+				int length = bytes.getShort() & 0xFFFF;
+				ByteBuffer component = bytes.slice();
+				component.limit(length);
+				components.add(component);
+				bytes.position(bytes.position() + length + 1);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			throw new InvalidIdentifierException("Invalid key encoding", e);
+		}
+
+		return components;
+	}
+
+	private void fill(Object[] array, int offset, Object... values)
+	{
+		for (int i = offset; i < values.length + offset; i++)
+		{
+			array[i] = values[i - offset];
+		}
+	}
+
+	@Override
+	protected Document marshalRow(Row row)
+	{
+		if (row == null)
+		{
+			return null;
+		}
+
+		Document d = new Document();
+		d.identifier(marshalId(keyDefinition, row));
+		ByteBuffer b = row.getBytes(Columns.OBJECT);
+
+		if (b != null && b.hasArray())
+		{
+			byte[] result = new byte[b.remaining()];
+			b.get(result);
+
+			if (metrics() != null)
+			{
+				metrics().payload(RepositoryMetrics.READ, result.length);
+			}
+
+			d.object(BSON.decode(result));
+		}
+
+		d.createdAt(row.getTimestamp(Columns.CREATED_AT));
+		d.updatedAt(row.getTimestamp(Columns.UPDATED_AT));
+		return d;
+	}
+
+	private Function<Row, RawDocument> rawMarshaller()
+	{
+		return new Function<Row, RawDocument>()
+		{
+			@Override
+			public RawDocument apply(Row row)
+			{
+				ByteBuffer b = row.getBytesUnsafe(Columns.OBJECT);
+
+				if (b != null && metrics() != null)
+				{
+					metrics().payload(RepositoryMetrics.READ, b.remaining());
+				}
+
+				return new RawDocument(marshalId(keyDefinition, row), b);
+			}
+		};
 	}
 
 	private Identifier marshalId(KeyDefinition keyDefinition, Row row)
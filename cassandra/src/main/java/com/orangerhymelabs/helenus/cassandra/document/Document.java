@@ -19,6 +19,7 @@ import org.bson.BSONObject;
 
 import com.orangerhymelabs.helenus.persistence.AbstractEntity;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
 import com.strategicgains.syntaxe.annotation.Required;
 
 /**
@@ -31,6 +32,9 @@ extends AbstractEntity
 	@Required("Document ID")
 	private Identifier identifier;
 
+	// The identifier with its serialized routing key, so the key is computed once per identifier.
+	private ImmutableIdentifier routed;
+
 	// The BSON document.
 	private BSONObject bson;
 
@@ -48,12 +52,26 @@ extends AbstractEntity
 	@Override
 	public Identifier identifier()
 	{
-		return (identifier != null ? new Identifier(identifier) : null);
+		return identifier;
 	}
 
 	public void identifier(Identifier id)
 	{
-		this.identifier = (id != null ? new Identifier(id) : null);
+		this.identifier = id;
+		this.routed = null;
+	}
+
+	/**
+	 * @return the identifier with its routing key, or null if it hasn't been routed or has changed since.
+	 */
+	ImmutableIdentifier routedIdentifier()
+	{
+		return (routed != null && routed.equals(identifier) ? routed : null);
+	}
+
+	void routedIdentifier(ImmutableIdentifier routed)
+	{
+		this.routed = routed;
 	}
 
 	public boolean hasObject()
@@ -0,0 +1,517 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.Page;
+
+/**
+ * Writes the documents of a table, of a token range of it, or of one partition to local NDJSON or concatenated
+ * BSON files, in a form DocumentImporter loads again.
+ * 
+ * Tables and token ranges are read by a TableScanner, a page at a time, several splits at once. The next page of
+ * a split is read once the previous one is written, so memory use doesn't depend on the size of the table. The
+ * documents' stored BSON objects are written without being decoded.
+ * 
+ * The splits are written to a single file or, to spread an export over several processes or disks, each to its
+ * own file. Splits without documents have no file.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class DocumentExporter
+{
+	private static final Logger LOG = LoggerFactory.getLogger(DocumentExporter.class);
+
+	// Pages are written to files off the driver's I/O threads.
+	private static final ListeningExecutorService WRITERS = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(
+		new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-export-%d").build()));
+
+	private AbstractDocumentRepository documents;
+	private TableScanner scanner;
+	private DocumentFormat format = DocumentFormat.NDJSON;
+	private int pageSize = TableScanner.DEFAULT_PAGE_SIZE;
+	private int bufferSize = DocumentWriter.DEFAULT_BUFFER_SIZE;
+	private boolean isFilePerSplit = false;
+
+	private LongAdder documentsWritten = new LongAdder();
+	private LongAdder bytesWritten = new LongAdder();
+	private AtomicInteger filesWritten = new AtomicInteger();
+
+	/**
+	 * @param documents the repository of the table to export.
+	 */
+	public DocumentExporter(AbstractDocumentRepository documents)
+	{
+		super();
+		this.documents = documents;
+		this.scanner = new TableScanner(documents);
+	}
+
+	/**
+	 * The format of the files. Defaults to NDJSON.
+	 */
+	public DocumentExporter format(DocumentFormat format)
+	{
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * The number of token ranges the table is read in. Defaults to 256.
+	 */
+	public DocumentExporter splits(int splits)
+	{
+		scanner.splits(splits);
+		return this;
+	}
+
+	/**
+	 * The number of splits read and written at once. Defaults to 4.
+	 */
+	public DocumentExporter parallelism(int parallelism)
+	{
+		scanner.parallelism(parallelism);
+		return this;
+	}
+
+	/**
+	 * The number of documents read at a time. Defaults to 100.
+	 */
+	public DocumentExporter pageSize(int pageSize)
+	{
+		scanner.pageSize(pageSize);
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * Limits the rate documents are read, across all splits. Zero or less (the default) means no limit.
+	 */
+	public DocumentExporter maxRowsPerSecond(double maxRowsPerSecond)
+	{
+		scanner.maxRowsPerSecond(maxRowsPerSecond);
+		return this;
+	}
+
+	/**
+	 * Exports only the documents whose partition token is after the start token, up to and including the end
+	 * token. Defaults to the whole token ring.
+	 */
+	public DocumentExporter range(long start, long end)
+	{
+		scanner.range(start, end);
+		return this;
+	}
+
+	/**
+	 * When true, each split is written to its own file in the export directory. Otherwise (the default) all of
+	 * them are written to the export file.
+	 */
+	public DocumentExporter filePerSplit(boolean isFilePerSplit)
+	{
+		this.isFilePerSplit = isFilePerSplit;
+		return this;
+	}
+
+	/**
+	 * The size of each file's write buffer. Defaults to 1MB.
+	 */
+	public DocumentExporter bufferSize(int bufferSize)
+	{
+		if (bufferSize < 1) throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	/**
+	 * @return the fraction of splits exported, from 0.0 to 1.0.
+	 */
+	public double progress()
+	{
+		return scanner.progress();
+	}
+
+	/**
+	 * @return the number of documents written so far.
+	 */
+	public long documentsWritten()
+	{
+		return documentsWritten.sum();
+	}
+
+	/**
+	 * @return the number of bytes written so far.
+	 */
+	public long bytesWritten()
+	{
+		return bytesWritten.sum();
+	}
+
+	/**
+	 * @return the number of files written so far.
+	 */
+	public int filesWritten()
+	{
+		return filesWritten.get();
+	}
+
+	/**
+	 * Exports the table, or its range. An exporter should only export once.
+	 * 
+	 * @param path the file to write or, when writing a file per split, the directory to write them in, which is
+	 * created if need be. Split files are named for the table and split, such as db_table-00012.ndjson. Existing
+	 * files are replaced.
+	 * @return the number of documents written. Fails with the first failure to read or write, leaving the files
+	 * incomplete.
+	 */
+	public ListenableFuture<Long> exportTo(Path path)
+	{
+		Outputs outputs;
+
+		try
+		{
+			if (isFilePerSplit)
+			{
+				Files.createDirectories(path);
+				outputs = new Outputs(null);
+			}
+			else
+			{
+				outputs = new Outputs(open(path));
+			}
+		}
+		catch (IOException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		ListenableFuture<Long> scanned = scanner.scanRaw(new TableScanner.RawPageConsumer()
+		{
+			@Override
+			public ListenableFuture<Void> accept(int split, Page<RawDocument> page)
+			{
+				return outputs.track(WRITERS.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call()
+					throws IOException
+					{
+						if (outputs.file != null)
+						{
+							synchronized (outputs.file)
+							{
+								outputs.ensureOpen();
+								write(page, outputs.file);
+							}
+
+							return null;
+						}
+
+						DocumentWriter writer;
+
+						synchronized (outputs.writers)
+						{
+							outputs.ensureOpen();
+							writer = outputs.writers.get(split);
+
+							if (writer == null && !page.isEmpty())
+							{
+								writer = open(path.resolve(String.format("%s-%05d.%s", documents.tableName(), split, format.extension())));
+								outputs.writers.put(split, writer);
+							}
+						}
+
+						if (writer == null) return null;
+
+						// A split's pages are written one after another, but closeAll() may close its file at any time.
+						synchronized (writer)
+						{
+							outputs.ensureOpen();
+							write(page, writer);
+
+							if (!page.hasNext() && outputs.release(split, writer)) close(writer);
+						}
+
+						return null;
+					}
+				}));
+			}
+		});
+
+		return closing(scanned, outputs);
+	}
+
+	/**
+	 * Exports the documents of one partition, in clustering order. An exporter should only export once.
+	 * 
+	 * @param partition the partition key components.
+	 * @param file the file to write. An existing file is replaced.
+	 * @return the number of documents written. Fails with the first failure to read or write, leaving the file
+	 * incomplete.
+	 */
+	public ListenableFuture<Long> exportPartition(Identifier partition, Path file)
+	{
+		DocumentWriter writer;
+
+		try
+		{
+			writer = open(file);
+		}
+		catch (IOException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+
+		return closing(exportPartition(partition, null, writer), new Outputs(writer));
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("DocumentExporter{table: %s, splits: %d/%d, documents: %d, bytes: %d, files: %d}",
+			documents.tableName(), scanner.splitsCompleted(), scanner.splits(), documentsWritten(), bytesWritten(), filesWritten());
+	}
+
+	private ListenableFuture<Long> exportPartition(Identifier partition, String cursor, DocumentWriter writer)
+	{
+		return Futures.transformAsync(documents.readRawPartition(partition, pageSize, cursor), new AsyncFunction<Page<RawDocument>, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Page<RawDocument> page)
+			{
+				ListenableFuture<Void> written = WRITERS.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call()
+					throws IOException
+					{
+						write(page, writer);
+						return null;
+					}
+				});
+
+				return Futures.transformAsync(written, new AsyncFunction<Void, Long>()
+				{
+					@Override
+					public ListenableFuture<Long> apply(Void input)
+					{
+						if (page.hasNext()) return exportPartition(partition, page.cursor(), writer);
+
+						return Futures.immediateFuture(documentsWritten());
+					}
+				});
+			}
+		});
+	}
+
+	private DocumentWriter open(Path file)
+	throws IOException
+	{
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		return new DocumentWriter(channel, format, documents.keyDefinition(), bufferSize);
+	}
+
+	private void write(Page<RawDocument> page, DocumentWriter writer)
+	throws IOException
+	{
+		long bytes = writer.bytes();
+
+		for (RawDocument document : page)
+		{
+			writer.write(document);
+		}
+
+		documentsWritten.add(page.size());
+		bytesWritten.add(writer.bytes() - bytes);
+	}
+
+	private void close(DocumentWriter writer)
+	throws IOException
+	{
+		writer.close();
+		filesWritten.incrementAndGet();
+	}
+
+	/**
+	 * Closes the files once the export completes or fails. On failure, other splits' pages may still be being
+	 * written, so the files are closed once those writes finish, and later ones fail instead of writing.
+	 */
+	private ListenableFuture<Long> closing(ListenableFuture<Long> export, Outputs outputs)
+	{
+		return Futures.transformAsync(Futures.catchingAsync(export, Throwable.class, new AsyncFunction<Throwable, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Throwable t)
+			{
+				return Futures.transformAsync(outputs.written(), new AsyncFunction<Object, Long>()
+				{
+					@Override
+					public ListenableFuture<Long> apply(Object input)
+					{
+						closeAll(outputs);
+						return Futures.immediateFailedFuture(t);
+					}
+				}, WRITERS);
+			}
+		}, WRITERS), new AsyncFunction<Long, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Long input)
+			{
+				IOException failure = closeAll(outputs);
+
+				if (failure != null) return Futures.immediateFailedFuture(failure);
+
+				LOG.info("Exported {}: {}", documents.tableName(), DocumentExporter.this);
+				return Futures.immediateFuture(documentsWritten());
+			}
+		}, WRITERS);
+	}
+
+	/**
+	 * @return the first failure to close a file, if any.
+	 */
+	private IOException closeAll(Outputs outputs)
+	{
+		IOException failure = null;
+		List<DocumentWriter> open = outputs.close();
+
+		for (DocumentWriter writer : open)
+		{
+			try
+			{
+				synchronized (writer)
+				{
+					close(writer);
+				}
+			}
+			catch (IOException e)
+			{
+				if (failure == null) failure = e;
+			}
+		}
+
+		return failure;
+	}
+
+	/**
+	 * The files of an export: either a single file, or one per split. Once closed, writing to any of them fails.
+	 */
+	private static class Outputs
+	{
+		private DocumentWriter file;
+		private Map<Integer, DocumentWriter> writers;
+		private Set<ListenableFuture<Void>> writing = ConcurrentHashMap.newKeySet();
+		private volatile boolean isClosed = false;
+
+		Outputs(DocumentWriter file)
+		{
+			this.file = file;
+			this.writers = (file == null ? new HashMap<Integer, DocumentWriter>() : null);
+		}
+
+		/**
+		 * Notes a page write until it finishes.
+		 */
+		ListenableFuture<Void> track(ListenableFuture<Void> write)
+		{
+			writing.add(write);
+			write.addListener(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					writing.remove(write);
+				}
+			}, MoreExecutors.directExecutor());
+			return write;
+		}
+
+		/**
+		 * @return a future that completes once the page writes in progress finish, whether or not they succeed.
+		 */
+		ListenableFuture<?> written()
+		{
+			return Futures.successfulAsList(new ArrayList<>(writing));
+		}
+
+		void ensureOpen()
+		throws IOException
+		{
+			if (isClosed) throw new IOException("Export closed");
+		}
+
+		/**
+		 * Takes a split's writer, once its last page is written, so that closeAll() doesn't close it too.
+		 * 
+		 * @return true if the writer is the caller's to close.
+		 */
+		boolean release(int split, DocumentWriter writer)
+		{
+			synchronized (writers)
+			{
+				return writers.remove(split, writer);
+			}
+		}
+
+		/**
+		 * Prevents further writes.
+		 * 
+		 * @return the files still open.
+		 */
+		List<DocumentWriter> close()
+		{
+			isClosed = true;
+
+			if (file != null) return Collections.singletonList(file);
+
+			synchronized (writers)
+			{
+				List<DocumentWriter> open = new ArrayList<>(writers.values());
+				writers.clear();
+				return open;
+			}
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.nio.file.Path;
+
+/**
+ * The file formats documents are imported from and exported to.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public enum DocumentFormat
+{
+	/**
+	 * Newline-delimited JSON: one JSON document per line, in MongoDB extended JSON for types JSON lacks.
+	 */
+	NDJSON("ndjson"),
+
+	/**
+	 * Concatenated BSON documents, each prefixed by its length as BSON itself is.
+	 */
+	BSON("bson");
+
+	private String extension;
+
+	DocumentFormat(String extension)
+	{
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the file extension for the format, without the dot.
+	 */
+	public String extension()
+	{
+		return extension;
+	}
+
+	/**
+	 * @return the format for the file's extension: BSON for .bson, otherwise NDJSON.
+	 */
+	public static DocumentFormat of(Path file)
+	{
+		return (file.getFileName().toString().toLowerCase().endsWith(".bson") ? BSON : NDJSON);
+	}
+}
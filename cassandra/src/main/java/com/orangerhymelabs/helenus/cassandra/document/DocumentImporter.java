@@ -0,0 +1,517 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.util.JSON;
+import com.orangerhymelabs.helenus.cassandra.document.DocumentRecordReader.Record;
+import com.orangerhymelabs.helenus.cassandra.table.Table;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyComponent;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinition;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
+import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.WriteResult;
+
+/**
+ * Loads a file of documents into a table through DocumentService, so their views are written too. The file is
+ * NDJSON or concatenated BSON, read incrementally, and each document is identified by its table's key properties.
+ * 
+ * A reader thread splits the input into batches of raw records. The batches are parsed on a pool of parser threads
+ * and written with DocumentService.upsertAll() (or createAll()), which groups each batch by partition into
+ * unlogged batches. At most a fixed number of batches are parsed or written at once, so memory use doesn't depend
+ * on the size of the file.
+ * 
+ * Documents that can't be parsed, identified or written are counted as failed and, if an error file is set,
+ * written to it, one per line: the record number, its byte offset in the input, the error and, for NDJSON, the
+ * record itself, separated by tabs.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class DocumentImporter
+{
+	private static final Logger LOG = LoggerFactory.getLogger(DocumentImporter.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	public static final int DEFAULT_CONCURRENCY = 4;
+	public static final int DEFAULT_PARSERS = Math.min(DEFAULT_CONCURRENCY, Runtime.getRuntime().availableProcessors());
+
+	private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private DocumentService documents;
+	private Table table;
+	private DocumentFormat format;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int concurrency = DEFAULT_CONCURRENCY;
+	private int parsers = DEFAULT_PARSERS;
+	private boolean isCreate = false;
+	private Path errorFile;
+
+	private LongAdder documentsRead = new LongAdder();
+	private LongAdder documentsWritten = new LongAdder();
+	private LongAdder documentsFailed = new LongAdder();
+	private volatile long bytesRead;
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	/**
+	 * @param documents the DocumentService the documents are written through.
+	 * @param table the table to load.
+	 */
+	public DocumentImporter(DocumentService documents, Table table)
+	{
+		super();
+		this.documents = documents;
+		this.table = table;
+	}
+
+	/**
+	 * The format of the input. Defaults to the format for the file's extension.
+	 */
+	public DocumentImporter format(DocumentFormat format)
+	{
+		this.format = format;
+		return this;
+	}
+
+	/**
+	 * The number of documents in each write. Defaults to 500.
+	 */
+	public DocumentImporter batchSize(int batchSize)
+	{
+		if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**
+	 * The number of batches parsed or written at once. Defaults to 4.
+	 */
+	public DocumentImporter concurrency(int concurrency)
+	{
+		if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+
+		this.concurrency = concurrency;
+		return this;
+	}
+
+	/**
+	 * The number of threads parsing batches. Defaults to the number of processors, up to the default concurrency.
+	 */
+	public DocumentImporter parsers(int parsers)
+	{
+		if (parsers < 1) throw new IllegalArgumentException("parsers must be positive: " + parsers);
+
+		this.parsers = parsers;
+		return this;
+	}
+
+	/**
+	 * When true, documents are created, and those that already exist fail. Otherwise (the default) they're upserted.
+	 */
+	public DocumentImporter create(boolean isCreate)
+	{
+		this.isCreate = isCreate;
+		return this;
+	}
+
+	/**
+	 * The file the failed documents are written to. It's replaced if it exists. Null (the default) means they're
+	 * only logged.
+	 */
+	public DocumentImporter errors(Path errorFile)
+	{
+		this.errorFile = errorFile;
+		return this;
+	}
+
+	/**
+	 * @return the number of documents read so far.
+	 */
+	public long documentsRead()
+	{
+		return documentsRead.sum();
+	}
+
+	/**
+	 * @return the number of documents written so far.
+	 */
+	public long documentsWritten()
+	{
+		return documentsWritten.sum();
+	}
+
+	/**
+	 * @return the number of documents that failed so far.
+	 */
+	public long documentsFailed()
+	{
+		return documentsFailed.sum();
+	}
+
+	/**
+	 * @return the number of bytes of the input read so far.
+	 */
+	public long bytesRead()
+	{
+		return bytesRead;
+	}
+
+	/**
+	 * @return the number of documents written per second, since the import started until it completed.
+	 */
+	public double documentsPerSecond()
+	{
+		if (startNanos == 0L) return 0.0;
+
+		long elapsed = (endNanos != 0L ? endNanos : System.nanoTime()) - startNanos;
+		return (elapsed > 0L ? documentsWritten() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0.0);
+	}
+
+	/**
+	 * Loads the documents of a file. An importer should only import once.
+	 * 
+	 * @param file an NDJSON or BSON file.
+	 * @return the number of documents written. Fails if the file can't be read or is malformed, though documents
+	 * already read are still written.
+	 */
+	public ListenableFuture<Long> importFile(Path file)
+	{
+		try
+		{
+			return importFrom(FileChannel.open(file, StandardOpenOption.READ), (format != null ? format : DocumentFormat.of(file)));
+		}
+		catch (IOException e)
+		{
+			return Futures.immediateFailedFuture(e);
+		}
+	}
+
+	/**
+	 * Loads the documents of a channel, which is closed once read. An importer should only import once.
+	 * 
+	 * @param channel the input.
+	 * @param format the format of the input.
+	 * @return the number of documents written. Fails if the channel can't be read or is malformed, though documents
+	 * already read are still written.
+	 */
+	public ListenableFuture<Long> importFrom(ReadableByteChannel channel, DocumentFormat format)
+	{
+		SettableFuture<Long> result = SettableFuture.create();
+		ExecutorService reader = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-import-read-%d").build());
+		ListeningExecutorService parsing = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(parsers,
+			new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-import-parse-%d").build()));
+		startNanos = System.nanoTime();
+		reader.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					result.set(read(new DocumentRecordReader(channel, format), format, parsing));
+				}
+				catch (Throwable t)
+				{
+					result.setException(t);
+				}
+				finally
+				{
+					endNanos = System.nanoTime();
+					parsing.shutdown();
+					reader.shutdown();
+				}
+			}
+		});
+
+		return result;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("DocumentImporter{table: %s, read: %d, written: %d, failed: %d, bytes: %d, documents/s: %.1f}",
+			table.toDbTable(), documentsRead(), documentsWritten(), documentsFailed(), bytesRead(), documentsPerSecond());
+	}
+
+	/**
+	 * Reads batches of records and hands them to the parsers, blocking while too many batches are in flight.
+	 */
+	private long read(DocumentRecordReader reader, DocumentFormat format, ListeningExecutorService parsing)
+	throws IOException, KeyDefinitionException, InterruptedException
+	{
+		KeyDefinition keys = table.keyDefinition();
+		Semaphore inFlight = new Semaphore(concurrency);
+		long lastReport = System.nanoTime();
+
+		try (ErrorSink errors = new ErrorSink(format))
+		{
+			try
+			{
+				List<Record> batch;
+
+				while (!(batch = readBatch(reader)).isEmpty())
+				{
+					inFlight.acquire();
+					write(batch, format, keys, parsing, errors).addListener(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							inFlight.release();
+						}
+					}, MoreExecutors.directExecutor());
+
+					if (System.nanoTime() - lastReport > REPORT_INTERVAL_NANOS)
+					{
+						lastReport = System.nanoTime();
+						LOG.info("Importing {}: {}", table.toDbTable(), this);
+					}
+				}
+			}
+			finally
+			{
+				reader.close();
+				inFlight.acquireUninterruptibly(concurrency);
+			}
+		}
+
+		LOG.info("Imported {}: {}", table.toDbTable(), this);
+		return documentsWritten();
+	}
+
+	private List<Record> readBatch(DocumentRecordReader reader)
+	throws IOException
+	{
+		List<Record> batch = new ArrayList<>(batchSize);
+		Record record;
+
+		while (batch.size() < batchSize && (record = reader.next()) != null)
+		{
+			batch.add(record);
+		}
+
+		documentsRead.add(batch.size());
+		bytesRead = reader.offset();
+		return batch;
+	}
+
+	/**
+	 * Parses the batch on a parser thread, then writes the documents that could be parsed.
+	 */
+	private ListenableFuture<Void> write(List<Record> batch, DocumentFormat format, KeyDefinition keys, ListeningExecutorService parsing, ErrorSink errors)
+	{
+		List<Record> parsed = new ArrayList<>(batch.size());
+		ListenableFuture<List<Document>> parsedDocuments = parsing.submit(new Callable<List<Document>>()
+		{
+			@Override
+			public List<Document> call()
+			{
+				List<Document> documents = new ArrayList<>(batch.size());
+
+				for (Record record : batch)
+				{
+					try
+					{
+						documents.add(parse(record, format, keys));
+						parsed.add(record);
+					}
+					catch (KeyDefinitionException | RuntimeException e)
+					{
+						failed(record, e, errors);
+					}
+				}
+
+				return documents;
+			}
+		});
+
+		ListenableFuture<Void> written = Futures.transformAsync(parsedDocuments, new AsyncFunction<List<Document>, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(List<Document> input)
+			{
+				if (input.isEmpty()) return Futures.immediateFuture(null);
+
+				ListenableFuture<List<WriteResult<Document>>> results = (isCreate
+					? documents.createAll(table.databaseName(), table.name(), input)
+					: documents.upsertAll(table.databaseName(), table.name(), input));
+				return Futures.transform(results, new Function<List<WriteResult<Document>>, Void>()
+				{
+					@Override
+					public Void apply(List<WriteResult<Document>> input)
+					{
+						for (int i = 0; i < input.size(); i++)
+						{
+							if (input.get(i).isSuccess())
+							{
+								documentsWritten.increment();
+							}
+							else
+							{
+								failed(parsed.get(i), input.get(i).error(), errors);
+							}
+						}
+
+						return null;
+					}
+				});
+			}
+		});
+
+		// A failure of the whole write (e.g. the table was dropped) fails every document in it.
+		return Futures.catching(written, Throwable.class, new Function<Throwable, Void>()
+		{
+			@Override
+			public Void apply(Throwable t)
+			{
+				for (Record record : parsed)
+				{
+					failed(record, t, errors);
+				}
+
+				return null;
+			}
+		});
+	}
+
+	private Document parse(Record record, DocumentFormat format, KeyDefinition keys)
+	throws KeyDefinitionException
+	{
+		BSONObject bson;
+
+		if (format == DocumentFormat.BSON)
+		{
+			bson = BSON.decode(record.bytes);
+		}
+		else
+		{
+			Object json = JSON.parse(new String(record.bytes, StandardCharsets.UTF_8));
+
+			if (!(json instanceof BSONObject)) throw new IllegalArgumentException("Not a JSON object");
+
+			bson = (BSONObject) json;
+		}
+
+		Identifier parsedId = keys.identifier(bson);
+		Object[] components = new Object[parsedId.size()];
+
+		// JSON has no UUIDs, dates or integer sizes, so the key properties are converted to their key types, in
+		// the object too, so it agrees with its key. The BSON encoder has no decimal type, so decimals are left
+		// as parsed in the object.
+		for (int i = 0; i < components.length; i++)
+		{
+			KeyComponent component = keys.components().get(i);
+			components[i] = component.type().coerce(parsedId.component(i));
+
+			if (!(components[i] instanceof BigDecimal))
+			{
+				bson.put(component.property(), components[i]);
+			}
+		}
+
+		Document document = new Document(bson);
+		document.identifier(new Identifier(components));
+		return document;
+	}
+
+	private void failed(Record record, Throwable t, ErrorSink errors)
+	{
+		documentsFailed.increment();
+		errors.write(record, t);
+	}
+
+	/**
+	 * Writes failed documents to the error file, if any, from any thread.
+	 */
+	private class ErrorSink
+	implements AutoCloseable
+	{
+		private DocumentFormat format;
+		private BufferedWriter writer;
+
+		ErrorSink(DocumentFormat format)
+		throws IOException
+		{
+			super();
+			this.format = format;
+			this.writer = (errorFile != null ? Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8) : null);
+		}
+
+		synchronized void write(Record record, Throwable t)
+		{
+			String message = String.valueOf(t.getMessage()).replaceAll("\\s+", " ");
+			LOG.debug("Failed to import record {} of {}: {}", record.number, table.toDbTable(), message);
+
+			if (writer == null) return;
+
+			try
+			{
+				writer.write(record.number + "\t" + record.offset + "\t" + t.getClass().getSimpleName() + ": " + message);
+
+				if (format == DocumentFormat.NDJSON)
+				{
+					writer.write("\t");
+					writer.write(new String(record.bytes, StandardCharsets.UTF_8));
+				}
+
+				writer.newLine();
+			}
+			catch (IOException e)
+			{
+				LOG.warn("Failed to write import error to " + errorFile, e);
+			}
+		}
+
+		@Override
+		public synchronized void close()
+		throws IOException
+		{
+			if (writer != null) writer.close();
+		}
+	}
+}
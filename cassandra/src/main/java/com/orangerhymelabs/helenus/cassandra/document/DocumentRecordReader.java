@@ -0,0 +1,255 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits a stream of NDJSON or concatenated BSON into its raw records, reading through a reusable buffer so only
+ * the records being processed are held in memory. Blank NDJSON lines are skipped.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+class DocumentRecordReader
+implements Closeable
+{
+	static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	// The largest document Cassandra would accept in a single mutation is far smaller, so anything larger is corrupt.
+	static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+	private static final byte NEWLINE = '\n';
+	private static final byte RETURN = '\r';
+
+	/**
+	 * A raw record and where it was in the input, for error reporting.
+	 */
+	static class Record
+	{
+		final long number;
+		final long offset;
+		final byte[] bytes;
+
+		Record(long number, long offset, byte[] bytes)
+		{
+			this.number = number;
+			this.offset = offset;
+			this.bytes = bytes;
+		}
+	}
+
+	private ReadableByteChannel channel;
+	private DocumentFormat format;
+	private ByteBuffer buffer;
+	private boolean isEof = false;
+	private long offset = 0L;
+	private long records = 0L;
+
+	DocumentRecordReader(ReadableByteChannel channel, DocumentFormat format)
+	{
+		this(channel, format, DEFAULT_BUFFER_SIZE);
+	}
+
+	DocumentRecordReader(ReadableByteChannel channel, DocumentFormat format, int bufferSize)
+	{
+		super();
+		this.channel = channel;
+		this.format = format;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		buffer.flip();
+	}
+
+	/**
+	 * @return the next record, or null at the end of the input.
+	 * @throws IOException if the input can't be read or a BSON document is truncated or malformed.
+	 */
+	Record next()
+	throws IOException
+	{
+		return (format == DocumentFormat.BSON ? nextDocument() : nextLine());
+	}
+
+	/**
+	 * @return the number of bytes of the input consumed so far.
+	 */
+	long offset()
+	{
+		return offset;
+	}
+
+	@Override
+	public void close()
+	throws IOException
+	{
+		channel.close();
+	}
+
+	private Record nextLine()
+	throws IOException
+	{
+		while (true)
+		{
+			int end = indexOf(NEWLINE);
+
+			if (end < 0 && isEof)
+			{
+				if (!buffer.hasRemaining()) return null;
+
+				end = buffer.limit();
+			}
+
+			if (end >= 0)
+			{
+				long start = offset;
+				int length = end - buffer.position();
+				byte[] line = take(length);
+
+				if (buffer.hasRemaining())
+				{
+					buffer.get();
+					offset++;
+				}
+
+				if (length > 0 && line[length - 1] == RETURN)
+				{
+					byte[] trimmed = new byte[length - 1];
+					System.arraycopy(line, 0, trimmed, 0, trimmed.length);
+					line = trimmed;
+				}
+
+				if (isBlank(line)) continue;
+
+				return new Record(++records, start, line);
+			}
+
+			fill();
+		}
+	}
+
+	private Record nextDocument()
+	throws IOException
+	{
+		while (true)
+		{
+			if (buffer.remaining() >= 4)
+			{
+				int length = documentLength();
+
+				if (length < 5 || length > MAX_RECORD_SIZE)
+				{
+					throw new IOException("Invalid BSON document length " + length + " at byte " + offset);
+				}
+
+				if (buffer.remaining() >= length)
+				{
+					long start = offset;
+					return new Record(++records, start, take(length));
+				}
+
+				if (buffer.capacity() < length)
+				{
+					grow(length);
+				}
+			}
+
+			if (isEof)
+			{
+				if (buffer.hasRemaining()) throw new IOException("Truncated BSON document at byte " + offset);
+
+				return null;
+			}
+
+			fill();
+		}
+	}
+
+	/**
+	 * @return the little-endian length that starts a BSON document.
+	 */
+	private int documentLength()
+	{
+		int p = buffer.position();
+		return (buffer.get(p) & 0xff)
+			| ((buffer.get(p + 1) & 0xff) << 8)
+			| ((buffer.get(p + 2) & 0xff) << 16)
+			| ((buffer.get(p + 3) & 0xff) << 24);
+	}
+
+	private byte[] take(int length)
+	{
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		offset += length;
+		return bytes;
+	}
+
+	private int indexOf(byte b)
+	{
+		for (int i = buffer.position(); i < buffer.limit(); i++)
+		{
+			if (buffer.get(i) == b) return i;
+		}
+
+		return -1;
+	}
+
+	private boolean isBlank(byte[] line)
+	{
+		for (byte b : line)
+		{
+			if (!Character.isWhitespace(b)) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads more of the input after what's still buffered, growing the buffer if it's full of a single record.
+	 */
+	private void fill()
+	throws IOException
+	{
+		if (buffer.remaining() == buffer.capacity())
+		{
+			if (buffer.capacity() >= MAX_RECORD_SIZE) throw new IOException("Record larger than " + MAX_RECORD_SIZE + " bytes at byte " + offset);
+
+			grow(Math.min(MAX_RECORD_SIZE, buffer.capacity() * 2));
+		}
+
+		buffer.compact();
+
+		try
+		{
+			isEof = (channel.read(buffer) < 0);
+		}
+		finally
+		{
+			buffer.flip();
+		}
+	}
+
+	private void grow(int capacity)
+	{
+		ByteBuffer larger = ByteBuffer.allocate(capacity);
+		larger.put(buffer);
+		larger.flip();
+		buffer = larger;
+	}
+}
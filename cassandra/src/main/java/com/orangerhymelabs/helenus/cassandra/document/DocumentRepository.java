@@ -31,6 +31,6 @@ extends AbstractDocumentRepository
 	public DocumentRepository(Session session, String keyspace, Table table)
 	throws KeyDefinitionException
 	{
-		super(session, keyspace, table.toDbTable(), table.keys());
+		super(session, keyspace, table.toDbTable(), table.keyDefinition());
 	}
 }
@@ -15,7 +15,12 @@
  */
 package com.orangerhymelabs.helenus.cassandra.document;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.Session;
+import com.orangerhymelabs.helenus.cassandra.CassandraConfig;
+import com.orangerhymelabs.helenus.cassandra.RepositoryMetrics;
+import com.orangerhymelabs.helenus.cassandra.RequestLimiter;
 import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
 import com.orangerhymelabs.helenus.cassandra.view.View;
@@ -29,6 +34,10 @@ implements DocumentRepositoryFactory
 {
 	private Session session;
 	private String keyspace;
+	private RequestLimiter limiter;
+	private ConsistencyLevel readConsistency;
+	private ConsistencyLevel writeConsistency;
+	private MetricRegistry metricRegistry;
 
 	public DocumentRepositoryFactoryImpl(Session session, String keyspace)
 	{
@@ -37,17 +46,76 @@ implements DocumentRepositoryFactory
 		this.keyspace = keyspace;
 	}
 
+	public DocumentRepositoryFactoryImpl(Session session, String keyspace, RequestLimiter limiter)
+	{
+		this(session, keyspace);
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Creates repositories on the given session using the keyspace, request limiter and default
+	 * consistency levels from the configuration.
+	 */
+	public DocumentRepositoryFactoryImpl(Session session, CassandraConfig config)
+	{
+		this(session, config.getKeyspace(), config.getRequestLimiter());
+		consistency(config.getReadConsistencyLevel(), config.getWriteConsistencyLevel());
+		metricRegistry(config.getMetricRegistry());
+	}
+
+	/**
+	 * Sets the default consistency levels for new repositories. A Table's own consistency levels, if set, take precedence.
+	 * 
+	 * @param readConsistency the default read consistency level, or null for the driver default.
+	 * @param writeConsistency the default write consistency level, or null for the driver default.
+	 */
+	public void consistency(ConsistencyLevel readConsistency, ConsistencyLevel writeConsistency)
+	{
+		this.readConsistency = readConsistency;
+		this.writeConsistency = writeConsistency;
+	}
+
+	/**
+	 * Sets the registry that new repositories record their operation metrics in. When null (the default),
+	 * repositories don't record metrics.
+	 */
+	public void metricRegistry(MetricRegistry metricRegistry)
+	{
+		this.metricRegistry = metricRegistry;
+	}
+
 	@Override
 	public AbstractDocumentRepository newInstance(Table table)
 	throws KeyDefinitionException
 	{
-		return new DocumentRepository(session, keyspace, table);
+		DocumentRepository repo = new DocumentRepository(session, keyspace, table);
+		repo.limiter(limiter);
+		repo.readConsistency(table.hasReadConsistency() ? table.readConsistency() : readConsistency);
+		repo.writeConsistency(table.hasWriteConsistency() ? table.writeConsistency() : writeConsistency);
+		repo.writeMode(table.writeMode());
+
+		if (metricRegistry != null)
+		{
+			repo.metrics(new RepositoryMetrics(metricRegistry, table.databaseName(), table.name()));
+		}
+
+		return repo;
 	}
 
 	@Override
 	public AbstractDocumentRepository newInstance(View view)
 	throws KeyDefinitionException
 	{
-		return new ViewDocumentRepository(session, keyspace, view);
+		ViewDocumentRepository repo = new ViewDocumentRepository(session, keyspace, view);
+		repo.limiter(limiter);
+		repo.readConsistency(readConsistency);
+		repo.writeConsistency(writeConsistency);
+
+		if (metricRegistry != null)
+		{
+			repo.metrics(new RepositoryMetrics(metricRegistry, view.databaseName(), view.tableName(), view.name()));
+		}
+
+		return repo;
 	}
 }
@@ -15,387 +15,1692 @@
  */
 package com.orangerhymelabs.helenus.cassandra.document;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.function.Consumer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.orangerhymelabs.helenus.cassandra.MetadataChangeListener;
+import com.orangerhymelabs.helenus.cassandra.OperationTrace;
+import com.orangerhymelabs.helenus.cassandra.ResultSetPublisher;
+import com.orangerhymelabs.helenus.cassandra.Tracer;
+import com.orangerhymelabs.helenus.cassandra.meta.MetadataRepository;
 import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.TableService;
+import com.orangerhymelabs.helenus.cassandra.table.WriteMode;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
 import com.orangerhymelabs.helenus.cassandra.view.View;
 import com.orangerhymelabs.helenus.cassandra.view.ViewService;
+import com.orangerhymelabs.helenus.exception.DuplicateItemException;
+import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.exception.StorageException;
+import com.orangerhymelabs.helenus.persistence.FutureCache;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
+import com.orangerhymelabs.helenus.persistence.Page;
+import com.orangerhymelabs.helenus.persistence.ReadResult;
+import com.orangerhymelabs.helenus.persistence.WriteResult;
 import com.strategicgains.syntaxe.ValidationEngine;
 import com.strategicgains.syntaxe.ValidationException;
 
 /**
  * Caches all the DocumentRepository instances by table name. When a cache miss occurs, table is validated for existence.
+ * Cached repositories and view lists are kept until their table or view is changed through the TableService or
+ * ViewService, or until they haven't been used for a time.
  * 
  * @author tfredrich
  * @since Jun 8, 2015
  */
 public class DocumentService
 {
-	//TODO: this should be a distributed cache, perhaps?
-	//TODO: Must be invalidatable via events.
-	//TODO: Use EhCache (or some other coherent cache implementation)
-	private Map<Identifier, AbstractDocumentRepository> repoCache = new HashMap<>();
-	private Map<Identifier, List<View>> viewsByTable = new HashMap<>();
+	private static final Logger LOG = LoggerFactory.getLogger(DocumentService.class);
+
+	public static final int DEFAULT_VIEW_RETRIES = 2;
+	public static final int CONCURRENT_WRITE_RETRIES = 3;
+	public static final long DEFAULT_CACHE_SIZE = 10000L;
+	public static final long DEFAULT_CACHE_IDLE_MINUTES = 30L;
+
+	private FutureCache<Identifier, AbstractDocumentRepository> repoCache;
+	private FutureCache<Identifier, List<View>> viewsByTable;
 
 	private TableService tables;
 	private ViewService views;
 	private DocumentRepositoryFactory factory;
+	private Tracer tracer;
+	private ViewFailurePolicy viewFailurePolicy = ViewFailurePolicy.FAIL;
+	private int viewRetries = DEFAULT_VIEW_RETRIES;
+	private ViewRepairListener viewRepairListener;
+	private boolean isAtomicViews = false;
 
 	public DocumentService(TableService tableService, ViewService viewService, DocumentRepositoryFactory repositoryFactory)
+	{
+		this(tableService, viewService, repositoryFactory, DEFAULT_CACHE_SIZE, DEFAULT_CACHE_IDLE_MINUTES, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * @param tableService
+	 * @param viewService
+	 * @param repositoryFactory
+	 * @param cacheSize the maximum number of table and view repositories, and of tables' view lists, cached.
+	 * @param idle how long an unused repository or view list is cached.
+	 * @param unit the unit of the idle time.
+	 */
+	public DocumentService(TableService tableService, ViewService viewService, DocumentRepositoryFactory repositoryFactory, long cacheSize, long idle, TimeUnit unit)
 	{
 		super();
 		this.tables = tableService;
 		this.views = viewService;
 		this.factory = repositoryFactory;
+		this.repoCache = FutureCache.expiringWhenIdle(cacheSize, idle, unit);
+		this.viewsByTable = FutureCache.expiringWhenIdle(cacheSize, idle, unit);
+		MetadataChangeListener listener = new CacheInvalidator();
+		tables.addChangeListener(listener);
+		views.addChangeListener(listener);
+	}
+
+	/**
+	 * Sets the Tracer that samples read, exists, create, update, upsert and delete operations, including the view
+	 * writes of create. When null (the default), nothing is traced.
+	 */
+	public void tracer(Tracer tracer)
+	{
+		this.tracer = tracer;
+	}
+
+	public Tracer tracer()
+	{
+		return tracer;
+	}
+
+	/**
+	 * Sets what happens when a view document can't be written by create(). Defaults to FAIL.
+	 */
+	public void viewFailurePolicy(ViewFailurePolicy viewFailurePolicy)
+	{
+		this.viewFailurePolicy = (viewFailurePolicy != null ? viewFailurePolicy : ViewFailurePolicy.FAIL);
+	}
+
+	/**
+	 * The number of times a failed view write is retried under ViewFailurePolicy.RETRY.
+	 */
+	public void viewRetries(int viewRetries)
+	{
+		this.viewRetries = Math.max(0, viewRetries);
+	}
+
+	/**
+	 * Sets the listener that receives view failures under ViewFailurePolicy.REPAIR. When null (the default),
+	 * they are logged.
+	 */
+	public void viewRepairListener(ViewRepairListener viewRepairListener)
+	{
+		this.viewRepairListener = viewRepairListener;
+	}
+
+	/**
+	 * When true, create() writes a document and all of its view documents in a single logged batch, so the
+	 * views can't fall out of step with the table, in one round trip. The batch can't be conditional, so
+	 * create() then overwrites an existing document instead of failing with DuplicateItemException, and the
+	 * ViewFailurePolicy doesn't apply. Defaults to false.
+	 * 
+	 * Updates, upserts and deletes of documents in tables with views always maintain the view rows, after
+	 * reading only the view keys noted with the document. Under WriteMode.CONDITIONAL, the document is only
+	 * written if those keys haven't changed, so concurrent writes of a document don't leave stale view rows.
+	 */
+	public void atomicViews(boolean isAtomicViews)
+	{
+		this.isAtomicViews = isAtomicViews;
 	}
 
+	/**
+	 * Create a document and, once it's written, its view documents concurrently. The document notes the keys
+	 * of its view rows, so that later updates and deletes can maintain them. View failures are handled
+	 * according to the ViewFailurePolicy.
+	 * 
+	 * @see #atomicViews(boolean)
+	 */
 	public ListenableFuture<Document> create(String database, String table, Document document)
 	{
+		OperationTrace trace = startTrace("create", database, table, document.identifier());
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
 		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
 		{
 			@Override
-			public ListenableFuture<Document> apply(AbstractDocumentRepository docRepo)
-			throws Exception
+			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
 			{
-				try
-				{
-					ValidationEngine.validateAndThrow(document);
-					Document newDoc = docRepo.create(document).get();
-					updateViews(newDoc);
-					return Futures.immediateFuture(newDoc);
-				}
-				catch(ValidationException e)
+				return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, Document>()
 				{
-					return Futures.immediateFailedFuture(e);
-				}
+					@Override
+					public ListenableFuture<Document> apply(List<View> views)
+					throws Exception
+					{
+						return within(trace, new Callable<ListenableFuture<Document>>()
+						{
+							@Override
+							public ListenableFuture<Document> call()
+							{
+								try
+								{
+									ValidationEngine.validateAndThrow(document);
+								}
+								catch(ValidationException e)
+								{
+									return Futures.immediateFailedFuture(e);
+								}
+
+								if (views.isEmpty()) return input.create(document);
+
+								return Futures.transformAsync(viewRows(views, document), traced(trace, new AsyncFunction<List<ViewRow>, Document>()
+								{
+									@Override
+									public ListenableFuture<Document> apply(List<ViewRow> rows)
+									{
+										if (isAtomicViews) return writeWithViews(input, document, rows, null, true);
+
+										return createWithViews(input, document, rows);
+									}
+								}));
+							}
+						});
+					}
+				});
 			}
+		}));
+	}
 
-			private void updateViews(Document document)
-			throws InterruptedException, ExecutionException
+	private ListenableFuture<Document> createWithViews(AbstractDocumentRepository docs, Document document, List<ViewRow> rows)
+	{
+		ListenableFuture<Document> created = docs.createWith(document, viewKeys(rows));
+		return Futures.transformAsync(created, traced(OperationTrace.current(), new AsyncFunction<Document, Document>()
+		{
+			@Override
+			public ListenableFuture<Document> apply(Document newDoc)
 			{
-				List<View> tableViews = getTableViews(database, table).get();
-				tableViews.forEach(new Consumer<View>()
+				List<ListenableFuture<Void>> viewWrites = new ArrayList<>(rows.size());
+
+				for (ViewRow row : rows)
 				{
-					@Override
-					public void accept(View v)
+					if (row.error != null)
 					{
-						try
-						{
-							Identifier id = v.identifierFrom(document);
+						viewWrites.add(handleViewFailure(row.view, document, row.error));
+					}
+					else if (row.document != null)
+					{
+						viewWrites.add(createViewDocument(row, viewFailurePolicy == ViewFailurePolicy.RETRY ? viewRetries : 0, false));
+					}
+				}
 
-							if (id != null)
-							{
-								Document viewDoc = new Document(document.object());
-								viewDoc.identifier(id);
-								Document newView = createViewDocument(v, viewDoc).get();
-								System.out.println(newView.createdAt());
-							}
-						}
-						catch (KeyDefinitionException e)
-						{
-							e.printStackTrace();
-						}
-						catch (InterruptedException e)
-						{
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
-						catch (ExecutionException e)
-						{
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
+				return Futures.transform(Futures.allAsList(viewWrites), new Function<List<Void>, Document>()
+				{
+					@Override
+					public Document apply(List<Void> ignored)
+					{
+						return newDoc;
 					}
 				});
 			}
+		}));
+	}
+
+	private ListenableFuture<Void> createViewDocument(ViewRow row, int retries, boolean isRetry)
+	{
+		ListenableFuture<Void> written = Futures.transform(row.repository.create(row.document), new Function<Document, Void>()
+		{
+			@Override
+			public Void apply(Document ignored)
+			{
+				return null;
+			}
+		});
 
-//			private ListenableFuture<List<Document>> updateViews(Document document)
-//			{
-//				ListenableFuture<List<View>> tableViews = getTableViews(database, table);
-//				return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, List<Document>>()
-//				{
-//					@Override
-//					public ListenableFuture<List<Document>> apply(List<View> input)
-//					throws Exception
-//					{
-//						List<ListenableFuture<Document>> newDocs = new ArrayList<>(input.size());
-//						input.parallelStream().forEach(new Consumer<View>()
-//						{
-//							@Override
-//							public void accept(View v)
-//							{
-//								try
-//								{
-//									 Identifier id = v.identifierFrom(document);
-//
-//									if (id != null)
-//									{
-//										Document viewDoc = new Document(document.object());
-//										viewDoc.identifier(id);
-//										newDocs.add(createViewDocument(v, document));
-//									}
-//								}
-//								catch (KeyDefinitionException e)
-//								{
-//									e.printStackTrace();
-//								}
-//							}
-//						});
-//
-//						return null;
-//					}
-//				});
-//			}
+		return Futures.catchingAsync(written, Throwable.class, new AsyncFunction<Throwable, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(Throwable t)
+			{
+				// A duplicate isn't retried. On a retry, it means an earlier attempt was applied even though it appeared to fail (e.g. timed out).
+				if (t instanceof DuplicateItemException)
+				{
+					return (isRetry ? Futures.immediateFuture(null) : handleViewFailure(row.view, row.document, t));
+				}
+
+				if (retries > 0) return createViewDocument(row, retries - 1, true);
 
+				return handleViewFailure(row.view, row.document, t);
+			}
 		});
 	}
 
-	private ListenableFuture<Document> createViewDocument(View view, Document document)
+	/**
+	 * Writes the document and its view rows in one logged batch. View rows whose key has changed since the
+	 * view keys were read are deleted in the same batch.
+	 * 
+	 * @param docs the table's repository.
+	 * @param document the document to write.
+	 * @param rows the document's view rows.
+	 * @param oldKeys the view keys noted with the document before this write, or null if there are none.
+	 * @param isUpsert upsert the document if true, otherwise update it.
+	 */
+	private ListenableFuture<Document> writeWithViews(AbstractDocumentRepository docs, Document document, List<ViewRow> rows, Map<String, ByteBuffer> oldKeys, boolean isUpsert)
 	{
+		Map<String, ByteBuffer> newKeys;
+		ListenableFuture<List<BoundStatement>> statements;
+
 		try
 		{
-			AbstractDocumentRepository docs = acquireRepositoryFor(view).get();
-			return docs.create(document);
+			newKeys = viewKeys(rows);
+			statements = viewStatements(rows, oldKeys, newKeys);
 		}
-		catch (InterruptedException e)
+		catch (RuntimeException e)
 		{
-			// TODO Auto-generated catch block
-			e.printStackTrace();
 			return Futures.immediateFailedFuture(e);
 		}
-		catch (ExecutionException e)
-		{
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			return Futures.immediateFailedFuture(e);
-		}
-//		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(view);
-//		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
-//		{
-//			@Override
-//			public ListenableFuture<Document> apply(AbstractDocumentRepository docRepo)
-//			throws Exception
-//			{
-//				return docRepo.create(document);
-//			}
-//		});
-	}
-
-	public void create(String database, String table, Document document, FutureCallback<Document> callback)
-	{
-		Futures.addCallback(create(database, table, document), callback);
-	}
 
-	public ListenableFuture<Document> read(String database, String table, Identifier id)
-	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		return Futures.transformAsync(statements, traced(OperationTrace.current(), new AsyncFunction<List<BoundStatement>, Document>()
 		{
 			@Override
-			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
-			throws Exception
+			public ListenableFuture<Document> apply(List<BoundStatement> input)
 			{
-				return input.read(new Identifier(id));
+				return (isUpsert ? docs.upsertWith(document, newKeys, input) : docs.updateWith(document, newKeys, input));
 			}
-		});
+		}));
 	}
 
-	public void read(String database, String table, Identifier id, FutureCallback<Document> callback)
+	/**
+	 * Upserts or updates the document and maintains its view rows. Reads the view keys noted with the document
+	 * (but not the document itself) to find the view rows to delete.
+	 * 
+	 * Under WriteMode.CONDITIONAL, the document is written only if its view keys haven't changed since they
+	 * were read, then its view rows are written at the document's write time. A concurrent write of the same
+	 * document makes this one re-read the view keys and try again, up to CONCURRENT_WRITE_RETRIES times, so the
+	 * later writer's view rows replace the earlier one's. If the view rows fail to be written after the
+	 * document is, the failure is returned, and view rows whose key changed may be left behind.
+	 * 
+	 * Under WriteMode.UNCONDITIONAL, there are no lightweight transactions, so the document and its view rows
+	 * are written in one logged batch. Concurrent writes of the same document can then leave stale view rows.
+	 */
+	private ListenableFuture<Document> maintainViews(AbstractDocumentRepository docs, List<View> views, Document document, boolean isUpsert)
 	{
-		Futures.addCallback(read(database, table, id), callback);
-	}
+		ListenableFuture<List<ViewRow>> rows = viewRows(views, document);
 
-	public ListenableFuture<List<Document>> readIn(String database, String table, Identifier... ids)
-	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, List<Document>>()
+		if (docs.writeMode() == WriteMode.UNCONDITIONAL)
+		{
+			return Futures.transformAsync(docs.readViewKeys(document.identifier()), new AsyncFunction<Map<String, ByteBuffer>, Document>()
+			{
+				@Override
+				public ListenableFuture<Document> apply(Map<String, ByteBuffer> old)
+				{
+					return Futures.transformAsync(rows, new AsyncFunction<List<ViewRow>, Document>()
+					{
+						@Override
+						public ListenableFuture<Document> apply(List<ViewRow> input)
+						{
+							return writeWithViews(docs, document, input, old, isUpsert);
+						}
+					});
+				}
+			});
+		}
+
+		return Futures.transformAsync(rows, new AsyncFunction<List<ViewRow>, Document>()
 		{
 			@Override
-			public ListenableFuture<List<Document>> apply(AbstractDocumentRepository input)
-			throws Exception
+			public ListenableFuture<Document> apply(List<ViewRow> input)
 			{
-				return input.readIn(ids);
+				return writeIfViewKeys(docs, document, input, isUpsert, CONCURRENT_WRITE_RETRIES);
 			}
 		});
 	}
 
-	public void readIn(FutureCallback<List<Document>> callback, String database, String table, Identifier... ids)
-	{
-		Futures.addCallback(readIn(database, table, ids), callback);
-	}
-
-	public ListenableFuture<Document> update(String database, String table, Document document)
+	private ListenableFuture<Document> writeIfViewKeys(AbstractDocumentRepository docs, Document document, List<ViewRow> rows, boolean isUpsert, int retries)
 	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		return Futures.transformAsync(docs.readViewKeys(document.identifier()), new AsyncFunction<Map<String, ByteBuffer>, Document>()
 		{
 			@Override
-			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
-			throws Exception
+			public ListenableFuture<Document> apply(Map<String, ByteBuffer> old)
 			{
+				if (old == null && !isUpsert)
+				{
+					return Futures.immediateFailedFuture(new ItemNotFoundException(document.toString()));
+				}
+
+				Map<String, ByteBuffer> newKeys;
+				ListenableFuture<List<BoundStatement>> statements;
+
 				try
 				{
-					ValidationEngine.validateAndThrow(document);
-					return input.update(document);
+					newKeys = viewKeys(rows);
+					statements = viewStatements(rows, old, newKeys);
 				}
-				catch(ValidationException e)
+				catch (RuntimeException e)
 				{
 					return Futures.immediateFailedFuture(e);
 				}
+
+				return Futures.transformAsync(statements, new AsyncFunction<List<BoundStatement>, Document>()
+				{
+					@Override
+					public ListenableFuture<Document> apply(List<BoundStatement> viewWrites)
+					{
+						return Futures.transformAsync(docs.updateIfViewKeys(document, old, newKeys), new AsyncFunction<Boolean, Document>()
+						{
+							@Override
+							public ListenableFuture<Document> apply(Boolean isApplied)
+							{
+								if (!isApplied)
+								{
+									if (retries > 0) return writeIfViewKeys(docs, document, rows, isUpsert, retries - 1);
+
+									return Futures.immediateFailedFuture(new StorageException("Document changed concurrently, views not written: " + document.identifier()));
+								}
+
+								return Futures.transform(docs.writeViewRows(viewWrites, document.updatedAt()), new Function<Void, Document>()
+								{
+									@Override
+									public Document apply(Void ignored)
+									{
+										return document;
+									}
+								});
+							}
+						});
+					}
+				});
 			}
 		});
 	}
 
-	public void update(String database, String table, Document document, FutureCallback<Document> callback)
-    {
-		Futures.addCallback(update(database, table, document), callback);
-    }
+	/**
+	 * Deletes the document and its view rows, found from the view keys noted with the document. As for
+	 * maintainViews(), the delete is conditional on the view keys under WriteMode.CONDITIONAL, and is retried if
+	 * they've changed. Under WriteMode.UNCONDITIONAL, a concurrent write can leave stale view rows.
+	 */
+	private ListenableFuture<Boolean> deleteWithViews(AbstractDocumentRepository docs, List<View> views, Identifier id)
+	{
+		return deleteWithViews(docs, views, id, CONCURRENT_WRITE_RETRIES);
+	}
 
-	public ListenableFuture<Document> upsert(String database, String table, Document document)
+	private ListenableFuture<Boolean> deleteWithViews(AbstractDocumentRepository docs, List<View> views, Identifier id, int retries)
 	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		return Futures.transformAsync(docs.readViewKeys(id), new AsyncFunction<Map<String, ByteBuffer>, Boolean>()
 		{
 			@Override
-			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
-			throws Exception
+			public ListenableFuture<Boolean> apply(Map<String, ByteBuffer> old)
 			{
-				try
+				if (old == null) return docs.delete(id);
+
+				boolean isConditional = (docs.writeMode() == WriteMode.CONDITIONAL);
+
+				if (old.isEmpty() && !isConditional) return docs.delete(id);
+
+				Date deletedAt = new Date();
+				List<ListenableFuture<BoundStatement>> deletes = new ArrayList<>(old.size());
+
+				for (View view : views)
 				{
-					ValidationEngine.validateAndThrow(document);
-					return input.upsert(document);
+					ByteBuffer key = old.get(view.name());
+
+					if (key != null)
+					{
+						deletes.add(bindViewDelete(view, key));
+					}
 				}
-				catch(ValidationException e)
+
+				return Futures.transformAsync(Futures.allAsList(deletes), new AsyncFunction<List<BoundStatement>, Boolean>()
 				{
-					return Futures.immediateFailedFuture(e);
-				}
+					@Override
+					public ListenableFuture<Boolean> apply(List<BoundStatement> input)
+					{
+						if (!isConditional) return docs.deleteWith(id, input);
+
+						return Futures.transformAsync(docs.deleteIfViewKeys(id, old), new AsyncFunction<Boolean, Boolean>()
+						{
+							@Override
+							public ListenableFuture<Boolean> apply(Boolean isApplied)
+							{
+								if (!isApplied)
+								{
+									if (retries > 0) return deleteWithViews(docs, views, id, retries - 1);
+
+									return Futures.immediateFailedFuture(new StorageException("Document changed concurrently, views not deleted: " + id));
+								}
+
+								return Futures.transform(docs.writeViewRows(input, deletedAt), new Function<Void, Boolean>()
+								{
+									@Override
+									public Boolean apply(Void ignored)
+									{
+										return Boolean.TRUE;
+									}
+								});
+							}
+						});
+					}
+				});
 			}
 		});
 	}
 
-	public void upsert(String database, String table, Document document, FutureCallback<Document> callback)
-    {
-		Futures.addCallback(upsert(database, table, document), callback);
-    }
+	/**
+	 * @return the upserts of the new view rows and deletes of old ones whose key has changed.
+	 */
+	private ListenableFuture<List<BoundStatement>> viewStatements(List<ViewRow> rows, Map<String, ByteBuffer> oldKeys, Map<String, ByteBuffer> newKeys)
+	{
+		List<ListenableFuture<BoundStatement>> statements = new ArrayList<>(rows.size() * 2);
 
-	public ListenableFuture<Boolean> delete(String database, String table, Identifier id)
+		for (ViewRow row : rows)
+		{
+			if (row.error != null)
+			{
+				return Futures.immediateFailedFuture(new StorageException("Failed to write view: " + row.view.name(), row.error));
+			}
+
+			ByteBuffer oldKey = (oldKeys != null ? oldKeys.get(row.view.name()) : null);
+
+			if (oldKey != null && !oldKey.equals(newKeys.get(row.view.name())))
+			{
+				statements.add(row.repository.bindDelete(oldKey));
+			}
+
+			if (row.document != null)
+			{
+				statements.add(row.repository.bindUpsert(row.document, row.view.ttl()));
+			}
+		}
+
+		return Futures.allAsList(statements);
+	}
+
+	private ListenableFuture<BoundStatement> bindViewDelete(View view, ByteBuffer key)
 	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Boolean>()
+		return Futures.transformAsync(acquireRepositoryFor(view), new AsyncFunction<AbstractDocumentRepository, BoundStatement>()
 		{
 			@Override
-			public ListenableFuture<Boolean> apply(AbstractDocumentRepository input)
-			throws Exception
+			public ListenableFuture<BoundStatement> apply(AbstractDocumentRepository input)
 			{
-				return input.delete(new Identifier(id));
+				return input.bindDelete(key);
 			}
 		});
 	}
 
-	public void delete(String database, String table, Identifier id, FutureCallback<Boolean> callback)
+	/**
+	 * @return the encoded keys of each document's view rows, by view name, in the same order as the documents.
+	 */
+	private ListenableFuture<List<Map<String, ByteBuffer>>> viewKeys(List<View> views, List<Document> documents)
 	{
-		Futures.addCallback(delete(database, table, id), callback);
+		List<ListenableFuture<Map<String, ByteBuffer>>> keys = new ArrayList<>(documents.size());
+
+		for (Document document : documents)
+		{
+			keys.add(Futures.transform(viewRows(views, document), new Function<List<ViewRow>, Map<String, ByteBuffer>>()
+			{
+				@Override
+				public Map<String, ByteBuffer> apply(List<ViewRow> rows)
+				{
+					return viewKeys(rows);
+				}
+			}));
+		}
+
+		return Futures.allAsList(keys);
 	}
 
-	public ListenableFuture<Boolean> exists(String database, String table, Identifier id)
+	private Map<String, ByteBuffer> viewKeys(List<ViewRow> rows)
 	{
-		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
-		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Boolean>()
+		Map<String, ByteBuffer> keys = new HashMap<>();
+
+		for (ViewRow row : rows)
 		{
-			@Override
-			public ListenableFuture<Boolean> apply(AbstractDocumentRepository input)
-			throws Exception
+			if (row.key != null)
 			{
-				return input.exists(new Identifier(id));
+				keys.put(row.view.name(), row.key);
 			}
-		});
-	}
+		}
 
-	public void exists(String database, String table, Identifier id, FutureCallback<Boolean> callback)
-	{
-		Futures.addCallback(exists(database, table, id), callback);
+		return keys;
 	}
 
-	private ListenableFuture<AbstractDocumentRepository> acquireRepositoryFor(String database, String table)
-    {
-		Identifier cacheKey = new Identifier(database, table);
-		AbstractDocumentRepository repo = repoCache.get(cacheKey);
+	/**
+	 * Derives the document's row in each view, once the views' repositories are acquired.
+	 */
+	private ListenableFuture<List<ViewRow>> viewRows(List<View> views, Document document)
+	{
+		List<ListenableFuture<ViewRow>> rows = new ArrayList<>(views.size());
 
-		if (repo != null)
+		for (View view : views)
 		{
-			return Futures.immediateFuture(repo);
+			rows.add(Futures.transform(acquireRepositoryFor(view), new Function<AbstractDocumentRepository, ViewRow>()
+			{
+				@Override
+				public ViewRow apply(AbstractDocumentRepository input)
+				{
+					return new ViewRow(view, input, document);
+				}
+			}));
 		}
 
-		ListenableFuture<Table> futureTable = tables.read(database, table);
-		return Futures.transformAsync(futureTable, new AsyncFunction<Table, AbstractDocumentRepository>()
+		return Futures.allAsList(rows);
+	}
+
+	/**
+	 * A document's row in a view: the view document and its encoded key, or neither if the document doesn't
+	 * have the view's key properties, or the error deriving them.
+	 */
+	private static class ViewRow
+	{
+		private View view;
+		private AbstractDocumentRepository repository;
+		private Document document;
+		private ByteBuffer key;
+		private Exception error;
+
+		ViewRow(View view, AbstractDocumentRepository repository, Document document)
 		{
-			@Override
-			public ListenableFuture<AbstractDocumentRepository> apply(Table input)
-			throws Exception
+			this.view = view;
+			this.repository = repository;
+
+			try
 			{
-				AbstractDocumentRepository repo = factory.newInstance(input);
-				repoCache.put(cacheKey, repo);
-				return Futures.immediateFuture(repo);
-			}
-		});
-    }
+				Identifier id = view.identifierFrom(document);
 
-	private ListenableFuture<AbstractDocumentRepository> acquireRepositoryFor(View view)
-    {
-		Identifier cacheKey = view.identifier();
-		AbstractDocumentRepository repo = repoCache.get(cacheKey);
+				if (id != null)
+				{
+					this.document = new Document(document.object());
+					this.document.identifier(id);
+					this.key = repository.encodeKey(id);
+				}
+			}
+			catch (KeyDefinitionException | RuntimeException e)
+			{
+				this.document = null;
+				this.key = null;
+				this.error = e;
+			}
+		}
+	}
 
-		if (repo != null)
+	private ListenableFuture<Void> handleViewFailure(View view, Document document, Throwable t)
+	{
+		if (viewFailurePolicy != ViewFailurePolicy.REPAIR)
 		{
-			return Futures.immediateFuture(repo);
+			return Futures.immediateFailedFuture(new StorageException("Failed to write view: " + view.name(), t));
 		}
 
-		try
+		if (viewRepairListener != null)
 		{
-			repo = factory.newInstance(view);
-			repoCache.put(cacheKey, repo);
-			return Futures.immediateFuture(repo);
+			viewRepairListener.onViewFailure(view, document, t);
 		}
-		catch (KeyDefinitionException e)
+		else
 		{
-			return Futures.immediateFailedFuture(e);
+			LOG.error("Failed to write view " + view.name() + " for document " + document.identifier(), t);
 		}
-    }
 
-	private ListenableFuture<List<View>> getTableViews(String database, String table)
+		return Futures.immediateFuture(null);
+	}
+
+	public void create(String database, String table, Document document, FutureCallback<Document> callback)
 	{
-		Identifier tableId = new Identifier(database, table);
-		List<View> cachedViews = viewsByTable.get(tableId);
+		Futures.addCallback(create(database, table, document), callback);
+	}
 
-		if (cachedViews != null)
-		{
-			return Futures.immediateFuture(cachedViews);
-		}
+	/**
+	 * Create many documents in a table, and their views, using batched writes. Invalid documents fail
+	 * individually without affecting the others. As for create(), each document notes the keys of its view
+	 * rows, so later updates and deletes maintain them. Under WriteMode.UNCONDITIONAL, existing documents are
+	 * overwritten, so their view rows are maintained as for upsertAll().
+	 * 
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @param documents the documents to create.
+	 * @return a WriteResult for each document, in the order given.
+	 * @see AbstractDocumentRepository#createAll(List)
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> createAll(String database, String table, List<Document> documents)
+	{
+		return writeAll(database, table, documents, true);
+	}
 
-		ListenableFuture<List<View>> allViews = views.readAll(database, table);
-		return Futures.transformAsync(allViews, new AsyncFunction<List<View>, List<View>>()
-		{
-			@Override
-			public ListenableFuture<List<View>> apply(List<View> input)
-			{
-				List<View> cachedViews = new ArrayList<>();
-				cachedViews.addAll(input);
-				viewsByTable.put(tableId, cachedViews);
-				return Futures.immediateFuture(input);
-			}
+	public void createAll(String database, String table, List<Document> documents, FutureCallback<List<WriteResult<Document>>> callback)
+	{
+		Futures.addCallback(createAll(database, table, documents), callback);
+	}
+
+	/**
+	 * Upsert many documents in a table, and their views, using batched writes. Invalid documents fail
+	 * individually without affecting the others. As for create(), each document notes the keys of its view
+	 * rows, so later updates and deletes maintain them. The view keys of existing documents are read first,
+	 * so view rows whose key has changed are deleted, as for update().
+	 * 
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @param documents the documents to upsert.
+	 * @return a WriteResult for each document, in the order given.
+	 * @see AbstractDocumentRepository#upsertAll(List)
+	 */
+	public ListenableFuture<List<WriteResult<Document>>> upsertAll(String database, String table, List<Document> documents)
+	{
+		return writeAll(database, table, documents, false);
+	}
+
+	public void upsertAll(String database, String table, List<Document> documents, FutureCallback<List<WriteResult<Document>>> callback)
+	{
+		Futures.addCallback(upsertAll(database, table, documents), callback);
+	}
+
+	private ListenableFuture<List<WriteResult<Document>>> writeAll(String database, String table, List<Document> documents, boolean isCreate)
+	{
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
+		ListenableFuture<List<WriteResult<Document>>> written = Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				List<WriteResult<Document>> results = new ArrayList<>(Collections.nCopies(documents.size(), (WriteResult<Document>) null));
+				List<Document> valid = new ArrayList<>(documents.size());
+				List<Integer> validIndexes = new ArrayList<>(documents.size());
+
+				for (int i = 0; i < documents.size(); i++)
+				{
+					try
+					{
+						ValidationEngine.validateAndThrow(documents.get(i));
+						valid.add(documents.get(i));
+						validIndexes.add(i);
+					}
+					catch (ValidationException e)
+					{
+						results.set(i, WriteResult.failure(documents.get(i), e));
+					}
+				}
+
+				ListenableFuture<List<WriteResult<Document>>> stored = Futures.transformAsync(tableViews, new AsyncFunction<List<View>, List<WriteResult<Document>>>()
+				{
+					@Override
+					public ListenableFuture<List<WriteResult<Document>>> apply(List<View> views)
+					{
+						if (views.isEmpty()) return (isCreate ? input.createAll(valid) : input.upsertAll(valid));
+
+						return Futures.transformAsync(viewKeys(views, valid), new AsyncFunction<List<Map<String, ByteBuffer>>, List<WriteResult<Document>>>()
+						{
+							@Override
+							public ListenableFuture<List<WriteResult<Document>>> apply(List<Map<String, ByteBuffer>> keys)
+							{
+								// Conditional creates don't overwrite existing documents, so they leave no view rows behind.
+								if (isCreate && input.writeMode() == WriteMode.CONDITIONAL) return input.createAllWith(valid, keys);
+
+								return Futures.transformAsync(readViewKeys(input, valid), new AsyncFunction<List<ReadResult<Map<String, ByteBuffer>>>, List<WriteResult<Document>>>()
+								{
+									@Override
+									public ListenableFuture<List<WriteResult<Document>>> apply(List<ReadResult<Map<String, ByteBuffer>>> oldKeys)
+									{
+										return overwriteAll(input, views, valid, keys, oldKeys, isCreate);
+									}
+								});
+							}
+						});
+					}
+				});
+
+				return Futures.transform(stored, new Function<List<WriteResult<Document>>, List<WriteResult<Document>>>()
+				{
+					@Override
+					public List<WriteResult<Document>> apply(List<WriteResult<Document>> storedResults)
+					{
+						for (int i = 0; i < storedResults.size(); i++)
+						{
+							results.set(validIndexes.get(i), storedResults.get(i));
+						}
+
+						return results;
+					}
+				});
+			}
+		});
+
+		return Futures.transformAsync(written, new AsyncFunction<List<WriteResult<Document>>, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(List<WriteResult<Document>> input)
+			{
+				return writeAllViews(database, table, input, isCreate);
+			}
+		});
+	}
+
+	/**
+	 * Reads the view keys noted with each document, so the view rows of documents that are overwritten can be
+	 * maintained. A failed read is returned in its ReadResult.
+	 */
+	private ListenableFuture<List<ReadResult<Map<String, ByteBuffer>>>> readViewKeys(AbstractDocumentRepository docs, List<Document> documents)
+	{
+		List<ListenableFuture<ReadResult<Map<String, ByteBuffer>>>> reads = new ArrayList<>(documents.size());
+
+		for (Document document : documents)
+		{
+			Identifier id = document.identifier();
+			ListenableFuture<ReadResult<Map<String, ByteBuffer>>> read = Futures.transform(docs.readViewKeys(id), new Function<Map<String, ByteBuffer>, ReadResult<Map<String, ByteBuffer>>>()
+			{
+				@Override
+				public ReadResult<Map<String, ByteBuffer>> apply(Map<String, ByteBuffer> input)
+				{
+					return (input != null ? ReadResult.found(id, input) : ReadResult.<Map<String, ByteBuffer>>notFound(id));
+				}
+			});
+
+			reads.add(Futures.catching(read, Throwable.class, new Function<Throwable, ReadResult<Map<String, ByteBuffer>>>()
+			{
+				@Override
+				public ReadResult<Map<String, ByteBuffer>> apply(Throwable t)
+				{
+					return ReadResult.failure(id, t);
+				}
+			}));
+		}
+
+		return Futures.allAsList(reads);
+	}
+
+	/**
+	 * Writes documents that may overwrite existing ones, then deletes the view rows of each overwritten
+	 * document whose key has changed, as update() does. Documents whose view keys couldn't be read aren't
+	 * written, since their old view rows couldn't be found afterward. As under WriteMode.UNCONDITIONAL, the
+	 * writes aren't conditional, so concurrent writes of the same document can leave stale view rows.
+	 * 
+	 * @return a WriteResult for each document, in the order given.
+	 */
+	private ListenableFuture<List<WriteResult<Document>>> overwriteAll(AbstractDocumentRepository docs, List<View> views, List<Document> documents, List<Map<String, ByteBuffer>> newKeys, List<ReadResult<Map<String, ByteBuffer>>> oldKeys, boolean isCreate)
+	{
+		List<Document> readable = new ArrayList<>(documents.size());
+		List<Map<String, ByteBuffer>> readableKeys = new ArrayList<>(documents.size());
+
+		for (int i = 0; i < documents.size(); i++)
+		{
+			if (oldKeys.get(i).status() != ReadResult.Status.ERROR)
+			{
+				readable.add(documents.get(i));
+				readableKeys.add(newKeys.get(i));
+			}
+		}
+
+		ListenableFuture<List<WriteResult<Document>>> written = (isCreate ? docs.createAllWith(readable, readableKeys) : docs.upsertAllWith(readable, readableKeys));
+		return Futures.transformAsync(written, new AsyncFunction<List<WriteResult<Document>>, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(List<WriteResult<Document>> input)
+			{
+				List<ListenableFuture<WriteResult<Document>>> results = new ArrayList<>(documents.size());
+				int next = 0;
+
+				for (int i = 0; i < documents.size(); i++)
+				{
+					ReadResult<Map<String, ByteBuffer>> old = oldKeys.get(i);
+
+					if (old.status() == ReadResult.Status.ERROR)
+					{
+						results.add(Futures.immediateFuture(WriteResult.failure(documents.get(i), new StorageException("Failed to read view keys: " + old.identifier(), old.error()))));
+						continue;
+					}
+
+					WriteResult<Document> result = input.get(next++);
+					results.add(result.isSuccess() ? deleteStaleViewRows(docs, views, result, old.entity(), newKeys.get(i)) : Futures.immediateFuture(result));
+				}
+
+				return Futures.allAsList(results);
+			}
+		});
+	}
+
+	/**
+	 * Deletes the view rows of a written document whose key has changed from the one noted before the write,
+	 * at the document's write time. A failed delete fails the document's WriteResult.
+	 */
+	private ListenableFuture<WriteResult<Document>> deleteStaleViewRows(AbstractDocumentRepository docs, List<View> views, WriteResult<Document> result, Map<String, ByteBuffer> oldKeys, Map<String, ByteBuffer> newKeys)
+	{
+		if (oldKeys == null || oldKeys.isEmpty()) return Futures.immediateFuture(result);
+
+		List<ListenableFuture<BoundStatement>> deletes = new ArrayList<>(oldKeys.size());
+
+		for (View view : views)
+		{
+			ByteBuffer oldKey = oldKeys.get(view.name());
+
+			if (oldKey != null && !oldKey.equals(newKeys.get(view.name())))
+			{
+				deletes.add(bindViewDelete(view, oldKey));
+			}
+		}
+
+		if (deletes.isEmpty()) return Futures.immediateFuture(result);
+
+		Document document = result.entity();
+		ListenableFuture<Void> deleted = Futures.transformAsync(Futures.allAsList(deletes), new AsyncFunction<List<BoundStatement>, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(List<BoundStatement> input)
+			{
+				return docs.writeViewRows(input, (document.updatedAt() != null ? document.updatedAt() : new Date()));
+			}
+		});
+
+		ListenableFuture<WriteResult<Document>> maintained = Futures.transform(deleted, new Function<Void, WriteResult<Document>>()
+		{
+			@Override
+			public WriteResult<Document> apply(Void ignored)
+			{
+				return result;
+			}
+		});
+
+		return Futures.catching(maintained, Throwable.class, new Function<Throwable, WriteResult<Document>>()
+		{
+			@Override
+			public WriteResult<Document> apply(Throwable t)
+			{
+				return WriteResult.failure(document, new StorageException("Failed to delete stale view rows: " + document.identifier(), t));
+			}
+		});
+	}
+
+	/**
+	 * Writes the view documents for each successfully-written document, in a bulk write per view. A document
+	 * whose view write fails is reported as failed, with the view failure as the cause.
+	 */
+	private ListenableFuture<List<WriteResult<Document>>> writeAllViews(String database, String table, List<WriteResult<Document>> results, boolean isCreate)
+	{
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
+		return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(List<View> input)
+			{
+				if (input.isEmpty()) return Futures.immediateFuture(results);
+
+				List<ListenableFuture<Void>> viewWrites = new ArrayList<>(input.size());
+
+				for (View view : input)
+				{
+					viewWrites.add(writeAllView(view, results, isCreate));
+				}
+
+				return Futures.transform(Futures.allAsList(viewWrites), new Function<List<Void>, List<WriteResult<Document>>>()
+				{
+					@Override
+					public List<WriteResult<Document>> apply(List<Void> ignored)
+					{
+						return results;
+					}
+				});
+			}
+		});
+	}
+
+	private ListenableFuture<Void> writeAllView(View view, List<WriteResult<Document>> results, boolean isCreate)
+	{
+		List<Document> viewDocs = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+
+		synchronized (results)
+		{
+			for (int i = 0; i < results.size(); i++)
+			{
+				WriteResult<Document> result = results.get(i);
+
+				if (result.isFailure()) continue;
+
+				try
+				{
+					Identifier id = view.identifierFrom(result.entity());
+
+					if (id != null)
+					{
+						Document viewDoc = new Document(result.entity().object());
+						viewDoc.identifier(id);
+						viewDocs.add(viewDoc);
+						indexes.add(i);
+					}
+				}
+				catch (KeyDefinitionException e)
+				{
+					results.set(i, WriteResult.failure(result.entity(), new StorageException("Failed to write view: " + view.name(), e)));
+				}
+			}
+		}
+
+		if (viewDocs.isEmpty()) return Futures.immediateFuture(null);
+
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(view);
+		ListenableFuture<List<WriteResult<Document>>> written = Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, List<WriteResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<WriteResult<Document>>> apply(AbstractDocumentRepository input)
+			{
+				return (isCreate ? input.createAll(viewDocs) : input.upsertAll(viewDocs));
+			}
+		});
+
+		ListenableFuture<List<WriteResult<Document>>> recorded = Futures.catching(written, Throwable.class, new Function<Throwable, List<WriteResult<Document>>>()
+		{
+			@Override
+			public List<WriteResult<Document>> apply(Throwable t)
+			{
+				List<WriteResult<Document>> failures = new ArrayList<>(viewDocs.size());
+
+				for (Document viewDoc : viewDocs)
+				{
+					failures.add(WriteResult.failure(viewDoc, t));
+				}
+
+				return failures;
+			}
+		});
+
+		return Futures.transform(recorded, new Function<List<WriteResult<Document>>, Void>()
+		{
+			@Override
+			public Void apply(List<WriteResult<Document>> viewResults)
+			{
+				synchronized (results)
+				{
+					for (int i = 0; i < viewResults.size(); i++)
+					{
+						WriteResult<Document> viewResult = viewResults.get(i);
+
+						if (viewResult.isFailure())
+						{
+							int index = indexes.get(i);
+							results.set(index, WriteResult.failure(results.get(index).entity(), new StorageException("Failed to write view: " + view.name(), viewResult.error())));
+						}
+					}
+				}
+
+				return null;
+			}
+		});
+	}
+
+	public ListenableFuture<Document> read(String database, String table, Identifier id)
+	{
+		OperationTrace trace = startTrace("read", database, table, id);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		{
+			@Override
+			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				return within(trace, new Callable<ListenableFuture<Document>>()
+				{
+					@Override
+					public ListenableFuture<Document> call()
+					{
+						return input.read(ImmutableIdentifier.of(id));
+					}
+				});
+			}
+		}));
+	}
+
+	public void read(String database, String table, Identifier id, FutureCallback<Document> callback)
+	{
+		Futures.addCallback(read(database, table, id), callback);
+	}
+
+	public ListenableFuture<List<Document>> readIn(String database, String table, Identifier... ids)
+	{
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, List<Document>>()
+		{
+			@Override
+			public ListenableFuture<List<Document>> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				return input.readIn(ids);
+			}
+		});
+	}
+
+	public void readIn(FutureCallback<List<Document>> callback, String database, String table, Identifier... ids)
+	{
+		Futures.addCallback(readIn(database, table, ids), callback);
+	}
+
+	/**
+	 * Read the given documents, reporting the outcome for each identifier separately, in the order given.
+	 * The returned future fails only if the table can't be read at all.
+	 */
+	public ListenableFuture<List<ReadResult<Document>>> readEach(String database, String table, Identifier... ids)
+	{
+		return readEach(database, table, 0L, TimeUnit.MILLISECONDS, ids);
+	}
+
+	/**
+	 * Read the given documents, reporting the outcome for each identifier separately, in the order given.
+	 * Completes within the timeout (measured from this call) with whatever has been read by then; the rest
+	 * are reported as failures with a TimeoutException.
+	 */
+	public ListenableFuture<List<ReadResult<Document>>> readEach(String database, String table, long timeout, TimeUnit unit, Identifier... ids)
+	{
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, List<ReadResult<Document>>>()
+		{
+			@Override
+			public ListenableFuture<List<ReadResult<Document>>> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				long remaining = (timeout > 0L ? Math.max(1L, deadline - System.nanoTime()) : 0L);
+				return input.readEach(remaining, TimeUnit.NANOSECONDS, ids);
+			}
+		});
+	}
+
+	public void readEach(FutureCallback<List<ReadResult<Document>>> callback, String database, String table, long timeout, TimeUnit unit, Identifier... ids)
+	{
+		Futures.addCallback(readEach(database, table, timeout, unit, ids), callback);
+	}
+
+	/**
+	 * Read a single page of the documents in a partition.
+	 * 
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @param fetchSize the maximum number of documents in the page.
+	 * @param cursor the cursor from the previous page, or null for the first page.
+	 * @param partitionKey the partition key components.
+	 * @return a Page of documents with a cursor for the next page, if any.
+	 */
+	public ListenableFuture<Page<Document>> readPage(String database, String table, int fetchSize, String cursor, Object... partitionKey)
+	{
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Page<Document>>()
+		{
+			@Override
+			public ListenableFuture<Page<Document>> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				return input.readPage(fetchSize, cursor, partitionKey);
+			}
+		});
+	}
+
+	public void readPage(FutureCallback<Page<Document>> callback, String database, String table, int fetchSize, String cursor, Object... partitionKey)
+	{
+		Futures.addCallback(readPage(database, table, fetchSize, cursor, partitionKey), callback);
+	}
+
+	/**
+	 * Stream the documents in a partition with back-pressure. Driver pages are fetched only as the
+	 * subscriber requests more documents, so memory use is bounded by the fetch size, not the partition size.
+	 * 
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @param fetchSize the number of documents fetched from Cassandra per page.
+	 * @param partitionKey the partition key components.
+	 * @return a cold Publisher of documents.
+	 */
+	public Publisher<Document> publishAll(String database, String table, int fetchSize, Object... partitionKey)
+	{
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return ResultSetPublisher.deferred(Futures.transform(docs, new Function<AbstractDocumentRepository, Publisher<Document>>()
+		{
+			@Override
+			public Publisher<Document> apply(AbstractDocumentRepository input)
+			{
+				return input.publishAll(fetchSize, partitionKey);
+			}
+		}));
+	}
+
+	public ListenableFuture<Document> update(String database, String table, Document document)
+	{
+		OperationTrace trace = startTrace("update", database, table, document.identifier());
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		{
+			@Override
+			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
+			{
+				return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, Document>()
+				{
+					@Override
+					public ListenableFuture<Document> apply(List<View> views)
+					throws Exception
+					{
+						return within(trace, new Callable<ListenableFuture<Document>>()
+						{
+							@Override
+							public ListenableFuture<Document> call()
+							{
+								try
+								{
+									ValidationEngine.validateAndThrow(document);
+								}
+								catch(ValidationException e)
+								{
+									return Futures.immediateFailedFuture(e);
+								}
+
+								if (views.isEmpty()) return input.update(document);
+
+								return maintainViews(input, views, document, false);
+							}
+						});
+					}
+				});
+			}
+		}));
+	}
+
+	public void update(String database, String table, Document document, FutureCallback<Document> callback)
+    {
+		Futures.addCallback(update(database, table, document), callback);
+    }
+
+	public ListenableFuture<Document> upsert(String database, String table, Document document)
+	{
+		OperationTrace trace = startTrace("upsert", database, table, document.identifier());
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Document>()
+		{
+			@Override
+			public ListenableFuture<Document> apply(AbstractDocumentRepository input)
+			{
+				return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, Document>()
+				{
+					@Override
+					public ListenableFuture<Document> apply(List<View> views)
+					throws Exception
+					{
+						return within(trace, new Callable<ListenableFuture<Document>>()
+						{
+							@Override
+							public ListenableFuture<Document> call()
+							{
+								try
+								{
+									ValidationEngine.validateAndThrow(document);
+								}
+								catch(ValidationException e)
+								{
+									return Futures.immediateFailedFuture(e);
+								}
+
+								if (views.isEmpty()) return input.upsert(document);
+
+								return maintainViews(input, views, document, true);
+							}
+						});
+					}
+				});
+			}
+		}));
+	}
+
+	public void upsert(String database, String table, Document document, FutureCallback<Document> callback)
+    {
+		Futures.addCallback(upsert(database, table, document), callback);
+    }
+
+	public ListenableFuture<Boolean> delete(String database, String table, Identifier id)
+	{
+		OperationTrace trace = startTrace("delete", database, table, id);
+		ListenableFuture<List<View>> tableViews = getTableViews(database, table);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Boolean>()
+		{
+			@Override
+			public ListenableFuture<Boolean> apply(AbstractDocumentRepository input)
+			{
+				return Futures.transformAsync(tableViews, new AsyncFunction<List<View>, Boolean>()
+				{
+					@Override
+					public ListenableFuture<Boolean> apply(List<View> views)
+					throws Exception
+					{
+						return within(trace, new Callable<ListenableFuture<Boolean>>()
+						{
+							@Override
+							public ListenableFuture<Boolean> call()
+							{
+								if (views.isEmpty()) return input.delete(ImmutableIdentifier.of(id));
+
+								return deleteWithViews(input, views, ImmutableIdentifier.of(id));
+							}
+						});
+					}
+				});
+			}
+		}));
+	}
+
+	public void delete(String database, String table, Identifier id, FutureCallback<Boolean> callback)
+	{
+		Futures.addCallback(delete(database, table, id), callback);
+	}
+
+	public ListenableFuture<Boolean> exists(String database, String table, Identifier id)
+	{
+		OperationTrace trace = startTrace("exists", database, table, id);
+		ListenableFuture<AbstractDocumentRepository> docs = acquireRepositoryFor(database, table);
+		return finishTrace(trace, Futures.transformAsync(docs, new AsyncFunction<AbstractDocumentRepository, Boolean>()
+		{
+			@Override
+			public ListenableFuture<Boolean> apply(AbstractDocumentRepository input)
+			throws Exception
+			{
+				return within(trace, new Callable<ListenableFuture<Boolean>>()
+				{
+					@Override
+					public ListenableFuture<Boolean> call()
+					{
+						return input.exists(ImmutableIdentifier.of(id));
+					}
+				});
+			}
+		}));
+	}
+
+	public void exists(String database, String table, Identifier id, FutureCallback<Boolean> callback)
+	{
+		Futures.addCallback(exists(database, table, id), callback);
+	}
+
+	/**
+	 * Creates a job that writes the view rows of the documents already in the view's table, such as after the view
+	 * was added to a populated table. The view's table is no longer cached as having its previous views, so this
+	 * service maintains the new view for documents written while the job runs.
+	 * 
+	 * @param view a view, as created by ViewService.
+	 * @param checkpoints where the job's progress is recorded, so it can be resumed.
+	 * @return a ViewBuilder, ready to build().
+	 */
+	public ListenableFuture<ViewBuilder> viewBuilder(View view, MetadataRepository checkpoints)
+	{
+		viewsByTable.invalidate(new ImmutableIdentifier(view.databaseName(), view.tableName()));
+		return Futures.transformAsync(acquireRepositoryFor(view.databaseName(), view.tableName()), new AsyncFunction<AbstractDocumentRepository, ViewBuilder>()
+		{
+			@Override
+			public ListenableFuture<ViewBuilder> apply(AbstractDocumentRepository docs)
+			{
+				return Futures.transform(acquireRepositoryFor(view), new Function<AbstractDocumentRepository, ViewBuilder>()
+				{
+					@Override
+					public ViewBuilder apply(AbstractDocumentRepository input)
+					{
+						return new ViewBuilder(view, docs, input, checkpoints);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Creates a scanner that reads every document of the table, in token ranges, several at once, such as for an
+	 * export, reindex or repair job.
+	 * 
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @return a TableScanner, ready to scan().
+	 */
+	public ListenableFuture<TableScanner> scanner(String database, String table)
+	{
+		return Futures.transform(acquireRepositoryFor(database, table), new Function<AbstractDocumentRepository, TableScanner>()
+		{
+			@Override
+			public TableScanner apply(AbstractDocumentRepository input)
+			{
+				return new TableScanner(input);
+			}
+		});
+	}
+
+	/**
+	 * Creates an exporter that writes the table's documents, or those of a token range or partition, to NDJSON
+	 * or BSON files.
+	 *
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @return a DocumentExporter, ready to exportTo() or exportPartition().
+	 */
+	public ListenableFuture<DocumentExporter> exporter(String database, String table)
+	{
+		return Futures.transform(acquireRepositoryFor(database, table), new Function<AbstractDocumentRepository, DocumentExporter>()
+		{
+			@Override
+			public DocumentExporter apply(AbstractDocumentRepository input)
+			{
+				return new DocumentExporter(input);
+			}
+		});
+	}
+
+	/**
+	 * Creates an importer that loads NDJSON or BSON files of documents into the table, through this service.
+	 *
+	 * @param database the database name.
+	 * @param table the table name.
+	 * @return a DocumentImporter, ready to importFile().
+	 */
+	public ListenableFuture<DocumentImporter> importer(String database, String table)
+	{
+		return Futures.transform(tables.read(database, table), new Function<Table, DocumentImporter>()
+		{
+			@Override
+			public DocumentImporter apply(Table input)
+			{
+				return new DocumentImporter(DocumentService.this, input);
+			}
+		});
+	}
+
+	/**
+	 * Prepare the statements for every known table and view, such as at startup, so the first request to each
+	 * one doesn't wait for its statements to prepare.
+	 * 
+	 * @return the future number of statements prepared.
+	 */
+	public ListenableFuture<Integer> prepareAll()
+	{
+		return Futures.transformAsync(tables.readAll(), new AsyncFunction<List<Table>, Integer>()
+		{
+			@Override
+			public ListenableFuture<Integer> apply(List<Table> input)
+			{
+				List<ListenableFuture<Integer>> futures = new ArrayList<>(input.size());
+
+				for (Table table : input)
+				{
+					futures.add(prepareAll(table.databaseName(), table.name()));
+				}
+
+				return sum(futures);
+			}
+		});
+	}
+
+	public void prepareAll(FutureCallback<Integer> callback)
+	{
+		Futures.addCallback(prepareAll(), callback);
+	}
+
+	/**
+	 * Prepare the statements for a table and its views.
+	 * 
+	 * @return the future number of statements prepared.
+	 */
+	public ListenableFuture<Integer> prepareAll(String database, String table)
+	{
+		ListenableFuture<Integer> tableFuture = Futures.transformAsync(acquireRepositoryFor(database, table), new PrepareFunction());
+		ListenableFuture<Integer> viewsFuture = Futures.transformAsync(getTableViews(database, table), new AsyncFunction<List<View>, Integer>()
+		{
+			@Override
+			public ListenableFuture<Integer> apply(List<View> input)
+			{
+				List<ListenableFuture<Integer>> futures = new ArrayList<>(input.size());
+
+				for (View view : input)
+				{
+					futures.add(Futures.transformAsync(acquireRepositoryFor(view), new PrepareFunction()));
+				}
+
+				return sum(futures);
+			}
+		});
+
+		return sum(Arrays.asList(tableFuture, viewsFuture));
+	}
+
+	private ListenableFuture<Integer> sum(List<ListenableFuture<Integer>> futures)
+	{
+		return Futures.transform(Futures.allAsList(futures), new Function<List<Integer>, Integer>()
+		{
+			@Override
+			public Integer apply(List<Integer> input)
+			{
+				int total = 0;
+
+				for (Integer count : input)
+				{
+					total += count;
+				}
+
+				return total;
+			}
+		});
+	}
+
+	private static class PrepareFunction
+	implements AsyncFunction<AbstractDocumentRepository, Integer>
+	{
+		@Override
+		public ListenableFuture<Integer> apply(AbstractDocumentRepository input)
+		{
+			return Futures.transform(input.prepareAll(), new Function<List<PreparedStatement>, Integer>()
+			{
+				@Override
+				public Integer apply(List<PreparedStatement> prepared)
+				{
+					return prepared.size();
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return a new trace for the operation, or null if there's no Tracer or the operation isn't sampled.
+	 */
+	private OperationTrace startTrace(String operation, String database, String table, Identifier id)
+	{
+		return (tracer != null ? tracer.start(operation, database, table, id) : null);
+	}
+
+	/**
+	 * Ends the trace's acquireRepository stage, as the table's repository and views have been looked up, then
+	 * submits a repository operation with its trace current, so the repository records its stages.
+	 */
+	private <V> ListenableFuture<V> within(OperationTrace trace, Callable<ListenableFuture<V>> operation)
+	throws Exception
+	{
+		if (trace == null) return operation.call();
+
+		trace.stage(OperationTrace.ACQUIRE_REPOSITORY);
+		return trace.within(operation);
+	}
+
+	/**
+	 * Applies the function with the trace current, so statements submitted once an earlier one completes, such
+	 * as view writes, record their stages in it too.
+	 */
+	private <I, O> AsyncFunction<I, O> traced(OperationTrace trace, AsyncFunction<I, O> function)
+	{
+		if (trace == null) return function;
+
+		return new AsyncFunction<I, O>()
+		{
+			@Override
+			public ListenableFuture<O> apply(I input)
+			throws Exception
+			{
+				return trace.within(new Callable<ListenableFuture<O>>()
+				{
+					@Override
+					public ListenableFuture<O> call()
+					throws Exception
+					{
+						return function.apply(input);
+					}
+				});
+			}
+		};
+	}
+
+	private <V> ListenableFuture<V> finishTrace(OperationTrace trace, ListenableFuture<V> future)
+	{
+		if (trace == null) return future;
+
+		Futures.addCallback(future, new FutureCallback<V>()
+		{
+			@Override
+			public void onSuccess(V result)
+			{
+				tracer.finish(trace, null);
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				tracer.finish(trace, t);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * @return the combined statistics of the repository and view list caches.
+	 */
+	public CacheStats cacheStats()
+	{
+		return repoCache.stats().plus(viewsByTable.stats());
+	}
+
+	/**
+	 * Discards the cached repositories and views of the table, and its views' repositories, such as after the
+	 * table was changed elsewhere.
+	 */
+	public void invalidate(String database, String table)
+	{
+		Identifier tableId = new ImmutableIdentifier(database, table);
+		viewsByTable.invalidate(tableId);
+		repoCache.invalidateIf(new Predicate<Identifier>()
+		{
+			@Override
+			public boolean test(Identifier t)
+			{
+				return (t.size() >= 2 && t.component(0).equals(database) && t.component(1).equals(table));
+			}
+		});
+	}
+
+	/**
+	 * Discards the cached repository of the view and its table's cached views, such as after the view was
+	 * changed elsewhere.
+	 */
+	public void invalidate(String database, String table, String view)
+	{
+		viewsByTable.invalidate(new ImmutableIdentifier(database, table));
+		repoCache.invalidate(new ImmutableIdentifier(database, table, view));
+	}
+
+	public void invalidateAll()
+	{
+		repoCache.invalidateAll();
+		viewsByTable.invalidateAll();
+	}
+
+	private ListenableFuture<AbstractDocumentRepository> acquireRepositoryFor(String database, String table)
+	{
+		return repoCache.get(new ImmutableIdentifier(database, table), new Supplier<ListenableFuture<AbstractDocumentRepository>>()
+		{
+			@Override
+			public ListenableFuture<AbstractDocumentRepository> get()
+			{
+				return Futures.transformAsync(tables.read(database, table), new AsyncFunction<Table, AbstractDocumentRepository>()
+				{
+					@Override
+					public ListenableFuture<AbstractDocumentRepository> apply(Table input)
+					throws Exception
+					{
+						return Futures.immediateFuture(factory.newInstance(input));
+					}
+				});
+			}
+		});
+	}
+
+	private ListenableFuture<AbstractDocumentRepository> acquireRepositoryFor(View view)
+	{
+		return repoCache.get(ImmutableIdentifier.of(view.identifier()), new Supplier<ListenableFuture<AbstractDocumentRepository>>()
+		{
+			@Override
+			public ListenableFuture<AbstractDocumentRepository> get()
+			{
+				return Futures.transformAsync(acquireRepositoryFor(view.databaseName(), view.tableName()), new AsyncFunction<AbstractDocumentRepository, AbstractDocumentRepository>()
+				{
+					@Override
+					public ListenableFuture<AbstractDocumentRepository> apply(AbstractDocumentRepository tableRepo)
+					throws Exception
+					{
+						AbstractDocumentRepository repo = factory.newInstance(view);
+
+						// Views are written alongside their table, so they share its consistency levels and write mode.
+						repo.readConsistency(tableRepo.readConsistency());
+						repo.writeConsistency(tableRepo.writeConsistency());
+						repo.writeMode(tableRepo.writeMode());
+						return Futures.immediateFuture(repo);
+					}
+				});
+			}
+		});
+	}
+
+	private ListenableFuture<List<View>> getTableViews(String database, String table)
+	{
+		return viewsByTable.get(new ImmutableIdentifier(database, table), new Supplier<ListenableFuture<List<View>>>()
+		{
+			@Override
+			public ListenableFuture<List<View>> get()
+			{
+				return Futures.transform(views.readAll(database, table), new Function<List<View>, List<View>>()
+				{
+					@Override
+					public List<View> apply(List<View> input)
+					{
+						return Collections.unmodifiableList(new ArrayList<>(input));
+					}
+				});
+			}
 		});
 	}
+
+	private class CacheInvalidator
+	implements MetadataChangeListener
+	{
+		@Override
+		public void onTableChange(String database, String table)
+		{
+			invalidate(database, table);
+		}
+
+		@Override
+		public void onViewChange(String database, String table, String view)
+		{
+			invalidate(database, table, view);
+		}
+	}
 }
@@ -0,0 +1,349 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import org.bson.BSON;
+import org.bson.BasicBSONObject;
+import org.bson.BsonBinary;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonType;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriter;
+import org.bson.json.JsonWriterSettings;
+
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyComponent;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinition;
+
+/**
+ * Writes documents to a channel as NDJSON or concatenated BSON, through a buffer, without decoding their stored
+ * BSON objects: BSON objects are copied as is and JSON is written while reading the BSON.
+ * 
+ * The key properties are added to any object that doesn't have them, so the output can be imported again. UUIDs
+ * are written to JSON as {"$uuid": ...} and other binary values as {"$binary": ..., "$type": n}, the forms that
+ * com.mongodb.util.JSON parses back to their values.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+class DocumentWriter
+implements Closeable
+{
+	static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private static final byte[] EMPTY_OBJECT = {5, 0, 0, 0, 0};
+	private static final JsonWriterSettings JSON_SETTINGS = new JsonWriterSettings(JsonMode.STRICT);
+
+	private WritableByteChannel channel;
+	private DocumentFormat format;
+	private List<KeyComponent> keys;
+	private ByteBuffer buffer;
+	private StringWriter json;
+	private CharsetEncoder utf8;
+	private long documents;
+	private long bytes;
+
+	DocumentWriter(WritableByteChannel channel, DocumentFormat format, KeyDefinition keys)
+	{
+		this(channel, format, keys, DEFAULT_BUFFER_SIZE);
+	}
+
+	DocumentWriter(WritableByteChannel channel, DocumentFormat format, KeyDefinition keys, int bufferSize)
+	{
+		super();
+		this.channel = channel;
+		this.format = format;
+		this.keys = keys.components();
+		this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+
+		if (format == DocumentFormat.NDJSON)
+		{
+			this.json = new StringWriter(1024);
+			this.utf8 = StandardCharsets.UTF_8.newEncoder();
+		}
+	}
+
+	/**
+	 * @return the number of documents written.
+	 */
+	long documents()
+	{
+		return documents;
+	}
+
+	/**
+	 * @return the number of bytes written, including those still buffered.
+	 */
+	long bytes()
+	{
+		return bytes;
+	}
+
+	void write(RawDocument document)
+	throws IOException
+	{
+		ByteBuffer object = (document.hasObject() ? document.object().order(ByteOrder.LITTLE_ENDIAN) : ByteBuffer.wrap(EMPTY_OBJECT));
+		byte[] missingKeys = missingKeys(document, object);
+
+		if (format == DocumentFormat.BSON)
+		{
+			writeBson(object, missingKeys);
+		}
+		else
+		{
+			writeJson(object, missingKeys);
+		}
+
+		documents++;
+	}
+
+	/**
+	 * Writes the buffered output to the channel.
+	 */
+	void flush()
+	throws IOException
+	{
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	@Override
+	public void close()
+	throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	/**
+	 * Splices the missing key properties, if any, in front of the object's own properties.
+	 */
+	private void writeBson(ByteBuffer object, byte[] missingKeys)
+	throws IOException
+	{
+		if (missingKeys == null)
+		{
+			put(object);
+			return;
+		}
+
+		// Both documents' lengths include their four byte length and one byte terminator.
+		if (buffer.remaining() < 4) flush();
+
+		buffer.putInt(missingKeys.length - 5 + object.remaining());
+		bytes += 4;
+		put(ByteBuffer.wrap(missingKeys, 4, missingKeys.length - 5));
+		object.position(object.position() + 4);
+		put(object);
+	}
+
+	private void writeJson(ByteBuffer object, byte[] missingKeys)
+	throws IOException
+	{
+		ByteBuffer bson = object;
+
+		if (missingKeys != null)
+		{
+			bson = ByteBuffer.allocate(missingKeys.length - 5 + object.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+			bson.putInt(bson.capacity());
+			bson.put(missingKeys, 4, missingKeys.length - 5);
+			object.position(object.position() + 4);
+			bson.put(object);
+			bson.flip();
+		}
+
+		json.getBuffer().setLength(0);
+		BsonBinaryReader reader = new BsonBinaryReader(bson);
+
+		try
+		{
+			new ExportJsonWriter(json).pipe(reader);
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		json.write('\n');
+		encode(CharBuffer.wrap(json.getBuffer()));
+	}
+
+	private void encode(CharBuffer chars)
+	throws IOException
+	{
+		int start = buffer.position();
+		utf8.reset();
+		CoderResult result;
+
+		while ((result = utf8.encode(chars, buffer, true)).isOverflow())
+		{
+			bytes += buffer.position() - start;
+			flush();
+			start = 0;
+		}
+
+		if (result.isError()) result.throwException();
+
+		while (utf8.flush(buffer).isOverflow())
+		{
+			bytes += buffer.position() - start;
+			flush();
+			start = 0;
+		}
+
+		bytes += buffer.position() - start;
+	}
+
+	/**
+	 * Copies the bytes into the buffer, or straight to the channel if there are more than the buffer holds.
+	 */
+	private void put(ByteBuffer src)
+	throws IOException
+	{
+		bytes += src.remaining();
+
+		if (src.remaining() > buffer.remaining())
+		{
+			flush();
+
+			if (src.remaining() >= buffer.capacity())
+			{
+				while (src.hasRemaining())
+				{
+					channel.write(src);
+				}
+
+				return;
+			}
+		}
+
+		buffer.put(src);
+	}
+
+	/**
+	 * @return the key properties the object doesn't have, encoded as a BSON document, or null if it has them all.
+	 */
+	private byte[] missingKeys(RawDocument document, ByteBuffer object)
+	{
+		boolean[] present = new boolean[keys.size()];
+		BsonBinaryReader reader = new BsonBinaryReader(object.duplicate());
+
+		try
+		{
+			reader.readStartDocument();
+
+			while (reader.readBsonType() != BsonType.END_OF_DOCUMENT)
+			{
+				String name = reader.readName();
+
+				for (int i = 0; i < present.length; i++)
+				{
+					if (name.equals(keys.get(i).property())) present[i] = true;
+				}
+
+				reader.skipValue();
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		BasicBSONObject missing = null;
+
+		for (int i = 0; i < present.length; i++)
+		{
+			if (present[i]) continue;
+
+			if (missing == null) missing = new BasicBSONObject();
+
+			Object value = document.identifier().component(i);
+			// The BSON encoder has no decimal type. The importer converts the string back.
+			missing.put(keys.get(i).property(), (value instanceof BigDecimal ? value.toString() : value));
+		}
+
+		return (missing != null ? BSON.encode(missing) : null);
+	}
+
+	/**
+	 * Writes binary values in the forms com.mongodb.util.JSON parses, rather than the strict mode ones.
+	 */
+	private static class ExportJsonWriter
+	extends JsonWriter
+	{
+		ExportJsonWriter(StringWriter writer)
+		{
+			super(writer, JSON_SETTINGS);
+		}
+
+		@Override
+		protected void doWriteBinaryData(BsonBinary binary)
+		{
+			byte type = binary.getType();
+			byte[] data = binary.getData();
+
+			writeStartDocument();
+
+			if (data.length == 16 && (type == BsonBinarySubType.UUID_LEGACY.getValue() || type == BsonBinarySubType.UUID_STANDARD.getValue()))
+			{
+				writeString("$uuid", toUuid(data, type == BsonBinarySubType.UUID_STANDARD.getValue()).toString());
+			}
+			else
+			{
+				writeString("$binary", Base64.getEncoder().encodeToString(data));
+				writeInt32("$type", type);
+			}
+
+			writeEndDocument();
+		}
+
+		/**
+		 * The legacy Java encoding, which the BSON encoder writes, has each half of the UUID in little-endian order.
+		 */
+		private static UUID toUuid(byte[] data, boolean isStandard)
+		{
+			ByteBuffer b = ByteBuffer.wrap(data).order(isStandard ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+			return new UUID(b.getLong(), b.getLong());
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.nio.ByteBuffer;
+
+import com.orangerhymelabs.helenus.persistence.Identifier;
+
+/**
+ * A document as stored, with its BSON object still encoded, for reads that only copy documents elsewhere, such
+ * as exports, and needn't decode them.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class RawDocument
+{
+	private Identifier identifier;
+	private ByteBuffer object;
+
+	public RawDocument(Identifier identifier, ByteBuffer object)
+	{
+		super();
+		this.identifier = identifier;
+		this.object = object;
+	}
+
+	public Identifier identifier()
+	{
+		return identifier;
+	}
+
+	public boolean hasObject()
+	{
+		return (object != null && object.hasRemaining());
+	}
+
+	/**
+	 * @return the encoded BSON object, read-only, or null if the document has none.
+	 */
+	public ByteBuffer object()
+	{
+		return (object != null ? object.asReadOnlyBuffer() : null);
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("RawDocument{identifier: %s, bytes: %d}", identifier, (object != null ? object.remaining() : 0));
+	}
+}
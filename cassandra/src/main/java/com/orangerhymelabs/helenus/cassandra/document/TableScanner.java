@@ -0,0 +1,627 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.exceptions.PagingStateException;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Callables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.orangerhymelabs.helenus.exception.InvalidCursorException;
+import com.orangerhymelabs.helenus.persistence.Page;
+
+/**
+ * Reads every document of a table. The table's token range is divided into splits, which are read a page at a
+ * time, several splits at once, and each page is handed to a PageConsumer. The next page of a split is read once
+ * the consumer is done with the previous one, so a slow consumer slows the scan rather than filling the heap.
+ * 
+ * The number of splits can be fixed or sized from the table's partition estimates. Given Checkpoints, the cursor
+ * of each split is recorded after every page, so a scan that fails or is interrupted resumes where it left off
+ * when scanned again with the same number of splits. A page may then be consumed twice, but never skipped.
+ * 
+ * A scan can be limited to a token range, and can read the documents with their objects still encoded, for
+ * consumers that only copy them.
+ * 
+ * The tokens are Murmur3Partitioner tokens, the Cassandra default.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class TableScanner
+{
+	private static final Logger LOG = LoggerFactory.getLogger(TableScanner.class);
+
+	public static final int DEFAULT_SPLITS = 256;
+	public static final int DEFAULT_PARALLELISM = 4;
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	public static final int MAX_SPLITS = 65536;
+
+	/**
+	 * The checkpoint of a completed split.
+	 */
+	public static final String DONE = "done";
+
+	// Delays the pages of throttled scans. Only ever runs short, non-blocking tasks.
+	private static final ListeningScheduledExecutorService THROTTLE = MoreExecutors.listeningDecorator(Executors.newSingleThreadScheduledExecutor(
+		new ThreadFactoryBuilder().setDaemon(true).setNameFormat("helenus-scan-%d").build()));
+
+	/**
+	 * Processes a page of the scanned documents. Pages of different splits are consumed concurrently.
+	 */
+	public interface PageConsumer
+	{
+		/**
+		 * @param split the split the page was read from.
+		 * @param page the page's documents.
+		 * @return a future that completes when the page is processed. If it fails, the scan stops and fails.
+		 */
+		ListenableFuture<Void> accept(int split, Page<Document> page);
+	}
+
+	/**
+	 * Processes a page of the scanned documents, with their objects still encoded. Pages of different splits are
+	 * consumed concurrently.
+	 */
+	public interface RawPageConsumer
+	{
+		/**
+		 * @param split the split the page was read from.
+		 * @param page the page's documents.
+		 * @return a future that completes when the page is processed. If it fails, the scan stops and fails.
+		 */
+		ListenableFuture<Void> accept(int split, Page<RawDocument> page);
+	}
+
+	/**
+	 * Records the progress of each split.
+	 */
+	public interface Checkpoints
+	{
+		/**
+		 * @return the cursor recorded for the split, DONE if it's complete, or null if it hasn't been started.
+		 */
+		ListenableFuture<String> read(int split, int splits);
+
+		/**
+		 * Records the cursor of the next page of the split, or DONE once it's complete.
+		 */
+		ListenableFuture<?> write(int split, int splits, String cursor);
+
+		/**
+		 * @return the number of splits a previous run sized from the partition estimates, or null if none did.
+		 */
+		ListenableFuture<Integer> readSplits();
+
+		/**
+		 * Records the number of splits sized from the partition estimates, so a resumed scan uses the same splits.
+		 */
+		ListenableFuture<?> writeSplits(int splits);
+	}
+
+	private AbstractDocumentRepository documents;
+	private Checkpoints checkpoints;
+	private long rangeStart = Long.MIN_VALUE;
+	private long rangeEnd = Long.MAX_VALUE;
+	private int splits = DEFAULT_SPLITS;
+	private long partitionsPerSplit;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private int pageSize = DEFAULT_PAGE_SIZE;
+	private double maxRowsPerSecond;
+
+	private AtomicInteger splitsCompleted = new AtomicInteger();
+	private LongAdder documentsRead = new LongAdder();
+	private AtomicLong nextReadNanos = new AtomicLong(System.nanoTime());
+	private AtomicBoolean isFailed = new AtomicBoolean(false);
+
+	/**
+	 * @param documents the repository of the table to scan.
+	 */
+	public TableScanner(AbstractDocumentRepository documents)
+	{
+		super();
+		this.documents = documents;
+	}
+
+	/**
+	 * The number of token ranges the table is scanned in. Changing it between runs restarts a checkpointed
+	 * scan. Defaults to 256.
+	 */
+	public TableScanner splits(int splits)
+	{
+		if (splits < 1 || splits > MAX_SPLITS) throw new IllegalArgumentException("splits must be from 1 to " + MAX_SPLITS + ": " + splits);
+
+		this.splits = splits;
+		return this;
+	}
+
+	/**
+	 * Scans only the documents whose partition token is after the start token, up to and including the end token,
+	 * such as to divide an export among several processes. Defaults to the whole token ring.
+	 */
+	public TableScanner range(long start, long end)
+	{
+		if (start >= end) throw new IllegalArgumentException("start must be before end: " + start + ", " + end);
+
+		this.rangeStart = start;
+		this.rangeEnd = end;
+		return this;
+	}
+
+	/**
+	 * Sizes the splits from the table's partition estimates when the scan starts, so each split holds about the
+	 * given number of partitions. The number of splits is used as is when there are no estimates yet. Zero or
+	 * less (the default) means the number of splits is used as is. With Checkpoints, the number of splits is
+	 * recorded, and a resumed scan uses it instead of sizing the splits again from the (since changed) estimates.
+	 */
+	public TableScanner partitionsPerSplit(long partitionsPerSplit)
+	{
+		this.partitionsPerSplit = partitionsPerSplit;
+		return this;
+	}
+
+	/**
+	 * The number of splits scanned at once. Defaults to 4.
+	 */
+	public TableScanner parallelism(int parallelism)
+	{
+		if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * The number of documents read from a split at a time. Defaults to 100.
+	 */
+	public TableScanner pageSize(int pageSize)
+	{
+		if (pageSize < 1) throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	/**
+	 * Limits the rate documents are read, across all splits, so a scan doesn't crowd out the application's own
+	 * requests. Zero or less (the default) means no limit.
+	 */
+	public TableScanner maxRowsPerSecond(double maxRowsPerSecond)
+	{
+		this.maxRowsPerSecond = maxRowsPerSecond;
+		return this;
+	}
+
+	/**
+	 * Where the progress of each split is recorded, so the scan can be resumed. Null (the default) means every
+	 * scan starts from the beginning.
+	 */
+	public TableScanner checkpoints(Checkpoints checkpoints)
+	{
+		this.checkpoints = checkpoints;
+		return this;
+	}
+
+	/**
+	 * @return the number of splits, as sized when the scan started.
+	 */
+	public int splits()
+	{
+		return splits;
+	}
+
+	/**
+	 * @return the number of splits completed, including those completed by a previous run.
+	 */
+	public int splitsCompleted()
+	{
+		return splitsCompleted.get();
+	}
+
+	/**
+	 * @return the fraction of splits completed, from 0.0 to 1.0.
+	 */
+	public double progress()
+	{
+		return splitsCompleted() / (double) splits;
+	}
+
+	/**
+	 * @return the number of documents read by this run.
+	 */
+	public long documentsRead()
+	{
+		return documentsRead.sum();
+	}
+
+	/**
+	 * Scan the table, resuming from the checkpoints of a previous run, if any. A scanner should only scan once.
+	 * 
+	 * @param consumer processes each page of documents.
+	 * @return the number of documents read by this run. Fails with the first failure of any split, after which
+	 * no more splits are started.
+	 */
+	public ListenableFuture<Long> scan(PageConsumer consumer)
+	{
+		return scan(new Pass<Document>()
+		{
+			@Override
+			ListenableFuture<Page<Document>> read(int split, String cursor)
+			{
+				return documents.readTokenRange(token(split), token(split + 1), pageSize, cursor);
+			}
+
+			@Override
+			ListenableFuture<Void> accept(int split, Page<Document> page)
+			{
+				return consumer.accept(split, page);
+			}
+		});
+	}
+
+	/**
+	 * Scan the table without decoding the documents' objects, such as to copy them elsewhere, resuming from the
+	 * checkpoints of a previous run, if any. A scanner should only scan once.
+	 * 
+	 * @param consumer processes each page of documents.
+	 * @return the number of documents read by this run. Fails with the first failure of any split, after which
+	 * no more splits are started.
+	 */
+	public ListenableFuture<Long> scanRaw(RawPageConsumer consumer)
+	{
+		return scan(new Pass<RawDocument>()
+		{
+			@Override
+			ListenableFuture<Page<RawDocument>> read(int split, String cursor)
+			{
+				return documents.readRawTokenRange(token(split), token(split + 1), pageSize, cursor);
+			}
+
+			@Override
+			ListenableFuture<Void> accept(int split, Page<RawDocument> page)
+			{
+				return consumer.accept(split, page);
+			}
+		});
+	}
+
+	/**
+	 * Scan the table, handing each document to the consumer. The consumer is called concurrently for the
+	 * documents of different splits, so it must be thread safe, and it shouldn't block.
+	 * 
+	 * @param consumer processes each document.
+	 * @return the number of documents read by this run.
+	 */
+	public ListenableFuture<Long> scanEach(Consumer<Document> consumer)
+	{
+		return scan(new PageConsumer()
+		{
+			@Override
+			public ListenableFuture<Void> accept(int split, Page<Document> page)
+			{
+				for (Document document : page)
+				{
+					consumer.accept(document);
+				}
+
+				return Futures.immediateFuture(null);
+			}
+		});
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("TableScanner{table: %s, splits: %d/%d, read: %d}", documents.tableName(), splitsCompleted(), splits, documentsRead());
+	}
+
+	/**
+	 * @return the token at the start (exclusive) of the given split of the whole token ring, or at the end
+	 * (inclusive) of the one before.
+	 */
+	static long token(int split, int splits)
+	{
+		return token(Long.MIN_VALUE, Long.MAX_VALUE, split, splits);
+	}
+
+	/**
+	 * @return the token at the start (exclusive) of the given split of the range, or at the end (inclusive) of
+	 * the one before.
+	 */
+	static long token(long start, long end, int split, int splits)
+	{
+		if (split >= splits) return end;
+
+		BigInteger first = BigInteger.valueOf(start);
+		BigInteger width = BigInteger.valueOf(end).subtract(first);
+		return first.add(width.multiply(BigInteger.valueOf(split)).divide(BigInteger.valueOf(splits))).longValueExact();
+	}
+
+	private long token(int split)
+	{
+		return token(rangeStart, rangeEnd, split, splits);
+	}
+
+	private <T> ListenableFuture<Long> scan(Pass<T> pass)
+	{
+		if (partitionsPerSplit <= 0L) return scanSplits(pass);
+
+		if (checkpoints == null) return sizeThenScan(pass);
+
+		return Futures.transformAsync(checkpoints.readSplits(), new AsyncFunction<Integer, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Integer recorded)
+			{
+				if (recorded == null) return sizeThenScan(pass);
+
+				splits = recorded;
+				LOG.debug("Resuming scan of {} in {} splits", documents.tableName(), splits);
+				return scanSplits(pass);
+			}
+		});
+	}
+
+	/**
+	 * Sizes the splits from the partition estimates, recording the number with the checkpoints, if any.
+	 */
+	private <T> ListenableFuture<Long> sizeThenScan(Pass<T> pass)
+	{
+		return Futures.transformAsync(documents.estimatePartitions(), new AsyncFunction<Long, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Long partitions)
+			{
+				if (partitions > 0L)
+				{
+					splits = (int) Math.max(1L, Math.min(MAX_SPLITS, (partitions + partitionsPerSplit - 1L) / partitionsPerSplit));
+					LOG.debug("Scanning {} in {} splits for an estimated {} partitions", documents.tableName(), splits, partitions);
+				}
+
+				if (checkpoints == null) return scanSplits(pass);
+
+				return Futures.transformAsync(checkpoints.writeSplits(splits), new AsyncFunction<Object, Long>()
+				{
+					@Override
+					public ListenableFuture<Long> apply(Object input)
+					{
+						return scanSplits(pass);
+					}
+				});
+			}
+		});
+	}
+
+	private <T> ListenableFuture<Long> scanSplits(Pass<T> pass)
+	{
+		Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+
+		for (int i = 0; i < splits; i++)
+		{
+			pending.add(i);
+		}
+
+		List<ListenableFuture<Void>> workers = new ArrayList<>(parallelism);
+
+		for (int i = 0; i < Math.min(parallelism, splits); i++)
+		{
+			workers.add(work(pending, pass));
+		}
+
+		return Futures.transform(Futures.allAsList(workers), new Function<List<Void>, Long>()
+		{
+			@Override
+			public Long apply(List<Void> input)
+			{
+				return documentsRead();
+			}
+		});
+	}
+
+	/**
+	 * Scans the pending splits, one at a time, until there are none left or any split fails.
+	 */
+	private <T> ListenableFuture<Void> work(Queue<Integer> pending, Pass<T> pass)
+	{
+		Integer split = (isFailed.get() ? null : pending.poll());
+
+		if (split == null) return Futures.immediateFuture(null);
+
+		ListenableFuture<Void> scanned = Futures.catchingAsync(scanSplit(split, pass), Throwable.class, new AsyncFunction<Throwable, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(Throwable t)
+			{
+				isFailed.set(true);
+				LOG.error("Scan of " + documents.tableName() + " failed on split " + split, t);
+				return Futures.immediateFailedFuture(t);
+			}
+		});
+
+		return Futures.transformAsync(scanned, new AsyncFunction<Void, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(Void input)
+			{
+				return work(pending, pass);
+			}
+		});
+	}
+
+	private <T> ListenableFuture<Void> scanSplit(int split, Pass<T> pass)
+	{
+		if (checkpoints == null) return scan(split, null, pass);
+
+		return Futures.transformAsync(checkpoints.read(split, splits), new AsyncFunction<String, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(String cursor)
+			{
+				if (DONE.equals(cursor))
+				{
+					completed(split);
+					return Futures.immediateFuture(null);
+				}
+
+				return scan(split, cursor, pass);
+			}
+		});
+	}
+
+	/**
+	 * Reads the split a page at a time from the cursor, consuming each page and checkpointing the cursor of the
+	 * next page before reading it.
+	 */
+	private <T> ListenableFuture<Void> scan(int split, String cursor, Pass<T> pass)
+	{
+		ListenableFuture<Page<T>> page = pass.read(split, cursor);
+
+		if (cursor != null)
+		{
+			page = restartOn(InvalidCursorException.class, split, page, pass);
+			page = restartOn(PagingStateException.class, split, page, pass);
+		}
+
+		return Futures.transformAsync(page, new AsyncFunction<Page<T>, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(Page<T> input)
+			{
+				documentsRead.add(input.size());
+				ListenableFuture<Void> consumed = Futures.transformAsync(throttle(input.size()), new AsyncFunction<Object, Void>()
+				{
+					@Override
+					public ListenableFuture<Void> apply(Object ignored)
+					{
+						return pass.accept(split, input);
+					}
+				});
+
+				return Futures.transformAsync(consumed, new AsyncFunction<Void, Void>()
+				{
+					@Override
+					public ListenableFuture<Void> apply(Void ignored)
+					{
+						return next(split, input, pass);
+					}
+				});
+			}
+		});
+	}
+
+	private <T> ListenableFuture<Void> next(int split, Page<T> page, Pass<T> pass)
+	{
+		if (checkpoints == null)
+		{
+			if (page.hasNext()) return scan(split, page.cursor(), pass);
+
+			completed(split);
+			return Futures.immediateFuture(null);
+		}
+
+		String cursor = (page.hasNext() ? page.cursor() : DONE);
+		return Futures.transformAsync(checkpoints.write(split, splits, cursor), new AsyncFunction<Object, Void>()
+		{
+			@Override
+			public ListenableFuture<Void> apply(Object ignored)
+			{
+				if (page.hasNext()) return scan(split, page.cursor(), pass);
+
+				completed(split);
+				return Futures.immediateFuture(null);
+			}
+		});
+	}
+
+	/**
+	 * A checkpointed cursor can't be used if the driver or Cassandra was upgraded since it was recorded. Then
+	 * the split is scanned again from the start.
+	 */
+	private <T, X extends Throwable> ListenableFuture<Page<T>> restartOn(Class<X> exceptionType, int split, ListenableFuture<Page<T>> page, Pass<T> pass)
+	{
+		return Futures.catchingAsync(page, exceptionType, new AsyncFunction<X, Page<T>>()
+		{
+			@Override
+			public ListenableFuture<Page<T>> apply(X t)
+			{
+				LOG.warn("Restarting split {} of {}: {}", split, documents.tableName(), t.getMessage());
+				return pass.read(split, null);
+			}
+		});
+	}
+
+	/**
+	 * @return a future that completes when the given number of rows may be read without exceeding the
+	 * maximum rate.
+	 */
+	private ListenableFuture<?> throttle(int rows)
+	{
+		if (maxRowsPerSecond <= 0.0 || rows == 0) return Futures.immediateFuture(null);
+
+		long cost = (long) (rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond);
+		long now = System.nanoTime();
+		long previous;
+		long start;
+
+		do
+		{
+			previous = nextReadNanos.get();
+			start = Math.max(previous, now);
+		}
+		while (!nextReadNanos.compareAndSet(previous, start + cost));
+
+		long delay = start - now;
+
+		if (delay <= 0L) return Futures.immediateFuture(null);
+
+		return THROTTLE.schedule(Callables.returning(null), delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Reads and consumes the pages of a scan.
+	 */
+	private abstract class Pass<T>
+	{
+		abstract ListenableFuture<Page<T>> read(int split, String cursor);
+
+		abstract ListenableFuture<Void> accept(int split, Page<T> page);
+	}
+
+	private void completed(int split)
+	{
+		int count = splitsCompleted.incrementAndGet();
+		LOG.debug("Scan of {} split {} complete ({}/{})", documents.tableName(), split, count, splits);
+	}
+}
@@ -0,0 +1,347 @@
+/*
+    Copyright 2016, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.BoundStatement;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.orangerhymelabs.helenus.cassandra.meta.KeyValuePair;
+import com.orangerhymelabs.helenus.cassandra.meta.MetadataRepository;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
+import com.orangerhymelabs.helenus.cassandra.view.View;
+import com.orangerhymelabs.helenus.exception.InvalidIdentifierException;
+import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.Page;
+
+/**
+ * Writes the view rows of the documents already in a view's table, such as after adding a view to a populated
+ * table. The table is read by a TableScanner, in splits of its token range, several splits at once. Each
+ * document's view row is written, along with its key, at the document's last update time, so documents written
+ * through DocumentService during the build always keep their newer view rows.
+ *
+ * Progress is checkpointed in the metadata table after every page, so a build that fails or is interrupted
+ * resumes where it left off when built again with the same number of splits. Writing a view row again is
+ * harmless, so a page is never skipped, but may be written twice. The checkpoints are removed once the build
+ * completes.
+ *
+ * Documents that don't have the view's key properties have no view row and are counted as skipped.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class ViewBuilder
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ViewBuilder.class);
+
+	public static final int DEFAULT_SPLITS = TableScanner.DEFAULT_SPLITS;
+	public static final int DEFAULT_PARALLELISM = TableScanner.DEFAULT_PARALLELISM;
+	public static final int DEFAULT_PAGE_SIZE = TableScanner.DEFAULT_PAGE_SIZE;
+
+	private View view;
+	private AbstractDocumentRepository documents;
+	private AbstractDocumentRepository viewDocuments;
+	private MetadataRepository checkpoints;
+	private TableScanner scanner;
+
+	private LongAdder rowsWritten = new LongAdder();
+	private LongAdder documentsSkipped = new LongAdder();
+
+	/**
+	 * @param view the view to build.
+	 * @param documents the repository of the view's table.
+	 * @param viewDocuments the view's repository.
+	 * @param checkpoints where progress is recorded.
+	 */
+	public ViewBuilder(View view, AbstractDocumentRepository documents, AbstractDocumentRepository viewDocuments, MetadataRepository checkpoints)
+	{
+		super();
+		this.view = view;
+		this.documents = documents;
+		this.viewDocuments = viewDocuments;
+		this.checkpoints = checkpoints;
+		this.scanner = new TableScanner(documents).checkpoints(new BuildCheckpoints());
+	}
+
+	/**
+	 * The number of token ranges the table is scanned in. Changing it between runs restarts the build.
+	 * Defaults to 256.
+	 */
+	public ViewBuilder splits(int splits)
+	{
+		scanner.splits(splits);
+		return this;
+	}
+
+	/**
+	 * The number of splits scanned at once. Defaults to 4.
+	 */
+	public ViewBuilder parallelism(int parallelism)
+	{
+		scanner.parallelism(parallelism);
+		return this;
+	}
+
+	/**
+	 * The number of documents read, and view rows written concurrently, per split at a time. Defaults to 100.
+	 */
+	public ViewBuilder pageSize(int pageSize)
+	{
+		scanner.pageSize(pageSize);
+		return this;
+	}
+
+	/**
+	 * Limits the rate documents are read and view rows written, across all splits, so a build doesn't crowd out
+	 * the application's own requests. Zero or less (the default) means no limit.
+	 */
+	public ViewBuilder maxRowsPerSecond(double maxRowsPerSecond)
+	{
+		scanner.maxRowsPerSecond(maxRowsPerSecond);
+		return this;
+	}
+
+	public View view()
+	{
+		return view;
+	}
+
+	public int splits()
+	{
+		return scanner.splits();
+	}
+
+	/**
+	 * @return the number of splits completed, including those completed by a previous run.
+	 */
+	public int splitsCompleted()
+	{
+		return scanner.splitsCompleted();
+	}
+
+	/**
+	 * @return the fraction of splits completed, from 0.0 to 1.0.
+	 */
+	public double progress()
+	{
+		return scanner.progress();
+	}
+
+	/**
+	 * @return the number of documents read by this run.
+	 */
+	public long documentsRead()
+	{
+		return scanner.documentsRead();
+	}
+
+	/**
+	 * @return the number of view rows written by this run.
+	 */
+	public long rowsWritten()
+	{
+		return rowsWritten.sum();
+	}
+
+	/**
+	 * @return the number of documents read by this run that don't have the view's key properties.
+	 */
+	public long documentsSkipped()
+	{
+		return documentsSkipped.sum();
+	}
+
+	/**
+	 * Scan the table and write the view rows, resuming from the checkpoints of a previous run, if any.
+	 * A builder should only be built once.
+	 *
+	 * @return the number of view rows written by this run. Fails with the first failure of any split, after
+	 * which the build can be resumed.
+	 */
+	public ListenableFuture<Long> build()
+	{
+		ListenableFuture<Long> scanned = scanner.scan(new TableScanner.PageConsumer()
+		{
+			@Override
+			public ListenableFuture<Void> accept(int split, Page<Document> page)
+			{
+				return writePage(page);
+			}
+		});
+
+		return Futures.transformAsync(scanned, new AsyncFunction<Long, Long>()
+		{
+			@Override
+			public ListenableFuture<Long> apply(Long input)
+			{
+				LOG.info("Built view {}: {} documents read, {} view rows written, {} skipped", view.identifier(), documentsRead(), rowsWritten(), documentsSkipped());
+				return Futures.transform(clearCheckpoints(), new Function<List<Boolean>, Long>()
+				{
+					@Override
+					public Long apply(List<Boolean> cleared)
+					{
+						return rowsWritten();
+					}
+				});
+			}
+		});
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format("ViewBuilder{view: %s, splits: %d/%d, read: %d, written: %d, skipped: %d}",
+			view.identifier(), splitsCompleted(), splits(), documentsRead(), rowsWritten(), documentsSkipped());
+	}
+
+	private ListenableFuture<Void> writePage(Page<Document> page)
+	{
+		List<ListenableFuture<Boolean>> writes = new ArrayList<>(page.size());
+
+		for (Document document : page)
+		{
+			Document viewDocument;
+			ByteBuffer key;
+
+			try
+			{
+				Identifier id = view.identifierFrom(document);
+				viewDocument = new Document(document.object());
+				viewDocument.identifier(id);
+				key = viewDocuments.encodeKey(id);
+			}
+			catch (KeyDefinitionException | InvalidIdentifierException e)
+			{
+				documentsSkipped.increment();
+				LOG.debug("Skipping document {} in view {}: {}", document.identifier(), view.identifier(), e.getMessage());
+				continue;
+			}
+
+			writes.add(Futures.transformAsync(viewDocuments.bindUpsert(viewDocument, view.ttl()), new AsyncFunction<BoundStatement, Boolean>()
+			{
+				@Override
+				public ListenableFuture<Boolean> apply(BoundStatement input)
+				{
+					return documents.putViewRow(document, view.name(), key, input);
+				}
+			}));
+		}
+
+		return Futures.transform(Futures.allAsList(writes), new Function<List<Boolean>, Void>()
+		{
+			@Override
+			public Void apply(List<Boolean> input)
+			{
+				rowsWritten.add(input.size());
+				return null;
+			}
+		});
+	}
+
+	private ListenableFuture<List<Boolean>> clearCheckpoints()
+	{
+		int splits = splits();
+		List<ListenableFuture<Boolean>> deletes = new ArrayList<>(splits);
+
+		for (int i = 0; i < splits; i++)
+		{
+			deletes.add(checkpoints.delete(new Identifier(checkpointKey(i, splits))));
+		}
+
+		deletes.add(checkpoints.delete(new Identifier(splitsKey())));
+
+		return Futures.allAsList(deletes);
+	}
+
+	private String checkpointKey(int split, int splits)
+	{
+		return String.format("view_build:%s.%s.%s:%d/%d", view.databaseName(), view.tableName(), view.name(), split, splits);
+	}
+
+	private String splitsKey()
+	{
+		return String.format("view_build:%s.%s.%s:splits", view.databaseName(), view.tableName(), view.name());
+	}
+
+	/**
+	 * Records the cursor of each split in the metadata table.
+	 */
+	private class BuildCheckpoints
+	implements TableScanner.Checkpoints
+	{
+		@Override
+		public ListenableFuture<String> read(int split, int splits)
+		{
+			return readValue(checkpointKey(split, splits));
+		}
+
+		private ListenableFuture<String> readValue(String key)
+		{
+			ListenableFuture<KeyValuePair> checkpoint = Futures.catching(checkpoints.read(new Identifier(key)), ItemNotFoundException.class, new Function<ItemNotFoundException, KeyValuePair>()
+			{
+				@Override
+				public KeyValuePair apply(ItemNotFoundException e)
+				{
+					return null;
+				}
+			});
+
+			return Futures.transform(checkpoint, new Function<KeyValuePair, String>()
+			{
+				@Override
+				public String apply(KeyValuePair input)
+				{
+					return (input != null ? input.value() : null);
+				}
+			});
+		}
+
+		@Override
+		public ListenableFuture<?> write(int split, int splits, String cursor)
+		{
+			return checkpoints.upsert(new KeyValuePair(checkpointKey(split, splits), cursor));
+		}
+
+		@Override
+		public ListenableFuture<Integer> readSplits()
+		{
+			return Futures.transform(readValue(splitsKey()), new Function<String, Integer>()
+			{
+				@Override
+				public Integer apply(String input)
+				{
+					return (input != null ? Integer.valueOf(input) : null);
+				}
+			});
+		}
+
+		@Override
+		public ListenableFuture<?> writeSplits(int splits)
+		{
+			return checkpoints.upsert(new KeyValuePair(splitsKey(), String.valueOf(splits)));
+		}
+	}
+}
@@ -31,6 +31,6 @@ extends AbstractDocumentRepository
 	public ViewDocumentRepository(Session session, String keyspace, View view)
 	throws KeyDefinitionException
 	{
-		super(session, keyspace, view.toDbTable(), view.keys());
+		super(session, keyspace, view.toDbTable(), view.keyDefinition());
 	}
 }
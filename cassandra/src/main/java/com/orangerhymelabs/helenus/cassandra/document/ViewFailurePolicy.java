@@ -0,0 +1,34 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+/**
+ * What DocumentService does when a view document can't be written after its table's document was.
+ * In every case, the table's document stays written.
+ * 
+ * FAIL (default) - the operation fails with a StorageException caused by the view failure.
+ * RETRY - the view write is retried a limited number of times, then the operation fails as for FAIL.
+ * REPAIR - the failure is handed to the ViewRepairListener for later repair, and the operation succeeds.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public enum ViewFailurePolicy
+{
+	FAIL,
+	RETRY,
+	REPAIR
+}
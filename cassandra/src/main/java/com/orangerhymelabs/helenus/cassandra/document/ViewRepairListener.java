@@ -0,0 +1,37 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.document;
+
+import com.orangerhymelabs.helenus.cassandra.view.View;
+
+/**
+ * Receives the view documents that couldn't be written under ViewFailurePolicy.REPAIR, so they can be
+ * written again later (e.g. queued for a repair job).
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public interface ViewRepairListener
+{
+	/**
+	 * Called on the thread that completed the failed write, so it should not block.
+	 * 
+	 * @param view the view that wasn't written.
+	 * @param document the view document, identified by its view key.
+	 * @param cause the write failure.
+	 */
+	void onViewFailure(View view, Document document, Throwable cause);
+}
@@ -16,9 +16,9 @@
 package com.orangerhymelabs.helenus.cassandra.document.historical;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 
@@ -32,6 +32,7 @@ import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.CodecNotFoundException;
 import com.datastax.driver.core.exceptions.InvalidTypeException;
 import com.google.common.base.Function;
@@ -45,10 +46,10 @@ import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyComponent;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinition;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
-import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
 import com.orangerhymelabs.helenus.exception.InvalidIdentifierException;
 import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.PreparedStatementCache;
 import com.orangerhymelabs.helenus.persistence.StatementFactory;
 
 /**
@@ -122,161 +123,94 @@ extends AbstractCassandraRepository<HistoricalDocument, HistoricalDocumentStatem
 	public static class HistoricalDocumentStatements
 	implements StatementFactory
 	{
-		private static final String DELETE = "delete";
-		private static final String EXISTS = "exists";
-		private static final String READ = "read";
-		private static final String READ_HISTORY = "readHistory";
-		private static final String UPSERT = "upsert";
-
-		private KeyDefinition keys;
-		private Session session;
-		private String keyspace;
-		private String tableName;
-		private Map<String, PreparedStatement> statements = new ConcurrentHashMap<>();
+		private PreparedStatementCache cache;
+		private String delete;
+		private String exists;
+		private String read;
+		private String readHistory;
+		private String upsert;
 
 		public HistoricalDocumentStatements(Session session, String keyspace, String tableName, KeyDefinition keys)
 		throws KeyDefinitionException
 		{
 			super();
-			this.session = session;
-			this.keyspace = keyspace;
-			this.tableName = tableName;
-			this.keys = keys;
+			this.cache = PreparedStatementCache.forSession(session);
+			this.delete = String.format("update %s.%s where %s",
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.exists = String.format("select %s from %s.%s where %s limit 1",
+				keys.asSelectProperties(),
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.upsert = String.format("insert into %s.%s (%s, %s, %s, %s) values (%s)",
+				keyspace,
+				tableName,
+				keys.asSelectProperties(),
+				Columns.OBJECT,
+				Columns.CREATED_AT,
+				Columns.UPDATED_AT,
+				keys.asQuestionMarks(3));
+			this.read = String.format("select * from %s.%s where %s limit 1",
+				keyspace,
+				tableName,
+				keys.asIdentityClause());
+			this.readHistory = String.format("select * from %s.%s where %s",
+				keyspace,
+				tableName,
+				keys.asPartitionIdentityClause());
 		}
 
 		@Override
-		public PreparedStatement delete()
+		public ListenableFuture<PreparedStatement> delete()
 		{
-			PreparedStatement ps = statements.get(DELETE);
-
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("update %s.%s where %s",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(DELETE, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing delete() statement", e);
-				}
-			}
-
-			return ps;
+			return cache.prepare(delete);
 		}
 
-		public PreparedStatement exists()
+		@Override
+		public ListenableFuture<PreparedStatement> exists()
 		{
-			PreparedStatement ps = statements.get(EXISTS);
-
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select count(*) from %s.%s where %s limit 1",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(EXISTS, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing exists() statement", e);
-				}
-			}
-
-			return ps;
+			return cache.prepare(exists);
 		}
 
-		public PreparedStatement upsert()
+		public ListenableFuture<PreparedStatement> upsert()
 		{
-			PreparedStatement ps = statements.get(UPSERT);
-
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("insert into %s.%s (%s, %s, %s, %s) values (%s)",
-						keyspace,
-						tableName,
-						keys.asSelectProperties(),
-						Columns.OBJECT,
-						Columns.CREATED_AT,
-						Columns.UPDATED_AT,
-						keys.asQuestionMarks(3))).get();
-					statements.put(UPSERT, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing upsert() statement", e);
-				}
-			}
-
-			return ps;
+			return cache.prepare(upsert);
 		}
 
 		@Override
-		public PreparedStatement read()
+		public ListenableFuture<PreparedStatement> read()
 		{
-			PreparedStatement ps = statements.get(READ);
-
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select * from %s.%s where %s limit 1",
-						keyspace,
-						tableName,
-						keys.asIdentityClause())).get();
-					statements.put(READ, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing read() statement", e);
-				}
-			}
-
-			return ps;
+			return cache.prepare(read);
 		}
 
 		@Override
-		public PreparedStatement readAll()
+		public ListenableFuture<PreparedStatement> readAll()
 		{
-			PreparedStatement ps = statements.get(READ_HISTORY);
-
-			if (ps == null)
-			{
-				try
-				{
-					ps = session.prepareAsync(String.format("select * from %s.%s where %s",
-						keyspace,
-						tableName,
-						keys.asPartitionIdentityClause())).get();
-					statements.put(READ_HISTORY, ps);
-				}
-				catch (InterruptedException | ExecutionException e)
-				{
-					LOG.error("Error preparing readHistory() statement", e);
-				}
-			}
-
-			return ps;
+			return cache.prepare(readHistory);
 		}
 
 		@Override
-		public PreparedStatement create()
+		public ListenableFuture<PreparedStatement> create()
 		{
 			throw new UnsupportedOperationException("Historical documents don't support create(). Use upsert().");
 		}
 
 		@Override
-		public PreparedStatement update()
+		public ListenableFuture<PreparedStatement> update()
 		{
 			throw new UnsupportedOperationException("Historical documents don't support update(). Use upsert().");
 		}
+
+		/**
+		 * Note that delete() is not prepared, as its statement is not yet valid CQL.
+		 */
+		@Override
+		public List<ListenableFuture<PreparedStatement>> prepareAll()
+		{
+			return Arrays.asList(exists(), upsert(), read(), readAll());
+		}
 	}
 
 	private Table table;
@@ -287,7 +221,7 @@ extends AbstractCassandraRepository<HistoricalDocument, HistoricalDocumentStatem
 	{
 		super(session, keyspace);
 		this.table = table;
-		this.keys = new KeyDefinitionParser().parse(table.keys());
+		this.keys = table.keyDefinition();
 		statementFactory(new HistoricalDocumentStatements(session, keyspace, tableName(), keys));
 
 	}
@@ -305,7 +239,7 @@ extends AbstractCassandraRepository<HistoricalDocument, HistoricalDocumentStatem
 			@Override
 			public Boolean apply(ResultSet result)
 			{
-				return result.one().getLong(0) > 0;
+				return !result.isExhausted();
 			}
 		});
 	}
@@ -331,25 +265,46 @@ extends AbstractCassandraRepository<HistoricalDocument, HistoricalDocumentStatem
 	}
 
 	@Override
-	protected ResultSetFuture submitDelete(Identifier id)
+	protected ListenableFuture<ResultSet> submitDelete(Identifier id)
 	{
-		BoundStatement delete = new BoundStatement(statementFactory().delete());
-		bindIdentity(delete, id);
-		return session().executeAsync(delete);
+		return executeWrite(statementFactory().delete(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement delete = new BoundStatement(ps);
+				bindIdentity(delete, id);
+				return delete;
+			}
+		});
 	}
 
 	protected ListenableFuture<ResultSet> submitExists(Identifier id)
 	{
-		BoundStatement bs = new BoundStatement(statementFactory().exists());
-		bindIdentity(bs, id);
-		return session().executeAsync(bs);
+		return executeRead(statementFactory().exists(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindIdentity(bs, id);
+				return bs;
+			}
+		});
 	}
 
-	protected ResultSetFuture submitUpsert(HistoricalDocument document)
+	protected ListenableFuture<ResultSet> submitUpsert(HistoricalDocument document)
 	{
-		BoundStatement upsert = new BoundStatement(statementFactory().upsert());
-		bindUpsert(upsert, document);
-		return session().executeAsync(upsert);
+		return executeWrite(statementFactory().upsert(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement upsert = new BoundStatement(ps);
+				bindUpsert(upsert, document);
+				return upsert;
+			}
+		});
 	}
 
 	protected void bindUpsert(BoundStatement bs, HistoricalDocument document)
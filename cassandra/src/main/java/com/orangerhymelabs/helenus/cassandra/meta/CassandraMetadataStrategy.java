@@ -21,8 +21,8 @@ implements MetadataStrategy
 
 	public boolean exists(Session session)
 	{
-		ResultSet rs = session.execute(String.format("select count(*) from system_schema.tables where keyspace_name='%s' and table_name='%s'", session.getLoggedKeyspace(), config.getMetadataTable()));
-		return (rs.one().getLong(0) > 0);
+		ResultSet rs = session.execute(String.format("select table_name from system_schema.tables where keyspace_name='%s' and table_name='%s'", session.getLoggedKeyspace(), config.getMetadataTable()));
+		return !rs.isExhausted();
 	}
 
 	public int getCurrentVersion(Session session)
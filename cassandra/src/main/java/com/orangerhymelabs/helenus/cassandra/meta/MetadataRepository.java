@@ -20,6 +20,10 @@ import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.cassandra.AbstractCassandraRepository;
 import com.orangerhymelabs.helenus.cassandra.SchemaProvider;
 import com.orangerhymelabs.helenus.cassandra.meta.MetadataRepository.MetaStatements;
@@ -77,23 +81,30 @@ extends AbstractCassandraRepository<KeyValuePair, MetaStatements>
 	{
 		@Override
 		@Query("insert into %s." + Tables.BY_ID + " (" + Columns.ID + ", " + Columns.VALUE + ") values (?, ?) if not exists")
-		PreparedStatement create();
+		ListenableFuture<PreparedStatement> create();
+
+		@Query("insert into %s." + Tables.BY_ID + " (" + Columns.ID + ", " + Columns.VALUE + ") values (?, ?)")
+		ListenableFuture<PreparedStatement> upsert();
 
 		@Override
 		@Query("delete from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement delete();
+		ListenableFuture<PreparedStatement> delete();
 
 		@Override
 		@Query("update %s." + Tables.BY_ID + " set " + Columns.VALUE + " = ?" + IDENTITY_CQL + " if exists")
-		PreparedStatement update();
+		ListenableFuture<PreparedStatement> update();
+
+		@Override
+		@Query("select " + Columns.ID + " from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
+		ListenableFuture<PreparedStatement> exists();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement read();
+		ListenableFuture<PreparedStatement> read();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID)
-		PreparedStatement readAll();
+		ListenableFuture<PreparedStatement> readAll();
 	}
 
 	public MetadataRepository(Session session, String keyspace)
@@ -101,6 +112,32 @@ extends AbstractCassandraRepository<KeyValuePair, MetaStatements>
 		super(session, keyspace, MetaStatements.class);
 	}
 
+	/**
+	 * Writes the pair whether or not the key already exists, without a lightweight transaction.
+	 */
+	public ListenableFuture<KeyValuePair> upsert(KeyValuePair entity)
+	{
+		ListenableFuture<ResultSet> future = executeWrite(statementFactory().upsert(), new Function<PreparedStatement, Statement>()
+		{
+			@Override
+			public Statement apply(PreparedStatement ps)
+			{
+				BoundStatement bs = new BoundStatement(ps);
+				bindCreate(bs, entity);
+				return bs;
+			}
+		});
+
+		return Futures.transform(future, new Function<ResultSet, KeyValuePair>()
+		{
+			@Override
+			public KeyValuePair apply(ResultSet input)
+			{
+				return entity;
+			}
+		});
+	}
+
 	@Override
 	protected void bindCreate(BoundStatement bs, KeyValuePair entity)
 	{
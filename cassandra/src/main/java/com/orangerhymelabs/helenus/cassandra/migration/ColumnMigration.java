@@ -0,0 +1,121 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.migration;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.InvalidQueryException;
+
+/**
+ * Adds columns to an existing table that were added to its schema after it was created, since 'create table
+ * if not exists' leaves an existing table as it is. Safe to run at every startup: columns that already exist
+ * are skipped, and a column added concurrently by another node is treated as added.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public final class ColumnMigration
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ColumnMigration.class);
+
+	private static final String SELECT_COLUMNS = "select column_name from system_schema.columns where keyspace_name = ? and table_name = ?";
+	private static final String SELECT_TABLES_WITH = "select table_name from system_schema.columns where keyspace_name = ? and column_name = ? allow filtering";
+	private static final String ADD_COLUMN = "alter table %s.%s add %s %s";
+
+	private ColumnMigration()
+	{
+		// prevents instantiation.
+	}
+
+	/**
+	 * Reads, in one query, which of the keyspace's tables have the column, so a migration of many tables only
+	 * alters those that need it.
+	 *
+	 * @return the names of the tables that have the column.
+	 */
+	public static Set<String> tablesWith(Session session, String keyspace, String column)
+	{
+		Set<String> tables = new HashSet<String>();
+
+		for (Row row : session.execute(SELECT_TABLES_WITH, keyspace, column))
+		{
+			tables.add(row.getString(0));
+		}
+
+		return tables;
+	}
+
+	/**
+	 * Adds any of the given columns the table doesn't have. Waits on the schema changes, so don't call it on a
+	 * driver I/O thread.
+	 *
+	 * @param columns column names to their CQL types.
+	 * @return true if the table has all the columns afterward.
+	 */
+	public static boolean addMissing(Session session, String keyspace, String table, Map<String, String> columns)
+	{
+		Set<String> existing = new HashSet<String>();
+
+		try
+		{
+			ResultSet rs = session.execute(SELECT_COLUMNS, keyspace, table);
+
+			for (Row row : rs)
+			{
+				existing.add(row.getString(0));
+			}
+		}
+		catch (RuntimeException e)
+		{
+			LOG.error("Unable to read columns for: " + keyspace + "." + table, e);
+			return false;
+		}
+
+		boolean complete = true;
+
+		for (Entry<String, String> column : columns.entrySet())
+		{
+			if (existing.contains(column.getKey())) continue;
+
+			try
+			{
+				session.execute(String.format(ADD_COLUMN, keyspace, table, column.getKey(), column.getValue()));
+				LOG.info("Added column " + column.getKey() + " to " + keyspace + "." + table);
+			}
+			catch (InvalidQueryException e)
+			{
+				// Added by another node since the columns were read.
+				LOG.debug("Column " + column.getKey() + " not added to " + keyspace + "." + table, e);
+			}
+			catch (RuntimeException e)
+			{
+				LOG.error("Unable to add column " + column.getKey() + " to " + keyspace + "." + table, e);
+				complete = false;
+			}
+		}
+
+		return complete;
+	}
+}
@@ -15,9 +15,13 @@
  */
 package com.orangerhymelabs.helenus.cassandra.table;
 
+import com.datastax.driver.core.ConsistencyLevel;
 import com.orangerhymelabs.helenus.cassandra.Constants;
 import com.orangerhymelabs.helenus.cassandra.database.Database;
 import com.orangerhymelabs.helenus.cassandra.database.DatabaseReference;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinition;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
 import com.orangerhymelabs.helenus.persistence.AbstractEntity;
 import com.orangerhymelabs.helenus.persistence.Identifier;
 import com.strategicgains.syntaxe.annotation.ChildValidation;
@@ -32,6 +36,7 @@ public class Table
 extends AbstractEntity
 {
 	private static final String DEFAULT_KEYS = "id:uuid";
+	private static final KeyDefinitionParser KEY_PARSER = new KeyDefinitionParser();
 
 	@Required("Database")
 	@ChildValidation
@@ -50,6 +55,16 @@ extends AbstractEntity
 	// How long should the table's data live? (0 implies forever)
 	private long ttl;
 
+	// Optional per-table overrides of the configured consistency levels (null implies the default).
+	private ConsistencyLevel readConsistency;
+	private ConsistencyLevel writeConsistency;
+
+	// Whether document writes use lightweight transactions (if not exists/if exists).
+	private WriteMode writeMode = WriteMode.CONDITIONAL;
+
+	// Parsed from keys when first needed.
+	private transient KeyDefinition keyDefinition;
+
 	public Table()
 	{
 		super();
@@ -128,6 +143,25 @@ extends AbstractEntity
 	public void keys(String keys)
 	{
 		this.keys = keys;
+		this.keyDefinition = null;
+	}
+
+	/**
+	 * @return the parsed keys, which are cached until the keys change.
+	 * @throws KeyDefinitionException if the keys are invalid.
+	 */
+	public KeyDefinition keyDefinition()
+	throws KeyDefinitionException
+	{
+		KeyDefinition definition = keyDefinition;
+
+		if (definition == null)
+		{
+			definition = KEY_PARSER.parse(keys);
+			keyDefinition = definition;
+		}
+
+		return definition;
 	}
 
 	public long ttl()
@@ -140,6 +174,46 @@ extends AbstractEntity
 		this.ttl = ttl;
 	}
 
+	public boolean hasReadConsistency()
+	{
+		return (readConsistency != null);
+	}
+
+	public ConsistencyLevel readConsistency()
+	{
+		return readConsistency;
+	}
+
+	public void readConsistency(ConsistencyLevel readConsistency)
+	{
+		this.readConsistency = readConsistency;
+	}
+
+	public boolean hasWriteConsistency()
+	{
+		return (writeConsistency != null);
+	}
+
+	public ConsistencyLevel writeConsistency()
+	{
+		return writeConsistency;
+	}
+
+	public void writeConsistency(ConsistencyLevel writeConsistency)
+	{
+		this.writeConsistency = writeConsistency;
+	}
+
+	public WriteMode writeMode()
+	{
+		return writeMode;
+	}
+
+	public void writeMode(WriteMode writeMode)
+	{
+		this.writeMode = (writeMode != null ? writeMode : WriteMode.CONDITIONAL);
+	}
+
 	@Override
     public Identifier identifier()
     {
@@ -166,6 +240,8 @@ extends AbstractEntity
 			sb.append(keys());
 			sb.append(", TTL=");
 			sb.append(ttl());
+			sb.append(", WriteMode=");
+			sb.append(writeMode());
 			sb.append(")");
 		}
 		return sb.toString();
@@ -15,13 +15,18 @@
  */
 package com.orangerhymelabs.helenus.cassandra.table;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
@@ -29,11 +34,12 @@ import com.datastax.driver.core.Session;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.cassandra.AbstractCassandraRepository;
+import com.orangerhymelabs.helenus.cassandra.CassandraConfig;
 import com.orangerhymelabs.helenus.cassandra.SchemaProvider;
 import com.orangerhymelabs.helenus.cassandra.document.DocumentRepository;
+import com.orangerhymelabs.helenus.cassandra.migration.ColumnMigration;
 import com.orangerhymelabs.helenus.cassandra.table.TableRepository.TableStatements;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
-import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
 import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
 import com.orangerhymelabs.helenus.persistence.Query;
@@ -47,7 +53,6 @@ public class TableRepository
 extends AbstractCassandraRepository<Table, TableStatements>
 {
 	private static final Logger LOG = LoggerFactory.getLogger(TableRepository.class);
-	private static final KeyDefinitionParser KEY_PARSER = new KeyDefinitionParser();
 
 	private class Tables
 	{
@@ -62,6 +67,9 @@ extends AbstractCassandraRepository<Table, TableStatements>
 		static final String TYPE = "tbl_type";
 		static final String KEYS = "keys";
 		static final String TTL = "tbl_ttl";
+		static final String READ_CONSISTENCY = "read_cl";
+		static final String WRITE_CONSISTENCY = "write_cl";
+		static final String WRITE_MODE = "write_mode";
 		static final String VIEWS = "views";
 		static final String CREATED_AT = "created_at";
 		static final String UPDATED_AT = "updated_at";
@@ -71,7 +79,7 @@ extends AbstractCassandraRepository<Table, TableStatements>
 	implements SchemaProvider
 	{
 		private static final String DROP_TABLE = "drop table if exists %s." + Tables.BY_ID;
-		private static final String CREATE_TABLE = "create table %s." + Tables.BY_ID +
+		private static final String CREATE_TABLE = "create table if not exists %s." + Tables.BY_ID +
 			"(" +
 				Columns.DATABASE + " text," +
 				Columns.NAME + " text," +
@@ -79,12 +87,27 @@ extends AbstractCassandraRepository<Table, TableStatements>
 				Columns.TYPE + " text," +
 				Columns.KEYS + " text," +
 				Columns.TTL + " bigint," +
+				Columns.READ_CONSISTENCY + " text," +
+				Columns.WRITE_CONSISTENCY + " text," +
+				Columns.WRITE_MODE + " text," +
 				Columns.VIEWS + " list<text>," +
 				Columns.CREATED_AT + " timestamp," +
 				Columns.UPDATED_AT + " timestamp," +
 				"primary key ((" + Columns.DATABASE + "), " + Columns.NAME + ")" +
 			")";
 
+		private static final String SELECT_IDENTIFIERS = "select " + Columns.DATABASE + ", " + Columns.NAME + " from %s." + Tables.BY_ID;
+
+		// Columns added since the table was first released, for sys_tbl tables created before them.
+		private static final Map<String, String> ADDED_COLUMNS = new LinkedHashMap<String, String>();
+
+		static
+		{
+			ADDED_COLUMNS.put(Columns.READ_CONSISTENCY, "text");
+			ADDED_COLUMNS.put(Columns.WRITE_CONSISTENCY, "text");
+			ADDED_COLUMNS.put(Columns.WRITE_MODE, "text");
+		}
+
 		@Override
 	    public boolean drop(Session session, String keyspace)
 	    {
@@ -107,7 +130,11 @@ extends AbstractCassandraRepository<Table, TableStatements>
 			ResultSetFuture rs = session.executeAsync(String.format(CREATE_TABLE, keyspace));
 		    try
 		    {
-				return rs.get().wasApplied();
+				if (!rs.get().wasApplied() || !ColumnMigration.addMissing(session, keyspace, Tables.BY_ID, ADDED_COLUMNS)) return false;
+
+				// An outdated document table is logged, but doesn't keep the rest of the schema from being used.
+				migrateDocumentSchemas(session, keyspace);
+				return true;
 			}
 		    catch (InterruptedException | ExecutionException e)
 		    {
@@ -116,6 +143,32 @@ extends AbstractCassandraRepository<Table, TableStatements>
 
 		    return false;
 	    }
+
+		/**
+		 * Brings the document table of every existing table up to the current document schema. Only the tables
+		 * missing a column are altered, so it costs a few queries when there's nothing to do.
+		 */
+		private void migrateDocumentSchemas(Session session, String keyspace)
+		{
+			try
+			{
+				List<String> tables = new ArrayList<String>();
+
+				for (Row row : session.execute(String.format(SELECT_IDENTIFIERS, keyspace)))
+				{
+					tables.add(new Identifier(row.getString(Columns.DATABASE), row.getString(Columns.NAME)).toDbName());
+				}
+
+				if (!DOCUMENT_SCHEMA.migrateAll(session, keyspace, tables))
+				{
+					LOG.error("Some document tables could not be migrated in keyspace: " + keyspace);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				LOG.error("Document schema migration failed", e);
+			}
+		}
 	}
 
 	private static final String IDENTITY_CQL = " where " + Columns.DATABASE + " = ? and " + Columns.NAME + " = ?";
@@ -131,30 +184,33 @@ extends AbstractCassandraRepository<Table, TableStatements>
 		+ Columns.TYPE + ", "
 		+ Columns.KEYS + ", "
 		+ Columns.TTL + ", "
+		+ Columns.READ_CONSISTENCY + ", "
+		+ Columns.WRITE_CONSISTENCY + ", "
+		+ Columns.WRITE_MODE + ", "
 		+ Columns.CREATED_AT + ", "
 		+ Columns.UPDATED_AT
-		+") values (?, ?, ?, ?, ?, ?, ?, ?) if not exists")
-		PreparedStatement create();
+		+") values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) if not exists")
+		ListenableFuture<PreparedStatement> create();
 
 		@Override
 		@Query("delete from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement delete();
+		ListenableFuture<PreparedStatement> delete();
 
 		@Override
-		@Query("update %s." + Tables.BY_ID + " set " + Columns.DESCRIPTION + " = ?, " + Columns.TTL + " = ?, " + Columns.UPDATED_AT + " = ?" + IDENTITY_CQL + " if exists")
-		PreparedStatement update();
+		@Query("update %s." + Tables.BY_ID + " set " + Columns.DESCRIPTION + " = ?, " + Columns.TTL + " = ?, " + Columns.READ_CONSISTENCY + " = ?, " + Columns.WRITE_CONSISTENCY + " = ?, " + Columns.WRITE_MODE + " = ?, " + Columns.UPDATED_AT + " = ?" + IDENTITY_CQL + " if exists")
+		ListenableFuture<PreparedStatement> update();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement read();
+		ListenableFuture<PreparedStatement> read();
 
 		@Override
-		@Query("select count(*) from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
-		PreparedStatement exists();
+		@Query("select " + Columns.DATABASE + ", " + Columns.NAME + " from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
+		ListenableFuture<PreparedStatement> exists();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + " where " + Columns.DATABASE + " = ?")
-		PreparedStatement readAll();
+		ListenableFuture<PreparedStatement> readAll();
 	}
 
 	private static final  DocumentRepository.Schema DOCUMENT_SCHEMA = new DocumentRepository.Schema();
@@ -164,6 +220,16 @@ extends AbstractCassandraRepository<Table, TableStatements>
 		super(session, keyspace, TableStatements.class);
 	}
 
+	/**
+	 * Creates a repository on the given session using the keyspace and shared request limiter from the
+	 * configuration, so metadata reads and writes queue behind the same limit as document operations.
+	 */
+	public TableRepository(Session session, CassandraConfig config)
+	{
+		this(session, config.getKeyspace());
+		limiter(config.getRequestLimiter());
+	}
+
 	@Override
 	public ListenableFuture<Table> create(Table table)
 	{
@@ -204,6 +270,9 @@ extends AbstractCassandraRepository<Table, TableStatements>
 			table.type().name(),
 			table.keys(),
 			table.ttl(),
+			(table.hasReadConsistency() ? table.readConsistency().name() : null),
+			(table.hasWriteConsistency() ? table.writeConsistency().name() : null),
+			table.writeMode().name(),
 		    table.createdAt(),
 		    table.updatedAt());
 	}
@@ -214,6 +283,9 @@ extends AbstractCassandraRepository<Table, TableStatements>
 		table.updatedAt(new Date());
 		bs.bind(table.description(),
 			table.ttl(),
+			(table.hasReadConsistency() ? table.readConsistency().name() : null),
+			(table.hasWriteConsistency() ? table.writeConsistency().name() : null),
+			table.writeMode().name(),
 			table.updatedAt(),
 			table.database().name(),
 			table.name());
@@ -230,16 +302,24 @@ extends AbstractCassandraRepository<Table, TableStatements>
 		table.ttl(row.getLong(Columns.TTL));
 		table.type(TableType.from(row.getString(Columns.TYPE)));
 		table.keys(row.getString(Columns.KEYS));
+		table.readConsistency(toConsistencyLevel(row.getString(Columns.READ_CONSISTENCY)));
+		table.writeConsistency(toConsistencyLevel(row.getString(Columns.WRITE_CONSISTENCY)));
+		table.writeMode(WriteMode.from(row.getString(Columns.WRITE_MODE)));
 		table.createdAt(row.getTimestamp(Columns.CREATED_AT));
 		table.updatedAt(row.getTimestamp(Columns.UPDATED_AT));
 		return table;
 	}
 
+	private ConsistencyLevel toConsistencyLevel(String name)
+	{
+		return (name != null ? ConsistencyLevel.valueOf(name) : null);
+	}
+
 	private boolean createDocumentSchema(Table table)
     {
 		try
 		{
-			return DOCUMENT_SCHEMA.create(session(), keyspace(), table.toDbTable(), KEY_PARSER.parse(table.keys()));
+			return DOCUMENT_SCHEMA.create(session(), keyspace(), table.toDbTable(), table.keyDefinition());
 		}
 		catch (KeyDefinitionException e)
 		{
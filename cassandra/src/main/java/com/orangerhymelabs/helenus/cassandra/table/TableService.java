@@ -15,15 +15,27 @@
  */
 package com.orangerhymelabs.helenus.cassandra.table;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.orangerhymelabs.helenus.cassandra.MetadataChangeListener;
+import com.orangerhymelabs.helenus.cassandra.SchemaChanges;
+import com.orangerhymelabs.helenus.cassandra.database.Database;
 import com.orangerhymelabs.helenus.cassandra.database.DatabaseService;
 import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.persistence.FutureCache;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
 import com.strategicgains.syntaxe.ValidationEngine;
 import com.strategicgains.syntaxe.ValidationException;
 
@@ -35,12 +47,32 @@ public class TableService
 {
 	private TableRepository tables;
 	private DatabaseService databases;
+	private FutureCache<Identifier, Table> cache;
+	private FutureCache<Identifier, Boolean> existence;
+	private List<MetadataChangeListener> listeners = new CopyOnWriteArrayList<>();
 
 	public TableService(DatabaseService databaseService, TableRepository tableRepository)
+	{
+		this(databaseService, tableRepository, FutureCache.DEFAULT_MAXIMUM_SIZE, FutureCache.DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Reads and existence checks are cached, with the given bounds. Creates, updates and deletes through
+	 * this service invalidate the table's entries.
+	 * 
+	 * @param databaseService
+	 * @param tableRepository
+	 * @param cacheSize the maximum number of tables cached.
+	 * @param ttl how long a table is cached.
+	 * @param unit the unit of the ttl.
+	 */
+	public TableService(DatabaseService databaseService, TableRepository tableRepository, long cacheSize, long ttl, TimeUnit unit)
 	{
 		super();
 		this.databases = databaseService;
 		this.tables = tableRepository;
+		this.cache = new FutureCache<>(cacheSize, ttl, unit);
+		this.existence = new FutureCache<>(cacheSize, ttl, unit);
 	}
 
 	public void exists(String database, String table, FutureCallback<Boolean> callback)
@@ -50,7 +82,15 @@ public class TableService
 
 	public ListenableFuture<Boolean> exists(String database, String table)
 	{
-		return tables.exists(new Identifier(database, table));
+		Identifier id = new ImmutableIdentifier(database, table);
+		return existence.get(id, new Supplier<ListenableFuture<Boolean>>()
+		{
+			@Override
+			public ListenableFuture<Boolean> get()
+			{
+				return tables.exists(id);
+			}
+		});
 	}
 
 	public void create(Table table, FutureCallback<Table> callback)
@@ -72,7 +112,7 @@ public class TableService
 					try
 					{
 						ValidationEngine.validateAndThrow(table);
-						return tables.create(table);
+						return invalidating(table.databaseName(), table.name(), tables.create(table));
 					}
 					catch(ValidationException e)
 					{
@@ -84,7 +124,7 @@ public class TableService
 					return Futures.immediateFailedFuture(new ItemNotFoundException("Database not found: " + table.databaseName()));
 				}
 			}
-		});
+		}, SchemaChanges.executor());
 	}
 
 	public void read(String database, String table, FutureCallback<Table> callback)
@@ -94,7 +134,15 @@ public class TableService
 
 	public ListenableFuture<Table> read(String database, String table)
 	{
-		return tables.read(new Identifier(database, table));
+		Identifier id = new ImmutableIdentifier(database, table);
+		return cache.get(id, new Supplier<ListenableFuture<Table>>()
+		{
+			@Override
+			public ListenableFuture<Table> get()
+			{
+				return tables.read(id);
+			}
+		});
 	}
 
 	public ListenableFuture<List<Table>> readAll(String database, Object... parms)
@@ -118,6 +166,43 @@ public class TableService
 		});
 	}
 
+	/**
+	 * Read the tables in every database.
+	 */
+	public ListenableFuture<List<Table>> readAll()
+	{
+		ListenableFuture<List<Database>> dbFuture = databases.readAll();
+		return Futures.transformAsync(dbFuture, new AsyncFunction<List<Database>, List<Table>>()
+		{
+			@Override
+			public ListenableFuture<List<Table>> apply(List<Database> input)
+			{
+				List<ListenableFuture<List<Table>>> futures = new ArrayList<>(input.size());
+
+				for (Database database : input)
+				{
+					futures.add(tables.readAll(database.name()));
+				}
+
+				return Futures.transform(Futures.allAsList(futures), new Function<List<List<Table>>, List<Table>>()
+				{
+					@Override
+					public List<Table> apply(List<List<Table>> input)
+					{
+						List<Table> all = new ArrayList<>();
+
+						for (List<Table> tables : input)
+						{
+							all.addAll(tables);
+						}
+
+						return all;
+					}
+				});
+			}
+		});
+	}
+
 	public void readAll(String database, FutureCallback<List<Table>> callback)
 	{
 		Futures.addCallback(readAll(database), callback);
@@ -137,7 +222,7 @@ public class TableService
 					try
 					{
 						ValidationEngine.validateAndThrow(table);
-						return tables.update(table);
+						return invalidating(table.databaseName(), table.name(), tables.update(table));
 					}
 					catch(ValidationException e)
 					{
@@ -159,11 +244,75 @@ public class TableService
 
 	public ListenableFuture<Boolean> delete(String database, String table)
 	{
-		return tables.delete(new Identifier(database, table));
+		return invalidating(database, table, tables.delete(new Identifier(database, table)));
 	}
 
 	public void delete(String database, String table, FutureCallback<Boolean> callback)
 	{
 		Futures.addCallback(delete(database, table), callback);
 	}
+
+	/**
+	 * @return the combined statistics of the table and existence caches.
+	 */
+	public CacheStats cacheStats()
+	{
+		return cache.stats().plus(existence.stats());
+	}
+
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+		existence.invalidateAll();
+	}
+
+	/**
+	 * Discards the cached table and notifies the change listeners, such as after the table was changed elsewhere.
+	 */
+	public void invalidate(String database, String table)
+	{
+		Identifier id = new ImmutableIdentifier(database, table);
+		cache.invalidate(id);
+		existence.invalidate(id);
+		notifyChange(database, table);
+	}
+
+	/**
+	 * Adds a listener that's notified of the creates, updates and deletes made through this service, and of
+	 * invalidations.
+	 */
+	public void addChangeListener(MetadataChangeListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeChangeListener(MetadataChangeListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	private <T> ListenableFuture<T> invalidating(String database, String table, ListenableFuture<T> write)
+	{
+		Identifier id = new ImmutableIdentifier(database, table);
+		existence.invalidating(id, write);
+		notifyChange(database, table);
+		write.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				notifyChange(database, table);
+			}
+		}, MoreExecutors.directExecutor());
+
+		return cache.invalidating(id, write);
+	}
+
+	private void notifyChange(String database, String table)
+	{
+		for (MetadataChangeListener listener : listeners)
+		{
+			listener.onTableChange(database, table);
+		}
+	}
 }
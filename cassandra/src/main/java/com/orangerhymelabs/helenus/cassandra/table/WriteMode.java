@@ -0,0 +1,38 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+ */
+package com.orangerhymelabs.helenus.cassandra.table;
+
+/**
+ * How documents are written to a table:
+ * CONDITIONAL (default, if not specified) - creates use 'if not exists' and updates use 'if exists', so
+ *   duplicates and missing documents are detected, at the cost of a lightweight transaction (Paxos) per write.
+ * UNCONDITIONAL - creates and updates are plain writes and the last write wins. Creating a document that
+ *   already exists overwrites it, and updating one that doesn't exist creates it. Suited to tables whose
+ *   identifiers are unique by construction, such as client-generated UUIDs.
+ * 
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public enum WriteMode
+{
+	CONDITIONAL,
+	UNCONDITIONAL;
+
+	public static WriteMode from(String name)
+	{
+		return (name != null ? valueOf(name.toUpperCase()) : CONDITIONAL);
+	}
+}
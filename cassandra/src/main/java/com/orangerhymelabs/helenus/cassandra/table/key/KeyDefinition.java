@@ -2,6 +2,7 @@ package com.orangerhymelabs.helenus.cassandra.table.key;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
@@ -19,6 +20,7 @@ public class KeyDefinition
 {
 	private List<KeyComponent> partitionKey;
 	private List<ClusteringKeyComponent> clusteringKey;
+	private volatile Fragments fragments;
 
 	public KeyDefinition addPartitionKey(KeyComponent component)
 	{
@@ -28,6 +30,7 @@ public class KeyDefinition
 		}
 
 		partitionKey.add(component);
+		fragments = null;
 		return this;
 	}
 
@@ -39,6 +42,7 @@ public class KeyDefinition
 		}
 
 		clusteringKey.add(component);
+		fragments = null;
 		return this;
 	}
 
@@ -47,6 +51,14 @@ public class KeyDefinition
 		return ((hasPartitionKey() ? partitionKey.size() : 0) + (hasClusteringKey() ? clusteringKey.size() : 0));
 	}
 
+	/**
+	 * @return the number of components in the partition key.
+	 */
+	public int partitionSize()
+	{
+		return (hasPartitionKey() ? partitionKey.size() : 0);
+	}
+
 	public boolean hasPartitionKey()
 	{
 		return (partitionKey != null && !partitionKey.isEmpty());
@@ -59,29 +71,35 @@ public class KeyDefinition
 
 	/**
 	 * Pulls the properties that correspond to this KeyDefinition into an Identifier instance.
-	 * If one or more of the properties are missing, returns null.
 	 * 
 	 * @param bson a BSONObject.
-	 * @return an Identifier instance or null.
+	 * @return an Identifier instance.
 	 * @throws KeyDefinitionException if the bson document is missing any properties in the key definition identifier. 
 	 */
 	public Identifier identifier(BSONObject bson)
 	throws KeyDefinitionException
 	{
+		String[] properties = fragments().properties;
 		Identifier identifier = new Identifier();
-		List<String> missingProperties = new ArrayList<>(0);
+		List<String> missingProperties = null;
 
-		if (hasPartitionKey())
+		for (String property : properties)
 		{
-			appendToIdentifierFromBson(partitionKey, bson, identifier, missingProperties);
-		}
+			Object o = bson.get(property);
 
-		if (hasClusteringKey())
-		{
-			appendToIdentifierFromBson(clusteringKey, bson, identifier, missingProperties);
+			if (o != null)
+			{
+				identifier.add(o);
+			}
+			else
+			{
+				if (missingProperties == null) missingProperties = new ArrayList<>(properties.length);
+
+				missingProperties.add(property);
+			}
 		}
-		
-		if (identifier.size() != size())
+
+		if (missingProperties != null)
 		{
 			throw new KeyDefinitionException("Missing properties: " + String.join(", ", missingProperties));
 		}
@@ -96,6 +114,88 @@ public class KeyDefinition
 	}
 
 	public String asColumns()
+	{
+		return fragments().columns;
+	}
+
+	public String asPrimaryKey()
+	{
+		return fragments().primaryKey;
+	}
+
+	public String asClusteringKey()
+	{
+		return fragments().clusteringKey;
+	}
+
+	public String asSelectProperties()
+	{
+		return fragments().selectProperties;
+	}
+
+	/**
+	 * @return the partition key properties, comma separated, such as for a token() function.
+	 */
+	public String asPartitionProperties()
+	{
+		return fragments().partitionProperties;
+	}
+
+	/**
+	 * @param extras the number of bound values after the key's.
+	 * @return a question mark for each key component and extra bound value, comma separated.
+	 */
+	public String asQuestionMarks(int extras)
+	{
+		String[] questionMarks = fragments().questionMarks;
+		return (extras >= 0 && extras < questionMarks.length ? questionMarks[extras] : buildQuestionMarks(extras));
+	}
+
+	public String asIdentityClause()
+	{
+		return fragments().identityClause;
+	}
+
+	public String asPartitionIdentityClause()
+	{
+		return fragments().partitionIdentityClause;
+	}
+
+	/**
+	 * Selects several rows of a single partition: binds the partition key components, then a single list of
+	 * clustering key values (tuples of values, for a compound clustering key).
+	 */
+	public String asClusteringInClause()
+	{
+		return fragments().clusteringInClause;
+	}
+
+	/**
+	 * @return the key components, partition key first, as an unmodifiable list.
+	 */
+	public List<KeyComponent> components()
+	{
+		return fragments().components;
+	}
+
+	/**
+	 * The CQL fragments and properties are derived once, when first needed after the key definition changes,
+	 * since repositories and views ask for them on every statement and document.
+	 */
+	private Fragments fragments()
+	{
+		Fragments f = fragments;
+
+		if (f == null)
+		{
+			f = new Fragments(this);
+			fragments = f;
+		}
+
+		return f;
+	}
+
+	private String buildColumns()
 	{
 		StringBuilder sb = new StringBuilder();
 
@@ -113,7 +213,7 @@ public class KeyDefinition
 		return sb.toString();
 	}
 
-	public String asPrimaryKey()
+	private String buildPrimaryKey()
 	{
 		StringBuilder sb = new StringBuilder("primary key (");
 
@@ -134,7 +234,7 @@ public class KeyDefinition
 		return sb.toString();
 	}
 
-	public String asClusteringKey()
+	private String buildClusteringKey()
 	{
 		StringBuilder sb = new StringBuilder();
 
@@ -146,22 +246,35 @@ public class KeyDefinition
 		return sb.toString();
 	}
 
-	public String asSelectProperties()
+	private String buildSelectProperties()
+	{
+		StringBuilder sb = new StringBuilder();
+		appendAsProperties(partitionKey, sb, ",");
+
+		if (hasClusteringKey())
+		{
+			sb.append(",");
+			appendAsProperties(clusteringKey, sb, ",");
+		}
+
+		return sb.toString();
+	}
+
+	private String buildPartitionProperties()
 	{
 		StringBuilder sb = new StringBuilder();
 		appendAsProperties(partitionKey, sb, ",");
-		appendAsProperties(clusteringKey, sb, ",");
 		return sb.toString();
 	}
 
-	public String asQuestionMarks(int extras)
+	private String buildQuestionMarks(int extras)
 	{
 		String[] qms = new String[size() + extras];
 		Arrays.fill(qms, "?");
 		return String.join(",", qms);
 	}
 
-	public String asIdentityClause()
+	private String buildIdentityClause()
 	{
 		StringBuilder sb = new StringBuilder();
 		appendAsAssignments(partitionKey, sb, " and ");
@@ -175,32 +288,35 @@ public class KeyDefinition
 		return sb.toString();
 	}
 
-	public Object asPartitionIdentityClause()
+	private String buildPartitionIdentityClause()
 	{
 		StringBuilder sb = new StringBuilder();
 		appendAsAssignments(partitionKey, sb, " and ");
 		return sb.toString();
 	}
 
-	private void appendToIdentifierFromBson(List<? extends KeyComponent> components, BSONObject bson, Identifier identifier, List<String> missingProperties)
+	private String buildClusteringInClause()
 	{
-		components.forEach(new Consumer<KeyComponent>()
+		StringBuilder sb = new StringBuilder();
+		appendAsAssignments(partitionKey, sb, " and ");
+
+		if (!hasClusteringKey()) return sb.toString();
+
+		sb.append(" and ");
+
+		if (clusteringKey.size() == 1)
 		{
-			@Override
-			public void accept(KeyComponent t)
-			{
-				Object o = bson.get(t.property());
+			sb.append(clusteringKey.get(0).property());
+		}
+		else
+		{
+			sb.append("(");
+			appendAsProperties(clusteringKey, sb, ",");
+			sb.append(")");
+		}
 
-				if (o != null)
-				{
-					identifier.add(o);
-				}
-				else
-				{
-					missingProperties.add(t.property());
-				}
-			}
-		});
+		sb.append(" in ?");
+		return sb.toString();
 	}
 
 	private void appendAsColumns(List<? extends KeyComponent> components, StringBuilder builder)
@@ -298,16 +414,62 @@ public class KeyDefinition
 		builder.append(")");
 	}
 
-	public List<KeyComponent> components()
+	private List<KeyComponent> buildComponents()
 	{
-		ArrayList<KeyComponent> c = new ArrayList<>(size());
-		c.addAll(partitionKey);
+		List<KeyComponent> c = new ArrayList<>(size());
+
+		if (partitionKey != null)
+		{
+			c.addAll(partitionKey);
+		}
 
 		if (clusteringKey != null)
 		{
 			c.addAll(clusteringKey);
 		}
 
-		return c;
+		return Collections.unmodifiableList(c);
+	}
+
+	private static class Fragments
+	{
+		// Enough for the statements that bind the key plus a few column values.
+		private static final int CACHED_QUESTION_MARKS = 5;
+
+		private final String columns;
+		private final String primaryKey;
+		private final String clusteringKey;
+		private final String selectProperties;
+		private final String partitionProperties;
+		private final String identityClause;
+		private final String partitionIdentityClause;
+		private final String clusteringInClause;
+		private final String[] questionMarks = new String[CACHED_QUESTION_MARKS];
+		private final List<KeyComponent> components;
+		private final String[] properties;
+
+		Fragments(KeyDefinition keys)
+		{
+			this.columns = keys.buildColumns();
+			this.primaryKey = keys.buildPrimaryKey();
+			this.clusteringKey = keys.buildClusteringKey();
+			this.selectProperties = keys.buildSelectProperties();
+			this.partitionProperties = keys.buildPartitionProperties();
+			this.identityClause = keys.buildIdentityClause();
+			this.partitionIdentityClause = keys.buildPartitionIdentityClause();
+			this.clusteringInClause = keys.buildClusteringInClause();
+			this.components = keys.buildComponents();
+			this.properties = new String[components.size()];
+
+			for (int i = 0; i < questionMarks.length; i++)
+			{
+				questionMarks[i] = keys.buildQuestionMarks(i);
+			}
+
+			for (int i = 0; i < properties.length; i++)
+			{
+				properties[i] = components.get(i).property();
+			}
+		}
 	}
 }
@@ -53,6 +53,9 @@ extends AbstractEntity
 	// How long should the view's data live? (0 implies forever)
 	private long ttl;
 
+	// Parsed from keys when first needed.
+	private transient KeyDefinition keyDefinition;
+
 	public View()
 	{
 		super();
@@ -121,6 +124,7 @@ extends AbstractEntity
 	public void keys(String keys)
 	{
 		this.keys = keys;
+		this.keyDefinition = null;
 	}
 
 	public long ttl()
@@ -170,9 +174,21 @@ extends AbstractEntity
 		return keyDefinition().identifier(document.object());
 	}
 
-	private KeyDefinition keyDefinition()
+	/**
+	 * @return the parsed keys, which are cached until the keys change.
+	 * @throws KeyDefinitionException if the keys are invalid.
+	 */
+	public KeyDefinition keyDefinition()
 	throws KeyDefinitionException
 	{
-		return KEY_PARSER.parse(keys);
+		KeyDefinition definition = keyDefinition;
+
+		if (definition == null)
+		{
+			definition = KEY_PARSER.parse(keys);
+			keyDefinition = definition;
+		}
+
+		return definition;
 	}
 }
@@ -30,11 +30,11 @@ import com.datastax.driver.core.Session;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.cassandra.AbstractCassandraRepository;
+import com.orangerhymelabs.helenus.cassandra.CassandraConfig;
 import com.orangerhymelabs.helenus.cassandra.SchemaProvider;
 import com.orangerhymelabs.helenus.cassandra.document.DocumentRepository;
 import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
-import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
 import com.orangerhymelabs.helenus.cassandra.view.ViewRepository.ViewStatements;
 import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
@@ -49,7 +49,6 @@ public class ViewRepository
 extends AbstractCassandraRepository<View, ViewStatements>
 {
 	private static final Logger LOG = LoggerFactory.getLogger(ViewRepository.class);
-	private static final KeyDefinitionParser KEY_PARSER = new KeyDefinitionParser();
 
 	private class Tables
 	{
@@ -134,26 +133,30 @@ extends AbstractCassandraRepository<View, ViewStatements>
 		+ Columns.CREATED_AT + ", "
 		+ Columns.UPDATED_AT
 		+") values (?, ?, ?, ?, ?, ?, ?, ?) if not exists")
-		PreparedStatement create();
+		ListenableFuture<PreparedStatement> create();
 
 		@Override
 		@Query("delete from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement delete();
+		ListenableFuture<PreparedStatement> delete();
 
 		@Override
 		@Query("update %s." + Tables.BY_ID + " set " + Columns.DESCRIPTION + " = ?, " + Columns.TTL + " = ?, " + Columns.UPDATED_AT + " = ?" + IDENTITY_CQL + " if exists")
-		PreparedStatement update();
+		ListenableFuture<PreparedStatement> update();
+
+		@Override
+		@Query("select " + Columns.DATABASE + ", " + Columns.TABLE + ", " + Columns.NAME + " from %s." + Tables.BY_ID + IDENTITY_CQL + " limit 1")
+		ListenableFuture<PreparedStatement> exists();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + IDENTITY_CQL)
-		PreparedStatement read();
+		ListenableFuture<PreparedStatement> read();
 
 		@Override
 		@Query("select * from %s." + Tables.BY_ID + " where " + Columns.DATABASE + " = ?")
-		PreparedStatement readAll();
+		ListenableFuture<PreparedStatement> readAll();
 
 		@Query("select * from %s." + Tables.BY_ID + " where " + Columns.DATABASE + " = ? and " + Columns.TABLE + " = ?")
-		PreparedStatement readAllForTable();
+		ListenableFuture<PreparedStatement> readAllForTable();
 	}
 
 	private static final DocumentRepository.Schema DOCUMENT_SCHEMA = new DocumentRepository.Schema();
@@ -163,6 +166,16 @@ extends AbstractCassandraRepository<View, ViewStatements>
 		super(session, keyspace, ViewStatements.class);
 	}
 
+	/**
+	 * Creates a repository on the given session using the keyspace and shared request limiter from the
+	 * configuration, so metadata reads and writes queue behind the same limit as document operations.
+	 */
+	public ViewRepository(Session session, CassandraConfig config)
+	{
+		this(session, config.getKeyspace());
+		limiter(config.getRequestLimiter());
+	}
+
 	@Override
 	public ListenableFuture<View> create(View view)
 	{
@@ -248,7 +261,7 @@ extends AbstractCassandraRepository<View, ViewStatements>
     {
 		try
 		{
-			return DOCUMENT_SCHEMA.create(session(), keyspace(), view.toDbTable(), KEY_PARSER.parse(view.keys()));
+			return DOCUMENT_SCHEMA.create(session(), keyspace(), view.toDbTable(), view.keyDefinition());
 		}
 		catch (KeyDefinitionException e)
 		{
@@ -16,14 +16,23 @@
 package com.orangerhymelabs.helenus.cassandra.view;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.base.Supplier;
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.orangerhymelabs.helenus.cassandra.MetadataChangeListener;
+import com.orangerhymelabs.helenus.cassandra.SchemaChanges;
 import com.orangerhymelabs.helenus.cassandra.table.TableService;
 import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.persistence.FutureCache;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
 import com.strategicgains.syntaxe.ValidationEngine;
 import com.strategicgains.syntaxe.ValidationException;
 
@@ -35,12 +44,32 @@ public class ViewService
 {
 	private ViewRepository views;
 	private TableService tables;
+	private FutureCache<Identifier, View> cache;
+	private FutureCache<Identifier, List<View>> viewsByTable;
+	private List<MetadataChangeListener> listeners = new CopyOnWriteArrayList<>();
 
 	public ViewService(ViewRepository viewRepository, TableService tableService)
+	{
+		this(viewRepository, tableService, FutureCache.DEFAULT_MAXIMUM_SIZE, FutureCache.DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Reads of a view and of a table's views are cached, with the given bounds. Creates, updates and deletes
+	 * through this service invalidate the view's entry and its table's list of views.
+	 * 
+	 * @param viewRepository
+	 * @param tableService
+	 * @param cacheSize the maximum number of views, and of tables' view lists, cached.
+	 * @param ttl how long a view is cached.
+	 * @param unit the unit of the ttl.
+	 */
+	public ViewService(ViewRepository viewRepository, TableService tableService, long cacheSize, long ttl, TimeUnit unit)
 	{
 		super();
 		this.tables = tableService;
 		this.views = viewRepository;
+		this.cache = new FutureCache<>(cacheSize, ttl, unit);
+		this.viewsByTable = new FutureCache<>(cacheSize, ttl, unit);
 	}
 
 	public void create(View view, FutureCallback<View> callback)
@@ -62,7 +91,7 @@ public class ViewService
 					try
 					{
 						ValidationEngine.validateAndThrow(view);
-						return views.create(view);
+						return invalidating(view.databaseName(), view.tableName(), view.name(), views.create(view));
 					}
 					catch(ValidationException e)
 					{
@@ -74,7 +103,7 @@ public class ViewService
 					return Futures.immediateFailedFuture(new ItemNotFoundException("Table not found: " + view.tableName()));
 				}
 			}
-		});
+		}, SchemaChanges.executor());
 	}
 
 	public void read(String database, String table, String view, FutureCallback<View> callback)
@@ -84,12 +113,27 @@ public class ViewService
 
 	public ListenableFuture<View> read(String database, String table, String view)
 	{
-		return views.read(new Identifier(database, table, view));
+		Identifier id = new ImmutableIdentifier(database, table, view);
+		return cache.get(id, new Supplier<ListenableFuture<View>>()
+		{
+			@Override
+			public ListenableFuture<View> get()
+			{
+				return views.read(id);
+			}
+		});
 	}
 
 	public ListenableFuture<List<View>> readAll(String database, String table)
 	{
-		return views.readForTable(database, table);
+		return viewsByTable.get(new ImmutableIdentifier(database, table), new Supplier<ListenableFuture<List<View>>>()
+		{
+			@Override
+			public ListenableFuture<List<View>> get()
+			{
+				return views.readForTable(database, table);
+			}
+		});
 	}
 
 	public void readAll(String database, String table, FutureCallback<List<View>> callback)
@@ -111,7 +155,7 @@ public class ViewService
 					try
 					{
 						ValidationEngine.validateAndThrow(view);
-						return views.update(view);
+						return invalidating(view.databaseName(), view.tableName(), view.name(), views.update(view));
 					}
 					catch(ValidationException e)
 					{
@@ -133,11 +177,74 @@ public class ViewService
 
 	public ListenableFuture<Boolean> delete(String database, String table, String view)
 	{
-		return views.delete(new Identifier(database, table, view));
+		return invalidating(database, table, view, views.delete(new Identifier(database, table, view)));
 	}
 
 	public void delete(String database, String table, String view, FutureCallback<Boolean> callback)
 	{
 		Futures.addCallback(delete(database, table, view), callback);
 	}
+
+	/**
+	 * @return the combined statistics of the view and view list caches.
+	 */
+	public CacheStats cacheStats()
+	{
+		return cache.stats().plus(viewsByTable.stats());
+	}
+
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+		viewsByTable.invalidateAll();
+	}
+
+	/**
+	 * Discards the cached view and its table's views and notifies the change listeners, such as after the view
+	 * was changed elsewhere.
+	 */
+	public void invalidate(String database, String table, String view)
+	{
+		viewsByTable.invalidate(new ImmutableIdentifier(database, table));
+		cache.invalidate(new ImmutableIdentifier(database, table, view));
+		notifyChange(database, table, view);
+	}
+
+	/**
+	 * Adds a listener that's notified of the creates, updates and deletes made through this service, and of
+	 * invalidations.
+	 */
+	public void addChangeListener(MetadataChangeListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public void removeChangeListener(MetadataChangeListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	private <T> ListenableFuture<T> invalidating(String database, String table, String view, ListenableFuture<T> write)
+	{
+		viewsByTable.invalidating(new ImmutableIdentifier(database, table), write);
+		notifyChange(database, table, view);
+		write.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				notifyChange(database, table, view);
+			}
+		}, MoreExecutors.directExecutor());
+
+		return cache.invalidating(new ImmutableIdentifier(database, table, view), write);
+	}
+
+	private void notifyChange(String database, String table, String view)
+	{
+		for (MetadataChangeListener listener : listeners)
+		{
+			listener.onViewChange(database, table, view);
+		}
+	}
 }
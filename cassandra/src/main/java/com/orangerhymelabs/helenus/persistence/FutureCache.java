@@ -0,0 +1,200 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A bounded, asynchronous read-through cache. Entries expire a fixed time after they're loaded and the
+ * least-recently used are evicted beyond the maximum size. Loading never blocks the caller. Concurrent
+ * requests for the same key share a single load, and a failed load is evicted so that a later request
+ * tries again.
+ *
+ * Entries are only invalidated by this process, so changes made elsewhere (e.g. by another node) are
+ * seen once the entry expires. Alternatively, entries may expire once they haven't been read for a time,
+ * for values that are only invalidated explicitly, such as when they change.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ * @param <K> the key type.
+ * @param <V> the cached value type.
+ */
+public class FutureCache<K, V>
+{
+	public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+	public static final long DEFAULT_TTL_SECONDS = 60L;
+
+	private Cache<K, ListenableFuture<V>> cache;
+
+	// Loads complete asynchronously, so they're counted here rather than by the underlying cache.
+	private AtomicLong loadSuccessCount = new AtomicLong();
+	private AtomicLong loadExceptionCount = new AtomicLong();
+	private AtomicLong totalLoadTime = new AtomicLong();
+
+	public FutureCache()
+	{
+		this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param maximumSize the maximum number of entries.
+	 * @param ttl how long an entry is kept after it's loaded.
+	 * @param unit the unit of the ttl.
+	 */
+	public FutureCache(long maximumSize, long ttl, TimeUnit unit)
+	{
+		this(CacheBuilder.newBuilder().expireAfterWrite(ttl, unit), maximumSize);
+	}
+
+	private FutureCache(CacheBuilder<Object, Object> builder, long maximumSize)
+	{
+		super();
+		this.cache = builder
+			.maximumSize(maximumSize)
+			.recordStats()
+			.build();
+	}
+
+	/**
+	 * Creates a cache whose entries are kept until they're invalidated, evicted beyond the maximum size, or
+	 * not read for the given idle time.
+	 * 
+	 * @param maximumSize the maximum number of entries.
+	 * @param idle how long an entry is kept after it was last read.
+	 * @param unit the unit of the idle time.
+	 */
+	public static <K, V> FutureCache<K, V> expiringWhenIdle(long maximumSize, long idle, TimeUnit unit)
+	{
+		return new FutureCache<>(CacheBuilder.newBuilder().expireAfterAccess(idle, unit), maximumSize);
+	}
+
+	/**
+	 * Get the value for the given key, loading it if it isn't already cached or being loaded.
+	 *
+	 * @param key the cache key.
+	 * @param loader starts loading the value, e.g. by reading it from a repository.
+	 * @return a future value. Completes immediately if already loaded.
+	 */
+	public ListenableFuture<V> get(K key, Supplier<ListenableFuture<V>> loader)
+	{
+		ListenableFuture<V> future = cache.getIfPresent(key);
+
+		if (future != null) return future;
+
+		SettableFuture<V> loading = SettableFuture.create();
+		future = cache.asMap().putIfAbsent(key, loading);
+
+		if (future != null) return future;
+
+		long start = System.nanoTime();
+		Futures.addCallback(loading, new FutureCallback<V>()
+		{
+			@Override
+			public void onSuccess(V result)
+			{
+				// stays cached.
+				totalLoadTime.addAndGet(System.nanoTime() - start);
+				loadSuccessCount.incrementAndGet();
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				cache.asMap().remove(key, loading);
+				totalLoadTime.addAndGet(System.nanoTime() - start);
+				loadExceptionCount.incrementAndGet();
+			}
+		});
+
+		try
+		{
+			loading.setFuture(loader.get());
+		}
+		catch (RuntimeException e)
+		{
+			loading.setException(e);
+		}
+
+		return loading;
+	}
+
+	/**
+	 * Invalidates the key now and again once the given write completes, so the key is reloaded after the
+	 * write, even if it was read while the write was in progress.
+	 *
+	 * @param key the key changed by the write.
+	 * @param write the future result of the write.
+	 * @return the given future.
+	 */
+	public <F> ListenableFuture<F> invalidating(K key, ListenableFuture<F> write)
+	{
+		invalidate(key);
+		write.addListener(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				invalidate(key);
+			}
+		}, MoreExecutors.directExecutor());
+
+		return write;
+	}
+
+	public void invalidate(K key)
+	{
+		cache.invalidate(key);
+	}
+
+	public void invalidateAll()
+	{
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Invalidates the keys that match the given predicate, such as every key derived from a changed item.
+	 */
+	public void invalidateIf(Predicate<? super K> predicate)
+	{
+		cache.asMap().keySet().removeIf(predicate);
+	}
+
+	public long size()
+	{
+		return cache.size();
+	}
+
+	/**
+	 * @return the hit, miss, load and eviction counts, and the total load time, since this cache was created.
+	 */
+	public CacheStats stats()
+	{
+		CacheStats stats = cache.stats();
+		return new CacheStats(stats.hitCount(), stats.missCount(), loadSuccessCount.get(), loadExceptionCount.get(), totalLoadTime.get(), stats.evictionCount());
+	}
+}
@@ -17,8 +17,10 @@ package com.orangerhymelabs.helenus.persistence;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Supports the concept of a compound identifier. An Identifier is made up of components, which
@@ -33,14 +35,25 @@ implements Comparable<Identifier>
 	private static final String DB_NAME_SEPARATOR = "_";
 	private static final String TO_STRING_SEPARATOR = ", ";
 
-	private List<Object> components = new ArrayList<Object>();
+	private List<Object> components;
 
 	/**
 	 * Create an empty identifier.
 	 */
 	public Identifier()
+	{
+		this(new ArrayList<Object>());
+	}
+
+	/**
+	 * Create an identifier backed by the given list, for subclasses that hold their components themselves.
+	 * 
+	 * @param components the list holding the components.
+	 */
+	protected Identifier(List<Object> components)
 	{
 		super();
+		this.components = components;
 	}
 	
 	public Identifier(Identifier that)
@@ -49,7 +62,7 @@ implements Comparable<Identifier>
 		
 		if (that == null || that.isEmpty()) return;
 		
-		add(that.components.toArray());
+		add(that.components().toArray());
 	}
 
 	/**
@@ -128,6 +141,17 @@ implements Comparable<Identifier>
 		return components.size();
 	}
 
+	/**
+	 * Get a single component of this identifier.
+	 * 
+	 * @param index the zero-based index of the component.
+	 * @return the component at the given index.
+	 */
+	public Object component(int index)
+	{
+		return components.get(index);
+	}
+
 	/**
 	 * Check for equality between identifiers. Returns true if the identifiers
 	 * contain equal components. Otherwise, returns false.
@@ -158,9 +182,6 @@ implements Comparable<Identifier>
 	 * 
 	 * @return -1, 0, 1 to indicate less-than, equal-to, or greater-than, respectively.
 	 */
-    @SuppressWarnings({
-        "unchecked", "rawtypes"
-    })
     @Override
     public int compareTo(Identifier that)
     {
@@ -173,18 +194,7 @@ implements Comparable<Identifier>
 
 		while (result == 0 && i < size())
 		{
-			Object cThis = this.components.get(i);
-			Object cThat = that.components.get(i);
-
-			if (areComparable(cThis, cThat))
-			{
-				result = ((Comparable) cThis).compareTo(((Comparable) cThat));
-			}
-			else
-			{
-				result = (cThis.toString().compareTo(cThat.toString()));
-			}
-			
+			result = compareComponents(this.component(i), that.component(i));
 			++i;
 		}
 
@@ -199,9 +209,9 @@ implements Comparable<Identifier>
 	@Override
 	public String toString()
 	{
-		if (components.isEmpty()) return "";
+		if (isEmpty()) return "";
 
-		return (components.size() == 1 ? primaryKey().toString() : "(" + Identifier.toSeparatedString(this, TO_STRING_SEPARATOR) + ")");
+		return (size() == 1 ? primaryKey().toString() : "(" + Identifier.toSeparatedString(this, TO_STRING_SEPARATOR) + ")");
 	}
 
 	/**
@@ -212,7 +222,7 @@ implements Comparable<Identifier>
 	 */
 	public Object primaryKey()
 	{
-		return (isEmpty() ? null : components.get(0));
+		return (isEmpty() ? null : component(0));
 	}
 
 	/**
@@ -253,28 +263,35 @@ implements Comparable<Identifier>
 		return sb.toString();
 	}
 
-    private boolean areComparable(Object o1, Object o2)
-    {
-		if ((isComparable(o1) && isComparable(o2)) &&
-			(o1.getClass().isAssignableFrom(o2.getClass()) ||
-			o2.getClass().isAssignableFrom(o1.getClass())))
+	/**
+	 * Compares two components, checking the common key types directly before falling back to
+	 * Comparable (for components of related types) or their string representations.
+	 */
+	@SuppressWarnings({
+		"unchecked", "rawtypes"
+	})
+	protected static int compareComponents(Object o1, Object o2)
+	{
+		if (o1 instanceof String && o2 instanceof String) return ((String) o1).compareTo((String) o2);
+		if (o1 instanceof UUID && o2 instanceof UUID) return ((UUID) o1).compareTo((UUID) o2);
+		if (o1 instanceof Long && o2 instanceof Long) return Long.compare((Long) o1, (Long) o2);
+		if (o1 instanceof Integer && o2 instanceof Integer) return Integer.compare((Integer) o1, (Integer) o2);
+		if (o1 instanceof Date && o2 instanceof Date) return ((Date) o1).compareTo((Date) o2);
+
+		if (areComparable(o1, o2))
 		{
-			return true;
+			return ((Comparable) o1).compareTo(((Comparable) o2));
 		}
-	
-	return false;
+
+		return (o1.toString().compareTo(o2.toString()));
 	}
 
-    /**
-	 * Returns true if the object implements Comparable.
-	 * Otherwise, false.
-	 * 
-	 * @param object an instance
-	 * @return true if the instance implements Comparable.
-	 */
-	private boolean isComparable(Object object)
-    {
-	    return (object instanceof Comparable);
-    }
+	private static boolean areComparable(Object o1, Object o2)
+	{
+		if (!(o1 instanceof Comparable && o2 instanceof Comparable)) return false;
 
+		Class<?> c1 = o1.getClass();
+		Class<?> c2 = o2.getClass();
+		return (c1 == c2 || c1.isAssignableFrom(c2) || c2.isAssignableFrom(c1));
+	}
 }
@@ -0,0 +1,194 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An Identifier whose components cannot change once created. Components are held in a compact array,
+ * which also backs the Identifier, and the hash code is computed once, so instances are cheap to use as map
+ * keys and safe to share without defensive copies. Unlike Identifier, its add() methods throw, so it's only
+ * used where an identifier is known not to be added to.
+ *
+ * An ImmutableIdentifier may also carry the serialized Cassandra routing key (partition key) for the
+ * entity it identifies, so it is only computed once per identifier. Equality and hashing ignore the
+ * routing key, and an ImmutableIdentifier is equal to a mutable Identifier with the same components.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public final class ImmutableIdentifier
+extends Identifier
+{
+	private static final Object[] EMPTY = new Object[0];
+
+	private final Object[] components;
+	private final List<Object> view;
+	private final int hashCode;
+	private final ByteBuffer routingKey;
+
+	/**
+	 * Create an immutable identifier with the given components. Null components are ignored,
+	 * just as they are by Identifier.add().
+	 *
+	 * @param components
+	 */
+	public ImmutableIdentifier(Object... components)
+	{
+		this(compact(components), null);
+	}
+
+	public ImmutableIdentifier(Identifier that)
+	{
+		this((that == null || that.isEmpty() ? EMPTY : that.components().toArray()), null);
+	}
+
+	private ImmutableIdentifier(Object[] components, ByteBuffer routingKey)
+	{
+		this(components, Collections.unmodifiableList(Arrays.asList(components)), routingKey);
+	}
+
+	private ImmutableIdentifier(Object[] components, List<Object> view, ByteBuffer routingKey)
+	{
+		super(view);
+		this.components = components;
+		this.view = view;
+		this.hashCode = 1 + Arrays.hashCode(components);
+		this.routingKey = routingKey;
+	}
+
+	/**
+	 * Returns the given identifier if it is already immutable. Otherwise, returns an immutable copy of it.
+	 *
+	 * @param id an identifier. May be null.
+	 * @return an ImmutableIdentifier or null, if id is null.
+	 */
+	public static ImmutableIdentifier of(Identifier id)
+	{
+		if (id == null) return null;
+		if (id instanceof ImmutableIdentifier) return (ImmutableIdentifier) id;
+
+		return new ImmutableIdentifier(id);
+	}
+
+	/**
+	 * Returns an identifier with the same components as this one, carrying the given routing key.
+	 *
+	 * @param routingKey the serialized partition key for this identifier.
+	 * @return a new ImmutableIdentifier.
+	 */
+	public ImmutableIdentifier withRoutingKey(ByteBuffer routingKey)
+	{
+		return new ImmutableIdentifier(components, view, routingKey);
+	}
+
+	public boolean hasRoutingKey()
+	{
+		return (routingKey != null);
+	}
+
+	/**
+	 * @return the serialized partition key for this identifier, or null if it has not been computed.
+	 */
+	public ByteBuffer routingKey()
+	{
+		return (routingKey != null ? routingKey.duplicate() : null);
+	}
+
+	/**
+	 * Always throws UnsupportedOperationException.
+	 */
+	@Override
+	public Identifier add(Object... components)
+	{
+		throw new UnsupportedOperationException("ImmutableIdentifier cannot be modified");
+	}
+
+	/**
+	 * Always throws UnsupportedOperationException.
+	 */
+	@Override
+	public Identifier add(Object component)
+	{
+		throw new UnsupportedOperationException("ImmutableIdentifier cannot be modified");
+	}
+
+	@Override
+	public List<Object> components()
+	{
+		return view;
+	}
+
+	@Override
+	public int size()
+	{
+		return components.length;
+	}
+
+	@Override
+	public Object component(int index)
+	{
+		return components[index];
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return (components.length == 0);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object that)
+	{
+		if (this == that) return true;
+		if (that instanceof ImmutableIdentifier && hashCode != that.hashCode()) return false;
+
+		return super.equals(that);
+	}
+
+	private static Object[] compact(Object[] components)
+	{
+		if (components == null || components.length == 0) return EMPTY;
+
+		int count = 0;
+
+		for (Object component : components)
+		{
+			if (component != null) ++count;
+		}
+
+		if (count == components.length) return components.clone();
+
+		Object[] compacted = new Object[count];
+		int i = 0;
+
+		for (Object component : components)
+		{
+			if (component != null) compacted[i++] = component;
+		}
+
+		return compacted;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A single page of results from a paged read. Carries an opaque cursor that, when handed back to the
+ * repository, resumes the read at the next page. A null cursor means there are no more pages.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ * @param <T> the type of the items in the page.
+ */
+public class Page<T>
+implements Iterable<T>
+{
+	private List<T> items;
+	private String cursor;
+
+	public Page(List<T> items, String cursor)
+	{
+		super();
+		this.items = (items != null ? items : Collections.<T>emptyList());
+		this.cursor = cursor;
+	}
+
+	/**
+	 * Get an unmodifiable list of the items in this page.
+	 *
+	 * @return the items in this page. Never null.
+	 */
+	public List<T> items()
+	{
+		return Collections.unmodifiableList(items);
+	}
+
+	/**
+	 * The opaque resume token for the next page, or null if this is the last page.
+	 *
+	 * @return a cursor string or null.
+	 */
+	public String cursor()
+	{
+		return cursor;
+	}
+
+	public boolean hasNext()
+	{
+		return (cursor != null);
+	}
+
+	public int size()
+	{
+		return items.size();
+	}
+
+	public boolean isEmpty()
+	{
+		return items.isEmpty();
+	}
+
+	@Override
+	public Iterator<T> iterator()
+	{
+		return items().iterator();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Page{size=" + size() + ", hasNext=" + hasNext() + "}";
+	}
+}
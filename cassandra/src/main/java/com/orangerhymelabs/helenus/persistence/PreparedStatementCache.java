@@ -0,0 +1,150 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * An asynchronous cache of prepared statements for a Session, keyed by CQL. Preparing never blocks the caller.
+ * Concurrent requests for the same CQL share a single prepare, and a failed prepare is evicted so that
+ * a later request tries again.
+ *
+ * There is one cache per Session, shared by all repositories using it.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class PreparedStatementCache
+{
+	private static final ConcurrentMap<Session, PreparedStatementCache> CACHES = new MapMaker().weakKeys().makeMap();
+
+	private Session session;
+	private ConcurrentMap<String, ListenableFuture<PreparedStatement>> statements = new MapMaker().makeMap();
+
+	public PreparedStatementCache(Session session)
+	{
+		super();
+		this.session = session;
+	}
+
+	/**
+	 * Get the shared cache for the given Session, creating it if necessary.
+	 */
+	public static PreparedStatementCache forSession(Session session)
+	{
+		PreparedStatementCache cache = CACHES.get(session);
+
+		if (cache != null) return cache;
+
+		cache = new PreparedStatementCache(session);
+		PreparedStatementCache existing = CACHES.putIfAbsent(session, cache);
+		return (existing != null ? existing : cache);
+	}
+
+	/**
+	 * Get the prepared statement for the given CQL, preparing it if it isn't already prepared or being prepared.
+	 *
+	 * @param cql the CQL to prepare.
+	 * @return a future PreparedStatement. Completes immediately if already prepared.
+	 */
+	public ListenableFuture<PreparedStatement> prepare(String cql)
+	{
+		ListenableFuture<PreparedStatement> future = statements.get(cql);
+
+		if (future != null) return future;
+
+		SettableFuture<PreparedStatement> preparing = SettableFuture.create();
+		future = statements.putIfAbsent(cql, preparing);
+
+		if (future != null) return future;
+
+		Futures.addCallback(preparing, new FutureCallback<PreparedStatement>()
+		{
+			@Override
+			public void onSuccess(PreparedStatement result)
+			{
+				// stays cached.
+			}
+
+			@Override
+			public void onFailure(Throwable t)
+			{
+				statements.remove(cql, preparing);
+			}
+		});
+
+		try
+		{
+			preparing.setFuture(session.prepareAsync(cql));
+		}
+		catch (RuntimeException e)
+		{
+			preparing.setException(e);
+		}
+
+		return preparing;
+	}
+
+	/**
+	 * Remove the statement for the given CQL, so that it is prepared again on next use.
+	 */
+	public void invalidate(String cql)
+	{
+		statements.remove(cql);
+	}
+
+	public void invalidateAll()
+	{
+		statements.clear();
+	}
+
+	/**
+	 * Remove the statements whose CQL matches the given predicate, such as those of a changed table.
+	 */
+	public void invalidateIf(Predicate<String> cql)
+	{
+		statements.keySet().removeIf(cql);
+	}
+
+	/**
+	 * Remove the matching statements from the caches of every Session of the given Cluster.
+	 */
+	public static void invalidateIf(Cluster cluster, Predicate<String> cql)
+	{
+		for (PreparedStatementCache cache : CACHES.values())
+		{
+			if (cache.session.getCluster() == cluster)
+			{
+				cache.invalidateIf(cql);
+			}
+		}
+	}
+
+	public int size()
+	{
+		return statements.size();
+	}
+}
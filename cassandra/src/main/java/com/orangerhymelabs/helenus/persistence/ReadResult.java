@@ -0,0 +1,119 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+/**
+ * The outcome of reading a single identifier as part of a multi-key read. Multi-key reads never fail as a
+ * whole; each identifier gets its own ReadResult carrying the entity, the fact that it doesn't exist, or
+ * the cause of its failure.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ * @param <T> the type of the read entity.
+ */
+public class ReadResult<T>
+{
+	public enum Status
+	{
+		FOUND,
+		NOT_FOUND,
+		ERROR
+	}
+
+	private Identifier identifier;
+	private Status status;
+	private T entity;
+	private Throwable error;
+
+	private ReadResult(Identifier identifier, Status status, T entity, Throwable error)
+	{
+		super();
+		this.identifier = identifier;
+		this.status = status;
+		this.entity = entity;
+		this.error = error;
+	}
+
+	public static <T> ReadResult<T> found(Identifier identifier, T entity)
+	{
+		return new ReadResult<T>(identifier, Status.FOUND, entity, null);
+	}
+
+	public static <T> ReadResult<T> notFound(Identifier identifier)
+	{
+		return new ReadResult<T>(identifier, Status.NOT_FOUND, null, null);
+	}
+
+	public static <T> ReadResult<T> failure(Identifier identifier, Throwable error)
+	{
+		return new ReadResult<T>(identifier, Status.ERROR, null, error);
+	}
+
+	/**
+	 * @return the identifier that was requested.
+	 */
+	public Identifier identifier()
+	{
+		return identifier;
+	}
+
+	public Status status()
+	{
+		return status;
+	}
+
+	/**
+	 * @return the entity, or null if it wasn't found or couldn't be read.
+	 */
+	public T entity()
+	{
+		return entity;
+	}
+
+	/**
+	 * @return the cause of the failure, or null if the read succeeded.
+	 */
+	public Throwable error()
+	{
+		return error;
+	}
+
+	public boolean isFound()
+	{
+		return (status == Status.FOUND);
+	}
+
+	public boolean isNotFound()
+	{
+		return (status == Status.NOT_FOUND);
+	}
+
+	public boolean isFailure()
+	{
+		return (status == Status.ERROR);
+	}
+
+	@Override
+	public String toString()
+	{
+		switch (status)
+		{
+			case FOUND: return "ReadResult{found: " + identifier + "}";
+			case NOT_FOUND: return "ReadResult{not found: " + identifier + "}";
+			default: return "ReadResult{failure: " + identifier + ", error: " + error + "}";
+		}
+	}
+}
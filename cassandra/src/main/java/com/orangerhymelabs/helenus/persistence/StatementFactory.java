@@ -3,7 +3,10 @@
  */
 package com.orangerhymelabs.helenus.persistence;
 
+import java.util.List;
+
 import com.datastax.driver.core.PreparedStatement;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * @author tfredrich
@@ -11,10 +14,17 @@ import com.datastax.driver.core.PreparedStatement;
  */
 public interface StatementFactory
 {
-	PreparedStatement create();
-	PreparedStatement delete();
-	PreparedStatement exists();
-	PreparedStatement update();
-	PreparedStatement read();
-	PreparedStatement readAll();
+	ListenableFuture<PreparedStatement> create();
+	ListenableFuture<PreparedStatement> delete();
+	ListenableFuture<PreparedStatement> exists();
+	ListenableFuture<PreparedStatement> update();
+	ListenableFuture<PreparedStatement> read();
+	ListenableFuture<PreparedStatement> readAll();
+
+	/**
+	 * Prepare all of the statements this factory supports, such as at startup.
+	 * 
+	 * @return the future prepared statements.
+	 */
+	List<ListenableFuture<PreparedStatement>> prepareAll();
 }
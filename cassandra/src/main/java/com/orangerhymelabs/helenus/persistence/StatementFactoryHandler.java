@@ -17,24 +17,35 @@ package com.orangerhymelabs.helenus.persistence;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.orangerhymelabs.helenus.exception.StorageException;
 
 /**
+ * Implements a StatementFactory interface from the @Query annotations on its methods. Statements are prepared
+ * asynchronously via the Session's PreparedStatementCache.
+ * 
+ * Repositories only fall back to this when no implementation was generated at compile time by the
+ * StatementFactoryProcessor, e.g. if annotation processing was disabled.
+ * 
  * @author tfredrich
  * @since 18 Aug 2016
  */
 public class StatementFactoryHandler
 implements InvocationHandler
 {
-	private Session session;
+	private static final String PREPARE_ALL = "prepareAll";
+
 	private String keyspace;
 	private String table;
-	private Map<Method, PreparedStatement> statements = new HashMap<>();
+	private PreparedStatementCache statements;
+	private Map<Method, String> cqlByMethod = new ConcurrentHashMap<>();
 
 	public StatementFactoryHandler(Session session, String keyspace)
 	{
@@ -44,8 +55,8 @@ implements InvocationHandler
 	public StatementFactoryHandler(Session session, String keyspace, String table)
 	{
 		super();
-		this.session = session;
 		this.keyspace = keyspace;
+		this.statements = PreparedStatementCache.forSession(session);
 		table(table);
 	}
 
@@ -63,24 +74,44 @@ implements InvocationHandler
 	public Object invoke(Object proxy, Method method, Object[] args)
 	throws Throwable
 	{
-		PreparedStatement ps = statements.get(method);
-
-		if (ps != null) return ps;
+		if (PREPARE_ALL.equals(method.getName()) && method.getParameterCount() == 0)
+		{
+			return prepareAll(proxy);
+		}
 
-		Query cql = method.getAnnotation(Query.class);
+		return statements.prepare(cqlFor(method));
+	}
 
-		if (cql == null) throw new StorageException("No @Query annotation for '" + method.getName() + "'");
+	private List<ListenableFuture<PreparedStatement>> prepareAll(Object proxy)
+	{
+		List<ListenableFuture<PreparedStatement>> futures = new ArrayList<>();
 
-		if (hasTable())
-		{
-			ps = session.prepareAsync(String.format(cql.value(), keyspace, table)).get();
-		}
-		else
+		for (Class<?> factoryClass : proxy.getClass().getInterfaces())
 		{
-			ps = session.prepareAsync(String.format(cql.value(), keyspace)).get();
+			for (Method method : factoryClass.getMethods())
+			{
+				if (method.isAnnotationPresent(Query.class))
+				{
+					futures.add(statements.prepare(cqlFor(method)));
+				}
+			}
 		}
 
-		statements.put(method, ps);
-		return ps;
+		return futures;
+	}
+
+	private String cqlFor(Method method)
+	{
+		String cql = cqlByMethod.get(method);
+
+		if (cql != null) return cql;
+
+		Query query = method.getAnnotation(Query.class);
+
+		if (query == null) throw new StorageException("No @Query annotation for '" + method.getName() + "'");
+
+		cql = (hasTable() ? String.format(query.value(), keyspace, table) : String.format(query.value(), keyspace));
+		cqlByMethod.put(method, cql);
+		return cql;
 	}
 }
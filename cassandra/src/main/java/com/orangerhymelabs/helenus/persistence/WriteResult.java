@@ -0,0 +1,76 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.persistence;
+
+/**
+ * The outcome of writing a single entity as part of a bulk write. Bulk writes never fail as a whole;
+ * each entity gets its own WriteResult carrying either success or the cause of its failure.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ * @param <T> the type of the written entity.
+ */
+public class WriteResult<T>
+{
+	private T entity;
+	private Throwable error;
+
+	private WriteResult(T entity, Throwable error)
+	{
+		super();
+		this.entity = entity;
+		this.error = error;
+	}
+
+	public static <T> WriteResult<T> success(T entity)
+	{
+		return new WriteResult<T>(entity, null);
+	}
+
+	public static <T> WriteResult<T> failure(T entity, Throwable error)
+	{
+		return new WriteResult<T>(entity, error);
+	}
+
+	public T entity()
+	{
+		return entity;
+	}
+
+	/**
+	 * @return the cause of the failure, or null if the write succeeded.
+	 */
+	public Throwable error()
+	{
+		return error;
+	}
+
+	public boolean isSuccess()
+	{
+		return (error == null);
+	}
+
+	public boolean isFailure()
+	{
+		return (error != null);
+	}
+
+	@Override
+	public String toString()
+	{
+		return (isSuccess() ? "WriteResult{success: " + entity + "}" : "WriteResult{failure: " + entity + ", error: " + error + "}");
+	}
+}
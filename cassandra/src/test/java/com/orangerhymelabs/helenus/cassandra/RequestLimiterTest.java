@@ -0,0 +1,222 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.orangerhymelabs.helenus.exception.RequestRejectedException;
+
+/**
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class RequestLimiterTest
+{
+	private static final SimpleStatement STATEMENT = new SimpleStatement("select now() from system.local");
+
+	private List<PendingResultSet> executed;
+	private Session session;
+
+	@Before
+	public void beforeEach()
+	{
+		executed = new ArrayList<>();
+		session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] {Session.class}, new InvocationHandler()
+		{
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args)
+			{
+				if (!"executeAsync".equals(method.getName())) throw new UnsupportedOperationException(method.getName());
+
+				PendingResultSet rs = new PendingResultSet();
+				executed.add(rs);
+				return rs;
+			}
+		});
+	}
+
+	@Test
+	public void shouldQueueThenExecuteOnRelease()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(2, 10, 0);
+		limiter.execute(session, STATEMENT);
+		limiter.execute(session, STATEMENT);
+		ListenableFuture<ResultSet> queued = limiter.execute(session, STATEMENT);
+
+		assertEquals(2, executed.size());
+		assertEquals(2, limiter.inFlight());
+		assertEquals(1, limiter.queueDepth());
+		assertFalse(queued.isDone());
+
+		executed.get(0).complete();
+		assertEquals(3, executed.size());
+		assertEquals(2, limiter.inFlight());
+		assertEquals(0, limiter.queueDepth());
+		assertEquals(1, limiter.dequeuedCount());
+
+		executed.get(2).complete();
+		assertTrue(queued.isDone());
+		executed.get(1).complete();
+		assertEquals(0, limiter.inFlight());
+
+		// Every admitted statement's wait is timed, including those that didn't wait.
+		assertEquals(3, limiter.waits().getCount());
+		assertTrue(limiter.waits().getSnapshot().getMax() > 0L);
+		assertEquals(0L, limiter.waits().getSnapshot().getMin());
+	}
+
+	@Test
+	public void shouldFailFastWithoutQueue()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(1, 0, 0);
+		limiter.execute(session, STATEMENT);
+		assertRejected(limiter.execute(session, STATEMENT));
+		assertEquals(1, limiter.rejectedCount());
+
+		executed.get(0).complete();
+		limiter.execute(session, STATEMENT);
+		assertEquals(2, executed.size());
+	}
+
+	@Test
+	public void shouldRejectWhenQueueFull()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(1, 1, 0);
+		limiter.execute(session, STATEMENT);
+		limiter.execute(session, STATEMENT);
+		assertRejected(limiter.execute(session, STATEMENT));
+		assertEquals(1, limiter.queueDepth());
+		assertEquals(1, limiter.rejectedCount());
+	}
+
+	@Test
+	public void shouldTimeOutQueuedRequests()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(1, 1, 10);
+		limiter.execute(session, STATEMENT);
+		ListenableFuture<ResultSet> queued = limiter.execute(session, STATEMENT);
+		Thread.sleep(20);
+
+		// Expires the queued request, making room for this one.
+		ListenableFuture<ResultSet> next = limiter.execute(session, STATEMENT);
+		assertRejected(queued);
+		assertEquals(1, limiter.timedOutCount());
+		assertEquals(1, limiter.queueDepth());
+
+		executed.get(0).complete();
+		assertEquals(2, executed.size());
+		assertEquals(0, limiter.queueDepth());
+		executed.get(1).complete();
+		assertTrue(next.isDone());
+		assertEquals(0, limiter.inFlight());
+	}
+
+	@Test
+	public void shouldTimeOutQueuedRequestsWithoutFurtherTraffic()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(1, 1, 10);
+		limiter.execute(session, STATEMENT);
+		ListenableFuture<ResultSet> queued = limiter.execute(session, STATEMENT);
+
+		// Nothing completes and nothing else is executed.
+		assertRejected(queued);
+		assertEquals(1, limiter.timedOutCount());
+		assertEquals(0, limiter.queueDepth());
+		assertEquals(1, executed.size());
+		assertEquals(1, limiter.waits().getCount());
+
+		executed.get(0).complete();
+		assertEquals(1, executed.size());
+		assertEquals(0, limiter.inFlight());
+	}
+
+	@Test
+	public void shouldSkipCancelledRequests()
+	throws Exception
+	{
+		RequestLimiter limiter = new RequestLimiter(1, 5, 0);
+		limiter.execute(session, STATEMENT);
+		ListenableFuture<ResultSet> cancelled = limiter.execute(session, STATEMENT);
+		limiter.execute(session, STATEMENT);
+		cancelled.cancel(false);
+
+		executed.get(0).complete();
+		assertEquals(2, executed.size());
+		assertEquals(1, limiter.inFlight());
+		assertEquals(0, limiter.queueDepth());
+	}
+
+	private void assertRejected(ListenableFuture<ResultSet> future)
+	throws InterruptedException
+	{
+		try
+		{
+			future.get();
+			fail("Request was not rejected");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof RequestRejectedException);
+		}
+	}
+
+	private static class PendingResultSet
+	extends AbstractFuture<ResultSet>
+	implements ResultSetFuture
+	{
+		public void complete()
+		{
+			set(null);
+		}
+
+		@Override
+		public ResultSet getUninterruptibly()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ResultSet getUninterruptibly(long timeout, TimeUnit unit)
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.cassandra;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class TracerTest
+{
+	@Test
+	public void shouldSampleNothingOrEverything()
+	{
+		Tracer none = new Tracer(0.0);
+		Tracer all = new Tracer(1.0);
+
+		for (int i = 0; i < 100; i++)
+		{
+			assertNull(none.start("read", "db", "table", null));
+			assertNotNull(all.start("read", "db", "table", null));
+		}
+	}
+
+	@Test
+	public void shouldKeepMostRecentTraces()
+	{
+		Tracer tracer = new Tracer(1.0, 3, false);
+
+		for (int i = 0; i < 5; i++)
+		{
+			tracer.finish(tracer.start("read", "db", "table", i), null);
+		}
+
+		List<OperationTrace> recent = tracer.recent();
+		assertEquals(5, tracer.recordedCount());
+		assertEquals(3, recent.size());
+		assertEquals(2, recent.get(0).identifier());
+		assertEquals(4, recent.get(2).identifier());
+		assertTrue(recent.get(2).isFinished());
+		assertTrue(recent.get(2).duration(TimeUnit.NANOSECONDS) >= 0L);
+	}
+
+	@Test
+	public void shouldRecordStagesInOrder()
+	throws Exception
+	{
+		Tracer tracer = new Tracer(1.0);
+		OperationTrace trace = tracer.start("read", "db", "table", null);
+		trace.stage(OperationTrace.ACQUIRE_REPOSITORY);
+		trace.stage(OperationTrace.VALIDATE);
+		trace.stage(OperationTrace.PREPARE);
+		tracer.finish(trace, new IllegalStateException());
+
+		assertEquals(Arrays.asList(OperationTrace.ACQUIRE_REPOSITORY, OperationTrace.VALIDATE, OperationTrace.PREPARE),
+			Arrays.asList(trace.stages().keySet().toArray()));
+		assertTrue(trace.error() instanceof IllegalStateException);
+		assertFalse(trace.isQueryTracing());
+	}
+
+	@Test
+	public void shouldBeCurrentOnlyWithin()
+	throws Exception
+	{
+		OperationTrace trace = new Tracer(1.0).start("read", "db", "table", null);
+		assertNull(OperationTrace.current());
+
+		OperationTrace current = trace.within(new Callable<OperationTrace>()
+		{
+			@Override
+			public OperationTrace call()
+			{
+				return OperationTrace.current();
+			}
+		});
+
+		assertSame(trace, current);
+		assertNull(OperationTrace.current());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void shouldThrowOnInvalidSampleRate()
+	{
+		new Tracer(1.5);
+	}
+}
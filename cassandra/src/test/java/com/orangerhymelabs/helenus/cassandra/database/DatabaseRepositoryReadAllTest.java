@@ -18,10 +18,13 @@ package com.orangerhymelabs.helenus.cassandra.database;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -34,6 +37,8 @@ import com.google.common.util.concurrent.Futures;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
 import com.orangerhymelabs.helenus.cassandra.KeyspaceSchema;
 import com.orangerhymelabs.helenus.cassandra.TestCallback;
+import com.orangerhymelabs.helenus.exception.InvalidCursorException;
+import com.orangerhymelabs.helenus.persistence.Page;
 
 /**
  * @author tfredrich
@@ -72,6 +77,23 @@ public class DatabaseRepositoryReadAllTest
 		populateDatabase("dba", 10);
 		shouldReturnListSynchronously();
 		shouldReturnListAsynchronously();
+		shouldReadPages();
+	}
+
+	@Test(expected=InvalidCursorException.class)
+	public void shouldThrowOnInvalidCursor()
+	throws Throwable
+	{
+		try
+		{
+			databases.readPage(3, "not-a-cursor").get();
+		}
+		catch (ExecutionException e)
+		{
+			// The client-supplied cursor isn't echoed back.
+			assertEquals("Invalid or expired cursor", e.getCause().getMessage());
+			throw e.getCause();
+		}
 	}
 
 	private void shouldReturnEmptyListSynchronously()
@@ -127,6 +149,40 @@ public class DatabaseRepositoryReadAllTest
 		assertEquals(10, dbs.size());
     }
 
+	private void shouldReadPages()
+	throws InterruptedException, ExecutionException
+	{
+		Set<String> names = new HashSet<>();
+		Page<Database> page = databases.readPage(3, null).get();
+		int pages = 1;
+		names.addAll(namesOf(page));
+
+		while (page.hasNext())
+		{
+			assertEquals(3, page.size());
+			page = databases.readPage(3, page.cursor()).get();
+			names.addAll(namesOf(page));
+			++pages;
+		}
+
+		assertNull(page.cursor());
+		assertEquals(4, pages);
+		assertEquals(1, page.size());
+		assertEquals(10, names.size());
+	}
+
+	private Set<String> namesOf(Page<Database> page)
+	{
+		Set<String> names = new HashSet<>();
+
+		for (Database db : page)
+		{
+			names.add(db.name());
+		}
+
+		return names;
+	}
+
 	private void waitFor(TestCallback<List<Database>> callback)
 	throws InterruptedException
     {
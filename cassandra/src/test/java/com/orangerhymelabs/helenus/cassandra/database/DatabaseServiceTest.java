@@ -16,6 +16,7 @@
 package com.orangerhymelabs.helenus.cassandra.database;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -194,6 +195,34 @@ public class DatabaseServiceTest
 		assertTrue(callback.throwable() instanceof ValidationException);
 	}
 
+	@Test
+	public void shouldCacheExistence()
+	throws Exception
+	{
+		Database entity = new Database();
+		entity.name("cached");
+		assertFalse(databases.exists(entity.name()).get());
+		long hits = databases.cacheStats().hitCount();
+		assertFalse(databases.exists(entity.name()).get());
+		assertEquals(hits + 1, databases.cacheStats().hitCount());
+
+		TestCallback<Database> callback = new TestCallback<Database>();
+		databases.create(entity, callback);
+		waitFor(callback);
+
+		assertNull(callback.throwable());
+		assertTrue(databases.exists(entity.name()).get());
+		assertTrue(databases.exists(entity.name()).get());
+		assertEquals(hits + 2, databases.cacheStats().hitCount());
+
+		TestCallback<Boolean> deleteCallback = new TestCallback<Boolean>();
+		databases.delete(entity.name(), deleteCallback);
+		waitFor(deleteCallback);
+
+		assertTrue(deleteCallback.entity());
+		assertFalse(databases.exists(entity.name()).get());
+	}
+
 	private void waitFor(TestCallback<?> callback)
 	throws InterruptedException
     {
@@ -19,14 +19,25 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.thrift.transport.TTransportException;
@@ -34,19 +45,34 @@ import org.bson.BSONObject;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.PreparedStatement;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.mongodb.util.JSON;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
 import com.orangerhymelabs.helenus.cassandra.KeyspaceSchema;
+import com.orangerhymelabs.helenus.cassandra.OperationTrace;
 import com.orangerhymelabs.helenus.cassandra.TestCallback;
+import com.orangerhymelabs.helenus.cassandra.Tracer;
 import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.TableRepository;
+import com.orangerhymelabs.helenus.cassandra.table.WriteMode;
+import com.orangerhymelabs.helenus.cassandra.document.AbstractDocumentRepository.DocumentStatements;
 import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
+import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionParser;
 import com.orangerhymelabs.helenus.exception.DuplicateItemException;
 import com.orangerhymelabs.helenus.exception.InvalidIdentifierException;
 import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
+import com.orangerhymelabs.helenus.persistence.ImmutableIdentifier;
+import com.orangerhymelabs.helenus.persistence.PreparedStatementCache;
+import com.orangerhymelabs.helenus.persistence.ReadResult;
+import com.orangerhymelabs.helenus.persistence.WriteResult;
 
 /**
  * @author tfredrich
@@ -60,6 +86,9 @@ public class DocumentRepositoryTest
 	private static KeyspaceSchema keyspace;
 	private static AbstractDocumentRepository uuidDocs;
 	private static AbstractDocumentRepository dateDocs;
+	private static AbstractDocumentRepository sequenceDocs;
+	private static AbstractDocumentRepository eventDocs;
+	private static AbstractDocumentRepository ingestDocs;
 
 	@BeforeClass
 	public static void beforeClass()
@@ -88,6 +117,30 @@ public class DocumentRepositoryTest
 		dates.description("a test date-keyed table");
 		Table dateTable = tables.create(dates).get();
 		dateDocs = factory.newInstance(dateTable);
+
+		Table sequences = new Table();
+		sequences.name("sequences");
+		sequences.database("db1");
+		sequences.keys("(pk:text), seq:int");
+		sequences.description("a test table with a clustering key");
+		Table sequenceTable = tables.create(sequences).get();
+		sequenceDocs = factory.newInstance(sequenceTable);
+
+		Table events = new Table();
+		events.name("events");
+		events.database("db1");
+		events.keys("(pk:text), day:text, seq:int");
+		events.description("a test table with a compound clustering key");
+		Table eventTable = tables.create(events).get();
+		eventDocs = factory.newInstance(eventTable);
+
+		Table ingest = new Table();
+		ingest.name("ingest");
+		ingest.database("db1");
+		ingest.writeMode(WriteMode.UNCONDITIONAL);
+		ingest.description("a test table without lightweight transactions");
+		tables.create(ingest).get();
+		ingestDocs = factory.newInstance(tables.read(ingest.identifier()).get());
 	}
 
 	@AfterClass
@@ -405,6 +458,31 @@ public class DocumentRepositoryTest
 		assertTrue(callback.throwable() instanceof DuplicateItemException);
 	}
 
+	@Test
+	public void shouldWriteUnconditionally()
+	throws Exception
+	{
+		assertEquals(WriteMode.UNCONDITIONAL, ingestDocs.writeMode());
+		assertEquals(WriteMode.CONDITIONAL, uuidDocs.writeMode());
+
+		// Update of a missing document creates it.
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object(BSON);
+		ingestDocs.update(doc).get();
+		assertEquals(BSON.get("c"), ingestDocs.read(doc.identifier()).get().object().get("c"));
+
+		// Create of an existing document overwrites it.
+		Document dup = new Document();
+		dup.identifier(doc.identifier());
+		ingestDocs.create(dup).get();
+		assertFalse(ingestDocs.read(doc.identifier()).get().hasObject());
+
+		List<WriteResult<Document>> results = ingestDocs.createAll(Arrays.asList(dup, dup)).get();
+		assertTrue(results.get(0).isSuccess());
+		assertTrue(results.get(1).isSuccess());
+	}
+
 	@Test(expected=InvalidIdentifierException.class)
 	public void shouldThrowOnCreateInvalidIdSynchronously()
 	{
@@ -530,6 +608,392 @@ public class DocumentRepositoryTest
 		assertTrue(callback.throwable() instanceof ItemNotFoundException);
 	}
 
+	@Test
+	public void shouldPublishPartitionWithBackpressure()
+	throws Exception
+	{
+		for (int i = 0; i < 25; i++)
+		{
+			Document doc = new Document();
+			doc.identifier(new Identifier("stream", i));
+			sequenceDocs.create(doc).get();
+		}
+
+		TestSubscriber subscriber = new TestSubscriber();
+		sequenceDocs.publishAll(10, "stream").subscribe(subscriber);
+		subscriber.request(5);
+		assertTrue(subscriber.awaitCount(5));
+		Thread.sleep(100);
+		assertEquals(5, subscriber.items.size());
+		assertFalse(subscriber.isDone());
+
+		subscriber.request(Long.MAX_VALUE);
+		assertTrue(subscriber.awaitDone());
+		assertNull(subscriber.error);
+		assertEquals(25, subscriber.items.size());
+
+		for (int i = 0; i < 25; i++)
+		{
+			assertEquals(new Identifier("stream", i), subscriber.items.get(i).identifier());
+		}
+	}
+
+	@Test
+	public void shouldPublishEmptyPartition()
+	throws Exception
+	{
+		TestSubscriber subscriber = new TestSubscriber();
+		sequenceDocs.publishAll(10, "empty").subscribe(subscriber);
+		subscriber.request(1);
+		assertTrue(subscriber.awaitDone());
+		assertNull(subscriber.error);
+		assertTrue(subscriber.items.isEmpty());
+	}
+
+	@Test
+	public void shouldUpsertAll()
+	throws Exception
+	{
+		List<Document> docs = new ArrayList<Document>();
+
+		for (int i = 0; i < 120; i++)
+		{
+			Document doc = new Document(BSON);
+			doc.identifier(new Identifier((i % 3 == 0 ? "bulk-a" : "bulk-b"), i));
+			docs.add(doc);
+		}
+
+		List<WriteResult<Document>> results = sequenceDocs.upsertAll(docs).get();
+		assertEquals(docs.size(), results.size());
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			assertTrue(results.get(i).isSuccess());
+			assertEquals(docs.get(i), results.get(i).entity());
+		}
+
+		assertEquals(40, sequenceDocs.readAll("bulk-a").get().size());
+		assertEquals(80, sequenceDocs.readAll("bulk-b").get().size());
+	}
+
+	@Test
+	public void shouldCreateAllReportingDuplicates()
+	throws Exception
+	{
+		Document existing = new Document(BSON);
+		existing.identifier(new Identifier("bulk-c", 5));
+		sequenceDocs.create(existing).get();
+
+		List<Document> docs = new ArrayList<Document>();
+
+		for (int i = 0; i < 10; i++)
+		{
+			Document doc = new Document(BSON);
+			doc.identifier(new Identifier("bulk-c", i));
+			docs.add(doc);
+		}
+
+		Document other = new Document(BSON);
+		other.identifier(new Identifier("bulk-d", 1));
+		docs.add(other);
+
+		List<WriteResult<Document>> results = sequenceDocs.createAll(docs).get();
+		assertEquals(docs.size(), results.size());
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			if (i == 5)
+			{
+				assertTrue(results.get(i).isFailure());
+				assertTrue(results.get(i).error() instanceof DuplicateItemException);
+			}
+			else
+			{
+				assertTrue(results.get(i).toString(), results.get(i).isSuccess());
+			}
+		}
+
+		assertEquals(10, sequenceDocs.readAll("bulk-c").get().size());
+		assertEquals(1, sequenceDocs.readAll("bulk-d").get().size());
+	}
+
+	@Test
+	public void shouldPrepareAllStatements()
+	throws Exception
+	{
+		List<PreparedStatement> statements = sequenceDocs.prepareAll().get();
+		assertEquals(8, statements.size());
+
+		for (PreparedStatement statement : statements)
+		{
+			assertNotNull(statement);
+		}
+	}
+
+	@Test
+	public void shouldPrepareOncePerStatement()
+	throws Exception
+	{
+		PreparedStatementCache cache = PreparedStatementCache.forSession(CassandraManager.session());
+		String cql = "select * from " + CassandraManager.keyspace() + ".db1_sequences where pk = ?";
+		ListenableFuture<PreparedStatement> first = cache.prepare(cql);
+		ListenableFuture<PreparedStatement> second = cache.prepare(cql);
+
+		assertSame(first, second);
+		assertSame(first.get(), cache.prepare(cql).get());
+
+		cache.invalidate(cql);
+		assertNotSame(first, cache.prepare(cql));
+	}
+
+	@Test
+	public void shouldCheckExistenceByKeyOnly()
+	throws Exception
+	{
+		DocumentStatements statements = new DocumentStatements(CassandraManager.session(), CassandraManager.keyspace(), "db1_sequences", new KeyDefinitionParser().parse("(pk:text), seq:int"));
+		String cql = statements.exists().get().getQueryString();
+		assertTrue(cql, cql.startsWith("select pk,seq from "));
+		assertTrue(cql, cql.endsWith(" limit 1"));
+
+		sequenceDocs.upsert(newDocument(new Identifier("exists", 1))).get();
+		assertTrue(sequenceDocs.exists(new Identifier("exists", 1)).get());
+		assertFalse(sequenceDocs.exists(new Identifier("exists", 2)).get());
+	}
+
+	@Test
+	public void shouldReadInByPartition()
+	throws Exception
+	{
+		List<Document> docs = new ArrayList<>();
+
+		for (int i = 0; i < 5; i++)
+		{
+			docs.add(newDocument(new Identifier("readin-a", i)));
+		}
+
+		docs.add(newDocument(new Identifier("readin-b", 0)));
+		sequenceDocs.upsertAll(docs).get();
+		sequenceDocs.maxReadInSize(3);
+
+		List<Document> results = sequenceDocs.readIn(
+			new Identifier("readin-b", 0),
+			new Identifier("readin-a", 4),
+			new Identifier("readin-a", 9),
+			new Identifier("readin-a", 0),
+			new Identifier("readin-a", 2),
+			new Identifier("readin-a", 3),
+			new Identifier("readin-c", 0)).get();
+		sequenceDocs.maxReadInSize(AbstractDocumentRepository.DEFAULT_MAX_READ_IN_SIZE);
+
+		assertEquals(7, results.size());
+		assertEquals(new Identifier("readin-b", 0), results.get(0).identifier());
+		assertEquals(new Identifier("readin-a", 4), results.get(1).identifier());
+		assertNull(results.get(2));
+		assertEquals(new Identifier("readin-a", 0), results.get(3).identifier());
+		assertEquals(new Identifier("readin-a", 2), results.get(4).identifier());
+		assertEquals(new Identifier("readin-a", 3), results.get(5).identifier());
+		assertNull(results.get(6));
+		assertNotNull(results.get(1).object());
+	}
+
+	@Test
+	public void shouldReadInDuplicateIdsWithoutClusteringKey()
+	throws Exception
+	{
+		UUID id = UUID.randomUUID();
+		uuidDocs.upsert(newDocument(new Identifier(id))).get();
+
+		List<Document> results = uuidDocs.readIn(
+			new Identifier(id),
+			new Identifier(UUID.randomUUID()),
+			new Identifier(id)).get();
+
+		assertEquals(3, results.size());
+		assertEquals(new Identifier(id), results.get(0).identifier());
+		assertNull(results.get(1));
+		assertEquals(new Identifier(id), results.get(2).identifier());
+	}
+
+	@Test
+	public void shouldReadInCompoundClusteringKeys()
+	throws Exception
+	{
+		List<Document> docs = new ArrayList<>();
+		docs.add(newDocument(new Identifier("readin", "monday", 1)));
+		docs.add(newDocument(new Identifier("readin", "monday", 2)));
+		docs.add(newDocument(new Identifier("readin", "tuesday", 1)));
+		eventDocs.upsertAll(docs).get();
+
+		List<Document> results = eventDocs.readIn(
+			new Identifier("readin", "tuesday", 1),
+			new Identifier("readin", "monday", 1),
+			new Identifier("readin", "tuesday", 2)).get();
+
+		assertEquals(3, results.size());
+		assertEquals(new Identifier("readin", "tuesday", 1), results.get(0).identifier());
+		assertEquals(new Identifier("readin", "monday", 1), results.get(1).identifier());
+		assertNull(results.get(2));
+	}
+
+	@Test
+	public void shouldReadEachWithStatus()
+	throws Exception
+	{
+		sequenceDocs.upsert(newDocument(new Identifier("readeach", 1))).get();
+
+		List<ReadResult<Document>> results = sequenceDocs.readEach(
+			new Identifier("readeach", 2),
+			new Identifier("readeach"),
+			new Identifier("readeach", 1)).get();
+
+		assertEquals(3, results.size());
+		assertEquals(ReadResult.Status.NOT_FOUND, results.get(0).status());
+		assertEquals(new Identifier("readeach", 2), results.get(0).identifier());
+		assertTrue(results.get(1).isFailure());
+		assertTrue(results.get(1).error() instanceof InvalidIdentifierException);
+		assertTrue(results.get(2).isFound());
+		assertEquals(new Identifier("readeach", 1), results.get(2).entity().identifier());
+	}
+
+	@Test
+	public void shouldReturnPartialResultsAtDeadline()
+	throws Exception
+	{
+		sequenceDocs.upsert(newDocument(new Identifier("deadline", 1))).get();
+		SettableFuture<Document> stalled = SettableFuture.create();
+		Table table = new Table();
+		table.name("sequences");
+		table.database("db1");
+		table.keys("(pk:text), seq:int");
+		AbstractDocumentRepository docs = new DocumentRepository(CassandraManager.session(), CassandraManager.keyspace(), table)
+		{
+			@Override
+			protected List<ListenableFuture<Document>> submitEach(Identifier... ids)
+			{
+				List<ListenableFuture<Document>> futures = super.submitEach(ids);
+				futures.set(1, stalled);
+				return futures;
+			}
+		};
+
+		List<ReadResult<Document>> results = docs.readEach(200, TimeUnit.MILLISECONDS,
+			new Identifier("deadline", 1),
+			new Identifier("deadline", 2),
+			new Identifier("deadline")).get(CALLBACK_TIMEOUT, TimeUnit.MILLISECONDS);
+
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isFound());
+		assertTrue(results.get(1).isFailure());
+		assertTrue(results.get(1).error() instanceof TimeoutException);
+		assertTrue(results.get(2).error() instanceof InvalidIdentifierException);
+		assertTrue(stalled.isCancelled());
+	}
+
+	@Test(expected=InvalidIdentifierException.class)
+	public void shouldThrowOnInvalidReadInIdentifier()
+	{
+		sequenceDocs.readIn(new Identifier("readin-a", 1), new Identifier("readin-a"));
+	}
+
+	@Test
+	public void shouldComputeRoutingKeyOnce()
+	throws Exception
+	{
+		Document doc = new Document();
+		Identifier id = new Identifier("routed", 1);
+		doc.identifier(id);
+		assertSame(id, doc.identifier());
+		assertNull(doc.routedIdentifier());
+
+		sequenceDocs.create(doc).get();
+		ImmutableIdentifier routed = doc.routedIdentifier();
+		assertTrue(routed.hasRoutingKey());
+		assertEquals(ByteBuffer.wrap("routed".getBytes(StandardCharsets.UTF_8)), routed.routingKey());
+		assertEquals(id, routed);
+		assertEquals(id.hashCode(), routed.hashCode());
+
+		sequenceDocs.update(doc).get();
+		assertSame(routed, doc.routedIdentifier());
+		assertTrue(sequenceDocs.exists(new Identifier("routed", 1)).get());
+
+		// The document's identifier is the caller's, so it can still be added to, which discards the routing key.
+		doc.identifier().add("more");
+		assertNull(doc.routedIdentifier());
+	}
+
+	@Test
+	public void shouldRecordMetrics()
+	throws Exception
+	{
+		MetricRegistry registry = new MetricRegistry();
+		DocumentRepositoryFactoryImpl factory = new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace());
+		factory.metricRegistry(registry);
+		Table sequences = new Table();
+		sequences.name("sequences");
+		sequences.database("db1");
+		sequences.keys("(pk:text), seq:int");
+		AbstractDocumentRepository docs = factory.newInstance(sequences);
+		assertEquals("helenus.db1.sequences", docs.metrics().name());
+
+		docs.upsert(newDocument(new Identifier("metered", 1))).get();
+		docs.read(new Identifier("metered", 1)).get();
+
+		try
+		{
+			docs.read(new Identifier("metered", 2)).get();
+			fail("Should have thrown ItemNotFoundException");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof ItemNotFoundException);
+		}
+
+		assertEquals(1, registry.timer("helenus.db1.sequences.upsert.latency").getCount());
+		assertEquals(2, registry.timer("helenus.db1.sequences.read.latency").getCount());
+		assertEquals(1, registry.meter("helenus.db1.sequences.read.errors").getCount());
+		assertEquals(0, registry.meter("helenus.db1.sequences.upsert.errors").getCount());
+		assertEquals(1, registry.histogram("helenus.db1.sequences.write.payload").getCount());
+		assertEquals(1, registry.histogram("helenus.db1.sequences.read.payload").getCount());
+		assertTrue(registry.histogram("helenus.db1.sequences.write.payload").getSnapshot().getMax() > 0);
+		assertNull(sequenceDocs.metrics());
+	}
+
+	@Test
+	public void shouldTraceStages()
+	throws Exception
+	{
+		sequenceDocs.upsert(newDocument(new Identifier("traced", 1))).get();
+		Tracer tracer = new Tracer(1.0, 10, true);
+		OperationTrace trace = tracer.start("read", "db1", "sequences", new Identifier("traced", 1));
+		Document doc = trace.within(new Callable<ListenableFuture<Document>>()
+		{
+			@Override
+			public ListenableFuture<Document> call()
+			{
+				return sequenceDocs.read(new Identifier("traced", 1));
+			}
+		}).get();
+		tracer.finish(trace, null);
+
+		assertNotNull(doc);
+		assertEquals(Arrays.asList(OperationTrace.VALIDATE, OperationTrace.PREPARE, OperationTrace.EXECUTE, OperationTrace.DECODE),
+			new ArrayList<>(trace.stages().keySet()));
+		assertNotNull(trace.coordinator());
+		assertNotNull(trace.queryTrace());
+		assertSame(trace, tracer.recent().get(0));
+
+		// Not current, so not traced.
+		sequenceDocs.read(new Identifier("traced", 1)).get();
+		assertEquals(4, trace.stages().size());
+	}
+
+	private Document newDocument(Identifier id)
+	{
+		Document doc = new Document(BSON);
+		doc.identifier(id);
+		return doc;
+	}
+
 	private void waitFor(TestCallback<?> callback)
 	throws InterruptedException
     {
@@ -538,4 +1002,68 @@ public class DocumentRepositoryTest
 			callback.wait(CALLBACK_TIMEOUT);
 		}
     }
+
+	private static class TestSubscriber
+	implements Subscriber<Document>
+	{
+		private Subscription subscription;
+		private List<Document> items = new ArrayList<Document>();
+		private Throwable error;
+		private CountDownLatch done = new CountDownLatch(1);
+
+		@Override
+		public void onSubscribe(Subscription s)
+		{
+			this.subscription = s;
+		}
+
+		@Override
+		public synchronized void onNext(Document t)
+		{
+			items.add(t);
+			notifyAll();
+		}
+
+		@Override
+		public void onError(Throwable t)
+		{
+			this.error = t;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete()
+		{
+			done.countDown();
+		}
+
+		public void request(long n)
+		{
+			subscription.request(n);
+		}
+
+		public synchronized boolean awaitCount(int count)
+		throws InterruptedException
+		{
+			long deadline = System.currentTimeMillis() + CALLBACK_TIMEOUT;
+
+			while (items.size() < count && System.currentTimeMillis() < deadline)
+			{
+				wait(CALLBACK_TIMEOUT);
+			}
+
+			return (items.size() >= count);
+		}
+
+		public boolean awaitDone()
+		throws InterruptedException
+		{
+			return done.await(CALLBACK_TIMEOUT, TimeUnit.MILLISECONDS);
+		}
+
+		public boolean isDone()
+		{
+			return (done.getCount() == 0);
+		}
+	}
 }
@@ -24,9 +24,20 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import org.apache.cassandra.exceptions.ConfigurationException;
 import org.apache.thrift.transport.TTransportException;
@@ -35,9 +46,12 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.mongodb.util.JSON;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
+import com.orangerhymelabs.helenus.cassandra.SchemaChangeInvalidator;
 import com.orangerhymelabs.helenus.cassandra.SchemaRegistry;
 import com.orangerhymelabs.helenus.cassandra.TestCallback;
 import com.orangerhymelabs.helenus.cassandra.database.Database;
@@ -66,6 +80,9 @@ public class DocumentServiceTest
 	private static final BSONObject BSON = (BSONObject) JSON.parse("{'a':'some', 'b':1, 'c':'excitement'}");
 
 	private static DocumentService allDocs;
+	private static TableService tables;
+	private static ViewService views;
+	private static Table uuids;
 
 	@BeforeClass
 	public static void beforeClass()
@@ -76,15 +93,15 @@ public class DocumentServiceTest
 		
 		DatabaseRepository dbr = new DatabaseRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace());
 		DatabaseService dbs = new DatabaseService(dbr);
-		TableService tables = new TableService(dbs, new TableRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()));
-		ViewService views = new ViewService(new ViewRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()), tables);
+		tables = new TableService(dbs, new TableRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()));
+		views = new ViewService(new ViewRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()), tables);
 
 		Database db = new Database();
 		db.name(DB_NAME);
 		db.description("DB for DocumentServiceTest Documents");
 		dbs.create(db).get();
 
-		Table uuids = new Table();
+		uuids = new Table();
 		uuids.name(UUIDS_TABLE);
 		uuids.database(DB_NAME);
 		uuids.description("a test UUID-keyed table");
@@ -627,6 +644,321 @@ public class DocumentServiceTest
 		assertTrue(callback.throwable() instanceof InvalidIdentifierException);
 	}
 
+	@Test
+	public void shouldLoadRepositoryOnceUntilTableChanges()
+	throws Exception
+	{
+		DocumentService docs = new DocumentService(tables, views, new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace()));
+		List<ListenableFuture<Boolean>> futures = new ArrayList<>();
+
+		for (int i = 0; i < 5; i++)
+		{
+			futures.add(docs.exists(DB_NAME, UUIDS_TABLE, new Identifier(UUID.randomUUID())));
+		}
+
+		Futures.allAsList(futures).get();
+		CacheStats stats = docs.cacheStats();
+		assertEquals(5, stats.requestCount());
+		assertEquals(1, stats.loadSuccessCount());
+
+		uuids.description("a changed UUID-keyed table");
+		tables.update(uuids).get();
+		assertFalse(docs.exists(DB_NAME, UUIDS_TABLE, new Identifier(UUID.randomUUID())).get());
+		assertEquals(2, docs.cacheStats().loadSuccessCount());
+	}
+
+	@Test
+	public void shouldReloadRepositoryAfterSchemaChange()
+	throws Exception
+	{
+		DocumentService docs = new DocumentService(tables, views, new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace()));
+		assertFalse(docs.exists(DB_NAME, DATES_TABLE, new Identifier(new Date())).get());
+		assertEquals(1, docs.cacheStats().loadSuccessCount());
+
+		SchemaChangeInvalidator invalidator = new SchemaChangeInvalidator(CassandraManager.keyspace(), tables, views, docs);
+		CassandraManager.cluster().register(invalidator);
+
+		try
+		{
+			// As if changed by another node.
+			CassandraManager.session().execute(String.format("alter table %s.%s_%s with comment = 'changed'", CassandraManager.keyspace(), DB_NAME, DATES_TABLE));
+
+			// The repository is discarded, then loaded again in the background, with the table's views, to prepare its statements.
+			long deadline = System.currentTimeMillis() + 10000L;
+
+			while (docs.cacheStats().loadSuccessCount() < 3 && System.currentTimeMillis() < deadline)
+			{
+				Thread.sleep(100L);
+			}
+
+			assertEquals(3, docs.cacheStats().loadSuccessCount());
+			assertFalse(docs.exists(DB_NAME, DATES_TABLE, new Identifier(new Date())).get());
+		}
+		finally
+		{
+			CassandraManager.cluster().unregister(invalidator);
+		}
+	}
+
+	@Test
+	public void shouldScanWholeTable()
+	throws Exception
+	{
+		Table scanned = new Table();
+		scanned.name("scanned");
+		scanned.database(DB_NAME);
+		scanned.keys("(grp:int), id:uuid");
+		tables.create(scanned).get();
+		Set<Identifier> written = ConcurrentHashMap.newKeySet();
+
+		for (int i = 0; i < 25; i++)
+		{
+			Document doc = new Document();
+			doc.identifier(new Identifier(i % 7, UUID.randomUUID()));
+			doc.object((BSONObject) JSON.parse("{'n':" + i + "}"));
+			written.add(allDocs.create(DB_NAME, "scanned", doc).get().identifier());
+		}
+
+		Set<Identifier> read = ConcurrentHashMap.newKeySet();
+		TableScanner scanner = allDocs.scanner(DB_NAME, "scanned").get()
+			.splits(16)
+			.partitionsPerSplit(10L)
+			.parallelism(4)
+			.pageSize(2)
+			.maxRowsPerSecond(1000);
+		long count = scanner.scanEach(new Consumer<Document>()
+		{
+			@Override
+			public void accept(Document t)
+			{
+				read.add(t.identifier());
+			}
+		}).get();
+
+		assertEquals(25L, count);
+		assertEquals(written, read);
+		assertEquals(1.0, scanner.progress(), 0.0);
+	}
+
+	@Test
+	public void shouldResumeScanWithCheckpointedSplits()
+	throws Exception
+	{
+		Table resumed = new Table();
+		resumed.name("resumed");
+		resumed.database(DB_NAME);
+		resumed.keys("(grp:int), id:uuid");
+		tables.create(resumed).get();
+
+		for (int i = 0; i < 12; i++)
+		{
+			Document doc = new Document();
+			doc.identifier(new Identifier(i % 5, UUID.randomUUID()));
+			doc.object((BSONObject) JSON.parse("{'n':" + i + "}"));
+			allDocs.create(DB_NAME, "resumed", doc).get();
+		}
+
+		Map<String, String> cursors = new ConcurrentHashMap<>();
+		cursors.put("splits", "3");
+		TableScanner.Checkpoints checkpoints = new TableScanner.Checkpoints()
+		{
+			@Override
+			public ListenableFuture<String> read(int split, int splits)
+			{
+				return Futures.immediateFuture(cursors.get(split + "/" + splits));
+			}
+
+			@Override
+			public ListenableFuture<?> write(int split, int splits, String cursor)
+			{
+				cursors.put(split + "/" + splits, cursor);
+				return Futures.immediateFuture(null);
+			}
+
+			@Override
+			public ListenableFuture<Integer> readSplits()
+			{
+				String splits = cursors.get("splits");
+				return Futures.immediateFuture(splits != null ? Integer.valueOf(splits) : null);
+			}
+
+			@Override
+			public ListenableFuture<?> writeSplits(int splits)
+			{
+				cursors.put("splits", String.valueOf(splits));
+				return Futures.immediateFuture(null);
+			}
+		};
+
+		TableScanner scanner = allDocs.scanner(DB_NAME, "resumed").get()
+			.splits(16)
+			.partitionsPerSplit(1L)
+			.checkpoints(checkpoints);
+		long count = scanner.scanEach(new Consumer<Document>()
+		{
+			@Override
+			public void accept(Document t)
+			{
+			}
+		}).get();
+
+		// Uses the recorded number of splits rather than sizing them again from the estimates.
+		assertEquals(12L, count);
+		assertEquals(3, scanner.splits());
+		assertEquals(TableScanner.DONE, cursors.get("2/3"));
+
+		cursors.clear();
+		scanner = allDocs.scanner(DB_NAME, "resumed").get()
+			.splits(3)
+			.partitionsPerSplit(100L)
+			.checkpoints(checkpoints);
+		scanner.scanEach(new Consumer<Document>()
+		{
+			@Override
+			public void accept(Document t)
+			{
+			}
+		}).get();
+		assertEquals(String.valueOf(scanner.splits()), cursors.get("splits"));
+	}
+
+	@Test
+	public void shouldImportNdjsonFile()
+	throws Exception
+	{
+		Table imported = new Table();
+		imported.name("imported");
+		imported.database(DB_NAME);
+		imported.keys("(grp:int), id:uuid");
+		tables.create(imported).get();
+		List<String> lines = new ArrayList<>();
+		UUID first = UUID.randomUUID();
+
+		for (int i = 0; i < 12; i++)
+		{
+			lines.add("{\"grp\": " + (i % 3) + ", \"id\": \"" + (i == 0 ? first : UUID.randomUUID()) + "\", \"n\": " + i + "}");
+		}
+
+		lines.add(5, "{\"grp\": 1, \"n\": \"no id\"}");
+		lines.add(8, "not json");
+		lines.add(9, "");
+		Path input = Files.createTempFile("import", ".ndjson");
+		Path errors = Files.createTempFile("import", ".errors");
+		Files.write(input, lines, StandardCharsets.UTF_8);
+
+		DocumentImporter importer = allDocs.importer(DB_NAME, "imported").get()
+			.batchSize(4)
+			.concurrency(2)
+			.parsers(2)
+			.errors(errors);
+		long count = importer.importFile(input).get();
+
+		assertEquals(12L, count);
+		assertEquals(14L, importer.documentsRead());
+		assertEquals(12L, importer.documentsWritten());
+		assertEquals(2L, importer.documentsFailed());
+		assertEquals(Files.size(input), importer.bytesRead());
+
+		List<String> failed = Files.readAllLines(errors, StandardCharsets.UTF_8);
+		assertEquals(2, failed.size());
+		assertTrue(failed.get(0).startsWith("6\t") || failed.get(1).startsWith("6\t"));
+		assertTrue(failed.get(0).endsWith("\tnot json") || failed.get(1).endsWith("\tnot json"));
+
+		Document doc = allDocs.read(DB_NAME, "imported", new Identifier(0, first)).get();
+		assertEquals(0, doc.object().get("n"));
+		assertEquals(first, doc.object().get("id"));
+		Files.delete(input);
+		Files.delete(errors);
+	}
+
+	@Test
+	public void shouldExportAndReimportTable()
+	throws Exception
+	{
+		Table exported = new Table();
+		exported.name("exported");
+		exported.database(DB_NAME);
+		exported.keys("(grp:int), id:uuid");
+		tables.create(exported).get();
+		Table reimported = new Table();
+		reimported.name("reimported");
+		reimported.database(DB_NAME);
+		reimported.keys("(grp:int), id:uuid");
+		tables.create(reimported).get();
+		List<Identifier> ids = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++)
+		{
+			Document doc = new Document();
+			doc.identifier(new Identifier(i % 4, UUID.randomUUID()));
+			doc.object((BSONObject) JSON.parse("{'n':" + i + ", 'ref': {'$uuid': '" + UUID.randomUUID() + "'}}"));
+			ids.add(allDocs.create(DB_NAME, "exported", doc).get().identifier());
+		}
+
+		Path dir = Files.createTempDirectory("export");
+		DocumentExporter exporter = allDocs.exporter(DB_NAME, "exported").get()
+			.splits(8)
+			.parallelism(3)
+			.pageSize(3)
+			.filePerSplit(true);
+
+		assertEquals(20L, exporter.exportTo(dir).get().longValue());
+		List<Path> files = new ArrayList<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir))
+		{
+			for (Path file : stream)
+			{
+				files.add(file);
+			}
+		}
+
+		assertEquals(exporter.filesWritten(), files.size());
+		long bytes = 0L;
+		long imported = 0L;
+
+		for (Path file : files)
+		{
+			bytes += Files.size(file);
+			imported += allDocs.importer(DB_NAME, "reimported").get().importFile(file).get();
+			Files.delete(file);
+		}
+
+		assertEquals(exporter.bytesWritten(), bytes);
+		assertEquals(20L, imported);
+
+		for (int i = 0; i < ids.size(); i++)
+		{
+			Document original = allDocs.read(DB_NAME, "exported", ids.get(i)).get();
+			Document copy = allDocs.read(DB_NAME, "reimported", ids.get(i)).get();
+			assertEquals(i, copy.object().get("n"));
+			assertEquals(original.object().get("ref"), copy.object().get("ref"));
+		}
+
+		Path partition = dir.resolve("partition.bson");
+		DocumentExporter partitionExporter = allDocs.exporter(DB_NAME, "exported").get().format(DocumentFormat.BSON);
+		assertEquals(5L, partitionExporter.exportPartition(new Identifier(1), partition).get().longValue());
+
+		try (DocumentRecordReader reader = new DocumentRecordReader(FileChannel.open(partition), DocumentFormat.BSON))
+		{
+			DocumentRecordReader.Record record;
+			int count = 0;
+
+			while ((record = reader.next()) != null)
+			{
+				BSONObject bson = org.bson.BSON.decode(record.bytes);
+				assertEquals(1, bson.get("grp"));
+				assertTrue(bson.get("id") instanceof UUID);
+				count++;
+			}
+
+			assertEquals(5, count);
+		}
+
+		Files.delete(partition);
+		Files.delete(dir);
+	}
+
 	private void waitFor(TestCallback<?> callback)
 	throws InterruptedException
     {
@@ -16,11 +16,19 @@
 package com.orangerhymelabs.helenus.cassandra.document;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 
@@ -31,12 +39,18 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.mongodb.util.JSON;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
+import com.orangerhymelabs.helenus.cassandra.OperationTrace;
 import com.orangerhymelabs.helenus.cassandra.SchemaRegistry;
+import com.orangerhymelabs.helenus.cassandra.Tracer;
 import com.orangerhymelabs.helenus.cassandra.database.Database;
 import com.orangerhymelabs.helenus.cassandra.database.DatabaseRepository;
 import com.orangerhymelabs.helenus.cassandra.database.DatabaseService;
+import com.orangerhymelabs.helenus.cassandra.meta.KeyValuePair;
+import com.orangerhymelabs.helenus.cassandra.meta.MetadataRepository;
 import com.orangerhymelabs.helenus.cassandra.table.Table;
 import com.orangerhymelabs.helenus.cassandra.table.TableRepository;
 import com.orangerhymelabs.helenus.cassandra.table.TableService;
@@ -44,6 +58,9 @@ import com.orangerhymelabs.helenus.cassandra.table.key.KeyDefinitionException;
 import com.orangerhymelabs.helenus.cassandra.view.View;
 import com.orangerhymelabs.helenus.cassandra.view.ViewRepository;
 import com.orangerhymelabs.helenus.cassandra.view.ViewService;
+import com.orangerhymelabs.helenus.exception.DuplicateItemException;
+import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
+import com.orangerhymelabs.helenus.exception.StorageException;
 import com.orangerhymelabs.helenus.persistence.Identifier;
 
 /**
@@ -57,6 +74,8 @@ public class ViewStorageTest
 	private static AbstractDocumentRepository uuidDocs;
 	private static AbstractDocumentRepository dateDocs;
 	private static DocumentService allDocs;
+	private static TableService tables;
+	private static ViewService views;
 
 	@BeforeClass
 	public static void beforeClass()
@@ -67,8 +86,8 @@ public class ViewStorageTest
 		
 		DatabaseRepository dbr = new DatabaseRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace());
 		DatabaseService dbs = new DatabaseService(dbr);
-		TableService tables = new TableService(dbs, new TableRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()));
-		ViewService views = new ViewService(new ViewRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()), tables);
+		tables = new TableService(dbs, new TableRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()));
+		views = new ViewService(new ViewRepository(CassandraManager.cluster().connect(CassandraManager.keyspace()), CassandraManager.keyspace()), tables);
 
 		DocumentRepositoryFactory factory = new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace());
 
@@ -131,4 +150,310 @@ public class ViewStorageTest
 		assertNotNull(result2.createdAt());
 		assertNotNull(result2.updatedAt());
 	}
+
+	@Test
+	public void shouldTraceCreateWithViews()
+	throws Exception
+	{
+		DocumentService traced = new DocumentService(tables, views, new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace()));
+		Tracer tracer = new Tracer(1.0, 10, false);
+		traced.tracer(tracer);
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		BSONObject bson = (BSONObject) JSON.parse("{'a':'traced'}");
+		bson.put("createdAt", new Date());
+		doc.object(bson);
+		traced.create("db1", "uuids", doc).get();
+
+		for (int i = 0; i < 50 && tracer.recordedCount() == 0L; i++)
+		{
+			Thread.sleep(10);
+		}
+
+		assertEquals(1, tracer.recent().size());
+		OperationTrace trace = tracer.recent().get(0);
+		assertEquals("create", trace.operation());
+		assertNull(trace.error());
+		List<String> stages = new ArrayList<>(trace.stages().keySet());
+		assertEquals(OperationTrace.ACQUIRE_REPOSITORY, stages.get(0));
+		assertTrue(stages.contains(OperationTrace.EXECUTE));
+	}
+
+	@Test
+	public void shouldApplyViewFailurePolicy()
+	throws Exception
+	{
+		Date createdAt = new Date();
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'first'}"));
+		doc.object().put("createdAt", createdAt);
+		allDocs.create("db1", "uuids", doc).get();
+
+		// The second document has the same view key, so its view document is a duplicate.
+		Document dup = new Document();
+		dup.identifier(new Identifier(UUID.randomUUID()));
+		dup.object((BSONObject) JSON.parse("{'a':'second'}"));
+		dup.object().put("createdAt", createdAt);
+
+		try
+		{
+			allDocs.create("db1", "uuids", dup).get();
+			fail("View duplicate not reported");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof StorageException);
+			assertTrue(e.getCause().getCause() instanceof DuplicateItemException);
+		}
+
+		// The table's document is written regardless.
+		assertEquals(dup.object(), uuidDocs.read(dup.identifier()).get().object());
+
+		List<View> repaired = new ArrayList<>();
+		DocumentService repairing = new DocumentService(tables, views, new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace()));
+		repairing.viewFailurePolicy(ViewFailurePolicy.REPAIR);
+		repairing.viewRepairListener(new ViewRepairListener()
+		{
+			@Override
+			public void onViewFailure(View view, Document document, Throwable cause)
+			{
+				repaired.add(view);
+			}
+		});
+
+		dup.identifier(new Identifier(UUID.randomUUID()));
+		assertSame(dup, repairing.create("db1", "uuids", dup).get());
+		assertEquals(1, repaired.size());
+		assertEquals("dates", repaired.get(0).name());
+	}
+
+	@Test
+	public void shouldWriteViewAtomically()
+	throws Exception
+	{
+		DocumentService atomicDocs = new DocumentService(tables, views, new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace()));
+		atomicDocs.atomicViews(true);
+
+		Date createdAt = new Date(System.currentTimeMillis() + 60000L);
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'atomic'}"));
+		doc.object().put("createdAt", createdAt);
+		assertSame(doc, atomicDocs.create("db1", "uuids", doc).get());
+
+		assertEquals(doc.object(), uuidDocs.read(doc.identifier()).get().object());
+		assertEquals(doc.object(), dateDocs.read(new Identifier(createdAt)).get().object());
+
+		// Upserts maintain the view too.
+		doc.object().put("a", "upserted");
+		atomicDocs.upsert("db1", "uuids", doc).get();
+		assertEquals("upserted", dateDocs.read(new Identifier(createdAt)).get().object().get("a"));
+	}
+
+	@Test
+	public void shouldMaintainViewOnUpdateAndDelete()
+	throws Exception
+	{
+		Date createdAt = new Date(System.currentTimeMillis() + 120000L);
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'maintained'}"));
+		doc.object().put("createdAt", createdAt);
+		allDocs.create("db1", "uuids", doc).get();
+		assertNotNull(dateDocs.read(new Identifier(createdAt)).get());
+
+		// Changing the view key moves the view row.
+		Date updatedAt = new Date(createdAt.getTime() + 1000L);
+		doc.object().put("createdAt", updatedAt);
+		allDocs.update("db1", "uuids", doc).get();
+		assertFalse(dateDocs.exists(new Identifier(createdAt)).get());
+		assertEquals(doc.object(), dateDocs.read(new Identifier(updatedAt)).get().object());
+
+		allDocs.delete("db1", "uuids", doc.identifier()).get();
+		assertFalse(dateDocs.exists(new Identifier(updatedAt)).get());
+		assertFalse(uuidDocs.exists(doc.identifier()).get());
+	}
+
+	@Test
+	public void shouldNoteViewKeysOnBulkWrites()
+	throws Exception
+	{
+		Date createdAt = new Date(System.currentTimeMillis() + 180000L);
+		Document created = new Document();
+		created.identifier(new Identifier(UUID.randomUUID()));
+		created.object((BSONObject) JSON.parse("{'a':'bulk created'}"));
+		created.object().put("createdAt", createdAt);
+		Document upserted = new Document();
+		upserted.identifier(new Identifier(UUID.randomUUID()));
+		upserted.object((BSONObject) JSON.parse("{'a':'bulk upserted'}"));
+		upserted.object().put("createdAt", new Date(createdAt.getTime() + 1000L));
+
+		assertTrue(allDocs.createAll("db1", "uuids", Arrays.asList(created)).get().get(0).isSuccess());
+		assertTrue(allDocs.upsertAll("db1", "uuids", Arrays.asList(upserted)).get().get(0).isSuccess());
+		assertEquals(1, uuidDocs.readViewKeys(created.identifier()).get().size());
+		assertEquals(1, uuidDocs.readViewKeys(upserted.identifier()).get().size());
+
+		// The noted keys let later writes maintain the bulk-written view rows.
+		Date movedTo = new Date(createdAt.getTime() + 2000L);
+		created.object().put("createdAt", movedTo);
+		allDocs.update("db1", "uuids", created).get();
+		assertFalse(dateDocs.exists(new Identifier(createdAt)).get());
+		assertTrue(dateDocs.exists(new Identifier(movedTo)).get());
+
+		allDocs.delete("db1", "uuids", upserted.identifier()).get();
+		assertFalse(dateDocs.exists(new Identifier(new Date(createdAt.getTime() + 1000L))).get());
+	}
+
+	@Test
+	public void shouldDeleteChangedViewRowsOnBulkUpserts()
+	throws Exception
+	{
+		Date createdAt = new Date(System.currentTimeMillis() + 240000L);
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'bulk re-upserted'}"));
+		doc.object().put("createdAt", createdAt);
+		assertTrue(allDocs.upsertAll("db1", "uuids", Arrays.asList(doc)).get().get(0).isSuccess());
+		assertTrue(dateDocs.exists(new Identifier(createdAt)).get());
+
+		// Upserting it again with a changed view key replaces its view row.
+		Date movedTo = new Date(createdAt.getTime() + 1000L);
+		Document changed = new Document();
+		changed.identifier(doc.identifier());
+		changed.object((BSONObject) JSON.parse("{'a':'bulk re-upserted'}"));
+		changed.object().put("createdAt", movedTo);
+		assertTrue(allDocs.upsertAll("db1", "uuids", Arrays.asList(changed)).get().get(0).isSuccess());
+		assertFalse(dateDocs.exists(new Identifier(createdAt)).get());
+		assertTrue(dateDocs.exists(new Identifier(movedTo)).get());
+
+		// And later writes still maintain it.
+		allDocs.delete("db1", "uuids", doc.identifier()).get();
+		assertFalse(dateDocs.exists(new Identifier(movedTo)).get());
+	}
+
+	@Test
+	public void shouldNotLeaveStaleViewRowsOnConcurrentUpdates()
+	throws Exception
+	{
+		long base = System.currentTimeMillis() + 240000L;
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'contended'}"));
+		doc.object().put("createdAt", new Date(base));
+		allDocs.create("db1", "uuids", doc).get();
+
+		int writers = 4;
+		List<ListenableFuture<Document>> updates = new ArrayList<>(writers);
+
+		for (int i = 1; i <= writers; i++)
+		{
+			Document update = new Document();
+			update.identifier(doc.identifier());
+			update.object((BSONObject) JSON.parse("{'a':'writer " + i + "'}"));
+			update.object().put("createdAt", new Date(base + i));
+			updates.add(allDocs.update("db1", "uuids", update));
+		}
+
+		Futures.successfulAsList(updates).get();
+		Date current = (Date) uuidDocs.read(doc.identifier()).get().object().get("createdAt");
+		int rows = 0;
+
+		for (int i = 0; i <= writers; i++)
+		{
+			Date key = new Date(base + i);
+
+			if (dateDocs.exists(new Identifier(key)).get())
+			{
+				rows++;
+				assertEquals(current, key);
+			}
+		}
+
+		assertEquals(1, rows);
+	}
+
+	@Test
+	public void shouldNotUpdateMissingDocumentWithViews()
+	throws Exception
+	{
+		Document doc = new Document();
+		doc.identifier(new Identifier(UUID.randomUUID()));
+		doc.object((BSONObject) JSON.parse("{'a':'missing'}"));
+		doc.object().put("createdAt", new Date());
+
+		try
+		{
+			allDocs.update("db1", "uuids", doc).get();
+			fail("Missing document updated");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof ItemNotFoundException);
+		}
+	}
+
+	@Test
+	public void shouldBuildViewOfExistingDocuments()
+	throws Exception
+	{
+		Table table = new Table();
+		table.name("backfilled");
+		table.database("db1");
+		table.keys("id:uuid");
+		table = tables.create(table).get();
+		DocumentRepositoryFactory factory = new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace());
+		AbstractDocumentRepository docs = factory.newInstance(table);
+		List<Document> written = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++)
+		{
+			Document doc = new Document();
+			doc.identifier(new Identifier(UUID.randomUUID()));
+			doc.object((BSONObject) JSON.parse("{'n':" + i + "}"));
+			written.add(docs.create(doc).get());
+		}
+
+		// Has no view key, so isn't in the view.
+		Document unkeyed = new Document();
+		unkeyed.identifier(new Identifier(UUID.randomUUID()));
+		unkeyed.object((BSONObject) JSON.parse("{'a':'unkeyed'}"));
+		docs.create(unkeyed).get();
+
+		View view = new View();
+		view.name("by_n");
+		view.table(table);
+		view.keys("n:int");
+		view = views.create(view).get();
+		AbstractDocumentRepository viewDocs = factory.newInstance(view);
+		MetadataRepository checkpoints = new MetadataRepository(CassandraManager.session(), CassandraManager.keyspace());
+		DocumentService service = new DocumentService(tables, views, factory);
+
+		// A checkpoint from a previous run skips the first half of the table.
+		checkpoints.upsert(new KeyValuePair("view_build:db1.backfilled.by_n:0/2", "done")).get();
+		ViewBuilder resumed = service.viewBuilder(view, checkpoints).get().splits(2);
+		long resumedRows = resumed.build().get();
+		assertEquals(2, resumed.splitsCompleted());
+		assertTrue(resumedRows < 20);
+		assertEquals(resumedRows + resumed.documentsSkipped(), resumed.documentsRead());
+
+		// Completed builds remove their checkpoints, so building again scans everything.
+		ViewBuilder builder = service.viewBuilder(view, checkpoints).get().splits(8).parallelism(3).pageSize(4).maxRowsPerSecond(1000);
+		assertEquals(20L, builder.build().get().longValue());
+		assertEquals(21L, builder.documentsRead());
+		assertEquals(1L, builder.documentsSkipped());
+		assertEquals(1.0, builder.progress(), 0.0);
+
+		for (Document doc : written)
+		{
+			assertEquals(doc.object(), viewDocs.read(new Identifier(doc.object().get("n"))).get().object());
+		}
+
+		// The view keys are noted, so the view is maintained from then on.
+		Document moved = written.get(0);
+		moved.object().put("n", 100);
+		service.update("db1", "backfilled", moved).get();
+		assertFalse(viewDocs.exists(new Identifier(0)).get());
+		assertTrue(viewDocs.exists(new Identifier(100)).get());
+	}
 }
@@ -20,10 +20,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -32,11 +34,15 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.ResultSet;
 import com.google.common.util.concurrent.Futures;
+import com.orangerhymelabs.helenus.cassandra.CassandraConfig;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
 import com.orangerhymelabs.helenus.cassandra.KeyspaceSchema;
 import com.orangerhymelabs.helenus.cassandra.TestCallback;
+import com.orangerhymelabs.helenus.cassandra.document.AbstractDocumentRepository;
+import com.orangerhymelabs.helenus.cassandra.document.DocumentRepositoryFactoryImpl;
 import com.orangerhymelabs.helenus.exception.DuplicateItemException;
 import com.orangerhymelabs.helenus.exception.ItemNotFoundException;
 import com.orangerhymelabs.helenus.exception.StorageException;
@@ -104,7 +110,7 @@ public class TableRepositoryTest
 		assertNotNull(result2.updatedAt());
 
 		// Delete
-		tables.delete(table.identifier());
+		tables.delete(table.identifier()).get();
 
 		// Document table should no longer exist.
 		assertFalse("Document table not deleted: " + table.toDbTable(), tableExists(table.toDbTable()));
@@ -339,6 +345,92 @@ public class TableRepositoryTest
 		assertTrue(callback.throwable() instanceof ItemNotFoundException);
 	}
 
+	@Test
+	public void shouldStoreConsistencyOverrides()
+	throws Exception
+	{
+		Table table = new Table();
+		table.name("table6");
+		table.database("db6");
+		table.readConsistency(ConsistencyLevel.ONE);
+		tables.create(table).get();
+
+		Table result = tables.read(table.identifier()).get();
+		assertEquals(ConsistencyLevel.ONE, result.readConsistency());
+		assertNull(result.writeConsistency());
+
+		DocumentRepositoryFactoryImpl factory = new DocumentRepositoryFactoryImpl(CassandraManager.session(), CassandraManager.keyspace());
+		factory.consistency(ConsistencyLevel.LOCAL_QUORUM, ConsistencyLevel.LOCAL_QUORUM);
+		AbstractDocumentRepository docs = factory.newInstance(result);
+		assertEquals(ConsistencyLevel.ONE, docs.readConsistency());
+		assertEquals(ConsistencyLevel.LOCAL_QUORUM, docs.writeConsistency());
+
+		result.writeConsistency(ConsistencyLevel.QUORUM);
+		tables.update(result).get();
+		Table updated = tables.read(table.identifier()).get();
+		assertEquals(ConsistencyLevel.ONE, updated.readConsistency());
+		assertEquals(ConsistencyLevel.QUORUM, updated.writeConsistency());
+	}
+
+	@Test
+	public void shouldShareRequestLimiterFromConfig()
+	throws Exception
+	{
+		Properties p = new Properties();
+		p.setProperty("cassandra.contactPoints", "localhost");
+		p.setProperty("cassandra.keyspace", CassandraManager.keyspace());
+		p.setProperty("cassandra.maxRequestsInFlight", "2");
+		CassandraConfig config = new CassandraConfig(p);
+		TableRepository limited = new TableRepository(CassandraManager.session(), config);
+		assertSame(config.getRequestLimiter(), limited.limiter());
+
+		Table table = new Table();
+		table.name("table7");
+		table.database("db7");
+		limited.create(table).get();
+		assertEquals(table, limited.read(table.identifier()).get());
+		assertEquals(0, config.getRequestLimiter().inFlight());
+	}
+
+	@Test
+	public void shouldMigrateLegacySchema()
+	throws Exception
+	{
+		String legacy = "legacy_tables";
+		KeyspaceSchema legacyKeyspace = new KeyspaceSchema();
+		legacyKeyspace.create(CassandraManager.session(), legacy);
+
+		try
+		{
+			CassandraManager.session().execute("create table " + legacy + ".sys_tbl (db_name text, tbl_name text, description text, tbl_type text, keys text, tbl_ttl bigint, views list<text>, created_at timestamp, updated_at timestamp, primary key ((db_name), tbl_name))");
+			CassandraManager.session().execute("insert into " + legacy + ".sys_tbl (db_name, tbl_name, tbl_type, keys, tbl_ttl) values ('db8', 'table8', 'document', 'id:uuid', 0)");
+			CassandraManager.session().execute("create table " + legacy + ".db8_table8 (id uuid primary key, object blob, created_at timestamp, updated_at timestamp)");
+			// Its document table is missing, which doesn't keep the rest from being migrated.
+			CassandraManager.session().execute("insert into " + legacy + ".sys_tbl (db_name, tbl_name, tbl_type, keys, tbl_ttl) values ('db8', 'missing', 'document', 'id:uuid', 0)");
+
+			assertTrue(new TableRepository.Schema().create(CassandraManager.session(), legacy));
+			assertTrue("Migration is not idempotent", new TableRepository.Schema().create(CassandraManager.session(), legacy));
+			assertTrue("Document table not migrated", columnExists(legacy, "db8_table8", "view_keys"));
+
+			TableRepository legacyTables = new TableRepository(CassandraManager.session(), legacy);
+			Table table = legacyTables.read(new Identifier("db8", "table8")).get();
+			assertNull(table.readConsistency());
+			assertNull(table.writeConsistency());
+			assertEquals(WriteMode.CONDITIONAL, table.writeMode());
+
+			table.readConsistency(ConsistencyLevel.ONE);
+			table.writeMode(WriteMode.UNCONDITIONAL);
+			legacyTables.update(table).get();
+			Table updated = legacyTables.read(table.identifier()).get();
+			assertEquals(ConsistencyLevel.ONE, updated.readConsistency());
+			assertEquals(WriteMode.UNCONDITIONAL, updated.writeMode());
+		}
+		finally
+		{
+			legacyKeyspace.drop(CassandraManager.session(), legacy);
+		}
+	}
+
 	private void waitFor(TestCallback<?> callback)
 	throws InterruptedException
     {
@@ -348,6 +440,12 @@ public class TableRepositoryTest
 		}
     }
 
+	private boolean columnExists(String keyspaceName, String tableName, String columnName)
+	{
+		ResultSet rs = CassandraManager.session().execute("select count(*) from system_schema.columns where keyspace_name = ? and table_name = ? and column_name = ?", keyspaceName, tableName, columnName);
+		return (rs.one().getLong(0) > 0);
+	}
+
 	private boolean tableExists(String tableName)
     {
 	    ResultSet rs = CassandraManager.session().execute(String.format("select count(*) from system_schema.tables where keyspace_name='%s' and table_name='%s'", CassandraManager.keyspace(), tableName));
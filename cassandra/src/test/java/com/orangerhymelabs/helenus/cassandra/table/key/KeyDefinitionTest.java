@@ -1,6 +1,7 @@
 package com.orangerhymelabs.helenus.cassandra.table.key;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
@@ -43,6 +44,7 @@ public class KeyDefinitionTest
 		assertEquals("alpha uuid,beta text", kd.asColumns());
 		assertEquals("primary key (alpha,beta)", kd.asPrimaryKey());
 		assertEquals("", kd.asClusteringKey());
+		assertEquals("alpha = ? and beta = ?", kd.asClusteringInClause());
 		assertTrue(kd.isValid());
 	}
 
@@ -57,6 +59,8 @@ public class KeyDefinitionTest
 		assertEquals("alpha uuid,beta text,chi timestamp,delta int", kd.asColumns());
 		assertEquals("primary key ((alpha,beta),chi,delta)", kd.asPrimaryKey());
 		assertEquals("with clustering order by (chi DESC,delta ASC)", kd.asClusteringKey());
+		assertEquals("alpha = ? and beta = ? and (chi,delta) in ?", kd.asClusteringInClause());
+		assertEquals(2, kd.partitionSize());
 		assertTrue(kd.isValid());
 	}
 
@@ -147,4 +151,25 @@ public class KeyDefinitionTest
 	    thrown.expectMessage("Missing properties: not_there, not_there_either");
 	    kd.identifier(BSON);
 	}
+
+	@Test
+	public void shouldRecomputeFragmentsWhenKeyChanges()
+	throws KeyDefinitionException
+	{
+		KeyDefinition kd = new KeyDefinition();
+		kd.addPartitionKey(new KeyComponent("alpha", DataTypes.TEXT));
+		String identityClause = kd.asIdentityClause();
+		assertSame(identityClause, kd.asIdentityClause());
+		assertEquals("?,?", kd.asQuestionMarks(1));
+		assertEquals(1, kd.identifier(BSON).size());
+
+		kd.addClusteringKey(new ClusteringKeyComponent("beta", DataTypes.INTEGER, Ordering.DESC));
+		assertEquals("alpha = ? and beta = ?", kd.asIdentityClause());
+		assertEquals("alpha,beta", kd.asSelectProperties());
+		assertEquals("alpha", kd.asPartitionProperties());
+		assertEquals("?,?,?", kd.asQuestionMarks(1));
+		assertEquals("?,?,?,?,?,?,?,?,?,?", kd.asQuestionMarks(8));
+		assertEquals(2, kd.components().size());
+		assertEquals(2, kd.identifier(BSON).size());
+	}
 }
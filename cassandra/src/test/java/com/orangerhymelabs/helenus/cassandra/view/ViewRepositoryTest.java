@@ -20,10 +20,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.cassandra.exceptions.ConfigurationException;
@@ -32,6 +34,7 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.google.common.util.concurrent.Futures;
 import com.orangerhymelabs.helenus.cassandra.CassandraManager;
@@ -382,6 +385,36 @@ public class ViewRepositoryTest
 		assertTrue(callback.throwable() instanceof ItemNotFoundException);
 	}
 
+	@Test
+	public void shouldUseGeneratedStatements()
+	throws Exception
+	{
+		ViewRepository_ViewStatements statements = new ViewRepository_ViewStatements(CassandraManager.session(), CassandraManager.keyspace(), null);
+		List<PreparedStatement> prepared = Futures.allAsList(statements.prepareAll()).get();
+
+		assertEquals(7, prepared.size());
+		assertTrue(prepared.get(0).getQueryString().startsWith("insert into " + CassandraManager.keyspace() + ".sys_view"));
+		assertSame(prepared.get(4), statements.read().get());
+	}
+
+	@Test
+	public void shouldCheckExistence()
+	throws Exception
+	{
+		Table table = new Table();
+		table.database("db9");
+		table.name("table9");
+
+		View view = new View();
+		view.table(table);
+		view.name("view9");
+		view.keys("(id:uuid)");
+
+		assertFalse(views.exists(view.identifier()).get());
+		views.create(view).get();
+		assertTrue(views.exists(view.identifier()).get());
+	}
+
 	private void waitFor(TestCallback<?> callback)
 	throws InterruptedException
     {
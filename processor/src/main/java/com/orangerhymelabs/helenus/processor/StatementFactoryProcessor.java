@@ -0,0 +1,292 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a concrete StatementFactory for each interface with @Query-annotated methods, so repositories
+ * don't dispatch through a dynamic Proxy. Each statement's CQL is formatted once, into a final field, at
+ * construction time.
+ *
+ * For an interface TableRepository.TableStatements, the generated class is TableRepository_TableStatements
+ * in the same package. It has a (Session, String keyspace, String table) constructor and prepares
+ * its statements through the Session's PreparedStatementCache.
+ *
+ * Every abstract method other than prepareAll() must have a @Query annotation and no parameters. Otherwise,
+ * the method is reported as a compile error and the interface's class isn't generated.
+ *
+ * The annotations are matched by name, so this processor has no compile-time dependency on the
+ * classes it generates code for.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class StatementFactoryProcessor
+extends AbstractProcessor
+{
+	private static final String SEPARATOR = "_";
+
+	private static final String QUERY = "com.orangerhymelabs.helenus.persistence.Query";
+	private static final String PREPARE_ALL = "prepareAll";
+	private static final String[] GENERATED = {"javax.annotation.Generated", "javax.annotation.processing.Generated"};
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes()
+	{
+		return Collections.singleton(QUERY);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		TypeElement query = processingEnv.getElementUtils().getTypeElement(QUERY);
+
+		if (query == null) return false;
+
+		Set<TypeElement> factories = new LinkedHashSet<>();
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(query))
+		{
+			Element enclosing = element.getEnclosingElement();
+
+			if (enclosing.getKind() == ElementKind.INTERFACE)
+			{
+				factories.add((TypeElement) enclosing);
+			}
+			else
+			{
+				processingEnv.getMessager().printMessage(Kind.WARNING, "@Query is only supported on StatementFactory interfaces", element);
+			}
+		}
+
+		for (TypeElement factory : factories)
+		{
+			try
+			{
+				generate(factory);
+			}
+			catch (IOException e)
+			{
+				processingEnv.getMessager().printMessage(Kind.ERROR, "Failed to generate StatementFactory: " + e.getMessage(), factory);
+			}
+		}
+
+		return false;
+	}
+
+	private void generate(TypeElement factory)
+	throws IOException
+	{
+		String packageName = packageOf(factory).getQualifiedName().toString();
+		String className = generatedName(factory);
+		List<ExecutableElement> statements = new ArrayList<>();
+		boolean hasPrepareAll = false;
+		boolean hasErrors = false;
+
+		for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(factory)))
+		{
+			if (!method.getModifiers().contains(Modifier.ABSTRACT)) continue;
+
+			if (queryOf(method) != null)
+			{
+				if (method.getParameters().isEmpty())
+				{
+					statements.add(method);
+				}
+				else
+				{
+					error("@Query methods can't take parameters", method, factory);
+					hasErrors = true;
+				}
+			}
+			else if (PREPARE_ALL.equals(method.getSimpleName().toString()) && method.getParameters().isEmpty())
+			{
+				hasPrepareAll = true;
+			}
+			else
+			{
+				error("No @Query annotation for '" + method.getSimpleName() + "'", method, factory);
+				hasErrors = true;
+			}
+		}
+
+		if (hasErrors) return;
+
+		StringBuilder s = new StringBuilder();
+
+		if (!packageName.isEmpty())
+		{
+			s.append("package ").append(packageName).append(";\n\n");
+		}
+
+		s.append("/**\n * Generated from the @Query annotations on ").append(factory.getQualifiedName()).append(". Do not edit.\n */\n");
+		String generated = generatedAnnotation();
+
+		if (generated != null)
+		{
+			s.append('@').append(generated).append("(\"").append(getClass().getName()).append("\")\n");
+		}
+
+		s.append("public final class ").append(className).append("\nimplements ").append(factory.getQualifiedName()).append("\n{\n");
+		s.append("\tprivate final com.orangerhymelabs.helenus.persistence.PreparedStatementCache statements;\n");
+
+		for (ExecutableElement method : statements)
+		{
+			s.append("\tprivate final String ").append(method.getSimpleName()).append(";\n");
+		}
+
+		s.append("\n\tpublic ").append(className).append("(com.datastax.driver.core.Session session, String keyspace, String table)\n\t{\n");
+		s.append("\t\tsuper();\n");
+		s.append("\t\tthis.statements = com.orangerhymelabs.helenus.persistence.PreparedStatementCache.forSession(session);\n");
+
+		for (ExecutableElement method : statements)
+		{
+			String cql = processingEnv.getElementUtils().getConstantExpression(queryOf(method));
+			s.append("\t\tthis.").append(method.getSimpleName()).append(" = (table != null ? String.format(")
+				.append(cql).append(", keyspace, table) : String.format(").append(cql).append(", keyspace));\n");
+		}
+
+		s.append("\t}\n");
+
+		for (ExecutableElement method : statements)
+		{
+			s.append("\n\t@Override\n\tpublic ").append(method.getReturnType()).append(' ').append(method.getSimpleName()).append("()\n\t{\n");
+			s.append("\t\treturn statements.prepare(").append(method.getSimpleName()).append(");\n\t}\n");
+		}
+
+		if (hasPrepareAll)
+		{
+			s.append("\n\t@Override\n\tpublic java.util.List<com.google.common.util.concurrent.ListenableFuture<com.datastax.driver.core.PreparedStatement>> prepareAll()\n\t{\n");
+			s.append("\t\treturn java.util.Arrays.asList(");
+
+			for (int i = 0; i < statements.size(); i++)
+			{
+				if (i > 0) s.append(", ");
+				s.append(statements.get(i).getSimpleName()).append("()");
+			}
+
+			s.append(");\n\t}\n");
+		}
+
+		s.append("}\n");
+
+		String qualifiedName = (packageName.isEmpty() ? className : packageName + "." + className);
+
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, factory).openWriter())
+		{
+			writer.write(s.toString());
+		}
+	}
+
+	/**
+	 * Reports an error on the method, or on the factory if the method is inherited from another interface.
+	 */
+	private void error(String message, ExecutableElement method, TypeElement factory)
+	{
+		if (method.getEnclosingElement().equals(factory))
+		{
+			processingEnv.getMessager().printMessage(Kind.ERROR, message, method);
+		}
+		else
+		{
+			processingEnv.getMessager().printMessage(Kind.ERROR, message + " (inherited from " + method.getEnclosingElement() + ")", factory);
+		}
+	}
+
+	/**
+	 * @return the value of the method's @Query annotation, or null if it has none.
+	 */
+	private String queryOf(ExecutableElement method)
+	{
+		for (AnnotationMirror annotation : method.getAnnotationMirrors())
+		{
+			if (!QUERY.equals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString())) continue;
+
+			for (ExecutableElement key : annotation.getElementValues().keySet())
+			{
+				if ("value".equals(key.getSimpleName().toString()))
+				{
+					AnnotationValue value = annotation.getElementValues().get(key);
+					return (String) value.getValue();
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the @Generated annotation available on the compilation classpath (it moved in Java 9), or null if there is none.
+	 */
+	private String generatedAnnotation()
+	{
+		for (String name : GENERATED)
+		{
+			if (processingEnv.getElementUtils().getTypeElement(name) != null) return name;
+		}
+
+		return null;
+	}
+
+	/**
+	 * The simple names of the interface and its enclosing types, separated by underscores.
+	 */
+	private String generatedName(TypeElement factory)
+	{
+		StringBuilder name = new StringBuilder(factory.getSimpleName());
+		Element enclosing = factory.getEnclosingElement();
+
+		while (enclosing instanceof TypeElement)
+		{
+			name.insert(0, SEPARATOR).insert(0, enclosing.getSimpleName());
+			enclosing = enclosing.getEnclosingElement();
+		}
+
+		return name.toString();
+	}
+
+	private PackageElement packageOf(Element element)
+	{
+		return processingEnv.getElementUtils().getPackageOf(element);
+	}
+}
@@ -0,0 +1,250 @@
+/*
+    Copyright 2026, Strategic Gains, Inc.
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package com.orangerhymelabs.helenus.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+/**
+ * Runs the processor over small factory interfaces, compiled in memory. The @Query annotation and the types
+ * the generated code uses are stubs with the same names, so the generated source compiles without the
+ * cassandra module on the classpath.
+ *
+ * @author tfredrich
+ * @since Oct 18, 2026
+ */
+public class StatementFactoryProcessorTest
+{
+	private static final String[][] STUBS = {
+		{"com.orangerhymelabs.helenus.persistence.Query", "package com.orangerhymelabs.helenus.persistence;\n"
+			+ "public @interface Query { String value(); }\n"},
+		{"com.orangerhymelabs.helenus.persistence.PreparedStatementCache", "package com.orangerhymelabs.helenus.persistence;\n"
+			+ "import com.datastax.driver.core.*;\n"
+			+ "import com.google.common.util.concurrent.ListenableFuture;\n"
+			+ "public class PreparedStatementCache {\n"
+			+ "  public static PreparedStatementCache forSession(Session session) { return null; }\n"
+			+ "  public ListenableFuture<PreparedStatement> prepare(String cql) { return null; }\n"
+			+ "}\n"},
+		{"com.datastax.driver.core.Session", "package com.datastax.driver.core;\npublic interface Session {}\n"},
+		{"com.datastax.driver.core.PreparedStatement", "package com.datastax.driver.core;\npublic interface PreparedStatement {}\n"},
+		{"com.google.common.util.concurrent.ListenableFuture", "package com.google.common.util.concurrent;\npublic interface ListenableFuture<V> {}\n"}
+	};
+
+	private static final String IMPORTS = "package test;\n"
+		+ "import java.util.List;\n"
+		+ "import com.datastax.driver.core.PreparedStatement;\n"
+		+ "import com.google.common.util.concurrent.ListenableFuture;\n"
+		+ "import com.orangerhymelabs.helenus.persistence.Query;\n";
+
+	@Test
+	public void shouldGenerateFactory()
+	{
+		Compilation compilation = compile(IMPORTS
+			+ "public class Repository {\n"
+			+ "public interface Statements {\n"
+			+ "  @Query(\"select * from %s.%s\") ListenableFuture<PreparedStatement> readAll();\n"
+			+ "  List<ListenableFuture<PreparedStatement>> prepareAll();\n"
+			+ "}}\n");
+
+		assertTrue(compilation.errors().toString(), compilation.errors().isEmpty());
+		String source = compilation.generated("test.Repository_Statements");
+		assertNotNull(source);
+		assertTrue(source.contains("public com.google.common.util.concurrent.ListenableFuture<com.datastax.driver.core.PreparedStatement> readAll()"));
+		assertTrue(source.contains("return java.util.Arrays.asList(readAll());"));
+	}
+
+	@Test
+	public void shouldRejectQueryWithParameters()
+	{
+		Compilation compilation = compile(IMPORTS
+			+ "public class Repository {\n"
+			+ "public interface Statements {\n"
+			+ "  @Query(\"select * from %s.%s\") ListenableFuture<PreparedStatement> readAll();\n"
+			+ "  @Query(\"select * from %s.%s where id = ?\") ListenableFuture<PreparedStatement> read(String id);\n"
+			+ "}}\n");
+
+		assertEquals(1, compilation.errors().size());
+		Diagnostic<? extends JavaFileObject> error = compilation.errors().get(0);
+		assertEquals("@Query methods can't take parameters", error.getMessage(Locale.ROOT));
+		assertEquals(9, error.getLineNumber());
+		assertNull(compilation.generated("test.Repository_Statements"));
+	}
+
+	@Test
+	public void shouldRejectMethodWithoutQuery()
+	{
+		Compilation compilation = compile(IMPORTS
+			+ "public class Repository {\n"
+			+ "public interface Statements {\n"
+			+ "  @Query(\"select * from %s.%s\") ListenableFuture<PreparedStatement> readAll();\n"
+			+ "  ListenableFuture<PreparedStatement> exists();\n"
+			+ "}}\n");
+
+		assertEquals(1, compilation.errors().size());
+		Diagnostic<? extends JavaFileObject> error = compilation.errors().get(0);
+		assertEquals("No @Query annotation for 'exists'", error.getMessage(Locale.ROOT));
+		assertEquals(9, error.getLineNumber());
+		assertNull(compilation.generated("test.Repository_Statements"));
+	}
+
+	@Test
+	public void shouldRejectInheritedMethodWithoutQuery()
+	{
+		Compilation compilation = compile(IMPORTS
+			+ "public class Repository {\n"
+			+ "public interface Statements extends Base {\n"
+			+ "  @Query(\"select * from %s.%s\") ListenableFuture<PreparedStatement> readAll();\n"
+			+ "}}\n"
+			+ "interface Base {\n"
+			+ "  ListenableFuture<PreparedStatement> exists();\n"
+			+ "}\n");
+
+		assertEquals(1, compilation.errors().size());
+		assertTrue(compilation.errors().get(0).getMessage(Locale.ROOT).startsWith("No @Query annotation for 'exists'"));
+		assertNull(compilation.generated("test.Repository_Statements"));
+	}
+
+	private Compilation compile(String factory)
+	{
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		Compilation compilation = new Compilation(diagnostics);
+		StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null);
+		JavaFileManager output = new ForwardingJavaFileManager<StandardJavaFileManager>(files)
+		{
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling)
+			{
+				Source source = new Source(className, kind);
+
+				if (kind == Kind.SOURCE) compilation.outputs.put(className, source);
+
+				return source;
+			}
+		};
+
+		List<JavaFileObject> sources = new ArrayList<>();
+
+		for (String[] stub : STUBS)
+		{
+			sources.add(new Source(stub[0], stub[1]));
+		}
+
+		sources.add(new Source("test.Repository", factory));
+		JavaCompiler.CompilationTask task = compiler.getTask(null, output, diagnostics, null, null, sources);
+		task.setProcessors(Arrays.asList(new StatementFactoryProcessor()));
+		task.call();
+		return compilation;
+	}
+
+	private static class Compilation
+	{
+		private DiagnosticCollector<JavaFileObject> diagnostics;
+		private Map<String, Source> outputs = new HashMap<>();
+
+		public Compilation(DiagnosticCollector<JavaFileObject> diagnostics)
+		{
+			super();
+			this.diagnostics = diagnostics;
+		}
+
+		public List<Diagnostic<? extends JavaFileObject>> errors()
+		{
+			List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+
+			for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+			{
+				if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic);
+			}
+
+			return errors;
+		}
+
+		/**
+		 * @return the generated source for the class, or null if it wasn't generated.
+		 */
+		public String generated(String className)
+		{
+			Source source = outputs.get(className);
+			return (source != null ? source.output.toString() : null);
+		}
+	}
+
+	private static class Source
+	extends SimpleJavaFileObject
+	{
+		private String content;
+		private ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		public Source(String className, String content)
+		{
+			super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+			this.content = content;
+		}
+
+		public Source(String className, Kind kind)
+		{
+			super(URI.create("string:///" + className.replace('.', '/') + kind.extension), kind);
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors)
+		{
+			// Generated sources are read back in the next processing round.
+			return (content != null ? content : output.toString());
+		}
+
+		@Override
+		public OutputStream openOutputStream()
+		{
+			return output;
+		}
+
+		@Override
+		public Writer openWriter()
+		{
+			return new OutputStreamWriter(output);
+		}
+	}
+}